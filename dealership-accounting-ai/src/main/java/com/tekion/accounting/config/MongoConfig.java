@@ -0,0 +1,86 @@
+package com.tekion.accounting.config;
+
+import com.tekion.accounting.model.Money;
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * MongoDB mapping configuration
+ *
+ * Design: Money is written as Decimal128 dollars, and read back from Decimal128 or
+ * from the plain doubles/integers that documents created before Money still hold
+ * Why: Stored values stay exact and human-readable in the shell, and no data
+ *      migration is needed for existing collections
+ */
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                MoneyToDecimal128Converter.INSTANCE,
+                Decimal128ToMoneyConverter.INSTANCE,
+                DoubleToMoneyConverter.INSTANCE,
+                IntegerToMoneyConverter.INSTANCE,
+                LongToMoneyConverter.INSTANCE
+        ));
+    }
+
+    @WritingConverter
+    enum MoneyToDecimal128Converter implements Converter<Money, Decimal128> {
+        INSTANCE;
+
+        @Override
+        public Decimal128 convert(Money source) {
+            return new Decimal128(source.toBigDecimal());
+        }
+    }
+
+    @ReadingConverter
+    enum Decimal128ToMoneyConverter implements Converter<Decimal128, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Decimal128 source) {
+            return Money.of(source.bigDecimalValue());
+        }
+    }
+
+    @ReadingConverter
+    enum DoubleToMoneyConverter implements Converter<Double, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Double source) {
+            return Money.of(source);
+        }
+    }
+
+    @ReadingConverter
+    enum IntegerToMoneyConverter implements Converter<Integer, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Integer source) {
+            return Money.of(BigDecimal.valueOf(source));
+        }
+    }
+
+    @ReadingConverter
+    enum LongToMoneyConverter implements Converter<Long, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Long source) {
+            return Money.of(BigDecimal.valueOf(source));
+        }
+    }
+}
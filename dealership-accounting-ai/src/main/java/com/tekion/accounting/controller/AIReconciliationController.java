@@ -1,11 +1,31 @@
 package com.tekion.accounting.controller;
 
+import com.tekion.accounting.matching.AssignmentMode;
+import com.tekion.accounting.matching.FeeBand;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.matching.StrategyStats;
+import com.tekion.accounting.model.MatchModel;
+import com.tekion.accounting.model.ReconciliationRun;
 import com.tekion.accounting.service.AIReconciliationService;
+import com.tekion.accounting.service.BulkReconciliationWriter;
+import com.tekion.accounting.service.ExplanationQueue;
+import com.tekion.accounting.service.ExplanationStreamHub;
+import com.tekion.accounting.service.ExplanationSweeper;
+import com.tekion.accounting.service.IncrementalReconciliationService;
+import com.tekion.accounting.service.InlineExplanationGenerator;
+import com.tekion.accounting.service.LatencySloController;
+import com.tekion.accounting.service.MatchModelService;
+import com.tekion.accounting.service.OllamaClient;
+import com.tekion.accounting.service.PromptCache;
+import com.tekion.accounting.service.ReconciliationJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * REST API for AI-powered reconciliation
  */
@@ -16,6 +36,18 @@ import org.springframework.web.bind.annotation.*;
 public class AIReconciliationController {
     
     private final AIReconciliationService aiReconciliationService;
+    private final IncrementalReconciliationService incrementalReconciliationService;
+    private final ReconciliationJobService reconciliationJobService;
+    private final BulkReconciliationWriter bulkReconciliationWriter;
+    private final ExplanationQueue explanationQueue;
+    private final ExplanationStreamHub explanationStreamHub;
+    private final ExplanationSweeper explanationSweeper;
+    private final InlineExplanationGenerator inlineExplanationGenerator;
+    private final PromptCache promptCache;
+    private final OllamaClient ollamaClient;
+    private final LatencySloController latencySloController;
+    private final MatchingEngine matchingEngine;
+    private final MatchModelService matchModelService;
     
     /**
      * Run AI reconciliation
@@ -27,5 +59,204 @@ public class AIReconciliationController {
         AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
         return ResponseEntity.ok(result);
     }
+    
+    /**
+     * Dry run: what a reconciliation would match and flag, with phase timings
+     * POST /api/ai-reconciliation/simulate?minFeePercentage=1.5&maxFeePercentage=3.5&assignmentMode=one-to-one
+     *      &strategy=exact,merchant-fee,subset-sum
+     * 
+     * Writes nothing and skips Ollama; parameters left out use the configured values.
+     * details=false returns counts and timings only.
+     */
+    @PostMapping("/simulate")
+    public ResponseEntity<AIReconciliationService.SimulationResult> simulate(
+            @RequestParam(required = false) Double minFeePercentage,
+            @RequestParam(required = false) Double maxFeePercentage,
+            @RequestParam(required = false) String assignmentMode,
+            @RequestParam(required = false) String strategy,
+            @RequestParam(defaultValue = "true") boolean details) {
+        log.info("Simulating AI reconciliation");
+        try {
+            FeeBand feeBand = null;
+            if (minFeePercentage != null || maxFeePercentage != null) {
+                FeeBand configured = matchingEngine.getFeeBand();
+                feeBand = new FeeBand(
+                        minFeePercentage != null ? minFeePercentage : configured.getMinPercentage(),
+                        maxFeePercentage != null ? maxFeePercentage : configured.getMaxPercentage());
+            }
+            AssignmentMode mode = assignmentMode != null ? AssignmentMode.fromConfig(assignmentMode) : null;
+            List<String> pipeline = strategy != null ? MatchingEngine.parsePipeline(strategy) : null;
+            return ResponseEntity.ok(aiReconciliationService.simulate(mode, feeBand, pipeline, details));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid simulation parameters: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Start AI reconciliation as a background job
+     * POST /api/ai-reconciliation/jobs
+     * 
+     * Returns 202 with the job (poll GET /jobs/{id} for progress), or 503 if the job queue is full
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ReconciliationRun> startJob() {
+        log.info("Starting AI reconciliation job");
+        ReconciliationRun job = reconciliationJobService.submit();
+        HttpStatus status = "FAILED".equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
+    }
+    
+    /**
+     * Get job status and progress
+     * GET /api/ai-reconciliation/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ReconciliationRun> getJob(@PathVariable String id) {
+        return ResponseEntity.of(reconciliationJobService.getJob(id));
+    }
+    
+    /**
+     * Cancel a queued or running job
+     * PUT /api/ai-reconciliation/jobs/{id}/cancel
+     */
+    @PutMapping("/jobs/{id}/cancel")
+    public ResponseEntity<ReconciliationRun> cancelJob(@PathVariable String id) {
+        log.info("Cancelling AI reconciliation job: {}", id);
+        return ResponseEntity.of(reconciliationJobService.cancel(id));
+    }
+    
+    /**
+     * Get recent reconciliation runs from the run ledger
+     * GET /api/ai-reconciliation/runs
+     */
+    @GetMapping("/runs")
+    public ResponseEntity<List<ReconciliationRun>> getRecentRuns() {
+        return ResponseEntity.ok(aiReconciliationService.getRecentRuns());
+    }
+    
+    /**
+     * Get incremental (event-driven) reconciliation counters
+     * GET /api/ai-reconciliation/incremental/stats
+     */
+    @GetMapping("/incremental/stats")
+    public ResponseEntity<IncrementalReconciliationService.IncrementalStats> getIncrementalStats() {
+        return ResponseEntity.ok(incrementalReconciliationService.getStats());
+    }
+    
+    /**
+     * Get bulk write counters for reconciliation output
+     * GET /api/ai-reconciliation/bulk-writer/stats
+     */
+    @GetMapping("/bulk-writer/stats")
+    public ResponseEntity<BulkReconciliationWriter.BulkWriteStats> getBulkWriterStats() {
+        return ResponseEntity.ok(bulkReconciliationWriter.getStats());
+    }
+    
+    /**
+     * Re-queue matches and exceptions still waiting for Ollama text (PENDING or FAILED)
+     * POST /api/ai-reconciliation/explanations/sweep
+     */
+    @PostMapping("/explanations/sweep")
+    public ResponseEntity<ExplanationSweeper.SweepResult> sweepExplanations() {
+        return ResponseEntity.ok(explanationSweeper.sweep());
+    }
+    
+    /**
+     * Get explanation sweep totals
+     * GET /api/ai-reconciliation/explanations/sweep/stats
+     */
+    @GetMapping("/explanations/sweep/stats")
+    public ResponseEntity<ExplanationSweeper.SweepStats> getExplanationSweepStats() {
+        return ResponseEntity.ok(explanationSweeper.getStats());
+    }
+    
+    /**
+     * Get explanation queue depth and throughput (matches and exceptions awaiting Ollama text)
+     * GET /api/ai-reconciliation/explanations/stats
+     */
+    @GetMapping("/explanations/stats")
+    public ResponseEntity<ExplanationQueue.ExplanationQueueStats> getExplanationStats() {
+        return ResponseEntity.ok(explanationQueue.getStats());
+    }
+    
+    /**
+     * Get inline-mode generation counters: calls in flight, total model time and time runs waited
+     * GET /api/ai-reconciliation/explanations/inline/stats
+     */
+    @GetMapping("/explanations/inline/stats")
+    public ResponseEntity<InlineExplanationGenerator.InlineExplanationStats> getInlineExplanationStats() {
+        return ResponseEntity.ok(inlineExplanationGenerator.getStats());
+    }
+    
+    /**
+     * Get live explanation streams: shared generations, viewers and time to first token
+     * GET /api/ai-reconciliation/explanations/streams/stats
+     */
+    @GetMapping("/explanations/streams/stats")
+    public ResponseEntity<ExplanationStreamHub.ExplanationStreamStats> getExplanationStreamStats() {
+        return ResponseEntity.ok(explanationStreamHub.getStats());
+    }
+    
+    /**
+     * Get Ollama prompt cache hits, misses and size
+     * GET /api/ai-reconciliation/prompt-cache/stats
+     */
+    @GetMapping("/prompt-cache/stats")
+    public ResponseEntity<PromptCache.PromptCacheStats> getPromptCacheStats() {
+        return ResponseEntity.ok(promptCache.getStats());
+    }
+    
+    /**
+     * Get Ollama call outcomes, in-flight calls and circuit breaker transitions
+     * GET /api/ai-reconciliation/ollama/stats
+     */
+    @GetMapping("/ollama/stats")
+    public ResponseEntity<OllamaClient.OllamaClientStats> getOllamaStats() {
+        return ResponseEntity.ok(ollamaClient.getStats());
+    }
+    
+    /**
+     * Get the LLM latency SLO mode, latency histogram and recent mode switches
+     * GET /api/ai-reconciliation/ollama/slo/stats
+     */
+    @GetMapping("/ollama/slo/stats")
+    public ResponseEntity<LatencySloController.SloStats> getOllamaSloStats() {
+        return ResponseEntity.ok(latencySloController.getStats());
+    }
+    
+    /**
+     * Get per-strategy candidate, hit and timing totals for the matching pipeline
+     * GET /api/ai-reconciliation/strategies/stats
+     */
+    @GetMapping("/strategies/stats")
+    public ResponseEntity<List<StrategyStats>> getStrategyStats() {
+        return ResponseEntity.ok(matchingEngine.getStrategyStats());
+    }
+    
+    /**
+     * Train the ml-based match scorer from confirmed and rejected matches
+     * POST /api/ai-reconciliation/model/train
+     * 
+     * Returns 409 if there are not enough reviewed matches yet
+     */
+    @PostMapping("/model/train")
+    public ResponseEntity<MatchModel> trainModel() {
+        log.info("Training match model");
+        try {
+            return ResponseEntity.ok(matchModelService.train());
+        } catch (IllegalStateException e) {
+            log.warn("Match model not trained: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    /**
+     * Get the current match model (weights and training stats)
+     * GET /api/ai-reconciliation/model
+     */
+    @GetMapping("/model")
+    public ResponseEntity<MatchModel> getModel() {
+        return ResponseEntity.of(matchModelService.getCurrentModel());
+    }
 }
-
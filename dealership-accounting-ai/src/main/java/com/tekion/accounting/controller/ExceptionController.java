@@ -2,11 +2,14 @@ package com.tekion.accounting.controller;
 
 import com.tekion.accounting.model.Exception;
 import com.tekion.accounting.service.ExceptionService;
+import com.tekion.accounting.service.ExplanationStreamService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -20,6 +23,7 @@ import java.util.List;
 public class ExceptionController {
     
     private final ExceptionService exceptionService;
+    private final ExplanationStreamService explanationStreamService;
     
     /**
      * Get all open exceptions
@@ -57,6 +61,16 @@ public class ExceptionController {
         return ResponseEntity.ok(exception);
     }
     
+    /**
+     * Stream an exception's AI memo as it is generated (Server-Sent Events)
+     * GET /api/exceptions/{id}/memo/stream
+     */
+    @GetMapping(value = "/{id}/memo/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMemo(@PathVariable String id) {
+        log.info("Streaming memo for exception: {}", id);
+        return ResponseEntity.of(explanationStreamService.streamExceptionMemo(id));
+    }
+    
     /**
      * Resolve an exception
      * PUT /api/exceptions/{id}/resolve
@@ -1,14 +1,18 @@
 package com.tekion.accounting.controller;
 
 import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.service.ExplanationStreamService;
+import com.tekion.accounting.service.MatchExplanationService;
 import com.tekion.accounting.service.ReconciliationService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -23,6 +27,8 @@ import java.util.List;
 public class ReconciliationController {
     
     private final ReconciliationService reconciliationService;
+    private final MatchExplanationService matchExplanationService;
+    private final ExplanationStreamService explanationStreamService;
     
     /**
      * Confirm a match between bank transaction and deposit batch
@@ -55,6 +61,26 @@ public class ReconciliationController {
         return ResponseEntity.ok(matches);
     }
     
+    /**
+     * Get a match with its AI explanation, generating the LLM text on first open
+     * GET /api/reconciliation/matches/{id}/explanation
+     */
+    @GetMapping("/matches/{id}/explanation")
+    public ResponseEntity<ReconciliationMatch> getMatchExplanation(@PathVariable String id) {
+        log.info("REST: Getting explanation for match {}", id);
+        return ResponseEntity.of(matchExplanationService.explain(id));
+    }
+    
+    /**
+     * Stream a match's AI explanation as it is generated (Server-Sent Events)
+     * GET /api/reconciliation/matches/{id}/explanation/stream
+     */
+    @GetMapping(value = "/matches/{id}/explanation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMatchExplanation(@PathVariable String id) {
+        log.info("REST: Streaming explanation for match {}", id);
+        return ResponseEntity.of(explanationStreamService.streamMatchExplanation(id));
+    }
+    
     /**
      * Get AI-suggested matches
      * GET /api/reconciliation/ai-suggested
@@ -1,12 +1,15 @@
 package com.tekion.accounting.controller;
 
 import com.tekion.accounting.model.RepairOrder;
+import com.tekion.accounting.service.ExplanationStreamService;
 import com.tekion.accounting.service.RepairOrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -22,6 +25,7 @@ import java.util.List;
 public class RepairOrderController {
     
     private final RepairOrderService repairOrderService;
+    private final ExplanationStreamService explanationStreamService;
     
     /**
      * Create a new repair order
@@ -64,6 +68,17 @@ public class RepairOrderController {
         return ResponseEntity.ok(repairOrder);
     }
     
+    /**
+     * Stream an AI reply to a customer's question about the bill (Server-Sent Events)
+     * GET /api/repair-orders/{id}/dispute-resolution/stream?question=...
+     */
+    @GetMapping(value = "/{id}/dispute-resolution/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDisputeResolution(@PathVariable String id,
+                                                              @RequestParam String question) {
+        log.info("REST: Streaming dispute resolution for repair order: {}", id);
+        return ResponseEntity.of(explanationStreamService.streamDisputeResolution(id, question));
+    }
+    
     /**
      * Close a repair order
      * PUT /api/repair-orders/{id}/close
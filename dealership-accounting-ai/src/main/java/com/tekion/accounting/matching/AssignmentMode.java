@@ -0,0 +1,24 @@
+package com.tekion.accounting.matching;
+
+/**
+ * How the matching engine hands out deposit batches to bank credits
+ */
+public enum AssignmentMode {
+
+    /**
+     * Each credit takes its best batch; a batch may be suggested for several credits
+     */
+    FIRST_HIT,
+
+    /**
+     * Each batch goes to at most one credit, maximizing total match confidence
+     */
+    ONE_TO_ONE;
+
+    /**
+     * Parse the app.reconciliation.assignment-mode value (first-hit, one-to-one)
+     */
+    public static AssignmentMode fromConfig(String value) {
+        return AssignmentMode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
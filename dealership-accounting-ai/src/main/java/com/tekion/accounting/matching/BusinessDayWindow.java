@@ -0,0 +1,98 @@
+package com.tekion.accounting.matching;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Date window for 1:1 matching, measured in business days (Monday to Friday)
+ *
+ * Design: Dates are epoch days (long); the distance between two days is the number of
+ * weekdays after the earlier one up to and including the later one, in O(1)
+ * Why: Card settlements land one to three business days after the batch is deposited,
+ *      so a Friday batch and a Monday credit are one day apart, not three
+ *
+ * Confidence falls off linearly with distance. Items without a date are never pruned;
+ * they are scored as if they sat on the edge of the window.
+ */
+public final class BusinessDayWindow {
+
+    /**
+     * Epoch day used for a missing date
+     */
+    public static final long UNDATED = Long.MIN_VALUE;
+
+    private final int businessDays;
+    private final double decayPerDay;
+
+    public BusinessDayWindow(int businessDays, double decayPerDay) {
+        if (businessDays < 0 || decayPerDay < 0) {
+            throw new IllegalArgumentException("Date window needs business-days >= 0 and decay >= 0, got "
+                    + businessDays + " and " + decayPerDay);
+        }
+        this.businessDays = businessDays;
+        this.decayPerDay = decayPerDay;
+    }
+
+    public int getBusinessDays() {
+        return businessDays;
+    }
+
+    public double getDecayPerDay() {
+        return decayPerDay;
+    }
+
+    public static long epochDay(LocalDate date) {
+        return date == null ? UNDATED : date.toEpochDay();
+    }
+
+    public static long epochDay(LocalDateTime dateTime) {
+        return dateTime == null ? UNDATED : dateTime.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Business days between two epoch days (undated on either side counts as the window edge)
+     */
+    public int distance(long dayA, long dayB) {
+        if (dayA == UNDATED || dayB == UNDATED) {
+            return businessDays;
+        }
+        return businessDaysBetween(dayA, dayB);
+    }
+
+    /**
+     * Weekdays after the earlier day up to and including the later one (both dated)
+     */
+    public static int businessDaysBetween(long dayA, long dayB) {
+        long distance = Math.abs(weekdaysThrough(dayA) - weekdaysThrough(dayB));
+        return (int) Math.min(distance, Integer.MAX_VALUE);
+    }
+
+    public boolean contains(long dayA, long dayB) {
+        return distance(dayA, dayB) <= businessDays;
+    }
+
+    /**
+     * Calendar days on either side of a date that can still be within the window
+     *
+     * Every five business days cross at most one weekend, plus one more at each edge.
+     */
+    public int calendarSpan() {
+        return businessDays + 2 * (businessDays / 5 + 2);
+    }
+
+    /**
+     * Base confidence less the per-day decay (never below zero)
+     */
+    public double confidence(double baseConfidence, int distance) {
+        return Math.max(0.0, baseConfidence - decayPerDay * distance);
+    }
+
+    /**
+     * Weekdays from an arbitrary Monday up to and including the day
+     */
+    private static long weekdaysThrough(long epochDay) {
+        // 1970-01-01 was a Thursday, so shifting by three puts Monday at index 0
+        long shifted = epochDay + 3;
+        return 5 * Math.floorDiv(shifted, 7) + Math.min(Math.floorMod(shifted, 7) + 1, 5);
+    }
+}
@@ -0,0 +1,162 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Mutable in-memory index of pending credits and open batches for incremental matching
+ *
+ * Design: Both sides keyed by amount in cents in a sorted map (insertion order kept per amount)
+ * Why: A new item is matched with one exact probe plus one range scan over the fee band,
+ *      instead of reloading and rescanning everything from Mongo
+ *
+ * Not thread-safe; the owner serializes access.
+ */
+public class CandidateIndex {
+
+    private final FeeBand band;
+
+    private final NavigableMap<Long, Map<String, DepositBatch>> batchesByCents = new TreeMap<>();
+    private final NavigableMap<Long, Map<String, BankTransaction>> creditsByCents = new TreeMap<>();
+    private final Map<String, Long> batchCents = new HashMap<>();
+    private final Map<String, Long> creditCents = new HashMap<>();
+
+    public CandidateIndex(FeeBand band) {
+        this.band = band;
+    }
+
+    public void addBatch(DepositBatch batch) {
+        removeBatch(batch.getId());
+        long cents = batch.getTotal().getCents();
+        batchesByCents.computeIfAbsent(cents, key -> new LinkedHashMap<>()).put(batch.getId(), batch);
+        batchCents.put(batch.getId(), cents);
+    }
+
+    public void addCredit(BankTransaction transaction) {
+        removeCredit(transaction.getId());
+        long cents = transaction.getAmount().getCents();
+        creditsByCents.computeIfAbsent(cents, key -> new LinkedHashMap<>()).put(transaction.getId(), transaction);
+        creditCents.put(transaction.getId(), cents);
+    }
+
+    public boolean removeBatch(String batchId) {
+        return remove(batchId, batchCents, batchesByCents);
+    }
+
+    public boolean removeCredit(String transactionId) {
+        return remove(transactionId, creditCents, creditsByCents);
+    }
+
+    public boolean containsBatch(String batchId) {
+        return batchCents.containsKey(batchId);
+    }
+
+    public boolean containsCredit(String transactionId) {
+        return creditCents.containsKey(transactionId);
+    }
+
+    public int batchCount() {
+        return batchCents.size();
+    }
+
+    public int creditCount() {
+        return creditCents.size();
+    }
+
+    public void clear() {
+        batchesByCents.clear();
+        creditsByCents.clear();
+        batchCents.clear();
+        creditCents.clear();
+    }
+
+    /**
+     * Best open batch for a credit (exact first, then merchant fee), or null
+     */
+    public ProposedMatch matchCredit(BankTransaction transaction) {
+        long credit = transaction.getAmount().getCents();
+        Map<String, DepositBatch> exact = batchesByCents.get(credit);
+        if (exact != null && !exact.isEmpty()) {
+            return ProposedMatch.exact(transaction, exact.values().iterator().next());
+        }
+        if (credit <= 0) {
+            return null;
+        }
+
+        // Batch totals B with min <= (B - credit) / B * 100 <= max
+        long low = band.lowestTotalFor(credit);
+        long high = band.highestTotalFor(credit);
+
+        DepositBatch best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Map<String, DepositBatch> group : batchesByCents.subMap(low, true, high, true).values()) {
+            for (DepositBatch batch : group.values()) {
+                long total = batch.getTotal().getCents();
+                double score = band.score(credit, total);
+                if (band.contains(credit, total) && score < bestScore) {
+                    best = batch;
+                    bestScore = score;
+                }
+            }
+        }
+        return best == null ? null : feeMatch(transaction, best);
+    }
+
+    /**
+     * Best pending credit for a batch (exact first, then merchant fee), or null
+     */
+    public ProposedMatch matchBatch(DepositBatch batch) {
+        long total = batch.getTotal().getCents();
+        Map<String, BankTransaction> exact = creditsByCents.get(total);
+        if (exact != null && !exact.isEmpty()) {
+            return ProposedMatch.exact(exact.values().iterator().next(), batch);
+        }
+        if (total <= 0) {
+            return null;
+        }
+
+        // Credits C with min <= (total - C) / total * 100 <= max
+        long low = band.lowestCreditFor(total);
+        long high = band.highestCreditFor(total);
+
+        BankTransaction best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Map<String, BankTransaction> group : creditsByCents.subMap(low, true, high, true).values()) {
+            for (BankTransaction transaction : group.values()) {
+                long credit = transaction.getAmount().getCents();
+                double score = band.score(credit, total);
+                if (band.contains(credit, total) && score < bestScore) {
+                    best = transaction;
+                    bestScore = score;
+                }
+            }
+        }
+        return best == null ? null : feeMatch(best, batch);
+    }
+
+    private static ProposedMatch feeMatch(BankTransaction transaction, DepositBatch batch) {
+        return ProposedMatch.merchantFee(transaction, batch,
+                batch.getTotal().minus(transaction.getAmount()),
+                FeeBand.feePercentage(transaction.getAmount().getCents(), batch.getTotal().getCents()));
+    }
+
+    private static <T> boolean remove(String id, Map<String, Long> centsById,
+                                      NavigableMap<Long, Map<String, T>> byCents) {
+        Long cents = centsById.remove(id);
+        if (cents == null) {
+            return false;
+        }
+        Map<String, T> group = byCents.get(cents);
+        group.remove(id);
+        if (group.isEmpty()) {
+            byCents.remove(cents);
+        }
+        return true;
+    }
+}
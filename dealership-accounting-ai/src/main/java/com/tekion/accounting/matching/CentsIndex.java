@@ -0,0 +1,125 @@
+package com.tekion.accounting.matching;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from an amount in integer cents to the positions holding that amount
+ *
+ * Design: Open addressing over primitive arrays (no boxing, no per-entry objects)
+ * Why: One constant-time probe per bank transaction instead of a scan over every batch
+ *
+ * Positions sharing an amount are chained in insertion order, so first(...) returns
+ * the same batch a front-to-back scan of the source list would have found. The same
+ * positions are also laid out contiguously per amount for random access by rank.
+ */
+public final class CentsIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long[] keys;
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] next;
+    private final int[] counts;
+    private final int[] starts;
+    private final int[] grouped;
+    private final int mask;
+
+    /**
+     * Build the index; cents[i] is the amount at position i
+     */
+    public CentsIndex(long[] cents) {
+        int capacity = tableSizeFor(Math.max(2, cents.length * 2));
+        this.keys = new long[capacity];
+        this.heads = new int[capacity];
+        this.tails = new int[capacity];
+        this.next = new int[cents.length];
+        this.counts = new int[capacity];
+        this.starts = new int[capacity];
+        this.grouped = new int[cents.length];
+        this.mask = capacity - 1;
+
+        Arrays.fill(keys, EMPTY);
+
+        for (int position = 0; position < cents.length; position++) {
+            next[position] = -1;
+            int slot = slotFor(cents[position]);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = cents[position];
+                heads[slot] = position;
+            } else {
+                next[tails[slot]] = position;
+            }
+            tails[slot] = position;
+            counts[slot]++;
+        }
+
+        int offset = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (keys[slot] == EMPTY) {
+                continue;
+            }
+            starts[slot] = offset;
+            int rank = 0;
+            for (int position = heads[slot]; position >= 0; position = next[position]) {
+                grouped[offset + rank++] = position;
+            }
+            offset += counts[slot];
+        }
+    }
+
+    /**
+     * First position holding the given amount, or -1 if none
+     */
+    public int first(long cents) {
+        int slot = slotFor(cents);
+        return keys[slot] == EMPTY ? -1 : heads[slot];
+    }
+
+    /**
+     * Next position holding the same amount as the given position, or -1
+     */
+    public int next(int position) {
+        return next[position];
+    }
+
+    /**
+     * Number of positions holding the given amount
+     */
+    public int count(long cents) {
+        int slot = slotFor(cents);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    /**
+     * The rank-th position (in insertion order) holding the given amount
+     */
+    public int positionAt(long cents, int rank) {
+        int slot = slotFor(cents);
+        if (keys[slot] == EMPTY || rank < 0 || rank >= counts[slot]) {
+            throw new IndexOutOfBoundsException("No position " + rank + " for amount " + cents);
+        }
+        return grouped[starts[slot] + rank];
+    }
+
+    /**
+     * Slot holding the key, or the empty slot where it would be inserted
+     */
+    private int slotFor(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(n - 1) << 1;
+        return Math.max(size, 2);
+    }
+}
@@ -0,0 +1,317 @@
+package com.tekion.accounting.matching;
+
+import java.util.Arrays;
+
+/**
+ * Batch index bucketed by deposit date (epoch day), sorted by total within each day
+ *
+ * Design: Distinct epoch days in a sorted long[]; each day owns a contiguous run of slots
+ * sorted by total (cents), so a lookup binary-searches only the days inside the
+ * business-day window and then each day's totals
+ * Why: On a long backlog most batches are weeks away from any given credit; they
+ *      should never become candidates, let alone edges in the assignment graph
+ *
+ * Batches without a deposited date sit in their own run and are checked for every
+ * credit; credits without a date check every day. Both score at the window edge.
+ * Lookups share scratch arrays, so an index must not be used from several threads.
+ */
+public final class DateBucketIndex {
+
+    private final FeeBand band;
+    private final BusinessDayWindow window;
+
+    // Slots [0, undatedEnd) are undated batches; bucket b owns [bucketStart[b], bucketStart[b + 1])
+    private final long[] bucketDays;
+    private final int[] bucketStart;
+    private final int undatedEnd;
+    private final long[] cents;
+    private final int[] positions;
+
+    // Lookup scratch: candidate slot, its distance in business days and its fee score
+    private int foundCount;
+    private int[] foundSlot = new int[16];
+    private int[] foundDistance = new int[16];
+    private double[] foundScore = new double[16];
+    private int[] group = new int[16];
+
+    /**
+     * Build the index; batchCents[i] and batchDays[i] describe the batch at list position i
+     * (BusinessDayWindow.UNDATED for a batch without a deposited date)
+     */
+    public DateBucketIndex(long[] batchCents, long[] batchDays, FeeBand band, BusinessDayWindow window) {
+        this.band = band;
+        this.window = window;
+
+        int undated = 0;
+        long[] days = new long[batchDays.length];
+        int dated = 0;
+        for (long day : batchDays) {
+            if (day == BusinessDayWindow.UNDATED) {
+                undated++;
+            } else {
+                days[dated++] = day;
+            }
+        }
+        Arrays.sort(days, 0, dated);
+        int distinct = 0;
+        for (int i = 0; i < dated; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                days[distinct++] = days[i];
+            }
+        }
+        this.bucketDays = Arrays.copyOf(days, distinct);
+        this.undatedEnd = undated;
+
+        // Counting sort by bucket (undated first), stable on list position
+        int[] bucketOf = new int[batchDays.length];
+        int[] start = new int[distinct + 2];
+        for (int position = 0; position < batchDays.length; position++) {
+            int bucket = batchDays[position] == BusinessDayWindow.UNDATED
+                    ? 0 : Arrays.binarySearch(bucketDays, batchDays[position]) + 1;
+            bucketOf[position] = bucket;
+            start[bucket + 1]++;
+        }
+        for (int b = 0; b <= distinct; b++) {
+            start[b + 1] += start[b];
+        }
+        int[] order = new int[batchDays.length];
+        int[] fill = Arrays.copyOf(start, distinct + 1);
+        for (int position = 0; position < batchDays.length; position++) {
+            order[fill[bucketOf[position]]++] = position;
+        }
+
+        // Totals ascending within each run (stable, so equal totals keep list order)
+        for (int b = 0; b <= distinct; b++) {
+            int from = start[b];
+            int to = start[b + 1];
+            if (to - from > 1) {
+                int[] run = Arrays.copyOfRange(order, from, to);
+                OneToOneAssigner.sortIndices(run, (x, y) -> Long.compare(batchCents[x], batchCents[y]));
+                System.arraycopy(run, 0, order, from, run.length);
+            }
+        }
+
+        this.positions = order;
+        this.cents = new long[order.length];
+        for (int slot = 0; slot < order.length; slot++) {
+            cents[slot] = batchCents[order[slot]];
+        }
+        this.bucketStart = Arrays.copyOfRange(start, 1, distinct + 2);
+    }
+
+    /**
+     * Number of indexed batches
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Number of distinct deposit days
+     */
+    public int dayCount() {
+        return bucketDays.length;
+    }
+
+    /**
+     * Batches with exactly this total within the window, nearest date first
+     *
+     * Batches at the same distance are listed in list order rotated by rank, so
+     * several credits of the same amount on the same day fan out over different batches.
+     *
+     * @return number of list positions (and distances) written, at most limit
+     */
+    public int exactCandidates(long creditCents, long creditDay, int rank, int limit,
+                               int[] positionsOut, int[] distancesOut) {
+        foundCount = 0;
+        collect(creditCents, creditDay, false);
+
+        int written = 0;
+        while (written < limit && foundCount > 0) {
+            // Pull out the group at the smallest remaining distance
+            int nearest = Integer.MAX_VALUE;
+            for (int i = 0; i < foundCount; i++) {
+                nearest = Math.min(nearest, foundDistance[i]);
+            }
+            int groupSize = 0;
+            int kept = 0;
+            for (int i = 0; i < foundCount; i++) {
+                if (foundDistance[i] == nearest) {
+                    group[groupSize++] = positions[foundSlot[i]];
+                } else {
+                    foundSlot[kept] = foundSlot[i];
+                    foundDistance[kept] = foundDistance[i];
+                    kept++;
+                }
+            }
+            foundCount = kept;
+
+            Arrays.sort(group, 0, groupSize);
+            int take = Math.min(groupSize, limit - written);
+            for (int k = 0; k < take; k++) {
+                positionsOut[written] = group[(rank + k) % groupSize];
+                distancesOut[written] = nearest;
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Batches whose implied fee is inside the band, within the window
+     *
+     * Ordered by date distance, then fee score (closest to the band centre), then list position.
+     *
+     * @return number of list positions (and distances) written, at most limit
+     */
+    public int feeCandidates(long creditCents, long creditDay, int limit, int[] positionsOut, int[] distancesOut) {
+        if (creditCents <= 0) {
+            return 0;
+        }
+        foundCount = 0;
+        collect(creditCents, creditDay, true);
+
+        // Partial selection sort: limit is small
+        int written = 0;
+        while (written < limit && written < foundCount) {
+            int best = written;
+            for (int i = written + 1; i < foundCount; i++) {
+                if (feeBefore(i, best)) {
+                    best = i;
+                }
+            }
+            swapFound(written, best);
+            positionsOut[written] = positions[foundSlot[written]];
+            distancesOut[written] = foundDistance[written];
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Gather candidate slots from the undated run and every day inside the window
+     */
+    private void collect(long creditCents, long creditDay, boolean fee) {
+        scanRun(0, undatedEnd, window.getBusinessDays(), creditCents, fee);
+
+        int firstBucket = 0;
+        int lastBucket = bucketDays.length;
+        if (creditDay != BusinessDayWindow.UNDATED) {
+            int span = window.calendarSpan();
+            firstBucket = lowerBound(bucketDays, creditDay - span);
+            lastBucket = lowerBound(bucketDays, creditDay + span + 1);
+        }
+        for (int b = firstBucket; b < lastBucket; b++) {
+            int distance = window.distance(creditDay, bucketDays[b]);
+            if (distance <= window.getBusinessDays()) {
+                scanRun(bucketStart[b], bucketStart[b + 1], distance, creditCents, fee);
+            }
+        }
+    }
+
+    private void scanRun(int from, int to, int distance, long creditCents, boolean fee) {
+        if (from >= to) {
+            return;
+        }
+        if (!fee) {
+            for (int slot = firstSlotAtLeast(from, to, creditCents); slot < to && cents[slot] == creditCents; slot++) {
+                addFound(slot, distance, 0.0);
+            }
+            return;
+        }
+
+        // Fee grows with the total, so the band is one contiguous run of positive totals
+        int positive = firstSlotAtLeast(from, to, 1);
+        int lower = firstFeeSlot(positive, to, creditCents, false);
+        int upper = firstFeeSlot(lower, to, creditCents, true);
+        for (int slot = lower; slot < upper; slot++) {
+            if (band.contains(creditCents, cents[slot])) {
+                addFound(slot, distance, band.score(creditCents, cents[slot]));
+            }
+        }
+    }
+
+    private int firstSlotAtLeast(int from, int to, long total) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cents[mid] >= total) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First slot whose fee is at least the minimum (or, with aboveMax, above the maximum)
+     */
+    private int firstFeeSlot(int from, int to, long creditCents, boolean aboveMax) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean past = aboveMax
+                    ? band.feeAboveMax(creditCents, cents[mid])
+                    : band.feeAtLeastMin(creditCents, cents[mid]);
+            if (past) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean feeBefore(int a, int b) {
+        if (foundDistance[a] != foundDistance[b]) {
+            return foundDistance[a] < foundDistance[b];
+        }
+        if (foundScore[a] != foundScore[b]) {
+            return foundScore[a] < foundScore[b];
+        }
+        return positions[foundSlot[a]] < positions[foundSlot[b]];
+    }
+
+    private void addFound(int slot, int distance, double score) {
+        if (foundCount == foundSlot.length) {
+            int capacity = foundCount * 2;
+            foundSlot = Arrays.copyOf(foundSlot, capacity);
+            foundDistance = Arrays.copyOf(foundDistance, capacity);
+            foundScore = Arrays.copyOf(foundScore, capacity);
+            group = new int[capacity];
+        }
+        foundSlot[foundCount] = slot;
+        foundDistance[foundCount] = distance;
+        foundScore[foundCount] = score;
+        foundCount++;
+    }
+
+    private void swapFound(int a, int b) {
+        int slot = foundSlot[a];
+        foundSlot[a] = foundSlot[b];
+        foundSlot[b] = slot;
+        int distance = foundDistance[a];
+        foundDistance[a] = foundDistance[b];
+        foundDistance[b] = distance;
+        double score = foundScore[a];
+        foundScore[a] = foundScore[b];
+        foundScore[b] = score;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] >= value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
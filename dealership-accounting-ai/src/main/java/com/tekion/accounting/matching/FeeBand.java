@@ -0,0 +1,116 @@
+package com.tekion.accounting.matching;
+
+/**
+ * Merchant fee band, evaluated on integer cents
+ *
+ * fee% = (total - credit) / total * 100. Bounds are converted once to ten-thousandths
+ * of a percent (1.5% -> 15_000), doubled so the band centre stays integral, and
+ * compared by cross-multiplication, so band edges are exact with no double rounding.
+ *
+ * Exact for totals up to about $46 billion (cents * 2e6 must fit in a long).
+ */
+public final class FeeBand {
+
+    // 2 (doubled bounds) * 100 (fraction to percent) * 10_000 (ten-thousandths)
+    private static final long SCALE = 2_000_000L;
+
+    private final double minPercentage;
+    private final double maxPercentage;
+    private final long minBound;
+    private final long maxBound;
+    private final long targetBound;
+
+    public FeeBand(double minPercentage, double maxPercentage) {
+        if (!(minPercentage >= 0 && minPercentage <= maxPercentage && maxPercentage < 100)) {
+            throw new IllegalArgumentException(
+                    "Merchant fee band must satisfy 0 <= min <= max < 100, got " + minPercentage + ".." + maxPercentage);
+        }
+        this.minPercentage = minPercentage;
+        this.maxPercentage = maxPercentage;
+        long min = Math.round(minPercentage * 10_000);
+        long max = Math.round(maxPercentage * 10_000);
+        this.minBound = 2 * min;
+        this.maxBound = 2 * max;
+        this.targetBound = min + max;
+    }
+
+    public double getMinPercentage() {
+        return minPercentage;
+    }
+
+    public double getMaxPercentage() {
+        return maxPercentage;
+    }
+
+    /**
+     * Whether matching the credit to the batch implies a fee inside [min, max]
+     */
+    public boolean contains(long creditCents, long totalCents) {
+        return totalCents > 0
+                && feeAtLeast(creditCents, totalCents, minBound)
+                && !feeAbove(creditCents, totalCents, maxBound);
+    }
+
+    /**
+     * Distance of the implied fee from the middle of the band (lower is better)
+     */
+    public double score(long creditCents, long totalCents) {
+        return Math.abs(feePercentage(creditCents, totalCents) - (minPercentage + maxPercentage) / 2);
+    }
+
+    boolean feeAtLeastMin(long creditCents, long totalCents) {
+        return feeAtLeast(creditCents, totalCents, minBound);
+    }
+
+    boolean feeAboveMax(long creditCents, long totalCents) {
+        return feeAbove(creditCents, totalCents, maxBound);
+    }
+
+    boolean feeAtLeastTarget(long creditCents, long totalCents) {
+        return feeAtLeast(creditCents, totalCents, targetBound);
+    }
+
+    /**
+     * Smallest total (cents) that could be in the band for this credit, minus a cent of slack
+     */
+    long lowestTotalFor(long creditCents) {
+        return (long) Math.floor(creditCents / (1 - minPercentage / 100)) - 1;
+    }
+
+    /**
+     * Largest total (cents) that could be in the band for this credit, plus a cent of slack
+     */
+    long highestTotalFor(long creditCents) {
+        return (long) Math.ceil(creditCents / (1 - maxPercentage / 100)) + 1;
+    }
+
+    /**
+     * Smallest credit (cents) that could be in the band for this total, minus a cent of slack
+     */
+    long lowestCreditFor(long totalCents) {
+        return (long) Math.floor(totalCents * (1 - maxPercentage / 100)) - 1;
+    }
+
+    /**
+     * Largest credit (cents) that could be in the band for this total, plus a cent of slack
+     */
+    long highestCreditFor(long totalCents) {
+        return (long) Math.ceil(totalCents * (1 - minPercentage / 100)) + 1;
+    }
+
+    /**
+     * Fee percentage implied by matching a credit to a batch total
+     */
+    public static double feePercentage(long creditCents, long totalCents) {
+        return (double) (totalCents - creditCents) / totalCents * 100;
+    }
+
+    // (total - credit) / total >= bound / SCALE, with total > 0
+    private static boolean feeAtLeast(long creditCents, long totalCents, long bound) {
+        return (totalCents - creditCents) * SCALE >= bound * totalCents;
+    }
+
+    private static boolean feeAbove(long creditCents, long totalCents, long bound) {
+        return (totalCents - creditCents) * SCALE > bound * totalCents;
+    }
+}
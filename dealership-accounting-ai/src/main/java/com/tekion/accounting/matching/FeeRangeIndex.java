@@ -0,0 +1,239 @@
+package com.tekion.accounting.matching;
+
+/**
+ * Sorted index of batch totals for merchant-fee candidate lookup
+ *
+ * Design: Batch totals (cents) copied into a sorted primitive long[] (stable on list position)
+ * Why: fee% = (total - credit) / total * 100 grows with total, so the batches whose fee
+ *      falls in [min, max] form one contiguous run found by binary search in O(log M)
+ *
+ * Batches with a non-positive total can never produce a fee percentage and are left out.
+ * Band edges are decided exactly in integer arithmetic (see FeeBand).
+ */
+public final class FeeRangeIndex {
+
+    // Which band bound firstSlot searches for
+    private static final int BOUND_MIN = 0;
+    private static final int BOUND_TARGET = 1;
+    private static final int BOUND_ABOVE_MAX = 2;
+
+    private final long[] totals;
+    private final int[] positions;
+    private final FeeBand band;
+
+    /**
+     * Build the index; batchTotals[i] is the total (cents) of the batch at list position i
+     */
+    public FeeRangeIndex(long[] batchTotals, FeeBand band) {
+        this.band = band;
+
+        int count = 0;
+        for (long total : batchTotals) {
+            if (total > 0) {
+                count++;
+            }
+        }
+
+        int[] order = new int[count];
+        int next = 0;
+        for (int position = 0; position < batchTotals.length; position++) {
+            if (batchTotals[position] > 0) {
+                order[next++] = position;
+            }
+        }
+        sortStable(order, batchTotals);
+
+        this.positions = order;
+        this.totals = new long[count];
+        for (int i = 0; i < count; i++) {
+            totals[i] = batchTotals[order[i]];
+        }
+    }
+
+    /**
+     * Number of indexed batches
+     */
+    public int size() {
+        return totals.length;
+    }
+
+    /**
+     * First sorted slot whose fee for this credit is at least the minimum
+     */
+    public int lowerSlot(long creditCents) {
+        return firstSlot(creditCents, BOUND_MIN);
+    }
+
+    /**
+     * One past the last sorted slot whose fee for this credit is at most the maximum
+     */
+    public int upperSlot(long creditCents) {
+        return firstSlot(creditCents, BOUND_ABOVE_MAX);
+    }
+
+    /**
+     * List position of the batch in a sorted slot
+     */
+    public int positionAt(int slot) {
+        return positions[slot];
+    }
+
+    /**
+     * Batch total (cents) in a sorted slot
+     */
+    public long totalAt(int slot) {
+        return totals[slot];
+    }
+
+    /**
+     * Candidate score: distance of the implied fee from the middle of the fee band (lower is better)
+     */
+    public double score(long creditCents, int slot) {
+        return band.score(creditCents, totals[slot]);
+    }
+
+    /**
+     * Best-scoring batch for the credit, or -1 when no batch falls in the fee band
+     *
+     * Ties (equal totals, or equally distant neighbours) go to the earliest list position.
+     */
+    public int bestCandidate(long creditCents) {
+        if (creditCents <= 0 || totals.length == 0) {
+            return -1;
+        }
+
+        int lower = lowerSlot(creditCents);
+        int upper = upperSlot(creditCents);
+        if (lower >= upper) {
+            return -1;
+        }
+
+        // The fee band is monotone in the total, so only the two slots around the
+        // band centre can be closest to it
+        int above = Math.max(lower, Math.min(upper, firstSlot(creditCents, BOUND_TARGET)));
+        int below = above - 1;
+
+        int best = -1;
+        if (above < upper) {
+            best = above;
+        }
+        if (below >= lower) {
+            int belowStart = Math.max(lower, firstSlotWithTotalAtLeast(totals[below]));
+            if (best < 0) {
+                best = belowStart;
+            } else {
+                double aboveScore = score(creditCents, above);
+                double belowScore = score(creditCents, belowStart);
+                if (belowScore < aboveScore
+                        || (belowScore == aboveScore && positions[belowStart] < positions[above])) {
+                    best = belowStart;
+                }
+            }
+        }
+        return positions[best];
+    }
+
+    /**
+     * Up to limit candidate batches for the credit, best score first
+     *
+     * Walks outward from the band centre, so the cost is O(log M + limit).
+     *
+     * @return number of list positions written to out
+     */
+    public int nearestCandidates(long creditCents, int limit, int[] out) {
+        if (creditCents <= 0 || totals.length == 0 || limit <= 0) {
+            return 0;
+        }
+
+        int lower = lowerSlot(creditCents);
+        int upper = upperSlot(creditCents);
+        int right = Math.max(lower, Math.min(upper, firstSlot(creditCents, BOUND_TARGET)));
+        int left = right - 1;
+
+        int written = 0;
+        while (written < limit && (left >= lower || right < upper)) {
+            boolean takeLeft;
+            if (left < lower) {
+                takeLeft = false;
+            } else if (right >= upper) {
+                takeLeft = true;
+            } else {
+                double leftScore = score(creditCents, left);
+                double rightScore = score(creditCents, right);
+                takeLeft = leftScore < rightScore
+                        || (leftScore == rightScore && positions[left] < positions[right]);
+            }
+            out[written++] = takeLeft ? positions[left--] : positions[right++];
+        }
+        return written;
+    }
+
+    /**
+     * Binary search for the first slot past a band bound (fee grows with the total)
+     */
+    private int firstSlot(long creditCents, int bound) {
+        int low = 0;
+        int high = totals.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean past = switch (bound) {
+                case BOUND_MIN -> band.feeAtLeastMin(creditCents, totals[mid]);
+                case BOUND_TARGET -> band.feeAtLeastTarget(creditCents, totals[mid]);
+                default -> band.feeAboveMax(creditCents, totals[mid]);
+            };
+            if (past) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstSlotWithTotalAtLeast(long total) {
+        int low = 0;
+        int high = totals.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (totals[mid] >= total) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Stable bottom-up merge sort of positions by total (no boxing)
+     */
+    private static void sortStable(int[] order, long[] keys) {
+        int[] buffer = new int[order.length];
+        int[] source = order;
+        int[] target = buffer;
+        for (int width = 1; width < order.length; width <<= 1) {
+            for (int start = 0; start < order.length; start += width << 1) {
+                int middle = Math.min(start + width, order.length);
+                int end = Math.min(start + (width << 1), order.length);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    target[out++] = keys[source[right]] < keys[source[left]] ? source[right++] : source[left++];
+                }
+                while (left < middle) {
+                    target[out++] = source[left++];
+                }
+                while (right < end) {
+                    target[out++] = source[right++];
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != order) {
+            System.arraycopy(source, 0, order, 0, order.length);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+
+import java.util.List;
+
+/**
+ * Working set and settings handed to one MatchStrategy stage
+ *
+ * Holds only the credits and batches no earlier stage matched. The primitive views
+ * (cents, epoch days) are built on first use, so a stage pays only for what it reads.
+ */
+public final class MatchContext {
+
+    private final List<BankTransaction> transactions;
+    private final List<DepositBatch> batches;
+    private final AssignmentMode mode;
+    private final FeeBand feeBand;
+    private final BusinessDayWindow dateWindow;
+
+    private long[] creditCents;
+    private long[] creditDays;
+    private long[] batchCents;
+    private long[] batchDays;
+
+    public MatchContext(List<BankTransaction> transactions, List<DepositBatch> batches, AssignmentMode mode,
+                        FeeBand feeBand, BusinessDayWindow dateWindow) {
+        this.transactions = transactions;
+        this.batches = batches;
+        this.mode = mode;
+        this.feeBand = feeBand;
+        this.dateWindow = dateWindow;
+    }
+
+    public List<BankTransaction> getTransactions() {
+        return transactions;
+    }
+
+    public List<DepositBatch> getBatches() {
+        return batches;
+    }
+
+    public AssignmentMode getMode() {
+        return mode;
+    }
+
+    public FeeBand getFeeBand() {
+        return feeBand;
+    }
+
+    /**
+     * Business-day window for 1:1 matching, or null when the date window is off
+     */
+    public BusinessDayWindow getDateWindow() {
+        return dateWindow;
+    }
+
+    public long[] creditCents() {
+        if (creditCents == null) {
+            creditCents = new long[transactions.size()];
+            for (int i = 0; i < creditCents.length; i++) {
+                creditCents[i] = transactions.get(i).getAmount().getCents();
+            }
+        }
+        return creditCents;
+    }
+
+    public long[] creditDays() {
+        if (creditDays == null) {
+            creditDays = new long[transactions.size()];
+            for (int i = 0; i < creditDays.length; i++) {
+                creditDays[i] = BusinessDayWindow.epochDay(transactions.get(i).getDate());
+            }
+        }
+        return creditDays;
+    }
+
+    public long[] batchCents() {
+        if (batchCents == null) {
+            batchCents = new long[batches.size()];
+            for (int i = 0; i < batchCents.length; i++) {
+                batchCents[i] = batches.get(i).getTotal().getCents();
+            }
+        }
+        return batchCents;
+    }
+
+    public long[] batchDays() {
+        if (batchDays == null) {
+            batchDays = new long[batches.size()];
+            for (int i = 0; i < batchDays.length; i++) {
+                batchDays[i] = BusinessDayWindow.epochDay(batches.get(i).getDepositedDate());
+            }
+        }
+        return batchDays;
+    }
+}
@@ -0,0 +1,127 @@
+package com.tekion.accounting.matching;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feature vector for the learned match scorer (see LogisticMatchScorer)
+ *
+ * Design: Fixed-width double[]; slots [0, PAIR_FEATURES) describe the credit/batch pair,
+ * slots [PAIR_FEATURES, COUNT) are hashed description tokens of the credit
+ * Why: Extraction writes into a caller-owned array and never allocates, and the token
+ *      part only depends on the credit, so it is scored once per credit, not per pair
+ *
+ * Values are kept roughly in [-1, 2] so one learning rate suits every weight.
+ */
+public final class MatchFeatures {
+
+    public static final int EXACT = 0;
+    public static final int FEE_FRACTION = 1;
+    public static final int FEE_FROM_BAND_CENTRE = 2;
+    public static final int DAY_GAP = 3;
+    public static final int UNDATED = 4;
+    public static final int MENTIONS_BATCH = 5;
+    public static final int LOG_AMOUNT = 6;
+
+    public static final int PAIR_FEATURES = 7;
+    public static final int TOKEN_BUCKETS = 16;
+    public static final int COUNT = PAIR_FEATURES + TOKEN_BUCKETS;
+
+    // Day gap used when either side has no date, and the cap on measured gaps
+    static final int DEFAULT_DAY_GAP = 3;
+    private static final int MAX_DAY_GAP = 10;
+
+    private static final List<String> PAIR_NAMES = List.of(
+            "exact", "fee_fraction", "fee_from_band_centre", "day_gap", "undated", "mentions_batch", "log_amount");
+
+    private MatchFeatures() {
+    }
+
+    /**
+     * Feature names in slot order (token buckets are token_0 .. token_15)
+     */
+    public static List<String> names() {
+        String[] names = new String[COUNT];
+        for (int i = 0; i < PAIR_FEATURES; i++) {
+            names[i] = PAIR_NAMES.get(i);
+        }
+        for (int b = 0; b < TOKEN_BUCKETS; b++) {
+            names[PAIR_FEATURES + b] = "token_" + b;
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Write the pair features into out[0, PAIR_FEATURES)
+     *
+     * @param creditDay epoch day or BusinessDayWindow.UNDATED
+     * @param batchDay  epoch day or BusinessDayWindow.UNDATED
+     */
+    public static void pair(long creditCents, long totalCents, long creditDay, long batchDay, boolean mentionsBatch,
+                            FeeBand band, double[] out) {
+        out[EXACT] = creditCents == totalCents ? 1.0 : 0.0;
+
+        double feeFraction = totalCents > 0 ? (double) (totalCents - creditCents) / totalCents : 0.0;
+        out[FEE_FRACTION] = Math.max(-1.0, Math.min(1.0, feeFraction * 10));
+        out[FEE_FROM_BAND_CENTRE] = totalCents > 0 && creditCents != totalCents
+                ? Math.min(band.score(creditCents, totalCents) / 10, 1.0)
+                : 0.0;
+
+        boolean undated = creditDay == BusinessDayWindow.UNDATED || batchDay == BusinessDayWindow.UNDATED;
+        int gap = undated ? DEFAULT_DAY_GAP : Math.min(BusinessDayWindow.businessDaysBetween(creditDay, batchDay),
+                MAX_DAY_GAP);
+        out[DAY_GAP] = gap / 5.0;
+        out[UNDATED] = undated ? 1.0 : 0.0;
+        out[MENTIONS_BATCH] = mentionsBatch ? 1.0 : 0.0;
+        out[LOG_AMOUNT] = Math.log10(Math.max(creditCents, 100) / 100.0) / 6;
+    }
+
+    /**
+     * Clear out[PAIR_FEATURES, COUNT) and mark the buckets of the description's tokens
+     *
+     * Tokens are runs of letters and digits, case-insensitive, hashed without building strings.
+     */
+    public static void tokens(String description, double[] out) {
+        Arrays.fill(out, PAIR_FEATURES, COUNT, 0.0);
+        if (description == null) {
+            return;
+        }
+        int hash = 0;
+        boolean inToken = false;
+        for (int i = 0; i <= description.length(); i++) {
+            char c = i < description.length() ? description.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = 31 * hash + Character.toUpperCase(c);
+                inToken = true;
+            } else if (inToken) {
+                out[PAIR_FEATURES + Math.floorMod(mix(hash), TOKEN_BUCKETS)] = 1.0;
+                hash = 0;
+                inToken = false;
+            }
+        }
+    }
+
+    /**
+     * Whether the bank description contains the batch number (case-insensitive, no allocation)
+     */
+    public static boolean mentionsBatch(String description, String batchNumber) {
+        if (description == null || batchNumber == null || batchNumber.isEmpty()) {
+            return false;
+        }
+        int last = description.length() - batchNumber.length();
+        for (int start = 0; start <= last; start++) {
+            if (description.regionMatches(true, start, batchNumber, 0, batchNumber.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Spread String-style hashes over the low bits before bucketing
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
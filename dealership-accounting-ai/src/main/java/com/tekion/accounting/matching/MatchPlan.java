@@ -0,0 +1,60 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output of one matching engine pass: proposed matches plus leftover transactions
+ *
+ * Design: Pure in-memory result, persistence is left to the caller
+ * Why: Matching stays CPU-only and testable without Mongo or Ollama
+ */
+@Data
+public class MatchPlan {
+
+    private final List<ProposedMatch> matches = new ArrayList<>();
+    private final List<BankTransaction> unmatchedTransactions = new ArrayList<>();
+
+    // One entry per pipeline stage, in the order the stages ran
+    private final List<Stage> stages = new ArrayList<>();
+
+    public void addMatch(ProposedMatch match) {
+        matches.add(match);
+    }
+
+    public void addUnmatched(BankTransaction transaction) {
+        unmatchedTransactions.add(transaction);
+    }
+
+    public void addStage(Stage stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Time spent across all stages (including index builds)
+     */
+    public long getMatchingNanos() {
+        long total = 0;
+        for (Stage stage : stages) {
+            total += stage.getNanos();
+        }
+        return total;
+    }
+
+    /**
+     * What one strategy saw and proposed: open credits and batches in, matches out
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Stage {
+        private String strategy;
+        private int candidates;
+        private int batchCandidates;
+        private int hits;
+        private long nanos;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tekion.accounting.matching;
+
+import java.util.List;
+
+/**
+ * One stage of the matching pipeline (configured by ai.strategy)
+ *
+ * Design: Stages run in configured order over a shrinking working set; whatever a
+ * stage matches is removed before the next stage sees it
+ * Why: Cheap, high-precision stages can run first and shrink the input of the
+ *      expensive ones, and a slow stage can be dropped without touching the others
+ *
+ * A strategy only proposes matches; it must not persist anything. Implementations
+ * should be cheap to construct and hold no per-run state between calls.
+ */
+public interface MatchStrategy {
+
+    /**
+     * Name used in ai.strategy (e.g. "exact", "subset-sum")
+     */
+    String name();
+
+    /**
+     * Propose matches among the context's open credits and batches
+     *
+     * Every credit and batch of a returned match must come from the context.
+     */
+    List<ProposedMatch> match(MatchContext context);
+}
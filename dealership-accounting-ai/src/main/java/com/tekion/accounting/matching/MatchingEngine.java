@@ -0,0 +1,334 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rule-based matching engine for AI reconciliation
+ *
+ * Design: An ordered pipeline of MatchStrategy stages, configured by ai.strategy
+ * (e.g. "exact, merchant-fee, subset-sum"); each stage sees only the credits and
+ * batches the stages before it left unmatched
+ * Why: Cheap stages go first and shrink the input of the expensive ones, and every
+ *      stage reports candidates, hits and time so the order can be tuned
+ *
+ * Built-in stages: rule-based (exact + merchant fee in one pass, see RuleBasedStrategy),
+ * exact, merchant-fee, subset-sum (see SubsetSumMatcher) and ml-based (see
+ * MlMatchStrategy; idle until a trained scorer is installed). Other stages can be
+ * added with registerStrategy. All stages read Money cents into primitive long[] arrays up
+ * front; nothing in the matching loops unboxes or compares doubles.
+ *
+ * In ONE_TO_ONE mode every batch goes to at most one credit (see OneToOneAssigner);
+ * FIRST_HIT keeps the original behaviour where several credits may share a batch
+ * within a stage.
+ *
+ * Date window (optional): batches are bucketed by deposit day (see DateBucketIndex) and a
+ * credit only sees batches within +/- N business days of its date, nearest first;
+ * confidence drops by a fixed amount per business day apart.
+ *
+ * The engine only plans matches; AIReconciliationService persists them (or, in
+ * simulation, just reports them).
+ */
+@Component
+public class MatchingEngine {
+
+    private final FeeBand feeBand;
+
+    @Value("${ai.strategy:rule-based}")
+    private String strategy = "rule-based";
+
+    @Value("${ai.confidence-threshold:70}")
+    private double confidenceThreshold = 70;
+
+    @Value("${app.reconciliation.assignment-mode:first-hit}")
+    private String assignmentMode = "first-hit";
+
+    @Value("${app.reconciliation.date-window.enabled:false}")
+    private boolean dateWindowEnabled = false;
+
+    @Value("${app.reconciliation.date-window.business-days:5}")
+    private int dateWindowBusinessDays = 5;
+
+    @Value("${app.reconciliation.date-window.confidence-decay-per-day:2.0}")
+    private double dateWindowDecayPerDay = 2.0;
+
+    // Legacy switch: appends subset-sum to the pipeline when ai.strategy does not list it
+    @Value("${app.reconciliation.subset-sum.enabled:false}")
+    private boolean subsetSumEnabled = false;
+
+    @Value("${app.reconciliation.subset-sum.max-subset-size:3}")
+    private int subsetSumMaxSize = 3;
+
+    @Value("${app.reconciliation.subset-sum.date-window-days:3}")
+    private int subsetSumDateWindowDays = 3;
+
+    @Value("${app.reconciliation.subset-sum.max-candidates:64}")
+    private int subsetSumMaxCandidates = 64;
+
+    private final Map<String, MatchStrategy> registeredStrategies = new ConcurrentHashMap<>();
+
+    // Trained model for the ml-based stage (null until one is trained or loaded)
+    private volatile LogisticMatchScorer matchScorer;
+
+    // Running totals per stage, guarded by itself
+    private final Map<String, StrategyStats> strategyStats = new LinkedHashMap<>();
+
+    public MatchingEngine(@Value("${app.merchant-fee.min-percentage}") double merchantFeeMinPercentage,
+                          @Value("${app.merchant-fee.max-percentage}") double merchantFeeMaxPercentage) {
+        this.feeBand = new FeeBand(merchantFeeMinPercentage, merchantFeeMaxPercentage);
+    }
+
+    /**
+     * Fail at startup, not on the first run, if ai.strategy names an unknown stage
+     */
+    @PostConstruct
+    void validatePipeline() {
+        resolve(getPipeline());
+    }
+
+    /**
+     * Match each transaction against the batches using the configured assignment mode
+     */
+    public MatchPlan plan(List<BankTransaction> transactions, List<DepositBatch> batches) {
+        return plan(transactions, batches, AssignmentMode.fromConfig(assignmentMode));
+    }
+
+    /**
+     * Match each transaction against the batches with the configured pipeline
+     */
+    public MatchPlan plan(List<BankTransaction> transactions, List<DepositBatch> batches, AssignmentMode mode) {
+        return plan(transactions, batches, mode, feeBand);
+    }
+
+    /**
+     * Same as above with a caller-supplied fee band (simulating other app.merchant-fee settings)
+     */
+    public MatchPlan plan(List<BankTransaction> transactions, List<DepositBatch> batches, AssignmentMode mode,
+                          FeeBand feeBand) {
+        return plan(transactions, batches, mode, feeBand, getPipeline());
+    }
+
+    /**
+     * Run the given stages in order; matched credits and batches are removed after each stage
+     *
+     * @throws IllegalArgumentException if a stage name is unknown
+     */
+    public MatchPlan plan(List<BankTransaction> transactions, List<DepositBatch> batches, AssignmentMode mode,
+                          FeeBand feeBand, List<String> pipeline) {
+        return plan(transactions, batches, mode, feeBand, pipeline, true);
+    }
+
+    /**
+     * Same as above; with recordStats false the stage timings only go into the returned
+     * plan, not into getStrategyStats (what-if simulations must not skew the numbers
+     * the stage order is tuned from)
+     */
+    public MatchPlan plan(List<BankTransaction> transactions, List<DepositBatch> batches, AssignmentMode mode,
+                          FeeBand feeBand, List<String> pipeline, boolean recordStats) {
+        List<MatchStrategy> stages = resolve(pipeline);
+        BusinessDayWindow window = dateWindowEnabled ? getDateWindow() : null;
+
+        MatchPlan plan = new MatchPlan();
+        List<BankTransaction> openTransactions = new ArrayList<>(transactions);
+        List<DepositBatch> openBatches = new ArrayList<>(batches);
+
+        for (MatchStrategy stage : stages) {
+            if (openTransactions.isEmpty()) {
+                break;
+            }
+            long start = System.nanoTime();
+            int candidates = openTransactions.size();
+            int batchCandidates = openBatches.size();
+
+            List<ProposedMatch> matches = stage.match(
+                    new MatchContext(openTransactions, openBatches, mode, feeBand, window));
+
+            Set<BankTransaction> matchedTransactions = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<DepositBatch> matchedBatches = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (ProposedMatch match : matches) {
+                plan.addMatch(match);
+                matchedTransactions.addAll(match.getTransactions());
+                matchedBatches.addAll(match.getBatches());
+            }
+            if (!matches.isEmpty()) {
+                openTransactions = withoutMatched(openTransactions, matchedTransactions);
+                openBatches = withoutMatched(openBatches, matchedBatches);
+            }
+
+            long nanos = System.nanoTime() - start;
+            plan.addStage(new MatchPlan.Stage(stage.name(), candidates, batchCandidates, matches.size(), nanos));
+            if (recordStats) {
+                recordStage(stage.name(), candidates, batchCandidates, matches.size(), nanos);
+            }
+        }
+
+        openTransactions.forEach(plan::addUnmatched);
+        return plan;
+    }
+
+    /**
+     * Configured stage names in order (ai.strategy, plus subset-sum when only the legacy flag enables it)
+     */
+    public List<String> getPipeline() {
+        List<String> pipeline = parsePipeline(strategy);
+        if (subsetSumEnabled && !pipeline.contains(SubsetSumStrategy.NAME)) {
+            pipeline.add(SubsetSumStrategy.NAME);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Split a comma-separated ai.strategy value into distinct stage names
+     */
+    public static List<String> parsePipeline(String value) {
+        List<String> pipeline = new ArrayList<>();
+        if (value == null) {
+            return pipeline;
+        }
+        for (String part : value.split(",")) {
+            String name = part.trim().toLowerCase();
+            if (!name.isEmpty() && !pipeline.contains(name)) {
+                pipeline.add(name);
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Add (or replace) a stage that ai.strategy can name
+     */
+    public void registerStrategy(MatchStrategy matchStrategy) {
+        registeredStrategies.put(matchStrategy.name(), matchStrategy);
+    }
+
+    /**
+     * Snapshot of running totals per stage, in first-run order
+     */
+    public List<StrategyStats> getStrategyStats() {
+        synchronized (strategyStats) {
+            List<StrategyStats> snapshot = new ArrayList<>();
+            for (StrategyStats stats : strategyStats.values()) {
+                StrategyStats copy = new StrategyStats();
+                copy.setStrategy(stats.getStrategy());
+                copy.setRuns(stats.getRuns());
+                copy.setCandidates(stats.getCandidates());
+                copy.setBatchCandidates(stats.getBatchCandidates());
+                copy.setHits(stats.getHits());
+                copy.setTotalNanos(stats.getTotalNanos());
+                copy.setLastNanos(stats.getLastNanos());
+                snapshot.add(copy);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Install (or, with null, remove) the model the ml-based stage scores with
+     */
+    public void setMatchScorer(LogisticMatchScorer matchScorer) {
+        this.matchScorer = matchScorer;
+    }
+
+    public LogisticMatchScorer getMatchScorer() {
+        return matchScorer;
+    }
+
+    public FeeBand getFeeBand() {
+        return feeBand;
+    }
+
+    /**
+     * The configured business-day window (whether or not it is enabled)
+     */
+    public BusinessDayWindow getDateWindow() {
+        return new BusinessDayWindow(dateWindowBusinessDays, dateWindowDecayPerDay);
+    }
+
+    public boolean isDateWindowEnabled() {
+        return dateWindowEnabled;
+    }
+
+    public AssignmentMode getAssignmentMode() {
+        return AssignmentMode.fromConfig(assignmentMode);
+    }
+
+    /**
+     * Empty mutable index for incremental matching with the same fee band
+     */
+    public CandidateIndex newCandidateIndex() {
+        return new CandidateIndex(feeBand);
+    }
+
+    private List<MatchStrategy> resolve(List<String> pipeline) {
+        if (pipeline.isEmpty()) {
+            throw new IllegalArgumentException("ai.strategy must name at least one match strategy");
+        }
+        List<MatchStrategy> stages = new ArrayList<>(pipeline.size());
+        for (String name : pipeline) {
+            stages.add(strategyFor(name));
+        }
+        return stages;
+    }
+
+    private MatchStrategy strategyFor(String name) {
+        MatchStrategy registered = registeredStrategies.get(name);
+        if (registered != null) {
+            return registered;
+        }
+        return switch (name) {
+            case RuleBasedStrategy.RULE_BASED -> RuleBasedStrategy.ruleBased();
+            case RuleBasedStrategy.EXACT -> RuleBasedStrategy.exactOnly();
+            case RuleBasedStrategy.MERCHANT_FEE -> RuleBasedStrategy.merchantFeeOnly();
+            case SubsetSumStrategy.NAME -> new SubsetSumStrategy(
+                    subsetSumMaxSize, subsetSumDateWindowDays, subsetSumMaxCandidates);
+            case MlMatchStrategy.NAME -> new MlMatchStrategy(matchScorer, confidenceThreshold);
+            default -> throw new IllegalArgumentException("Unknown match strategy '" + name + "', expected one of "
+                    + knownStrategies());
+        };
+    }
+
+    private List<String> knownStrategies() {
+        List<String> known = new ArrayList<>(List.of(RuleBasedStrategy.RULE_BASED, RuleBasedStrategy.EXACT,
+                RuleBasedStrategy.MERCHANT_FEE, SubsetSumStrategy.NAME, MlMatchStrategy.NAME));
+        known.addAll(registeredStrategies.keySet());
+        return known;
+    }
+
+    private void recordStage(String name, int candidates, int batchCandidates, int hits, long nanos) {
+        synchronized (strategyStats) {
+            StrategyStats stats = strategyStats.computeIfAbsent(name, key -> {
+                StrategyStats created = new StrategyStats();
+                created.setStrategy(key);
+                return created;
+            });
+            stats.setRuns(stats.getRuns() + 1);
+            stats.setCandidates(stats.getCandidates() + candidates);
+            stats.setBatchCandidates(stats.getBatchCandidates() + batchCandidates);
+            stats.setHits(stats.getHits() + hits);
+            stats.setTotalNanos(stats.getTotalNanos() + nanos);
+            stats.setLastNanos(nanos);
+        }
+    }
+
+    private static <T> List<T> withoutMatched(List<T> items, Set<T> matched) {
+        List<T> open = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (!matched.contains(item)) {
+                open.add(item);
+            }
+        }
+        return open;
+    }
+}
@@ -0,0 +1,213 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Learned 1:1 stage ("ml-based"): rule candidates re-ranked by a LogisticMatchScorer
+ *
+ * Design: Candidates per credit are the same exact and fee-band batches the rule stages
+ * would consider (date-windowed when the window is on); each pair is scored with
+ * amount delta, fee, day gap, batch reference and description tokens
+ * Why: The rules ignore what reviewers confirmed or rejected; the model learns which of
+ *      the plausible candidates people actually accept
+ *
+ * Pairs below the confidence threshold are dropped. ONE_TO_ONE hands out batches
+ * greedily by probability; FIRST_HIT takes each credit's best pair. Without a trained
+ * model the stage proposes nothing. The scoring loop reuses one feature array.
+ */
+final class MlMatchStrategy implements MatchStrategy {
+
+    static final String NAME = "ml-based";
+
+    private static final int EXACT_CANDIDATES = 4;
+    private static final int FEE_CANDIDATES = 4;
+
+    private final LogisticMatchScorer scorer;
+    private final double minConfidence;
+
+    MlMatchStrategy(LogisticMatchScorer scorer, double minConfidence) {
+        this.scorer = scorer;
+        this.minConfidence = minConfidence;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<ProposedMatch> match(MatchContext context) {
+        if (scorer == null || context.getTransactions().isEmpty() || context.getBatches().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<BankTransaction> transactions = context.getTransactions();
+        List<DepositBatch> batches = context.getBatches();
+        long[] creditCents = context.creditCents();
+        long[] creditDays = context.creditDays();
+        long[] batchCents = context.batchCents();
+        long[] batchDays = context.batchDays();
+        FeeBand band = context.getFeeBand();
+        BusinessDayWindow window = context.getDateWindow();
+
+        DateBucketIndex dateIndex = window != null
+                ? new DateBucketIndex(batchCents, batchDays, band, window) : null;
+        CentsIndex exactIndex = window == null ? new CentsIndex(batchCents) : null;
+        FeeRangeIndex feeIndex = window == null ? new FeeRangeIndex(batchCents, band) : null;
+        int[] duplicateRank = OneToOneAssigner.duplicateRanks(creditCents);
+
+        int[] candidates = new int[EXACT_CANDIDATES + FEE_CANDIDATES];
+        int[] distances = new int[candidates.length];
+        int[] fee = new int[FEE_CANDIDATES];
+        double[] features = new double[MatchFeatures.COUNT];
+        double threshold = minConfidence / 100.0;
+
+        int pairCount = 0;
+        int[] pairCredit = new int[Math.max(16, creditCents.length)];
+        int[] pairBatch = new int[pairCredit.length];
+        double[] pairProbability = new double[pairCredit.length];
+
+        for (int i = 0; i < creditCents.length; i++) {
+            int found = gatherCandidates(creditCents[i], creditDays[i], duplicateRank[i], dateIndex, exactIndex,
+                    feeIndex, candidates, distances, fee);
+            if (found == 0) {
+                continue;
+            }
+
+            String description = transactions.get(i).getDescription();
+            MatchFeatures.tokens(description, features);
+            double tokenLogit = scorer.tokenLogit(features);
+
+            for (int k = 0; k < found; k++) {
+                int position = candidates[k];
+                MatchFeatures.pair(creditCents[i], batchCents[position], creditDays[i], batchDays[position],
+                        MatchFeatures.mentionsBatch(description, batches.get(position).getBatchNumber()),
+                        band, features);
+                double probability = scorer.probability(features, tokenLogit);
+                if (probability < threshold) {
+                    continue;
+                }
+                if (pairCount == pairCredit.length) {
+                    int capacity = pairCount * 2;
+                    pairCredit = Arrays.copyOf(pairCredit, capacity);
+                    pairBatch = Arrays.copyOf(pairBatch, capacity);
+                    pairProbability = Arrays.copyOf(pairProbability, capacity);
+                }
+                pairCredit[pairCount] = i;
+                pairBatch[pairCount] = position;
+                pairProbability[pairCount] = probability;
+                pairCount++;
+            }
+        }
+
+        int[] batchForCredit = new int[creditCents.length];
+        double[] probabilityForCredit = new double[creditCents.length];
+        Arrays.fill(batchForCredit, -1);
+        if (context.getMode() == AssignmentMode.ONE_TO_ONE) {
+            assignGreedily(pairCount, pairCredit, pairBatch, pairProbability, batches.size(),
+                    batchForCredit, probabilityForCredit);
+        } else {
+            for (int p = 0; p < pairCount; p++) {
+                int credit = pairCredit[p];
+                if (batchForCredit[credit] < 0 || pairProbability[p] > probabilityForCredit[credit]) {
+                    batchForCredit[credit] = pairBatch[p];
+                    probabilityForCredit[credit] = pairProbability[p];
+                }
+            }
+        }
+
+        List<ProposedMatch> matches = new ArrayList<>();
+        for (int i = 0; i < creditCents.length; i++) {
+            int position = batchForCredit[i];
+            if (position < 0) {
+                continue;
+            }
+            double confidence = Math.round(probabilityForCredit[i] * 1000) / 10.0;
+            BankTransaction transaction = transactions.get(i);
+            DepositBatch batch = batches.get(position);
+            if (creditCents[i] == batchCents[position]) {
+                matches.add(ProposedMatch.exact(transaction, batch, confidence));
+            } else {
+                Money difference = batch.getTotal().minus(transaction.getAmount());
+                matches.add(ProposedMatch.merchantFee(transaction, batch, difference,
+                        FeeBand.feePercentage(creditCents[i], batchCents[position]), confidence));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Exact-amount then fee-band candidates for one credit, without duplicates
+     */
+    private static int gatherCandidates(long creditCents, long creditDay, int rank, DateBucketIndex dateIndex,
+                                        CentsIndex exactIndex, FeeRangeIndex feeIndex, int[] candidates,
+                                        int[] distances, int[] fee) {
+        int exactFound;
+        int feeFound;
+        if (dateIndex != null) {
+            exactFound = dateIndex.exactCandidates(creditCents, creditDay, rank, EXACT_CANDIDATES,
+                    candidates, distances);
+            feeFound = dateIndex.feeCandidates(creditCents, creditDay, FEE_CANDIDATES, fee, distances);
+        } else {
+            int exactCount = exactIndex.count(creditCents);
+            exactFound = Math.min(EXACT_CANDIDATES, exactCount);
+            for (int k = 0; k < exactFound; k++) {
+                candidates[k] = exactIndex.positionAt(creditCents, (rank + k) % exactCount);
+            }
+            feeFound = feeIndex.nearestCandidates(creditCents, FEE_CANDIDATES, fee);
+        }
+
+        int found = exactFound;
+        for (int k = 0; k < feeFound; k++) {
+            if (!contains(candidates, exactFound, fee[k])) {
+                candidates[found++] = fee[k];
+            }
+        }
+        return found;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Highest probability first; ties go to the earlier credit, then earlier batch
+     */
+    private static void assignGreedily(int pairCount, int[] pairCredit, int[] pairBatch, double[] pairProbability,
+                                       int batchCount, int[] batchForCredit, double[] probabilityForCredit) {
+        int[] order = new int[pairCount];
+        for (int p = 0; p < pairCount; p++) {
+            order[p] = p;
+        }
+        OneToOneAssigner.sortIndices(order, (a, b) -> {
+            int byProbability = Double.compare(pairProbability[b], pairProbability[a]);
+            if (byProbability != 0) {
+                return byProbability;
+            }
+            int byCredit = Integer.compare(pairCredit[a], pairCredit[b]);
+            return byCredit != 0 ? byCredit : Integer.compare(pairBatch[a], pairBatch[b]);
+        });
+
+        boolean[] batchTaken = new boolean[batchCount];
+        for (int p : order) {
+            int credit = pairCredit[p];
+            if (batchForCredit[credit] >= 0 || batchTaken[pairBatch[p]]) {
+                continue;
+            }
+            batchTaken[pairBatch[p]] = true;
+            batchForCredit[credit] = pairBatch[p];
+            probabilityForCredit[credit] = pairProbability[p];
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.tekion.accounting.matching;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * One-to-one assignment of bank credits to deposit batches
+ *
+ * Design: Sparse bipartite graph (credit -> candidate batches) split into connected components
+ * Why: Components are independent, so each is solved on its own and all run in parallel
+ *
+ * Small components are solved exactly (Hungarian, maximum total confidence); large ones
+ * use a greedy pass over edges in descending confidence. Candidate edges per credit are
+ * capped so duplicate amounts and wide fee bands cannot blow up the graph.
+ *
+ * With a date index, candidates come only from batches inside the business-day window
+ * and edge weights fall off with date distance, so the nearest plausible batch wins.
+ */
+final class OneToOneAssigner {
+
+    static final byte EXACT = 0;
+    static final byte MERCHANT_FEE = 1;
+
+    private static final int EXACT_EDGES_PER_TRANSACTION = 4;
+    private static final int FEE_EDGES_PER_TRANSACTION = 4;
+    private static final int EXACT_SOLVER_MAX_SIDE = 48;
+    private static final int EXACT_SOLVER_MAX_OTHER_SIDE = 512;
+
+    private static final double EXACT_WEIGHT = 100.0;
+    private static final double FEE_WEIGHT = 95.0;
+    private static final double NO_EDGE_COST = 1_000.0;
+
+    /**
+     * Assignment per transaction: batch position (-1 when unassigned) and edge type
+     */
+    static final class Assignment {
+        final int[] batchForTransaction;
+        final byte[] typeForTransaction;
+
+        Assignment(int transactionCount) {
+            batchForTransaction = new int[transactionCount];
+            typeForTransaction = new byte[transactionCount];
+            Arrays.fill(batchForTransaction, -1);
+        }
+    }
+
+    private final long[] creditCents;
+    private final int batchCount;
+    private final CentsIndex exactIndex;
+    private final FeeRangeIndex feeIndex;
+
+    // Date-windowed candidates (null when the date window is off)
+    private final long[] creditDays;
+    private final DateBucketIndex dateIndex;
+    private final BusinessDayWindow dateWindow;
+
+    // Which edge types to build (a null index also turns its type off)
+    private final boolean withExact;
+    private final boolean withFee;
+
+    // Shared across components: each batch belongs to exactly one component
+    private final boolean[] batchTaken;
+
+    // Edge list (struct of arrays)
+    private int edgeCount;
+    private int[] edgeTransaction = new int[16];
+    private int[] edgeBatch = new int[16];
+    private double[] edgeWeight = new double[16];
+    private byte[] edgeType = new byte[16];
+
+    OneToOneAssigner(long[] creditCents, int batchCount, CentsIndex exactIndex, FeeRangeIndex feeIndex) {
+        this.creditCents = creditCents;
+        this.batchCount = batchCount;
+        this.exactIndex = exactIndex;
+        this.feeIndex = feeIndex;
+        this.creditDays = null;
+        this.dateIndex = null;
+        this.dateWindow = null;
+        this.withExact = exactIndex != null;
+        this.withFee = feeIndex != null;
+        this.batchTaken = new boolean[batchCount];
+    }
+
+    OneToOneAssigner(long[] creditCents, long[] creditDays, int batchCount, DateBucketIndex dateIndex,
+                     BusinessDayWindow dateWindow, boolean withExact, boolean withFee) {
+        this.creditCents = creditCents;
+        this.batchCount = batchCount;
+        this.exactIndex = null;
+        this.feeIndex = null;
+        this.creditDays = creditDays;
+        this.dateIndex = dateIndex;
+        this.dateWindow = dateWindow;
+        this.withExact = withExact;
+        this.withFee = withFee;
+        this.batchTaken = new boolean[batchCount];
+    }
+
+    Assignment assign() {
+        buildEdges();
+
+        int transactionCount = creditCents.length;
+        Assignment assignment = new Assignment(transactionCount);
+        if (edgeCount == 0) {
+            return assignment;
+        }
+
+        // Connected components: transactions are nodes 0..N-1, batches N..N+M-1
+        int[] parent = new int[transactionCount + batchCount];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            union(parent, edgeTransaction[e], transactionCount + edgeBatch[e]);
+        }
+
+        int[] componentOfRoot = new int[parent.length];
+        Arrays.fill(componentOfRoot, -1);
+        int componentCount = 0;
+        int[] edgeComponent = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int root = find(parent, edgeTransaction[e]);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = componentCount++;
+            }
+            edgeComponent[e] = componentOfRoot[root];
+        }
+
+        // Bucket edges by component (counting sort keeps edge order inside a bucket)
+        int[] componentStart = new int[componentCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            componentStart[edgeComponent[e] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            componentStart[c + 1] += componentStart[c];
+        }
+        int[] componentEdges = new int[edgeCount];
+        int[] fill = Arrays.copyOf(componentStart, componentCount);
+        for (int e = 0; e < edgeCount; e++) {
+            componentEdges[fill[edgeComponent[e]]++] = e;
+        }
+
+        // Components share no nodes, so each writes disjoint slots of the assignment
+        IntStream.range(0, componentCount).parallel().forEach(c ->
+                solveComponent(componentEdges, componentStart[c], componentStart[c + 1], assignment));
+
+        return assignment;
+    }
+
+    private void buildEdges() {
+        int transactionCount = creditCents.length;
+
+        int[] duplicateRank = duplicateRanks(creditCents);
+
+        if (dateIndex != null) {
+            buildDatedEdges(duplicateRank);
+            return;
+        }
+
+        int[] feeCandidates = new int[FEE_EDGES_PER_TRANSACTION];
+        for (int i = 0; i < transactionCount; i++) {
+            int exactCount = withExact ? exactIndex.count(creditCents[i]) : 0;
+            int exactEdges = Math.min(EXACT_EDGES_PER_TRANSACTION, exactCount);
+            for (int k = 0; k < exactEdges; k++) {
+                int batch = exactIndex.positionAt(creditCents[i], (duplicateRank[i] + k) % exactCount);
+                addEdge(i, batch, EXACT_WEIGHT, EXACT);
+            }
+
+            int feeEdges = withFee
+                    ? feeIndex.nearestCandidates(creditCents[i], FEE_EDGES_PER_TRANSACTION, feeCandidates) : 0;
+            for (int k = 0; k < feeEdges; k++) {
+                // Rank-based penalty below one point keeps better-scored fee candidates ahead
+                addEdge(i, feeCandidates[k], FEE_WEIGHT - k * 0.01, MERCHANT_FEE);
+            }
+        }
+    }
+
+    /**
+     * Rank of each credit among credits with the same amount, so duplicate amounts
+     * fan out over different batches of the same amount
+     */
+    static int[] duplicateRanks(long[] creditCents) {
+        CentsIndex creditIndex = new CentsIndex(creditCents);
+        int[] duplicateRank = new int[creditCents.length];
+        boolean[] ranked = new boolean[creditCents.length];
+        for (int i = 0; i < creditCents.length; i++) {
+            if (ranked[i]) {
+                continue;
+            }
+            int rank = 0;
+            for (int j = creditIndex.first(creditCents[i]); j >= 0; j = creditIndex.next(j)) {
+                duplicateRank[j] = rank++;
+                ranked[j] = true;
+            }
+        }
+        return duplicateRank;
+    }
+
+    /**
+     * Edges only to batches inside the date window, weighted down by business days apart
+     */
+    private void buildDatedEdges(int[] duplicateRank) {
+        int[] candidates = new int[Math.max(EXACT_EDGES_PER_TRANSACTION, FEE_EDGES_PER_TRANSACTION)];
+        int[] distances = new int[candidates.length];
+        for (int i = 0; i < creditCents.length; i++) {
+            int exactEdges = withExact ? dateIndex.exactCandidates(creditCents[i], creditDays[i],
+                    duplicateRank[i], EXACT_EDGES_PER_TRANSACTION, candidates, distances) : 0;
+            for (int k = 0; k < exactEdges; k++) {
+                addEdge(i, candidates[k], dateWindow.confidence(EXACT_WEIGHT, distances[k]), EXACT);
+            }
+
+            int feeEdges = withFee ? dateIndex.feeCandidates(creditCents[i], creditDays[i],
+                    FEE_EDGES_PER_TRANSACTION, candidates, distances) : 0;
+            for (int k = 0; k < feeEdges; k++) {
+                addEdge(i, candidates[k], dateWindow.confidence(FEE_WEIGHT, distances[k]) - k * 0.01,
+                        MERCHANT_FEE);
+            }
+        }
+    }
+
+    private void solveComponent(int[] componentEdges, int from, int to, Assignment assignment) {
+        int[] transactions = distinct(componentEdges, from, to, edgeTransaction);
+        int[] batches = distinct(componentEdges, from, to, edgeBatch);
+
+        int small = Math.min(transactions.length, batches.length);
+        int large = Math.max(transactions.length, batches.length);
+        if (small <= EXACT_SOLVER_MAX_SIDE && large <= EXACT_SOLVER_MAX_OTHER_SIDE) {
+            solveExactly(componentEdges, from, to, transactions, batches, assignment);
+        } else {
+            solveGreedily(componentEdges, from, to, assignment);
+        }
+    }
+
+    /**
+     * Highest-confidence edge first; ties go to the earlier credit, then earlier batch
+     */
+    private void solveGreedily(int[] componentEdges, int from, int to, Assignment assignment) {
+        int[] order = Arrays.copyOfRange(componentEdges, from, to);
+        sortIndices(order, (a, b) -> {
+            int byWeight = Double.compare(edgeWeight[b], edgeWeight[a]);
+            if (byWeight != 0) {
+                return byWeight;
+            }
+            int byTransaction = Integer.compare(edgeTransaction[a], edgeTransaction[b]);
+            return byTransaction != 0 ? byTransaction : Integer.compare(edgeBatch[a], edgeBatch[b]);
+        });
+
+        for (int e : order) {
+            int transaction = edgeTransaction[e];
+            if (assignment.batchForTransaction[transaction] >= 0 || batchTaken[edgeBatch[e]]) {
+                continue;
+            }
+            batchTaken[edgeBatch[e]] = true;
+            assignment.batchForTransaction[transaction] = edgeBatch[e];
+            assignment.typeForTransaction[transaction] = edgeType[e];
+        }
+    }
+
+    /**
+     * Maximum-weight assignment via the Hungarian algorithm on a dense cost matrix
+     */
+    private void solveExactly(int[] componentEdges, int from, int to,
+                              int[] transactions, int[] batches, Assignment assignment) {
+        boolean transactionsAreRows = transactions.length <= batches.length;
+        int rows = transactionsAreRows ? transactions.length : batches.length;
+        int columns = transactionsAreRows ? batches.length : transactions.length;
+
+        double[][] cost = new double[rows + 1][columns + 1];
+        int[][] edgeAt = new int[rows + 1][columns + 1];
+        for (int r = 1; r <= rows; r++) {
+            Arrays.fill(cost[r], NO_EDGE_COST);
+            Arrays.fill(edgeAt[r], -1);
+        }
+        for (int k = from; k < to; k++) {
+            int e = componentEdges[k];
+            int t = Arrays.binarySearch(transactions, edgeTransaction[e]) + 1;
+            int b = Arrays.binarySearch(batches, edgeBatch[e]) + 1;
+            int r = transactionsAreRows ? t : b;
+            int c = transactionsAreRows ? b : t;
+            double edgeCost = NO_EDGE_COST - edgeWeight[e];
+            if (edgeCost < cost[r][c]) {
+                cost[r][c] = edgeCost;
+                edgeAt[r][c] = e;
+            }
+        }
+
+        int[] columnOwner = hungarian(cost, rows, columns);
+        for (int c = 1; c <= columns; c++) {
+            int r = columnOwner[c];
+            if (r == 0 || edgeAt[r][c] < 0) {
+                continue;
+            }
+            int e = edgeAt[r][c];
+            assignment.batchForTransaction[edgeTransaction[e]] = edgeBatch[e];
+            assignment.typeForTransaction[edgeTransaction[e]] = edgeType[e];
+        }
+    }
+
+    /**
+     * Min-cost assignment of every row (rows <= columns), 1-indexed; returns the row owning each column
+     */
+    private static int[] hungarian(double[][] cost, int rows, int columns) {
+        double[] u = new double[rows + 1];
+        double[] v = new double[columns + 1];
+        int[] owner = new int[columns + 1];
+        int[] way = new int[columns + 1];
+        double[] minValue = new double[columns + 1];
+        boolean[] used = new boolean[columns + 1];
+
+        for (int row = 1; row <= rows; row++) {
+            owner[0] = row;
+            int column = 0;
+            Arrays.fill(minValue, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[column] = true;
+                int currentRow = owner[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+                for (int j = 1; j <= columns; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double reduced = cost[currentRow][j] - u[currentRow] - v[j];
+                    if (reduced < minValue[j]) {
+                        minValue[j] = reduced;
+                        way[j] = column;
+                    }
+                    if (minValue[j] < delta) {
+                        delta = minValue[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= columns; j++) {
+                    if (used[j]) {
+                        u[owner[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minValue[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (owner[column] != 0);
+            do {
+                int previous = way[column];
+                owner[column] = owner[previous];
+                column = previous;
+            } while (column != 0);
+        }
+        return owner;
+    }
+
+    private void addEdge(int transaction, int batch, double weight, byte type) {
+        if (edgeCount == edgeTransaction.length) {
+            int capacity = edgeCount * 2;
+            edgeTransaction = Arrays.copyOf(edgeTransaction, capacity);
+            edgeBatch = Arrays.copyOf(edgeBatch, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeType = Arrays.copyOf(edgeType, capacity);
+        }
+        edgeTransaction[edgeCount] = transaction;
+        edgeBatch[edgeCount] = batch;
+        edgeWeight[edgeCount] = weight;
+        edgeType[edgeCount] = type;
+        edgeCount++;
+    }
+
+    private static int[] distinct(int[] componentEdges, int from, int to, int[] endpoint) {
+        int[] values = new int[to - from];
+        for (int k = from; k < to; k++) {
+            values[k - from] = endpoint[componentEdges[k]];
+        }
+        Arrays.sort(values);
+        int unique = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, unique);
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * Stable merge sort of int indices with a primitive comparator
+     */
+    static void sortIndices(int[] values, IntBinaryOperator comparator) {
+        int[] buffer = new int[values.length];
+        int[] source = values;
+        int[] target = buffer;
+        for (int width = 1; width < values.length; width <<= 1) {
+            for (int start = 0; start < values.length; start += width << 1) {
+                int middle = Math.min(start + width, values.length);
+                int end = Math.min(start + (width << 1), values.length);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    target[out++] = comparator.applyAsInt(source[right], source[left]) < 0
+                            ? source[right++] : source[left++];
+                }
+                while (left < middle) {
+                    target[out++] = source[left++];
+                }
+                while (right < end) {
+                    target[out++] = source[right++];
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != values) {
+            System.arraycopy(source, 0, values, 0, values.length);
+        }
+    }
+}
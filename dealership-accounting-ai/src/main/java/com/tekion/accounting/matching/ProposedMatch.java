@@ -0,0 +1,92 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A match proposed by the matching engine (not yet persisted)
+ *
+ * 1:1 matches link one transaction to one batch. Group matches (subset-sum) link
+ * several batches to one credit or one batch to several credits; transaction and
+ * batch then hold the first member and the lists hold all of them.
+ */
+@Data
+@AllArgsConstructor
+public class ProposedMatch {
+
+    public static final String EXACT_MATCH = "EXACT_MATCH";
+    public static final String MERCHANT_FEE_MATCH = "MERCHANT_FEE_MATCH";
+    public static final String MULTI_BATCH_MATCH = "MULTI_BATCH_MATCH";
+    public static final String SPLIT_DEPOSIT_MATCH = "SPLIT_DEPOSIT_MATCH";
+
+    private BankTransaction transaction;
+    private DepositBatch batch;
+    private String matchType;
+    private double confidence;
+
+    // Only set for merchant fee matches
+    private Money feeAmount;
+    private double feePercentage;
+
+    // All members of the match (singletons for 1:1 matches)
+    private List<BankTransaction> transactions;
+    private List<DepositBatch> batches;
+
+    public static final double EXACT_CONFIDENCE = 100.0;
+    public static final double MERCHANT_FEE_CONFIDENCE = 95.0;
+
+    public static ProposedMatch exact(BankTransaction transaction, DepositBatch batch) {
+        return exact(transaction, batch, EXACT_CONFIDENCE);
+    }
+
+    /**
+     * Exact match with a confidence below 100 (e.g. reduced for date distance)
+     */
+    public static ProposedMatch exact(BankTransaction transaction, DepositBatch batch, double confidence) {
+        return new ProposedMatch(transaction, batch, EXACT_MATCH, confidence, Money.ZERO, 0.0,
+                Collections.singletonList(transaction), Collections.singletonList(batch));
+    }
+
+    public static ProposedMatch merchantFee(BankTransaction transaction, DepositBatch batch,
+                                            Money feeAmount, double feePercentage) {
+        return merchantFee(transaction, batch, feeAmount, feePercentage, MERCHANT_FEE_CONFIDENCE);
+    }
+
+    public static ProposedMatch merchantFee(BankTransaction transaction, DepositBatch batch,
+                                            Money feeAmount, double feePercentage, double confidence) {
+        return new ProposedMatch(transaction, batch, MERCHANT_FEE_MATCH, confidence, feeAmount, feePercentage,
+                Collections.singletonList(transaction), Collections.singletonList(batch));
+    }
+
+    /**
+     * One bank credit covering several batches deposited together
+     */
+    public static ProposedMatch multiBatch(BankTransaction transaction, List<DepositBatch> batches,
+                                           double confidence) {
+        return new ProposedMatch(transaction, batches.get(0), MULTI_BATCH_MATCH, confidence, Money.ZERO, 0.0,
+                Collections.singletonList(transaction), batches);
+    }
+
+    /**
+     * One batch split across several bank credits
+     */
+    public static ProposedMatch splitDeposit(List<BankTransaction> transactions, DepositBatch batch,
+                                             double confidence) {
+        return new ProposedMatch(transactions.get(0), batch, SPLIT_DEPOSIT_MATCH, confidence, Money.ZERO, 0.0,
+                transactions, Collections.singletonList(batch));
+    }
+
+    public boolean isMerchantFee() {
+        return MERCHANT_FEE_MATCH.equals(matchType);
+    }
+
+    public boolean isGroup() {
+        return transactions.size() > 1 || batches.size() > 1;
+    }
+}
@@ -0,0 +1,182 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 1:1 rule stages: exact amount, merchant fee, or both in one pass ("rule-based")
+ *
+ * Strategy 1 (exact): batches are keyed by total in integer cents, so each credit
+ * costs one hash probe instead of a scan over every batch.
+ * Strategy 2 (merchant fee): batch total exceeds the credit by min..max percent;
+ * candidates come from a sorted index of totals and the one whose fee is closest to
+ * the middle of the band wins.
+ *
+ * "rule-based" considers both together, so ONE_TO_ONE can trade an exact hit for two
+ * fee hits when that matches more credits; "exact" and "merchant-fee" run one each,
+ * which is cheaper but greedy across the two stages. With a date window, candidates
+ * come from DateBucketIndex and confidence falls off with business days apart.
+ */
+final class RuleBasedStrategy implements MatchStrategy {
+
+    static final String RULE_BASED = "rule-based";
+    static final String EXACT = "exact";
+    static final String MERCHANT_FEE = "merchant-fee";
+
+    private final String name;
+    private final boolean exact;
+    private final boolean fee;
+
+    private RuleBasedStrategy(String name, boolean exact, boolean fee) {
+        this.name = name;
+        this.exact = exact;
+        this.fee = fee;
+    }
+
+    static RuleBasedStrategy ruleBased() {
+        return new RuleBasedStrategy(RULE_BASED, true, true);
+    }
+
+    static RuleBasedStrategy exactOnly() {
+        return new RuleBasedStrategy(EXACT, true, false);
+    }
+
+    static RuleBasedStrategy merchantFeeOnly() {
+        return new RuleBasedStrategy(MERCHANT_FEE, false, true);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<ProposedMatch> match(MatchContext context) {
+        if (context.getDateWindow() != null) {
+            DateBucketIndex dateIndex = new DateBucketIndex(context.batchCents(), context.batchDays(),
+                    context.getFeeBand(), context.getDateWindow());
+            return context.getMode() == AssignmentMode.ONE_TO_ONE
+                    ? oneToOneDated(context, dateIndex)
+                    : firstHitDated(context, dateIndex);
+        }
+
+        CentsIndex exactIndex = exact ? new CentsIndex(context.batchCents()) : null;
+        FeeRangeIndex feeIndex = fee ? new FeeRangeIndex(context.batchCents(), context.getFeeBand()) : null;
+        return context.getMode() == AssignmentMode.ONE_TO_ONE
+                ? oneToOne(context, exactIndex, feeIndex)
+                : firstHit(context, exactIndex, feeIndex);
+    }
+
+    /**
+     * Each credit takes the first exact hit, else the best merchant fee candidate
+     */
+    private List<ProposedMatch> firstHit(MatchContext context, CentsIndex exactIndex, FeeRangeIndex feeIndex) {
+        List<BankTransaction> transactions = context.getTransactions();
+        List<DepositBatch> batches = context.getBatches();
+        long[] creditCents = context.creditCents();
+        List<ProposedMatch> matches = new ArrayList<>();
+
+        for (int i = 0; i < creditCents.length; i++) {
+            BankTransaction transaction = transactions.get(i);
+
+            int position = exactIndex != null ? exactIndex.first(creditCents[i]) : -1;
+            if (position >= 0) {
+                matches.add(ProposedMatch.exact(transaction, batches.get(position)));
+                continue;
+            }
+
+            int feePosition = feeIndex != null ? feeIndex.bestCandidate(creditCents[i]) : -1;
+            if (feePosition >= 0) {
+                matches.add(merchantFeeMatch(transaction, batches.get(feePosition),
+                        ProposedMatch.MERCHANT_FEE_CONFIDENCE));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * First-hit within the date window: nearest exact hit, else nearest best-scored fee candidate
+     */
+    private List<ProposedMatch> firstHitDated(MatchContext context, DateBucketIndex dateIndex) {
+        List<BankTransaction> transactions = context.getTransactions();
+        List<DepositBatch> batches = context.getBatches();
+        BusinessDayWindow window = context.getDateWindow();
+        long[] creditCents = context.creditCents();
+        long[] creditDays = context.creditDays();
+        List<ProposedMatch> matches = new ArrayList<>();
+        int[] position = new int[1];
+        int[] distance = new int[1];
+
+        for (int i = 0; i < creditCents.length; i++) {
+            BankTransaction transaction = transactions.get(i);
+
+            if (exact && dateIndex.exactCandidates(creditCents[i], creditDays[i], 0, 1, position, distance) > 0) {
+                matches.add(ProposedMatch.exact(transaction, batches.get(position[0]),
+                        window.confidence(ProposedMatch.EXACT_CONFIDENCE, distance[0])));
+                continue;
+            }
+            if (fee && dateIndex.feeCandidates(creditCents[i], creditDays[i], 1, position, distance) > 0) {
+                matches.add(merchantFeeMatch(transaction, batches.get(position[0]),
+                        window.confidence(ProposedMatch.MERCHANT_FEE_CONFIDENCE, distance[0])));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Give each batch to at most one credit, maximizing total confidence
+     */
+    private List<ProposedMatch> oneToOne(MatchContext context, CentsIndex exactIndex, FeeRangeIndex feeIndex) {
+        OneToOneAssigner.Assignment assignment = new OneToOneAssigner(
+                context.creditCents(), context.getBatches().size(), exactIndex, feeIndex).assign();
+        return toMatches(context, assignment, null);
+    }
+
+    /**
+     * One-to-one within the date window; confidence reflects how far apart the dates are
+     */
+    private List<ProposedMatch> oneToOneDated(MatchContext context, DateBucketIndex dateIndex) {
+        OneToOneAssigner.Assignment assignment = new OneToOneAssigner(
+                context.creditCents(), context.creditDays(), context.getBatches().size(), dateIndex,
+                context.getDateWindow(), exact, fee).assign();
+        return toMatches(context, assignment, context.getDateWindow());
+    }
+
+    private List<ProposedMatch> toMatches(MatchContext context, OneToOneAssigner.Assignment assignment,
+                                          BusinessDayWindow window) {
+        List<BankTransaction> transactions = context.getTransactions();
+        List<DepositBatch> batches = context.getBatches();
+        List<ProposedMatch> matches = new ArrayList<>();
+
+        for (int i = 0; i < transactions.size(); i++) {
+            int position = assignment.batchForTransaction[i];
+            if (position < 0) {
+                continue;
+            }
+            int distance = window == null ? 0 : window.distance(context.creditDays()[i], context.batchDays()[position]);
+            if (assignment.typeForTransaction[i] == OneToOneAssigner.EXACT) {
+                double confidence = window == null
+                        ? ProposedMatch.EXACT_CONFIDENCE
+                        : window.confidence(ProposedMatch.EXACT_CONFIDENCE, distance);
+                matches.add(ProposedMatch.exact(transactions.get(i), batches.get(position), confidence));
+            } else {
+                double confidence = window == null
+                        ? ProposedMatch.MERCHANT_FEE_CONFIDENCE
+                        : window.confidence(ProposedMatch.MERCHANT_FEE_CONFIDENCE, distance);
+                matches.add(merchantFeeMatch(transactions.get(i), batches.get(position), confidence));
+            }
+        }
+        return matches;
+    }
+
+    private static ProposedMatch merchantFeeMatch(BankTransaction transaction, DepositBatch batch,
+                                                  double confidence) {
+        Money difference = batch.getTotal().minus(transaction.getAmount());
+        double feePercentage = FeeBand.feePercentage(transaction.getAmount().getCents(), batch.getTotal().getCents());
+        return ProposedMatch.merchantFee(transaction, batch, difference, feePercentage, confidence);
+    }
+}
@@ -0,0 +1,27 @@
+package com.tekion.accounting.matching;
+
+import lombok.Data;
+
+/**
+ * Running totals for one pipeline stage across all recorded plans (simulations are left out;
+ * see MatchingEngine.getStrategyStats)
+ *
+ * Candidates are the open credits handed to the stage; hits are the matches it proposed.
+ */
+@Data
+public class StrategyStats {
+    private String strategy;
+    private long runs;
+    private long candidates;
+    private long batchCandidates;
+    private long hits;
+    private long totalNanos;
+    private long lastNanos;
+
+    /**
+     * Hits per candidate credit (0 when the stage never saw one)
+     */
+    public double getHitRate() {
+        return candidates == 0 ? 0.0 : (double) hits / candidates;
+    }
+}
@@ -0,0 +1,291 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Many-to-one and one-to-many matching by bounded subset sum over integer cents
+ *
+ * Pass 1: one bank credit equals the sum of 2..N batches deposited within the date window.
+ * Pass 2: one batch equals the sum of 2..N bank credits dated within the window.
+ *
+ * Search: candidates sorted by amount (descending), depth-first with three prunes:
+ * amounts larger than the remainder are skipped, the search stops once the largest
+ * remaining amounts can no longer reach the target, and failed (slot, remainder, depth)
+ * states are memoized so equal partial sums are never expanded twice.
+ */
+public final class SubsetSumMatcher {
+
+    // Slot index is packed into 12 bits of the memo key
+    private static final int MAX_CANDIDATE_LIMIT = 4_095;
+
+    private final int maxSubsetSize;
+    private final int dateWindowDays;
+    private final int maxCandidates;
+
+    public SubsetSumMatcher(int maxSubsetSize, int dateWindowDays, int maxCandidates) {
+        this.maxSubsetSize = Math.max(2, Math.min(maxSubsetSize, 15));
+        this.dateWindowDays = Math.max(0, dateWindowDays);
+        this.maxCandidates = Math.max(2, Math.min(maxCandidates, MAX_CANDIDATE_LIMIT));
+    }
+
+    /**
+     * Match leftover credits and batches; each item is used at most once
+     */
+    public List<ProposedMatch> match(List<BankTransaction> credits, List<DepositBatch> batches) {
+        List<ProposedMatch> matches = new ArrayList<>();
+        if (credits.isEmpty() || batches.size() + credits.size() < 3) {
+            return matches;
+        }
+
+        long[] creditCents = new long[credits.size()];
+        long[] creditDays = new long[credits.size()];
+        for (int i = 0; i < creditCents.length; i++) {
+            BankTransaction credit = credits.get(i);
+            creditCents[i] = credit.getAmount().getCents();
+            creditDays[i] = credit.getDate() == null ? Long.MIN_VALUE : credit.getDate().toEpochDay();
+        }
+
+        long[] batchCents = new long[batches.size()];
+        long[] batchDays = new long[batches.size()];
+        for (int i = 0; i < batchCents.length; i++) {
+            DepositBatch batch = batches.get(i);
+            batchCents[i] = batch.getTotal().getCents();
+            batchDays[i] = batch.getDepositedDate() == null
+                    ? Long.MIN_VALUE : batch.getDepositedDate().toLocalDate().toEpochDay();
+        }
+
+        boolean[] creditUsed = new boolean[credits.size()];
+        boolean[] batchUsed = new boolean[batches.size()];
+        DateWindow batchWindow = new DateWindow(batchDays);
+        DateWindow creditWindow = new DateWindow(creditDays);
+
+        // Pass 1: one credit covers several batches
+        for (int c = 0; c < credits.size(); c++) {
+            int[] chosen = search(creditCents[c], creditDays[c], batchCents, batchDays, batchUsed, batchWindow);
+            if (chosen == null) {
+                continue;
+            }
+            List<DepositBatch> members = new ArrayList<>(chosen.length);
+            for (int position : chosen) {
+                batchUsed[position] = true;
+                members.add(batches.get(position));
+            }
+            creditUsed[c] = true;
+            matches.add(ProposedMatch.multiBatch(credits.get(c), members, confidenceFor(chosen.length)));
+        }
+
+        // Pass 2: one batch split across several credits
+        for (int b = 0; b < batches.size(); b++) {
+            if (batchUsed[b]) {
+                continue;
+            }
+            int[] chosen = search(batchCents[b], batchDays[b], creditCents, creditDays, creditUsed, creditWindow);
+            if (chosen == null) {
+                continue;
+            }
+            List<BankTransaction> members = new ArrayList<>(chosen.length);
+            for (int position : chosen) {
+                creditUsed[position] = true;
+                members.add(credits.get(position));
+            }
+            batchUsed[b] = true;
+            matches.add(ProposedMatch.splitDeposit(members, batches.get(b), confidenceFor(chosen.length)));
+        }
+
+        return matches;
+    }
+
+    /**
+     * Confidence drops with every extra member (2 items: 90, 3 items: 85, ...)
+     */
+    static double confidenceFor(int members) {
+        return Math.max(70.0, 90.0 - 5.0 * (members - 2));
+    }
+
+    /**
+     * Positions of 2..maxSubsetSize unused items dated near targetDay that sum to target, or null
+     */
+    private int[] search(long target, long targetDay, long[] cents, long[] days, boolean[] used, DateWindow window) {
+        if (target <= 0 || targetDay == Long.MIN_VALUE) {
+            return null;
+        }
+
+        int[] candidates = window.collect(targetDay, dateWindowDays, used, cents, target, maxCandidates);
+        if (candidates.length < 2) {
+            return null;
+        }
+
+        // Largest first, so the reach bound below is a prefix sum
+        long[] values = new long[candidates.length];
+        sortByAmountDescending(candidates, cents);
+        for (int i = 0; i < candidates.length; i++) {
+            values[i] = cents[candidates[i]];
+        }
+        long[] prefix = new long[values.length + 1];
+        for (int i = 0; i < values.length; i++) {
+            prefix[i + 1] = prefix[i] + values[i];
+        }
+
+        int[] chosen = new int[maxSubsetSize];
+        Search state = new Search(values, prefix, chosen);
+        int depth = state.find(0, target, maxSubsetSize, 0);
+        if (depth < 2) {
+            return null;
+        }
+
+        int[] positions = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            positions[i] = candidates[chosen[i]];
+        }
+        return positions;
+    }
+
+    private static void sortByAmountDescending(int[] positions, long[] cents) {
+        // Candidate lists are small (bounded by maxCandidates): insertion sort, stable
+        for (int i = 1; i < positions.length; i++) {
+            int current = positions[i];
+            int j = i - 1;
+            while (j >= 0 && cents[positions[j]] < cents[current]) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = current;
+        }
+    }
+
+    /**
+     * Depth-first subset search with reach pruning and memoized failures
+     */
+    private static final class Search {
+        private final long[] values;
+        private final long[] prefix;
+        private final int[] chosen;
+        private final Set<Long> failed = new HashSet<>();
+
+        Search(long[] values, long[] prefix, int[] chosen) {
+            this.values = values;
+            this.prefix = prefix;
+            this.chosen = chosen;
+        }
+
+        /**
+         * @return number of chosen items when remaining hits zero, or -1
+         */
+        int find(int start, long remaining, int depthLeft, int depth) {
+            if (remaining == 0) {
+                return depth;
+            }
+            if (depthLeft == 0 || start >= values.length) {
+                return -1;
+            }
+
+            // Best case: the next depthLeft items are the largest still available
+            long reach = prefix[Math.min(values.length, start + depthLeft)] - prefix[start];
+            if (reach < remaining) {
+                return -1;
+            }
+
+            long key = (remaining << 16) | ((long) start << 4) | depthLeft;
+            if (failed.contains(key)) {
+                return -1;
+            }
+
+            for (int i = start; i < values.length; i++) {
+                long value = values[i];
+                if (value > remaining) {
+                    continue;
+                }
+                // Values only shrink from here on
+                if (value * depthLeft < remaining) {
+                    break;
+                }
+                // An equal value at the same depth leads to the same subtree
+                if (i > start && value == values[i - 1]) {
+                    continue;
+                }
+                chosen[depth] = i;
+                int found = find(i + 1, remaining - value, depthLeft - 1, depth + 1);
+                if (found > 0) {
+                    return found;
+                }
+            }
+
+            failed.add(key);
+            return -1;
+        }
+    }
+
+    /**
+     * Items sorted by epoch day for window lookups by binary search
+     */
+    private static final class DateWindow {
+        private final long[] sortedDays;
+        private final int[] positions;
+
+        DateWindow(long[] days) {
+            Integer[] order = new Integer[days.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(days[a], days[b]));
+            positions = new int[days.length];
+            sortedDays = new long[days.length];
+            for (int i = 0; i < order.length; i++) {
+                positions[i] = order[i];
+                sortedDays[i] = days[order[i]];
+            }
+        }
+
+        /**
+         * Unused items within the window with 0 < amount < target, nearest days first, capped at limit
+         */
+        int[] collect(long day, int window, boolean[] used, long[] cents, long target, int limit) {
+            int from = lowerBound(day - window);
+            int to = lowerBound(day + window + 1);
+            int[] found = new int[Math.min(to - from, limit)];
+            int count = 0;
+
+            // Expand outward from the target day so the cap keeps the closest dates
+            int right = lowerBound(day);
+            int left = right - 1;
+            while (count < found.length && (left >= from || right < to)) {
+                int slot;
+                if (left < from) {
+                    slot = right++;
+                } else if (right >= to) {
+                    slot = left--;
+                } else if (sortedDays[right] - day <= day - sortedDays[left]) {
+                    slot = right++;
+                } else {
+                    slot = left--;
+                }
+                int position = positions[slot];
+                if (!used[position] && cents[position] > 0 && cents[position] < target) {
+                    found[count++] = position;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        private int lowerBound(long day) {
+            int low = 0;
+            int high = sortedDays.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedDays[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.tekion.accounting.matching;
+
+import java.util.List;
+
+/**
+ * Pipeline stage for many-to-one and one-to-many exact sums (see SubsetSumMatcher)
+ *
+ * Meant to run last: it only sees what the 1:1 stages left over.
+ */
+final class SubsetSumStrategy implements MatchStrategy {
+
+    static final String NAME = "subset-sum";
+
+    private final SubsetSumMatcher matcher;
+
+    SubsetSumStrategy(int maxSubsetSize, int dateWindowDays, int maxCandidates) {
+        this.matcher = new SubsetSumMatcher(maxSubsetSize, dateWindowDays, maxCandidates);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<ProposedMatch> match(MatchContext context) {
+        return matcher.match(context.getTransactions(), context.getBatches());
+    }
+}
@@ -53,7 +53,7 @@ public class BankTransaction {
     
     @NotNull(message = "Amount is required")
     @Field("amount")
-    private Double amount;  // Positive = credit, negative = debit
+    private Money amount;  // Positive = credit, negative = debit
     
     @Field("type")
     private String type;  // CREDIT, DEBIT
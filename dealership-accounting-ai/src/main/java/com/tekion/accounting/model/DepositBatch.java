@@ -56,7 +56,7 @@ public class DepositBatch {
     @NotNull(message = "Total is required")
     @Min(value = 0, message = "Total must be positive")
     @Field("total")
-    private Double total;
+    private Money total;
     
     @Indexed
     @Field("status")
@@ -53,7 +53,7 @@ public class Exception {
 
     @NotNull(message = "Amount is required")
     @Field("amount")
-    private Double amount;
+    private Money amount;
     
     // Optional references (depending on exception type)
     @Field("bank_transaction_id")
@@ -62,6 +62,11 @@ public class Exception {
     @Field("deposit_batch_id")
     private String depositBatchId;
     
+    // Natural key (type + source ID); unique so re-runs cannot duplicate an exception
+    @Indexed(unique = true, sparse = true)
+    @Field("natural_key")
+    private String naturalKey;
+    
     // AI suggestions (Agent 2: Exception Resolution)
     @Field("ai_detected")
     @Builder.Default
@@ -79,6 +84,9 @@ public class Exception {
     @Field("ai_generated_memo")
     private String aiGeneratedMemo;  // Audit memo text
 
+    @Field("explanation_status")
+    private String explanationStatus;  // PENDING, COMPLETED, FAILED (memo filled in by ExplanationQueue)
+
     @Field("resolution_notes")
     private String resolutionNotes;  // User's resolution notes
     
@@ -100,5 +108,13 @@ public class Exception {
     
     @Field("resolved_by")
     private String resolvedBy;  // "DEMO-USER"
+    
+    /**
+     * Natural key of an exception: its type plus the bank transaction it is about,
+     * or the deposit batch when there is no transaction (timing differences)
+     */
+    public static String naturalKey(String type, String bankTransactionId, String depositBatchId) {
+        return type + ":" + (bankTransactionId != null ? bankTransactionId : depositBatchId);
+    }
 }
 
@@ -31,17 +31,17 @@ public class LineItem {
     
     @NotNull(message = "Rate is required")
     @Min(value = 0, message = "Rate must be positive")
-    private Double rate;
+    private Money rate;
     
     // Calculated field (quantity * rate)
-    private Double amount;
+    private Money amount;
     
     /**
      * Calculate amount from quantity and rate
      */
     public void calculateAmount() {
         if (quantity != null && rate != null) {
-            this.amount = quantity * rate;
+            this.amount = rate.times(quantity);
         }
     }
 }
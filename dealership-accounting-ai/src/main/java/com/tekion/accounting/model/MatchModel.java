@@ -0,0 +1,65 @@
+package com.tekion.accounting.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Match Model - Trained weights of the learned match scorer (ml-based strategy)
+ * 
+ * Design: One document per training run; the newest one is loaded at startup
+ * Why: Training reads every reviewed match and is done offline, while scoring
+ *      only needs a few dozen doubles in memory
+ */
+@Document(collection = "match_models")
+@CompoundIndex(name = "dealership_trained_idx", def = "{'dealership_id': 1, 'trained_at': -1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchModel {
+    
+    @Id
+    private String id;
+    
+    // Multi-tenancy field
+    @Field("dealership_id")
+    private String dealershipId;
+    
+    @Field("trained_at")
+    private LocalDateTime trainedAt;
+    
+    // Weights in feature slot order (see MatchFeatures)
+    @Field("feature_names")
+    @Builder.Default
+    private List<String> featureNames = new ArrayList<>();
+    
+    @Field("weights")
+    @Builder.Default
+    private List<Double> weights = new ArrayList<>();
+    
+    @Field("bias")
+    private double bias;
+    
+    // Training data
+    @Field("examples")
+    private int examples;
+    
+    @Field("positives")
+    private int positives;  // Confirmed matches
+    
+    @Field("negatives")
+    private int negatives;  // Rejected matches plus mismatched pairs
+    
+    @Field("training_accuracy")
+    private double trainingAccuracy;
+}
@@ -0,0 +1,27 @@
+package com.tekion.accounting.model;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Lets the standard @Min constraint validate Money fields (value is in dollars)
+ *
+ * Registered through META-INF/services/jakarta.validation.ConstraintValidator,
+ * so existing @Min(value = 0) annotations keep working unchanged.
+ */
+public class MoneyMinValidator implements ConstraintValidator<Min, Money> {
+
+    private long minCents;
+
+    @Override
+    public void initialize(Min constraint) {
+        this.minCents = Math.multiplyExact(constraint.value(), 100L);
+    }
+
+    @Override
+    public boolean isValid(Money value, ConstraintValidatorContext context) {
+        // null is handled by @NotNull, as for the built-in validators
+        return value == null || value.getCents() >= minCents;
+    }
+}
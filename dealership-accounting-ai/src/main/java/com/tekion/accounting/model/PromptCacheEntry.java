@@ -0,0 +1,44 @@
+package com.tekion.accounting.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Prompt Cache Entry - Generated Ollama text, second tier of PromptCache
+ * 
+ * Design: The ID is the cache key (model plus prompt hash); a TTL index on expires_at
+ * lets Mongo drop stale entries on its own
+ * Why: The in-memory tier is lost on restart, and regenerating a month of memos
+ *      costs seconds per prompt
+ */
+@Document(collection = "prompt_cache")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromptCacheEntry {
+    
+    @Id
+    private String id;  // "<model>:<sha-256 of the normalized prompt>"
+    
+    @Field("model")
+    private String model;
+    
+    @Field("text")
+    private String text;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+    
+    @Indexed(expireAfterSeconds = 0)
+    @Field("expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -58,7 +58,7 @@ public class Receipt {
     @NotNull(message = "Amount is required")
     @Min(value = 0, message = "Amount must be positive")
     @Field("amount")
-    private Double amount;
+    private Money amount;
     
     @Indexed
     @Field("status")
@@ -15,7 +15,9 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * Reconciliation Match - Links bank transaction to deposit batch
@@ -48,6 +50,22 @@ public class ReconciliationMatch {
     @Field("deposit_batch_id")
     private String depositBatchId;
     
+    // Every member of a multi-batch or split-deposit match (the IDs above hold the first member)
+    @Indexed
+    @Field("bank_transaction_ids")
+    @Builder.Default
+    private List<String> bankTransactionIds = new ArrayList<>();
+    
+    @Indexed
+    @Field("deposit_batch_ids")
+    @Builder.Default
+    private List<String> depositBatchIds = new ArrayList<>();
+    
+    // Natural key over the linked IDs; unique so re-runs cannot duplicate a match
+    @Indexed(unique = true, sparse = true)
+    @Field("natural_key")
+    private String naturalKey;
+    
     // AI metadata (for tracking AI performance)
     @Field("ai_suggested")
     @Builder.Default
@@ -72,6 +90,9 @@ public class ReconciliationMatch {
     @Field("ai_explanation")
     private String aiExplanation;  // Llama-generated explanation
 
+    @Field("explanation_status")
+    private String explanationStatus;  // PENDING, COMPLETED, FAILED, TEMPLATE (see ExplanationQueue)
+
     @Field("status")
     @Builder.Default
     private String status = "SUGGESTED";  // SUGGESTED, CONFIRMED, REJECTED
@@ -86,5 +107,16 @@ public class ReconciliationMatch {
     @CreatedDate
     @Field("matched_at")
     private LocalDateTime matchedAt;
+    
+    /**
+     * Natural key of a match: sorted transaction IDs, then sorted batch IDs
+     */
+    public static String naturalKey(Collection<String> bankTransactionIds, Collection<String> depositBatchIds) {
+        return String.join("+", new TreeSet<>(bankTransactionIds)) + "|" + String.join("+", new TreeSet<>(depositBatchIds));
+    }
+    
+    public static String naturalKey(String bankTransactionId, String depositBatchId) {
+        return bankTransactionId + "|" + depositBatchId;
+    }
 }
 
@@ -0,0 +1,85 @@
+package com.tekion.accounting.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reconciliation Run - Ledger entry for one AI reconciliation run
+ * 
+ * Design: One document per run, written at start and updated at the end
+ * Why: Audit trail of what each run did, and proof that re-runs only do
+ *      delta work (items skipped because an earlier run already handled them)
+ *
+ * Background jobs use the same document as their job state: progress counters
+ * are flushed while the run works, and cancel_requested is how any node asks
+ * the node running it to stop.
+ */
+@Document(collection = "reconciliation_runs")
+@CompoundIndex(name = "dealership_started_idx", def = "{'dealership_id': 1, 'started_at': -1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRun {
+    
+    @Id
+    private String id;
+    
+    // Multi-tenancy field
+    @Field("dealership_id")
+    private String dealershipId;
+    
+    @Field("status")
+    @Builder.Default
+    private String status = "RUNNING";  // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    
+    @Field("queued_at")
+    private LocalDateTime queuedAt;  // Background jobs only
+    
+    @Field("started_at")
+    private LocalDateTime startedAt;
+    
+    @Field("completed_at")
+    private LocalDateTime completedAt;
+    
+    // Work scanned
+    @Field("transactions_scanned")
+    private int transactionsScanned;
+    
+    @Field("batches_scanned")
+    private int batchesScanned;
+    
+    @Field("items_processed")
+    private int itemsProcessed;  // Credits and batches handled so far (of transactions + batches scanned)
+    
+    // Work done
+    @Field("matches_created")
+    private int matchesCreated;
+    
+    @Field("exceptions_created")
+    private int exceptionsCreated;
+    
+    // Work skipped because an earlier run already did it
+    @Field("items_skipped")
+    private int itemsSkipped;  // Credits and batches that already had a match
+    
+    @Field("exceptions_skipped")
+    private int exceptionsSkipped;  // Exceptions that already existed
+    
+    @Field("mongo_round_trips")
+    private int mongoRoundTrips;
+    
+    @Field("cancel_requested")
+    private boolean cancelRequested;
+    
+    @Field("error_message")
+    private String errorMessage;
+}
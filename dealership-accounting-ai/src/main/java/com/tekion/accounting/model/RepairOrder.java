@@ -66,13 +66,13 @@ public class RepairOrder {
     
     // Denormalized totals (calculated and stored for performance)
     @Field("subtotal")
-    private Double subtotal;
+    private Money subtotal;
     
     @Field("tax")
-    private Double tax;
+    private Money tax;
     
     @Field("total")
-    private Double total;
+    private Money total;
     
     @Indexed
     @Field("status")
@@ -92,18 +92,18 @@ public class RepairOrder {
      */
     public void calculateTotals(double taxRate) {
         // Calculate subtotal from line items
-        this.subtotal = lineItems.stream()
-            .mapToDouble(item -> {
-                item.calculateAmount();
-                return item.getAmount();
-            })
-            .sum();
+        Money sum = Money.ZERO;
+        for (LineItem item : lineItems) {
+            item.calculateAmount();
+            sum = sum.plus(item.getAmount());
+        }
+        this.subtotal = sum;
         
-        // Calculate tax    
-        this.tax = subtotal * taxRate;
+        // Calculate tax (rounded to the cent)
+        this.tax = subtotal.multiply(taxRate);
         
         // Calculate total
-        this.total = subtotal + tax;
+        this.total = subtotal.plus(tax);
     }
 }
 
@@ -0,0 +1,23 @@
+package com.tekion.accounting.repository;
+
+import java.util.List;
+
+/**
+ * Projection of a reconciliation match down to its bank transaction IDs
+ *
+ * Why: Re-runs only need to know which credits already have a match
+ *
+ * Rejected matches do not count; their natural key tells the run not to propose
+ * the same pair again.
+ */
+public interface BankTransactionIdView {
+
+    String getBankTransactionId();
+
+    // Only set for split-deposit matches
+    List<String> getBankTransactionIds();
+
+    String getNaturalKey();
+
+    String getStatus();
+}
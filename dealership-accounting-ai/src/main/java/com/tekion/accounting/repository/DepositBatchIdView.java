@@ -0,0 +1,20 @@
+package com.tekion.accounting.repository;
+
+import java.util.List;
+
+/**
+ * Projection of a reconciliation match down to its deposit batch IDs
+ *
+ * Why: The timing-difference pass only needs to know which batches already
+ * have a match, so the rest of the match document is never read
+ */
+public interface DepositBatchIdView {
+
+    String getDepositBatchId();
+
+    // Only set for multi-batch matches
+    List<String> getDepositBatchIds();
+
+    // REJECTED matches do not take the batch
+    String getStatus();
+}
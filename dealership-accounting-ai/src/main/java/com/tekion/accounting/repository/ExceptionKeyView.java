@@ -0,0 +1,11 @@
+package com.tekion.accounting.repository;
+
+/**
+ * Projection of an exception down to its natural key
+ *
+ * Why: Re-runs only need to know which exceptions already exist, not their content
+ */
+public interface ExceptionKeyView {
+
+    String getNaturalKey();
+}
@@ -0,0 +1,16 @@
+package com.tekion.accounting.repository;
+
+/**
+ * Atomic allocation of exception numbers (EXC-001, EXC-002, ...)
+ *
+ * Why: count() + 1 hands the same number to two writers numbering at the same
+ * time (a run next to an incremental match), and the unique index then drops
+ * the second exception
+ */
+public interface ExceptionNumberSequence {
+
+    /**
+     * Reserve count consecutive numbers; returns the first of them
+     */
+    long reserveExceptionNumbers(int count);
+}
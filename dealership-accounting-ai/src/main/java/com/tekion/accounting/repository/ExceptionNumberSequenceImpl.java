@@ -0,0 +1,57 @@
+package com.tekion.accounting.repository;
+
+import com.tekion.accounting.model.Exception;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Exception numbers from a counter document in the sequences collection
+ *
+ * Design: One findAndModify $inc per reservation, so concurrent writers always get
+ * disjoint ranges
+ * Why: Numbers used to be count() + 1, which two writers can read at the same time
+ *
+ * The counter is created on first use starting after the existing exceptions, as
+ * count() + 1 would have numbered them.
+ */
+@RequiredArgsConstructor
+public class ExceptionNumberSequenceImpl implements ExceptionNumberSequence {
+
+    private static final String COLLECTION = "sequences";
+    private static final String EXCEPTION_NUMBER = "exception_number";
+
+    private final MongoOperations mongoOperations;
+
+    // Set once the counter document is known to exist
+    private volatile boolean seeded;
+
+    @Override
+    public long reserveExceptionNumbers(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Reserve at least one exception number, got " + count);
+        }
+        Query counter = new Query(Criteria.where("_id").is(EXCEPTION_NUMBER));
+        if (!seeded) {
+            seed(counter);
+        }
+        Document next = mongoOperations.findAndModify(counter, new Update().inc("value", (long) count),
+                FindAndModifyOptions.options().returnNew(true), Document.class, COLLECTION);
+        return ((Number) next.get("value")).longValue() - count + 1;
+    }
+
+    private void seed(Query counter) {
+        long existing = mongoOperations.count(new Query(), Exception.class);
+        try {
+            mongoOperations.upsert(counter, new Update().setOnInsert("value", existing), COLLECTION);
+        } catch (DuplicateKeyException e) {
+            // Another node created the counter at the same moment
+        }
+        seeded = true;
+    }
+}
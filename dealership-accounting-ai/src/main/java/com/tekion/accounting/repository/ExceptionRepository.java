@@ -4,16 +4,18 @@ import com.tekion.accounting.model.Exception;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for Exception entity
  * 
- * Provides CRUD operations and custom queries for exceptions
+ * Provides CRUD operations and custom queries for exceptions; exception numbers
+ * come from ExceptionNumberSequence
  */
 @Repository
-public interface ExceptionRepository extends MongoRepository<Exception, String> {
+public interface ExceptionRepository extends MongoRepository<Exception, String>, ExceptionNumberSequence {
     
     /**
      * Find all exceptions for a dealership
@@ -49,6 +51,17 @@ public interface ExceptionRepository extends MongoRepository<Exception, String>
      */
     Optional<Exception> findByExceptionNumber(String exceptionNumber);
     
+    /**
+     * Find exception by natural key (see Exception.naturalKey)
+     */
+    Optional<Exception> findByNaturalKey(String naturalKey);
+    
+    /**
+     * Find which of the given natural keys already have an exception
+     * Returns only the key of each exception (single $in query)
+     */
+    List<ExceptionKeyView> findByNaturalKeyIn(Collection<String> naturalKeys);
+    
     /**
      * Count exceptions by dealership and status
      */
@@ -0,0 +1,19 @@
+package com.tekion.accounting.repository;
+
+import com.tekion.accounting.model.MatchModel;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for MatchModel entity (trained match scorer weights)
+ */
+@Repository
+public interface MatchModelRepository extends MongoRepository<MatchModel, String> {
+    
+    /**
+     * Most recently trained model for a dealership
+     */
+    Optional<MatchModel> findFirstByDealershipIdOrderByTrainedAtDesc(String dealershipId);
+}
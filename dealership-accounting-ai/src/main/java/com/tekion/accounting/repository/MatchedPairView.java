@@ -0,0 +1,24 @@
+package com.tekion.accounting.repository;
+
+import java.util.List;
+
+/**
+ * Projection of a reconciliation match down to the IDs it links
+ *
+ * Why: Rebuilding the incremental candidate index only needs to know which
+ * transactions and batches are already taken
+ */
+public interface MatchedPairView {
+
+    String getBankTransactionId();
+
+    String getDepositBatchId();
+
+    // Only set for multi-batch and split-deposit matches
+    List<String> getBankTransactionIds();
+
+    List<String> getDepositBatchIds();
+
+    // REJECTED matches do not take their items
+    String getStatus();
+}
@@ -0,0 +1,12 @@
+package com.tekion.accounting.repository;
+
+import com.tekion.accounting.model.PromptCacheEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for PromptCacheEntry entity (persistent tier of the Ollama prompt cache)
+ */
+@Repository
+public interface PromptCacheRepository extends MongoRepository<PromptCacheEntry, String> {
+}
@@ -4,6 +4,7 @@ import com.tekion.accounting.model.ReconciliationMatch;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,11 +31,43 @@ public interface ReconciliationMatchRepository extends MongoRepository<Reconcili
      */
     Optional<ReconciliationMatch> findByDepositBatchId(String depositBatchId);
     
+    /**
+     * Find which of the given deposit batches already have a match, either as the
+     * primary batch or as a member of a multi-batch match
+     * Returns only the deposit batch IDs of each match (single $in query)
+     */
+    List<DepositBatchIdView> findByDepositBatchIdInOrDepositBatchIdsIn(Collection<String> depositBatchIds,
+                                                                       Collection<String> memberBatchIds);
+    
+    /**
+     * Find which of the given bank transactions already have a match, either as the
+     * primary transaction or as a member of a split-deposit match
+     * Returns only the bank transaction IDs of each match (single $in query)
+     */
+    List<BankTransactionIdView> findByBankTransactionIdInOrBankTransactionIdsIn(Collection<String> bankTransactionIds,
+                                                                                Collection<String> memberTransactionIds);
+    
+    /**
+     * Find match by natural key (see ReconciliationMatch.naturalKey)
+     */
+    Optional<ReconciliationMatch> findByNaturalKey(String naturalKey);
+    
+    /**
+     * Find the transaction/batch ID pairs of all matches for a dealership
+     * Used to rebuild the incremental reconciliation index
+     */
+    List<MatchedPairView> findPairsByDealershipId(String dealershipId);
+    
     /**
      * Find AI-suggested matches
      */
     List<ReconciliationMatch> findByDealershipIdAndAiSuggested(String dealershipId, Boolean aiSuggested);
     
+    /**
+     * Find matches in any of the given statuses (CONFIRMED / REJECTED are training examples)
+     */
+    List<ReconciliationMatch> findByDealershipIdAndStatusIn(String dealershipId, Collection<String> statuses);
+    
     /**
      * Find user-confirmed matches
      */
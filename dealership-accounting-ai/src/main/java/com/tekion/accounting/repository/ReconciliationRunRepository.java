@@ -0,0 +1,60 @@
+package com.tekion.accounting.repository;
+
+import com.tekion.accounting.model.ReconciliationRun;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for ReconciliationRun entity (the run ledger)
+ */
+@Repository
+public interface ReconciliationRunRepository extends MongoRepository<ReconciliationRun, String> {
+    
+    /**
+     * Most recent runs for a dealership, newest first
+     */
+    List<ReconciliationRun> findTop20ByDealershipIdOrderByStartedAtDesc(String dealershipId);
+    
+    /**
+     * Latest run for a dealership
+     */
+    Optional<ReconciliationRun> findFirstByDealershipIdOrderByStartedAtDesc(String dealershipId);
+    
+    // Job state changes are single-field $set updates, so the worker's progress
+    // writes and a cancel from another node never overwrite each other
+    
+    /**
+     * QUEUED -> RUNNING; returns 0 if the job was cancelled before it started
+     */
+    @Query("{ '_id': ?0, 'status': 'QUEUED' }")
+    @Update("{ '$set': { 'status': 'RUNNING', 'started_at': ?1 } }")
+    long markRunningIfQueued(String id, LocalDateTime startedAt);
+    
+    /**
+     * QUEUED -> CANCELLED; returns 0 if the job already started
+     */
+    @Query("{ '_id': ?0, 'status': 'QUEUED' }")
+    @Update("{ '$set': { 'status': 'CANCELLED', 'completed_at': ?1 } }")
+    long cancelIfQueued(String id, LocalDateTime completedAt);
+    
+    /**
+     * Ask a running job to stop at its next progress checkpoint
+     */
+    @Query("{ '_id': ?0, 'status': 'RUNNING' }")
+    @Update("{ '$set': { 'cancel_requested': true } }")
+    long requestCancel(String id);
+    
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'transactions_scanned': ?1, 'batches_scanned': ?2, 'items_processed': ?3, "
+            + "'matches_created': ?4, 'exceptions_created': ?5 } }")
+    long updateProgress(String id, int transactionsScanned, int batchesScanned, int itemsProcessed,
+                        int matchesCreated, int exceptionsCreated);
+    
+    boolean existsByIdAndCancelRequestedTrue(String id);
+}
@@ -1,23 +1,53 @@
 package com.tekion.accounting.service;
 
+import com.tekion.accounting.matching.AssignmentMode;
+import com.tekion.accounting.matching.FeeBand;
+import com.tekion.accounting.matching.MatchPlan;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.matching.ProposedMatch;
 import com.tekion.accounting.model.BankTransaction;
 import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.model.ReconciliationRun;
+import com.tekion.accounting.repository.BankTransactionIdView;
 import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchIdView;
 import com.tekion.accounting.repository.DepositBatchRepository;
 import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import com.tekion.accounting.repository.ReconciliationRunRepository;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * AI-powered reconciliation service
  * Uses rule-based matching with Llama-generated explanations
+ * 
+ * Matches and exceptions are saved with explanation status PENDING; the explanations
+ * and memos are generated afterwards by ExplanationQueue. In lazy mode matches get a
+ * template explanation instead (see MatchExplanationService). In inline mode every
+ * text is generated during the run, side by side on InlineExplanationGenerator, and
+ * saved with its document.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,152 +57,657 @@ public class AIReconciliationService {
     private final BankTransactionRepository bankTransactionRepository;
     private final DepositBatchRepository depositBatchRepository;
     private final ReconciliationMatchRepository reconciliationMatchRepository;
-    private final OllamaService ollamaService;
+    private final ExplanationQueue explanationQueue;
     private final ExceptionService exceptionService;
+    private final MatchingEngine matchingEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReconciliationRunRepository reconciliationRunRepository;
+    private final BulkReconciliationWriter bulkWriter;
+    private final InlineExplanationGenerator inlineGenerator;
     
-    @Value("${app.merchant-fee.min-percentage}")
-    private double merchantFeeMinPercentage;
+    private static final String DEALERSHIP_ID = "DEALER-001";
     
-    @Value("${app.merchant-fee.max-percentage}")
-    private double merchantFeeMaxPercentage;
+    // Keeps each $in query well under the 16MB BSON document limit
+    private static final int LOOKUP_CHUNK = 10_000;
     
-    private static final String DEALERSHIP_ID = "DEALER-001";
+    private static final String UNMATCHED_TRANSACTION = "UNMATCHED_TRANSACTION";
+    private static final String TIMING_DIFFERENCE = "TIMING_DIFFERENCE";
+    private static final String REJECTED = "REJECTED";
+    
+    private static final String LAZY_EXPLANATIONS = "lazy";
+    private static final String INLINE_EXPLANATIONS = "inline";
+    
+    // queued: LLM text for every match from ExplanationQueue; lazy: template now, LLM text when opened;
+    // inline: LLM text generated concurrently during the run and written with the documents
+    @Value("${app.reconciliation.explanations.mode:queued}")
+    private String explanationMode = "queued";
+    
+    // Full runs share the read lock; incremental matching needs the write lock (see whenIdle)
+    private final ReadWriteLock runLock = new ReentrantReadWriteLock();
+    private final AtomicLong runsFinished = new AtomicLong();
     
     /**
      * Run AI reconciliation for all unmatched transactions and unreconciled batches
+     * 
+     * Idempotent: items that already have a match and exceptions that already exist
+     * are skipped, so a re-run only does the delta work. Each run is recorded in the
+     * run ledger (reconciliation_runs).
      */
     public ReconciliationResult runAIReconciliation() {
+        ReconciliationResult result = new ReconciliationResult();
+        return execute(startRun(result), result, ReconciliationProgress.NONE);
+    }
+    
+    /**
+     * Run AI reconciliation as a background job whose ledger entry is already RUNNING
+     * 
+     * The progress hook sees counters as they change and can cancel the run; a
+     * cancelled run keeps the work it saved and is recorded as CANCELLED.
+     */
+    public ReconciliationResult runAIReconciliation(ReconciliationRun run, ReconciliationProgress progress) {
+        ReconciliationResult result = new ReconciliationResult();
+        result.setRunId(run.getId());
+        return execute(run, result, progress);
+    }
+    
+    private ReconciliationResult execute(ReconciliationRun run, ReconciliationResult result,
+                                         ReconciliationProgress progress) {
         log.info("Starting AI reconciliation for dealership: {}", DEALERSHIP_ID);
         
-        ReconciliationResult result = new ReconciliationResult();
+        BulkReconciliationWriter.Buffer writes = bulkWriter.open();
+        String status = "COMPLETED";
+        runLock.readLock().lock();
+        try {
+            try {
+                reconcile(run, result, progress, writes);
+            } catch (ReconciliationCancelledException e) {
+                log.info("AI reconciliation run {} cancelled", run.getId());
+                status = "CANCELLED";
+            } catch (RuntimeException e) {
+                // Keep what was done before the failure, as unbuffered saves would have
+                try {
+                    flushWrites(writes, result);
+                } catch (RuntimeException flushError) {
+                    e.addSuppressed(flushError);
+                }
+                finishRun(run, "FAILED", e.getMessage(), result);
+                throw e;
+            }
+            flushWrites(writes, result);
+            finishRun(run, status, null, result);
+        } finally {
+            runsFinished.incrementAndGet();
+            runLock.readLock().unlock();
+        }
+        
+        log.info("AI Reconciliation {}: {} matches, {} exceptions, {} items and {} exceptions skipped, "
+                        + "{} Mongo round trips", status.toLowerCase(),
+                result.getMatchesCreated(), result.getExceptionsCreated(), result.getItemsSkipped(),
+                result.getExceptionsSkipped(), result.getMongoRoundTrips());
+        
+        // A cancelled run still saved matches, so listeners must refresh either way
+        eventPublisher.publishEvent(new ReconciliationRunCompletedEvent(
+                DEALERSHIP_ID, result.getMatchesCreated(), result.getExceptionsCreated()));
+        
+        return result;
+    }
+    
+    /**
+     * Run incremental work only while no full run is in progress
+     * 
+     * Why: A full run plans from what it loaded at its start, so a single-item match
+     *      saved meanwhile could pair one of the same credits or batches a second time
+     * 
+     * Returns false without running the work when a run holds the lock; a run that
+     * starts meanwhile waits for the work to finish.
+     */
+    public boolean whenIdle(Runnable work) {
+        if (!runLock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            work.run();
+            return true;
+        } finally {
+            runLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Full runs finished (in any status) since startup; a change means matches may
+     * have been saved that an in-memory view does not know about
+     */
+    public long getRunsFinished() {
+        return runsFinished.get();
+    }
+    
+    /**
+     * Recent runs from the ledger, newest first
+     */
+    public List<ReconciliationRun> getRecentRuns() {
+        return reconciliationRunRepository.findTop20ByDealershipIdOrderByStartedAtDesc(DEALERSHIP_ID);
+    }
+    
+    private void reconcile(ReconciliationRun run, ReconciliationResult result, ReconciliationProgress progress,
+                           BulkReconciliationWriter.Buffer writes) {
+        PendingWork work = loadPendingWork(result);
+        run.setTransactionsScanned(work.transactionsScanned);
+        run.setBatchesScanned(work.batchesScanned);
+        List<BankTransaction> pendingTransactions = work.transactions;
+        List<DepositBatch> pendingBatches = work.batches;
+        Set<String> existingExceptionKeys = work.existingExceptionKeys;
+        Set<String> matchedBatchIds = new HashSet<>();
+        
+        result.incrementItemsProcessed(result.getItemsSkipped());
+        progress.checkpoint(run, result);
+        
+        // Plan matches in memory (exact matches are hash probes, not batch scans)
+        MatchPlan plan = matchingEngine.plan(pendingTransactions, pendingBatches);
+        List<BankTransaction> unmatchedTransactions = new ArrayList<>(plan.getUnmatchedTransactions());
+        
+        for (ProposedMatch match : plan.getMatches()) {
+            // A reviewer rejected this pairing; its items are reported as unmatched instead
+            if (isRejected(match, work.rejectedMatchKeys)) {
+                unmatchedTransactions.addAll(match.getTransactions());
+                continue;
+            }
+            applyMatch(match, result, writes);
+            for (DepositBatch batch : match.getBatches()) {
+                matchedBatchIds.add(batch.getId());
+            }
+            result.incrementItemsProcessed(match.getTransactions().size() + match.getBatches().size());
+            progress.checkpoint(run, result);
+        }
+        
+        // No match found - create exception
+        for (BankTransaction transaction : unmatchedTransactions) {
+            if (existingExceptionKeys.contains(
+                    Exception.naturalKey(UNMATCHED_TRANSACTION, transaction.getId(), null))) {
+                result.incrementExceptionsSkipped();
+            } else {
+                createUnmatchedException(transaction, result, writes);
+            }
+            result.incrementItemsProcessed(1);
+            progress.checkpoint(run, result);
+        }
+        
+        // Check for unmatched batches (timing differences)
+        for (DepositBatch batch : pendingBatches) {
+            if (matchedBatchIds.contains(batch.getId())) {
+                continue;
+            }
+            if (existingExceptionKeys.contains(Exception.naturalKey(TIMING_DIFFERENCE, null, batch.getId()))) {
+                result.incrementExceptionsSkipped();
+            } else {
+                createTimingDifferenceException(batch, result, writes);
+            }
+            result.incrementItemsProcessed(1);
+            progress.checkpoint(run, result);
+        }
+    }
+    
+    /**
+     * Dry run: plan a full reconciliation in memory and report what it would do
+     * 
+     * Reads the same data as a real run (including the existing-work lookups) but
+     * skips Ollama, the run ledger and every write. The fee band, assignment mode and
+     * strategy pipeline can be overridden to try other app.merchant-fee / assignment /
+     * ai.strategy settings.
+     */
+    public SimulationResult simulate(AssignmentMode mode, FeeBand feeBand, List<String> pipeline,
+                                     boolean includeDetails) {
+        long start = System.nanoTime();
+        AssignmentMode assignmentMode = mode != null ? mode : matchingEngine.getAssignmentMode();
+        FeeBand band = feeBand != null ? feeBand : matchingEngine.getFeeBand();
+        List<String> stages = pipeline != null ? pipeline : matchingEngine.getPipeline();
+        
+        ReconciliationResult reads = new ReconciliationResult();
+        PendingWork work = loadPendingWork(reads);
+        MatchPlan plan = matchingEngine.plan(work.transactions, work.batches, assignmentMode, band, stages, false);
+        
+        SimulationResult simulation = new SimulationResult();
+        simulation.setAssignmentMode(assignmentMode);
+        simulation.setPipeline(stages);
+        simulation.setMinFeePercentage(band.getMinPercentage());
+        simulation.setMaxFeePercentage(band.getMaxPercentage());
+        simulation.setTransactionsScanned(work.transactionsScanned);
+        simulation.setBatchesScanned(work.batchesScanned);
+        simulation.setItemsSkipped(reads.getItemsSkipped());
+        simulation.setMongoRoundTrips(reads.getMongoRoundTrips());
+        
+        long deriveStart = System.nanoTime();
+        Set<String> plannedBatchIds = new HashSet<>();
+        List<BankTransaction> unmatchedTransactions = new ArrayList<>(plan.getUnmatchedTransactions());
+        for (ProposedMatch match : plan.getMatches()) {
+            if (isRejected(match, work.rejectedMatchKeys)) {
+                unmatchedTransactions.addAll(match.getTransactions());
+                continue;
+            }
+            simulation.addMatch(match, includeDetails);
+            for (DepositBatch batch : match.getBatches()) {
+                plannedBatchIds.add(batch.getId());
+            }
+            if (match.isMerchantFee()) {
+                simulation.addException("MERCHANT_FEE", match.getTransaction().getId(), match.getBatch().getId(),
+                        match.getFeeAmount(), includeDetails);
+            }
+        }
+        for (BankTransaction transaction : unmatchedTransactions) {
+            if (work.existingExceptionKeys.contains(
+                    Exception.naturalKey(UNMATCHED_TRANSACTION, transaction.getId(), null))) {
+                simulation.incrementExceptionsSkipped();
+            } else {
+                simulation.addException(UNMATCHED_TRANSACTION, transaction.getId(), null,
+                        transaction.getAmount(), includeDetails);
+            }
+        }
+        for (DepositBatch batch : work.batches) {
+            if (plannedBatchIds.contains(batch.getId())) {
+                continue;
+            }
+            if (work.existingExceptionKeys.contains(Exception.naturalKey(TIMING_DIFFERENCE, null, batch.getId()))) {
+                simulation.incrementExceptionsSkipped();
+            } else {
+                simulation.addException(TIMING_DIFFERENCE, null, batch.getId(), batch.getTotal(), includeDetails);
+            }
+        }
+        
+        simulation.setLoadNanos(work.loadNanos);
+        simulation.setLookupNanos(work.lookupNanos);
+        simulation.setMatchingNanos(plan.getMatchingNanos());
+        simulation.setStrategies(plan.getStages());
+        simulation.setExceptionsNanos(System.nanoTime() - deriveStart);
+        simulation.setTotalNanos(System.nanoTime() - start);
+        
+        log.info("Simulated AI reconciliation ({}, fee {}-{}%): {} matches, {} exceptions in {} ms",
+                assignmentMode, band.getMinPercentage(), band.getMaxPercentage(),
+                simulation.getMatchesProposed(), simulation.getExceptionsProposed(),
+                simulation.getTotalNanos() / 1_000_000);
+        return simulation;
+    }
+    
+    /**
+     * Load unmatched credits and unreconciled batches, minus anything an earlier run
+     * already matched (a rejected match does not count), plus the natural keys of
+     * exceptions and rejected matches that already exist
+     */
+    private PendingWork loadPendingWork(ReconciliationResult result) {
+        long start = System.nanoTime();
         
         // Get unmatched bank transactions (credits only - deposits)
         List<BankTransaction> unmatchedTransactions = bankTransactionRepository
                 .findByDealershipIdAndStatusAndType(DEALERSHIP_ID, "UNMATCHED", "CREDIT");
+        result.incrementRoundTrips(1);
         
         // Get unreconciled deposit batches
         List<DepositBatch> unreconciledBatches = depositBatchRepository
                 .findByDealershipIdAndReconciled(DEALERSHIP_ID, false);
+        result.incrementRoundTrips(1);
         
         log.info("Found {} unmatched transactions and {} unreconciled batches", 
                 unmatchedTransactions.size(), unreconciledBatches.size());
         
-        // Try to match each transaction with batches
+        PendingWork work = new PendingWork();
+        work.transactionsScanned = unmatchedTransactions.size();
+        work.batchesScanned = unreconciledBatches.size();
+        work.loadNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        
+        // Suggested matches leave item status unchanged, so drop anything an earlier run already matched
+        // (rejected matches release their items)
+        Set<String> matchedTransactionIds = findMatchedTransactionIds(unmatchedTransactions, work.rejectedMatchKeys,
+                result);
+        Set<String> matchedBatchIds = findMatchedBatchIds(unreconciledBatches, result);
+        
         for (BankTransaction transaction : unmatchedTransactions) {
-            boolean matched = false;
-            
-            // Strategy 1: Exact match
-            for (DepositBatch batch : unreconciledBatches) {
-                if (Math.abs(transaction.getAmount() - batch.getTotal()) < 0.01) {
-                    createMatch(transaction, batch, "EXACT_MATCH", 100.0, result);
-                    matched = true;
-                    break;
-                }
-            }
-            
-            // Strategy 2: Merchant fee match (1.5% - 3.5% difference)
-            if (!matched) {
-                for (DepositBatch batch : unreconciledBatches) {
-                    double difference = batch.getTotal() - transaction.getAmount();
-                    double feePercentage = (difference / batch.getTotal()) * 100;
-                    
-                    if (feePercentage >= merchantFeeMinPercentage && 
-                        feePercentage <= merchantFeeMaxPercentage) {
-                        
-                        createMerchantFeeMatch(transaction, batch, difference, feePercentage, result);
-                        matched = true;
-                        break;
-                    }
-                }
+            if (matchedTransactionIds.contains(transaction.getId())) {
+                result.incrementItemsSkipped();
+            } else {
+                work.transactions.add(transaction);
             }
-            
-            // Strategy 3: No match found - create exception
-            if (!matched) {
-                createUnmatchedException(transaction, result);
+        }
+        for (DepositBatch batch : unreconciledBatches) {
+            if (matchedBatchIds.contains(batch.getId())) {
+                result.incrementItemsSkipped();
+            } else {
+                work.batches.add(batch);
             }
         }
         
-        // Check for unmatched batches (timing differences)
-        for (DepositBatch batch : unreconciledBatches) {
-            boolean hasMatch = reconciliationMatchRepository
-                    .findByDepositBatchId(batch.getId()).isPresent();
-            
-            if (!hasMatch) {
-                createTimingDifferenceException(batch, result);
+        work.existingExceptionKeys = findExistingExceptionKeys(work.transactions, work.batches, result);
+        work.lookupNanos = System.nanoTime() - start;
+        return work;
+    }
+    
+    /**
+     * Persist one planned match (plus its merchant fee exception, if any)
+     * Also used by incremental reconciliation for single-item matches
+     */
+    public void applyMatch(ProposedMatch match, ReconciliationResult result) {
+        BulkReconciliationWriter.Buffer writes = bulkWriter.open();
+        applyMatch(match, result, writes);
+        flushWrites(writes, result);
+    }
+    
+    private void applyMatch(ProposedMatch match, ReconciliationResult result, BulkReconciliationWriter.Buffer writes) {
+        if (match.isGroup()) {
+            createGroupMatch(match, result, writes);
+        } else if (match.isMerchantFee()) {
+            createMerchantFeeMatch(match.getTransaction(), match.getBatch(),
+                    match.getFeeAmount(), match.getFeePercentage(), result, writes);
+        } else {
+            createMatch(match.getTransaction(), match.getBatch(),
+                    match.getMatchType(), match.getConfidence(), result, writes);
+        }
+    }
+    
+    private ReconciliationRun startRun(ReconciliationResult result) {
+        ReconciliationRun run = ReconciliationRun.builder()
+                .dealershipId(DEALERSHIP_ID)
+                .startedAt(LocalDateTime.now())
+                .build();
+        run = reconciliationRunRepository.save(run);
+        result.incrementRoundTrips(1);
+        result.setRunId(run.getId());
+        return run;
+    }
+    
+    private void finishRun(ReconciliationRun run, String status, String errorMessage, ReconciliationResult result) {
+        result.incrementRoundTrips(1);
+        run.setStatus(status);
+        run.setErrorMessage(errorMessage);
+        run.setCompletedAt(LocalDateTime.now());
+        run.setMatchesCreated(result.getMatchesCreated());
+        run.setExceptionsCreated(result.getExceptionsCreated());
+        run.setItemsProcessed(result.getItemsProcessed());
+        run.setItemsSkipped(result.getItemsSkipped());
+        run.setExceptionsSkipped(result.getExceptionsSkipped());
+        run.setMongoRoundTrips(result.getMongoRoundTrips());
+        reconciliationRunRepository.save(run);
+    }
+    
+    /**
+     * Credits that already have a match, with one ID-only $in query per chunk; the
+     * natural keys of rejected matches go to rejectedMatchKeys instead
+     */
+    private Set<String> findMatchedTransactionIds(List<BankTransaction> transactions, Set<String> rejectedMatchKeys,
+                                                  ReconciliationResult result) {
+        List<String> ids = new ArrayList<>(transactions.size());
+        for (BankTransaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+        
+        Set<String> matchedTransactionIds = new HashSet<>();
+        for (List<String> chunk : chunks(ids)) {
+            for (BankTransactionIdView view : reconciliationMatchRepository
+                    .findByBankTransactionIdInOrBankTransactionIdsIn(chunk, chunk)) {
+                if (REJECTED.equals(view.getStatus())) {
+                    rejectedMatchKeys.add(view.getNaturalKey());
+                    continue;
+                }
+                matchedTransactionIds.add(view.getBankTransactionId());
+                if (view.getBankTransactionIds() != null) {
+                    matchedTransactionIds.addAll(view.getBankTransactionIds());
+                }
             }
+            result.incrementRoundTrips(1);
+        }
+        return matchedTransactionIds;
+    }
+    
+    /**
+     * Batches that already have a match, with one ID-only $in query per chunk
+     * instead of one query per batch
+     */
+    private Set<String> findMatchedBatchIds(List<DepositBatch> batches, ReconciliationResult result) {
+        List<String> ids = new ArrayList<>(batches.size());
+        for (DepositBatch batch : batches) {
+            ids.add(batch.getId());
         }
         
-        log.info("AI Reconciliation complete: {} matches, {} exceptions", 
-                result.getMatchesCreated(), result.getExceptionsCreated());
+        Set<String> matchedBatchIds = new HashSet<>();
+        for (List<String> chunk : chunks(ids)) {
+            for (DepositBatchIdView view : reconciliationMatchRepository
+                    .findByDepositBatchIdInOrDepositBatchIdsIn(chunk, chunk)) {
+                if (REJECTED.equals(view.getStatus())) {
+                    continue;
+                }
+                matchedBatchIds.add(view.getDepositBatchId());
+                if (view.getDepositBatchIds() != null) {
+                    matchedBatchIds.addAll(view.getDepositBatchIds());
+                }
+            }
+            result.incrementRoundTrips(1);
+        }
+        return matchedBatchIds;
+    }
+    
+    /**
+     * Unmatched-transaction and timing-difference exceptions that earlier runs already raised
+     */
+    private Set<String> findExistingExceptionKeys(List<BankTransaction> transactions, List<DepositBatch> batches,
+                                                  ReconciliationResult result) {
+        List<String> keys = new ArrayList<>(transactions.size() + batches.size());
+        for (BankTransaction transaction : transactions) {
+            keys.add(Exception.naturalKey(UNMATCHED_TRANSACTION, transaction.getId(), null));
+        }
+        for (DepositBatch batch : batches) {
+            keys.add(Exception.naturalKey(TIMING_DIFFERENCE, null, batch.getId()));
+        }
         
-        return result;
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : chunks(keys)) {
+            existing.addAll(exceptionService.findExistingNaturalKeys(chunk));
+            result.incrementRoundTrips(1);
+        }
+        return existing;
+    }
+    
+    private static boolean isRejected(ProposedMatch match, Set<String> rejectedMatchKeys) {
+        if (rejectedMatchKeys.isEmpty()) {
+            return false;
+        }
+        List<String> transactionIds = new ArrayList<>();
+        for (BankTransaction transaction : match.getTransactions()) {
+            transactionIds.add(transaction.getId());
+        }
+        List<String> batchIds = new ArrayList<>();
+        for (DepositBatch batch : match.getBatches()) {
+            batchIds.add(batch.getId());
+        }
+        return rejectedMatchKeys.contains(ReconciliationMatch.naturalKey(transactionIds, batchIds));
+    }
+    
+    private static List<List<String>> chunks(List<String> values) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += LOOKUP_CHUNK) {
+            chunks.add(values.subList(from, Math.min(from + LOOKUP_CHUNK, values.size())));
+        }
+        return chunks;
+    }
+    
+    /**
+     * Write out buffered matches and exceptions; documents that turned out to exist
+     * already (a concurrent run) move from the created to the skipped counters
+     */
+    private void flushWrites(BulkReconciliationWriter.Buffer writes, ReconciliationResult result) {
+        writes.flush();
+        result.incrementRoundTrips(writes.getRoundTrips());
+        result.setMatchesCreated(result.getMatchesCreated() - writes.getDuplicateMatches());
+        result.setItemsSkipped(result.getItemsSkipped() + writes.getDuplicateMatches());
+        result.setExceptionsCreated(result.getExceptionsCreated() - writes.getDuplicateExceptions());
+        result.setExceptionsSkipped(result.getExceptionsSkipped() + writes.getDuplicateExceptions());
+    }
+    
+    /**
+     * Lazy mode stores the template explanation; otherwise the match stays PENDING
+     * until its text is generated (see generate)
+     */
+    private void explainMatch(ReconciliationMatch match, double bankAmount, double batchAmount, String batchLabel,
+                              BulkReconciliationWriter.Buffer writes) {
+        if (LAZY_EXPLANATIONS.equalsIgnoreCase(explanationMode)) {
+            match.setAiExplanation(MatchExplanationService.template(bankAmount, batchAmount, batchLabel));
+            match.setExplanationStatus(ExplanationQueue.TEMPLATE);
+            return;
+        }
+        match.setExplanationStatus(ExplanationQueue.PENDING);
+        String naturalKey = match.getNaturalKey();
+        generate(() -> inlineGenerator.matchExplanation(bankAmount, batchAmount, batchLabel),
+                text -> {
+                    match.setAiExplanation(text);
+                    match.setExplanationStatus(ExplanationQueue.COMPLETED);
+                },
+                () -> explanationQueue.matchExplanation(naturalKey, bankAmount, batchAmount, batchLabel),
+                writes);
+    }
+    
+    /**
+     * Exception memos follow the same path as match explanations (never a template)
+     */
+    private void explainException(Exception exception, Supplier<CompletableFuture<String>> inline,
+                                  Runnable enqueue, BulkReconciliationWriter.Buffer writes) {
+        exception.setExplanationStatus(ExplanationQueue.PENDING);
+        generate(inline,
+                text -> {
+                    exception.setAiGeneratedMemo(text);
+                    exception.setExplanationStatus(ExplanationQueue.COMPLETED);
+                },
+                enqueue,
+                writes);
+    }
+    
+    /**
+     * Inline mode starts the generation now and fills the text in just before the
+     * document's flush, so a run waits for the slowest generations rather than all of
+     * them in turn. Queued mode, an open Ollama breaker, an SLO fallback or a failed
+     * generation leave the document PENDING for ExplanationQueue, which gets it once it is
+     * written (and during a fallback stores the canned text as FALLBACK).
+     */
+    private void generate(Supplier<CompletableFuture<String>> inline, Consumer<String> store, Runnable enqueue,
+                          BulkReconciliationWriter.Buffer writes) {
+        if (!INLINE_EXPLANATIONS.equalsIgnoreCase(explanationMode) || !inlineGenerator.isAvailable()) {
+            writes.afterFlush(enqueue);
+            return;
+        }
+        CompletableFuture<String> text = inline.get();
+        writes.beforeFlush(() -> inlineGenerator.await(text)
+                .ifPresentOrElse(store, () -> writes.afterFlush(enqueue)));
     }
     
     /**
      * Create exact match
      */
     private void createMatch(BankTransaction transaction, DepositBatch batch, 
-                            String matchType, double confidence, ReconciliationResult result) {
-        
-        String explanation = ollamaService.generateMatchExplanation(
-                transaction.getAmount(), batch.getTotal(), batch.getBatchNumber());
+                            String matchType, double confidence, ReconciliationResult result,
+                            BulkReconciliationWriter.Buffer writes) {
         
         ReconciliationMatch match = new ReconciliationMatch();
         match.setDealershipId(DEALERSHIP_ID);
         match.setBankTransactionId(transaction.getId());
         match.setDepositBatchId(batch.getId());
+        match.setNaturalKey(ReconciliationMatch.naturalKey(transaction.getId(), batch.getId()));
         match.setMatchType(matchType);
         match.setConfidenceScore(confidence);
         match.setAiConfidence((int) confidence);  // Set both fields for compatibility
         match.setAiSuggested(true);  // Mark as AI-suggested
-        match.setAiExplanation(explanation);
         match.setStatus("SUGGESTED");
         
-        reconciliationMatchRepository.save(match);
+        explainMatch(match, transaction.getAmount().toDouble(), batch.getTotal().toDouble(),
+                batch.getBatchNumber(), writes);
+        writes.addMatch(match);
         result.incrementMatches();
         
         log.info("Created {} match: Bank ${} <-> Batch {} ${}",
                 matchType, transaction.getAmount(), batch.getBatchNumber(), batch.getTotal());
     }
 
+    /**
+     * Create multi-batch or split-deposit match (amounts sum exactly, so no fee exception)
+     */
+    private void createGroupMatch(ProposedMatch proposed, ReconciliationResult result,
+                                  BulkReconciliationWriter.Buffer writes) {
+        
+        List<String> transactionIds = new ArrayList<>();
+        Money transactionTotal = Money.ZERO;
+        for (BankTransaction transaction : proposed.getTransactions()) {
+            transactionIds.add(transaction.getId());
+            transactionTotal = transactionTotal.plus(transaction.getAmount());
+        }
+        
+        List<String> batchIds = new ArrayList<>();
+        List<String> batchNumbers = new ArrayList<>();
+        Money batchTotal = Money.ZERO;
+        for (DepositBatch batch : proposed.getBatches()) {
+            batchIds.add(batch.getId());
+            batchNumbers.add(batch.getBatchNumber());
+            batchTotal = batchTotal.plus(batch.getTotal());
+        }
+        String batchLabel = String.join(" + ", batchNumbers);
+        
+        ReconciliationMatch match = new ReconciliationMatch();
+        match.setDealershipId(DEALERSHIP_ID);
+        match.setBankTransactionId(transactionIds.get(0));
+        match.setDepositBatchId(batchIds.get(0));
+        match.setBankTransactionIds(transactionIds);
+        match.setDepositBatchIds(batchIds);
+        match.setNaturalKey(ReconciliationMatch.naturalKey(transactionIds, batchIds));
+        match.setMatchType(proposed.getMatchType());
+        match.setConfidenceScore(proposed.getConfidence());
+        match.setAiConfidence((int) proposed.getConfidence());  // Set both fields for compatibility
+        match.setAiSuggested(true);  // Mark as AI-suggested
+        match.setStatus("SUGGESTED");
+        
+        explainMatch(match, transactionTotal.toDouble(), batchTotal.toDouble(), batchLabel, writes);
+        writes.addMatch(match);
+        result.incrementMatches();
+        
+        log.info("Created {} match: {} bank credit(s) ${} <-> Batch {} ${}",
+                proposed.getMatchType(), transactionIds.size(), transactionTotal, batchLabel, batchTotal);
+    }
+
     /**
      * Create merchant fee match with exception
      */
     private void createMerchantFeeMatch(BankTransaction transaction, DepositBatch batch,
-                                       double feeAmount, double feePercentage, ReconciliationResult result) {
+                                       Money feeAmount, double feePercentage, ReconciliationResult result,
+                                       BulkReconciliationWriter.Buffer writes) {
 
         // Create the match
-        String explanation = ollamaService.generateMatchExplanation(
-                transaction.getAmount(), batch.getTotal(), batch.getBatchNumber());
-
         ReconciliationMatch match = new ReconciliationMatch();
         match.setDealershipId(DEALERSHIP_ID);
         match.setBankTransactionId(transaction.getId());
         match.setDepositBatchId(batch.getId());
+        match.setNaturalKey(ReconciliationMatch.naturalKey(transaction.getId(), batch.getId()));
         match.setMatchType("MERCHANT_FEE_MATCH");
         match.setConfidenceScore(95.0);
         match.setAiConfidence(95);  // Set both fields for compatibility
         match.setAiSuggested(true);  // Mark as AI-suggested
-        match.setAiExplanation(explanation);
         match.setStatus("SUGGESTED");
 
-        reconciliationMatchRepository.save(match);
+        explainMatch(match, transaction.getAmount().toDouble(), batch.getTotal().toDouble(),
+                batch.getBatchNumber(), writes);
+        writes.addMatch(match);
         result.incrementMatches();
 
         // Create exception for the merchant fee
-        String memo = ollamaService.generateMerchantFeeMemo(
-                batch.getTotal(), transaction.getAmount(), feeAmount, feePercentage);
-
-        exceptionService.createException(
+        Exception exception = exceptionService.buildException(
                 "MERCHANT_FEE",
-                String.format("Merchant fee detected: %.2f%% ($%.2f) on batch %s",
+                String.format("Merchant fee detected: %.2f%% ($%s) on batch %s",
                         feePercentage, feeAmount, batch.getBatchNumber()),
                 feeAmount,
                 transaction.getId(),
                 batch.getId(),
-                memo,
+                null,
                 "6100 - Merchant Fee Expense"
         );
+        double expectedAmount = batch.getTotal().toDouble();
+        double actualAmount = transaction.getAmount().toDouble();
+        explainException(exception,
+                () -> inlineGenerator.merchantFeeMemo(expectedAmount, actualAmount, feeAmount.toDouble(), feePercentage),
+                () -> explanationQueue.merchantFeeMemo(exception.getNaturalKey(), expectedAmount, actualAmount,
+                        feeAmount.toDouble(), feePercentage),
+                writes);
+        writes.addException(exception);
 
         result.incrementExceptions();
 
@@ -184,23 +719,27 @@ public class AIReconciliationService {
     /**
      * Create exception for unmatched transaction
      */
-    private void createUnmatchedException(BankTransaction transaction, ReconciliationResult result) {
-
-        String memo = ollamaService.generateUnmatchedMemo(
-                transaction.getAmount(), transaction.getType());
+    private void createUnmatchedException(BankTransaction transaction, ReconciliationResult result,
+                                          BulkReconciliationWriter.Buffer writes) {
 
-        exceptionService.createException(
-                "UNMATCHED_TRANSACTION",
-                String.format("Unmatched bank %s: $%.2f on %s",
+        Exception exception = exceptionService.buildException(
+                UNMATCHED_TRANSACTION,
+                String.format("Unmatched bank %s: $%s on %s",
                         transaction.getType().toLowerCase(),
-                        Math.abs(transaction.getAmount()),
+                        transaction.getAmount().abs(),
                         transaction.getDate()),
                 transaction.getAmount(),
                 transaction.getId(),
                 null,
-                memo,
+                null,
                 "1200 - Undeposited Funds"
         );
+        double amount = transaction.getAmount().toDouble();
+        explainException(exception,
+                () -> inlineGenerator.unmatchedMemo(amount, transaction.getType()),
+                () -> explanationQueue.unmatchedMemo(exception.getNaturalKey(), amount, transaction.getType()),
+                writes);
+        writes.addException(exception);
 
         result.incrementExceptions();
 
@@ -211,21 +750,25 @@ public class AIReconciliationService {
     /**
      * Create exception for timing difference (batch not in bank yet)
      */
-    private void createTimingDifferenceException(DepositBatch batch, ReconciliationResult result) {
-
-        String memo = ollamaService.generateTimingDifferenceMemo(
-                batch.getBatchNumber(), batch.getTotal());
+    private void createTimingDifferenceException(DepositBatch batch, ReconciliationResult result,
+                                                 BulkReconciliationWriter.Buffer writes) {
 
-        exceptionService.createException(
-                "TIMING_DIFFERENCE",
-                String.format("Deposit batch %s ($%.2f) not yet in bank feed",
+        Exception exception = exceptionService.buildException(
+                TIMING_DIFFERENCE,
+                String.format("Deposit batch %s ($%s) not yet in bank feed",
                         batch.getBatchNumber(), batch.getTotal()),
                 batch.getTotal(),
                 null,
                 batch.getId(),
-                memo,
+                null,
                 "1210 - Deposits in Transit"
         );
+        double amount = batch.getTotal().toDouble();
+        explainException(exception,
+                () -> inlineGenerator.timingDifferenceMemo(batch.getBatchNumber(), amount),
+                () -> explanationQueue.timingDifferenceMemo(exception.getNaturalKey(), batch.getBatchNumber(), amount),
+                writes);
+        writes.addException(exception);
 
         result.incrementExceptions();
 
@@ -240,6 +783,11 @@ public class AIReconciliationService {
     public static class ReconciliationResult {
         private int matchesCreated = 0;
         private int exceptionsCreated = 0;
+        private int itemsProcessed = 0;
+        private int itemsSkipped = 0;
+        private int exceptionsSkipped = 0;
+        private int mongoRoundTrips = 0;
+        private String runId;
 
         public void incrementMatches() {
             matchesCreated++;
@@ -248,5 +796,130 @@ public class AIReconciliationService {
         public void incrementExceptions() {
             exceptionsCreated++;
         }
+
+        public void incrementItemsProcessed(int count) {
+            itemsProcessed += count;
+        }
+
+        public void incrementItemsSkipped() {
+            itemsSkipped++;
+        }
+
+        public void incrementExceptionsSkipped() {
+            exceptionsSkipped++;
+        }
+
+        public void incrementRoundTrips(int count) {
+            mongoRoundTrips += count;
+        }
+    }
+
+    /**
+     * Credits and batches a run still has to handle
+     */
+    private static class PendingWork {
+        private final List<BankTransaction> transactions = new ArrayList<>();
+        private final List<DepositBatch> batches = new ArrayList<>();
+        private Set<String> existingExceptionKeys;
+        private final Set<String> rejectedMatchKeys = new HashSet<>();
+        private int transactionsScanned;
+        private int batchesScanned;
+        private long loadNanos;
+        private long lookupNanos;
+    }
+
+    /**
+     * What a reconciliation run would do, with per-phase timings (nothing is written)
+     */
+    @Data
+    public static class SimulationResult {
+        private AssignmentMode assignmentMode;
+        private List<String> pipeline;
+        private double minFeePercentage;
+        private double maxFeePercentage;
+        private int transactionsScanned;
+        private int batchesScanned;
+        private int itemsSkipped;
+        private int exceptionsSkipped;
+        private int matchesProposed;
+        private int exceptionsProposed;
+        private Map<String, Integer> matchesByType = new TreeMap<>();
+        private Map<String, Integer> exceptionsByType = new TreeMap<>();
+        private int mongoRoundTrips;
+
+        // Phase timings
+        private long loadNanos;
+        private long lookupNanos;
+        private long matchingNanos;
+        private long exceptionsNanos;
+        private long totalNanos;
+
+        // Candidates, hits and time per pipeline stage
+        private List<MatchPlan.Stage> strategies = new ArrayList<>();
+
+        // Only filled when details are requested
+        private List<SimulatedMatch> matches = new ArrayList<>();
+        private List<SimulatedException> exceptions = new ArrayList<>();
+
+        void addMatch(ProposedMatch match, boolean includeDetails) {
+            matchesProposed++;
+            matchesByType.merge(match.getMatchType(), 1, Integer::sum);
+            if (includeDetails) {
+                matches.add(SimulatedMatch.of(match));
+            }
+        }
+
+        void addException(String type, String bankTransactionId, String depositBatchId, Money amount,
+                          boolean includeDetails) {
+            exceptionsProposed++;
+            exceptionsByType.merge(type, 1, Integer::sum);
+            if (includeDetails) {
+                exceptions.add(new SimulatedException(type, bankTransactionId, depositBatchId, amount));
+            }
+        }
+
+        void incrementExceptionsSkipped() {
+            exceptionsSkipped++;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SimulatedMatch {
+        private String matchType;
+        private double confidence;
+        private List<String> bankTransactionIds;
+        private List<String> depositBatchIds;
+        private Money creditTotal;
+        private Money batchTotal;
+        private Money feeAmount;
+        private Double feePercentage;  // Merchant fee matches only
+
+        static SimulatedMatch of(ProposedMatch match) {
+            List<String> transactionIds = new ArrayList<>();
+            Money creditTotal = Money.ZERO;
+            for (BankTransaction transaction : match.getTransactions()) {
+                transactionIds.add(transaction.getId());
+                creditTotal = creditTotal.plus(transaction.getAmount());
+            }
+            List<String> batchIds = new ArrayList<>();
+            Money batchTotal = Money.ZERO;
+            for (DepositBatch batch : match.getBatches()) {
+                batchIds.add(batch.getId());
+                batchTotal = batchTotal.plus(batch.getTotal());
+            }
+            return new SimulatedMatch(match.getMatchType(), match.getConfidence(), transactionIds, batchIds,
+                    creditTotal, batchTotal, match.getFeeAmount(),
+                    match.isMerchantFee() ? match.getFeePercentage() : null);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SimulatedException {
+        private String type;
+        private String bankTransactionId;
+        private String depositBatchId;
+        private Money amount;
     }
 }
@@ -1,6 +1,7 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.repository.BankTransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -40,7 +41,7 @@ public class BankTransactionService {
             .transactionId("BANK-TXN-001")
             .date(LocalDate.now().minusDays(1))
             .description("Cash Deposit - Batch 001")
-            .amount(54.00)  // EXACT MATCH for BATCH-001!
+            .amount(Money.of(54.00))  // EXACT MATCH for BATCH-001!
             .type("CREDIT")
             .status("UNMATCHED")
             .build();
@@ -51,7 +52,7 @@ public class BankTransactionService {
             .transactionId("BANK-TXN-002")
             .date(LocalDate.now().minusDays(2))
             .description("Cash Deposit - Batch 002")
-            .amount(108.00)  // EXACT MATCH for BATCH-002!
+            .amount(Money.of(108.00))  // EXACT MATCH for BATCH-002!
             .type("CREDIT")
             .status("UNMATCHED")
             .build();
@@ -63,7 +64,7 @@ public class BankTransactionService {
             .transactionId("BANK-TXN-003")
             .date(LocalDate.now().minusDays(1))
             .description("Credit Card Deposit - Merchant Services")
-            .amount(485.50)
+            .amount(Money.of(485.50))
             .type("CREDIT")
             .status("UNMATCHED")
             .build();
@@ -74,7 +75,7 @@ public class BankTransactionService {
             .transactionId("BANK-TXN-004")
             .date(LocalDate.now().minusDays(3))
             .description("Unknown Wire Transfer")
-            .amount(250.00)
+            .amount(Money.of(250.00))
             .type("CREDIT")
             .status("UNMATCHED")
             .build();
@@ -85,7 +86,7 @@ public class BankTransactionService {
             .transactionId("BANK-TXN-005")
             .date(LocalDate.now().minusDays(1))
             .description("Monthly Service Fee")
-            .amount(-25.00)
+            .amount(Money.of(-25.00))
             .type("DEBIT")
             .status("UNMATCHED")
             .build();
@@ -0,0 +1,279 @@
+package com.tekion.accounting.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.ExceptionRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Buffered bulk writer for reconciliation output (matches and exceptions)
+ *
+ * Design: Each run opens a Buffer; documents are queued and written with one
+ * unordered BulkOperations insert per collection every batch-size documents
+ * Why: One round trip per few hundred documents instead of a save() (and a
+ *      count() for the exception number) per document
+ *
+ * Unordered inserts keep going past duplicate natural keys (another run got there
+ * first); those are counted as duplicates, any other write error (including a
+ * duplicate on another unique index) is rethrown. Exception numbers are reserved
+ * atomically at flush time, one block per bulk insert.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkReconciliationWriter {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final Pattern DUPLICATE_INDEX = Pattern.compile("index: (\\S+)");
+    private static final String NATURAL_KEY_INDEX = "natural_key";
+
+    private final MongoOperations mongoOperations;
+    private final ExceptionRepository exceptionRepository;
+
+    @Value("${app.reconciliation.bulk.batch-size:500}")
+    private int batchSize = 500;
+
+    private final BulkWriteStats stats = new BulkWriteStats();
+
+    /**
+     * Start buffering writes for one run (a Buffer is not thread-safe)
+     */
+    public Buffer open() {
+        return new Buffer();
+    }
+
+    /**
+     * Snapshot of flush counters across all runs
+     */
+    public BulkWriteStats getStats() {
+        synchronized (stats) {
+            BulkWriteStats snapshot = new BulkWriteStats();
+            snapshot.setBatchSize(batchSize);
+            snapshot.setFlushes(stats.getFlushes());
+            snapshot.setRoundTrips(stats.getRoundTrips());
+            snapshot.setMatchesWritten(stats.getMatchesWritten());
+            snapshot.setExceptionsWritten(stats.getExceptionsWritten());
+            snapshot.setDuplicatesSkipped(stats.getDuplicatesSkipped());
+            snapshot.setLargestFlush(stats.getLargestFlush());
+            snapshot.setLastFlushNanos(stats.getLastFlushNanos());
+            snapshot.setTotalFlushNanos(stats.getTotalFlushNanos());
+            return snapshot;
+        }
+    }
+
+    private void recordFlush(int documents, int roundTrips, int matches, int exceptions, int duplicates,
+                             long nanos) {
+        synchronized (stats) {
+            stats.setFlushes(stats.getFlushes() + 1);
+            stats.setRoundTrips(stats.getRoundTrips() + roundTrips);
+            stats.setMatchesWritten(stats.getMatchesWritten() + matches);
+            stats.setExceptionsWritten(stats.getExceptionsWritten() + exceptions);
+            stats.setDuplicatesSkipped(stats.getDuplicatesSkipped() + duplicates);
+            stats.setLargestFlush(Math.max(stats.getLargestFlush(), documents));
+            stats.setLastFlushNanos(nanos);
+            stats.setTotalFlushNanos(stats.getTotalFlushNanos() + nanos);
+        }
+    }
+
+    /**
+     * Pending writes for one run, flushed automatically every batch-size documents
+     */
+    public class Buffer {
+
+        private List<ReconciliationMatch> matches = new ArrayList<>();
+        private List<Exception> exceptions = new ArrayList<>();
+        private List<Runnable> beforeFlush = new ArrayList<>();
+        private List<Runnable> afterFlush = new ArrayList<>();
+
+        // Totals over the life of the buffer
+        private int matchesWritten;
+        private int exceptionsWritten;
+        private int duplicateMatches;
+        private int duplicateExceptions;
+        private int roundTrips;
+
+        private Buffer() {
+        }
+
+        public void addMatch(ReconciliationMatch match) {
+            matches.add(match);
+            flushIfFull();
+        }
+
+        /**
+         * Queue an exception built by ExceptionService.buildException; it is numbered when
+         * it is written
+         */
+        public void addException(Exception exception) {
+            exceptions.add(exception);
+            flushIfFull();
+        }
+
+        /**
+         * Run a task once the documents queued so far are written (register it before
+         * adding the document it refers to)
+         */
+        public void afterFlush(Runnable task) {
+            afterFlush.add(task);
+        }
+
+        /**
+         * Run a task just before the documents queued so far are written, e.g. to fill in
+         * text generated meanwhile (register it before adding the document it refers to)
+         */
+        public void beforeFlush(Runnable task) {
+            beforeFlush.add(task);
+        }
+
+        /**
+         * Run the before-flush tasks, write everything still buffered, then run the
+         * after-flush tasks
+         */
+        public void flush() {
+            List<Runnable> preparations = beforeFlush;
+            beforeFlush = new ArrayList<>();
+            preparations.forEach(Runnable::run);
+
+            int documents = matches.size() + exceptions.size();
+            if (documents == 0) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            int flushRoundTrips = 0;
+            int flushDuplicates = 0;
+            int matchCount = 0;
+            int exceptionCount = 0;
+
+            if (!matches.isEmpty()) {
+                List<ReconciliationMatch> batch = matches;
+                matches = new ArrayList<>();
+                int duplicates = insert(ReconciliationMatch.class, batch);
+                duplicateMatches += duplicates;
+                flushDuplicates += duplicates;
+                matchCount = batch.size() - duplicates;
+                flushRoundTrips++;
+            }
+            if (!exceptions.isEmpty()) {
+                List<Exception> batch = exceptions;
+                exceptions = new ArrayList<>();
+                long sequence = exceptionRepository.reserveExceptionNumbers(batch.size());
+                flushRoundTrips++;
+                for (Exception exception : batch) {
+                    exception.setExceptionNumber(ExceptionService.exceptionNumber(sequence++));
+                }
+                int duplicates = insert(Exception.class, batch);
+                duplicateExceptions += duplicates;
+                flushDuplicates += duplicates;
+                exceptionCount = batch.size() - duplicates;
+                flushRoundTrips++;
+            }
+
+            matchesWritten += matchCount;
+            exceptionsWritten += exceptionCount;
+            roundTrips += flushRoundTrips;
+            long nanos = System.nanoTime() - start;
+            recordFlush(documents, flushRoundTrips, matchCount, exceptionCount, flushDuplicates, nanos);
+
+            log.debug("Flushed {} matches and {} exceptions in {} ms ({} duplicates skipped)",
+                    matchCount, exceptionCount, nanos / 1_000_000, flushDuplicates);
+
+            List<Runnable> tasks = afterFlush;
+            afterFlush = new ArrayList<>();
+            tasks.forEach(Runnable::run);
+        }
+
+        public int getMatchesWritten() {
+            return matchesWritten;
+        }
+
+        public int getExceptionsWritten() {
+            return exceptionsWritten;
+        }
+
+        public int getDuplicateMatches() {
+            return duplicateMatches;
+        }
+
+        public int getDuplicateExceptions() {
+            return duplicateExceptions;
+        }
+
+        /**
+         * Mongo round trips made so far (bulk inserts plus exception number reservations)
+         */
+        public int getRoundTrips() {
+            return roundTrips;
+        }
+
+        private void flushIfFull() {
+            if (matches.size() + exceptions.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Unordered bulk insert; returns how many documents had a natural key that
+         * already exists
+         */
+        private int insert(Class<?> type, List<?> documents) {
+            BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+            bulk.insert(documents);
+            try {
+                bulk.execute();
+                return 0;
+            } catch (BulkOperationException e) {
+                int duplicates = 0;
+                for (BulkWriteError error : e.getErrors()) {
+                    if (!isNaturalKeyDuplicate(error)) {
+                        throw e;
+                    }
+                    duplicates++;
+                }
+                log.info("Skipped {} {} documents that already exist", duplicates, type.getSimpleName());
+                return duplicates;
+            }
+        }
+    }
+
+    /**
+     * Whether the write failed on the natural_key unique index; a duplicate on any other
+     * index (e.g. exception_number) is a real error, not an existing document
+     */
+    static boolean isNaturalKeyDuplicate(BulkWriteError error) {
+        if (error.getCode() != DUPLICATE_KEY || error.getMessage() == null) {
+            return false;
+        }
+        Matcher index = DUPLICATE_INDEX.matcher(error.getMessage());
+        return index.find() && index.group(1).startsWith(NATURAL_KEY_INDEX);
+    }
+
+    /**
+     * Bulk write counters (flush time includes the Mongo round trips)
+     */
+    @Data
+    public static class BulkWriteStats {
+        private int batchSize;
+        private long flushes;
+        private long roundTrips;
+        private long matchesWritten;
+        private long exceptionsWritten;
+        private long duplicatesSkipped;
+        private int largestFlush;
+        private long lastFlushNanos;
+        private long totalFlushNanos;
+    }
+}
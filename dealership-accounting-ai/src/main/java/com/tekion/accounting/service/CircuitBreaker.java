@@ -0,0 +1,130 @@
+package com.tekion.accounting.service;
+
+import lombok.Data;
+
+import java.time.Clock;
+
+/**
+ * Count-based circuit breaker (CLOSED -> OPEN -> HALF_OPEN -> CLOSED)
+ *
+ * Design: failure-threshold consecutive failures open the breaker; after open-duration
+ * one probe call is let through (HALF_OPEN) and its outcome closes or re-opens it
+ * Why: While the model is down every caller would otherwise wait out the full read
+ *      timeout before falling back
+ *
+ * Callers ask tryAcquire() before a call and report onSuccess() / onFailure() after it.
+ * All methods are synchronized; the state is tiny and calls are seconds apart.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private long opened;
+    private long halfOpened;
+    private long closed;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        if (failureThreshold < 1 || openMillis < 0) {
+            throw new IllegalArgumentException("Circuit breaker needs failure-threshold >= 1 and open time >= 0, got "
+                    + failureThreshold + " and " + openMillis);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a call may go ahead now (moves OPEN to HALF_OPEN once the open time is up)
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            halfOpened++;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Whether a call would be let through, without claiming the half-open probe
+     */
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+                || (state == State.OPEN && clock.millis() - openedAt >= openMillis)
+                || (state == State.HALF_OPEN && !probeInFlight);
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            closed++;
+        }
+    }
+
+    /**
+     * End a call without a verdict (it never reached the model)
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.millis();
+            opened++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Snapshot of the state and transition counts
+     */
+    public synchronized BreakerStats getStats() {
+        BreakerStats stats = new BreakerStats();
+        stats.setState(state);
+        stats.setConsecutiveFailures(consecutiveFailures);
+        stats.setFailureThreshold(failureThreshold);
+        stats.setOpenMillis(openMillis);
+        stats.setOpened(opened);
+        stats.setHalfOpened(halfOpened);
+        stats.setClosed(closed);
+        return stats;
+    }
+
+    /**
+     * Breaker state plus how often it moved to OPEN, HALF_OPEN and back to CLOSED
+     */
+    @Data
+    public static class BreakerStats {
+        private State state;
+        private int consecutiveFailures;
+        private int failureThreshold;
+        private long openMillis;
+        private long opened;
+        private long halfOpened;
+        private long closed;
+    }
+}
@@ -1,6 +1,7 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.Receipt;
 import com.tekion.accounting.repository.DepositBatchRepository;
 import lombok.RequiredArgsConstructor;
@@ -47,9 +48,9 @@ public class DepositBatchService {
         }
         
         // Calculate total
-        double total = receipts.stream()
-            .mapToDouble(Receipt::getAmount)
-            .sum();
+        Money total = receipts.stream()
+            .map(Receipt::getAmount)
+            .reduce(Money.ZERO, Money::plus);
         
         // Create batch
         DepositBatch batch = DepositBatch.builder()
@@ -0,0 +1,61 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Memo prompt inputs of a saved exception, read back from the exception and the bank
+ * transaction and deposit batch it points at (either may be gone)
+ */
+@Data
+@AllArgsConstructor
+class ExceptionMemoAmounts {
+
+    static final String MERCHANT_FEE = "MERCHANT_FEE";
+    static final String UNMATCHED_TRANSACTION = "UNMATCHED_TRANSACTION";
+    static final String TIMING_DIFFERENCE = "TIMING_DIFFERENCE";
+
+    private String type;
+    private double amount;
+    private double expectedAmount;
+    private double actualAmount;
+    private double feePercentage;
+    private String batchNumber;
+    private String transactionType;
+
+    /**
+     * Whether the exception type has a memo prompt; manually created exceptions do not
+     */
+    static boolean hasMemoPrompt(String type) {
+        return MERCHANT_FEE.equals(type) || UNMATCHED_TRANSACTION.equals(type) || TIMING_DIFFERENCE.equals(type);
+    }
+
+    /**
+     * Looks up the deposit batch, and for a merchant fee the bank transaction
+     */
+    static ExceptionMemoAmounts of(Exception exception, BankTransactionRepository bankTransactionRepository,
+                                   DepositBatchRepository depositBatchRepository) {
+        DepositBatch batch = exception.getDepositBatchId() != null
+                ? depositBatchRepository.findById(exception.getDepositBatchId()).orElse(null) : null;
+        BankTransaction transaction = MERCHANT_FEE.equals(exception.getType()) && exception.getBankTransactionId() != null
+                ? bankTransactionRepository.findById(exception.getBankTransactionId()).orElse(null) : null;
+        return of(exception, transaction, batch);
+    }
+
+    static ExceptionMemoAmounts of(Exception exception, BankTransaction transaction, DepositBatch batch) {
+        double amount = exception.getAmount() != null ? exception.getAmount().toDouble() : 0.0;
+        double expected = batch != null ? batch.getTotal().toDouble() : 0.0;
+        double actual = transaction != null ? transaction.getAmount().toDouble() : expected - amount;
+        double percentage = expected != 0 ? amount / expected * 100 : 0.0;
+        String batchNumber = batch != null ? batch.getBatchNumber() : exception.getDepositBatchId();
+        // Positive amounts are credits (see BankTransaction)
+        String transactionType = amount < 0 ? "DEBIT" : "CREDIT";
+        return new ExceptionMemoAmounts(exception.getType(), amount, expected, actual, percentage, batchNumber,
+                transactionType);
+    }
+}
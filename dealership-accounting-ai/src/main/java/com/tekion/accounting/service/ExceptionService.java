@@ -1,12 +1,18 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.repository.ExceptionKeyView;
 import com.tekion.accounting.repository.ExceptionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service for managing accounting exceptions
@@ -26,7 +32,7 @@ public class ExceptionService {
     public Exception createException(
             String type,
             String description,
-            Double amount,
+            Money amount,
             String bankTransactionId,
             String depositBatchId,
             String aiGeneratedMemo,
@@ -34,22 +40,62 @@ public class ExceptionService {
     ) {
         log.info("Creating exception: type={}, amount={}", type, amount);
         
+        Exception exception = buildException(type, description, amount, bankTransactionId, depositBatchId,
+                aiGeneratedMemo, suggestedGlAccount);
+        exception.setExceptionNumber(generateExceptionNumber());
+        
+        Exception saved;
+        try {
+            saved = exceptionRepository.save(exception);
+        } catch (DuplicateKeyException e) {
+            // Another run created the same exception first
+            log.info("Exception already exists: {}", exception.getNaturalKey());
+            return exceptionRepository.findByNaturalKey(exception.getNaturalKey()).orElse(null);
+        }
+        log.info("Created exception: {}", saved.getExceptionNumber());
+        
+        return saved;
+    }
+    
+    /**
+     * Build an unsaved OPEN exception with its natural key but no exception number
+     * (bulk writers number a whole batch from a single count)
+     */
+    public Exception buildException(
+            String type,
+            String description,
+            Money amount,
+            String bankTransactionId,
+            String depositBatchId,
+            String aiGeneratedMemo,
+            String suggestedGlAccount
+    ) {
         Exception exception = new Exception();
         exception.setDealershipId(DEALERSHIP_ID);
-        exception.setExceptionNumber(generateExceptionNumber());
         exception.setType(type);
         exception.setDescription(description);
         exception.setAmount(amount);
         exception.setBankTransactionId(bankTransactionId);
         exception.setDepositBatchId(depositBatchId);
+        exception.setNaturalKey(Exception.naturalKey(type, bankTransactionId, depositBatchId));
         exception.setAiGeneratedMemo(aiGeneratedMemo);
         exception.setSuggestedGlAccount(suggestedGlAccount);
         exception.setStatus("OPEN");
-        
-        Exception saved = exceptionRepository.save(exception);
-        log.info("Created exception: {}", saved.getExceptionNumber());
-        
-        return saved;
+        return exception;
+    }
+    
+    /**
+     * Which of the given natural keys already have an exception (one $in query)
+     */
+    public Set<String> findExistingNaturalKeys(Collection<String> naturalKeys) {
+        Set<String> existing = new HashSet<>();
+        if (naturalKeys.isEmpty()) {
+            return existing;
+        }
+        for (ExceptionKeyView view : exceptionRepository.findByNaturalKeyIn(naturalKeys)) {
+            existing.add(view.getNaturalKey());
+        }
+        return existing;
     }
     
     /**
@@ -100,8 +146,11 @@ public class ExceptionService {
      * Generate exception number (EXC-001, EXC-002, etc.)
      */
     private String generateExceptionNumber() {
-        long count = exceptionRepository.count();
-        return String.format("EXC-%03d", count + 1);
+        return exceptionNumber(exceptionRepository.reserveExceptionNumbers(1));
+    }
+    
+    static String exceptionNumber(long sequence) {
+        return String.format("EXC-%03d", sequence);
     }
     
     /**
@@ -0,0 +1,392 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.ReconciliationMatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Background generation of match explanations and exception memos
+ *
+ * Design: Matches and exceptions are saved with explanation status PENDING; one task per
+ * document calls Ollama on a small bounded pool and patches the text in by natural key
+ * Why: Each memo is a synchronous LLM call of up to 30s, so generating them inline made
+ *      a 500-match run take hours
+ *
+ * Patches only touch documents still waiting for model text (PENDING, FAILED or
+ * FALLBACK), so a duplicate from a concurrent run is explained once, and a document
+ * already waiting in the queue is not queued again. When the queue is full the document
+ * is marked FAILED straight away rather than blocking the run, and so is every task that
+ * comes up while Ollama's circuit breaker is open or that gets no model text back (the
+ * fallback text is never stored as model text). While the latency SLO controller has
+ * fallen back, tasks store the canned text instead, under status FALLBACK. With
+ * batch-size above 1 a worker takes further waiting documents along into one
+ * OllamaService.generateBatch call. The tasks live in memory only; ExplanationSweeper
+ * re-submits what a restart, a FAILED or a FALLBACK mark left without model text.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExplanationQueue {
+
+    public static final String PENDING = "PENDING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    // Deterministic text only; the LLM text is generated when the match is opened
+    public static final String TEMPLATE = "TEMPLATE";
+    // Canned text stored while the latency SLO controller had fallen back; regenerated later
+    public static final String FALLBACK = "FALLBACK";
+
+    private final OllamaService ollamaService;
+    private final MongoOperations mongoOperations;
+
+    @Value("${app.reconciliation.explanations.workers:2}")
+    private int workers = 2;
+
+    @Value("${app.reconciliation.explanations.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    // Queued documents a worker takes into one Ollama call (1 = one call per document)
+    @Value("${app.reconciliation.explanations.batch-size:1}")
+    private int batchSize = 1;
+
+    private final ExplanationQueueStats stats = new ExplanationQueueStats();
+
+    // Documents with a task in the queue or on a worker, by type and natural key
+    private final Set<String> waiting = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+    private long startedAt;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "explanation-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        startedAt = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean matchExplanation(String naturalKey, double bankAmount, double batchAmount, String batchLabel) {
+        return submit(ReconciliationMatch.class, naturalKey, "aiExplanation",
+                () -> ollamaService.tryGenerateMatchExplanation(bankAmount, batchAmount, batchLabel),
+                OllamaService.BatchItem.matchExplanation(bankAmount, batchAmount, batchLabel));
+    }
+
+    public boolean merchantFeeMemo(String naturalKey, double expectedAmount, double actualAmount, double feeAmount,
+                                double feePercentage) {
+        return submit(Exception.class, naturalKey, "aiGeneratedMemo", () -> ollamaService.tryGenerateMerchantFeeMemo(
+                expectedAmount, actualAmount, feeAmount, feePercentage),
+                OllamaService.BatchItem.merchantFeeMemo(expectedAmount, actualAmount, feeAmount, feePercentage));
+    }
+
+    public boolean unmatchedMemo(String naturalKey, double amount, String transactionType) {
+        return submit(Exception.class, naturalKey, "aiGeneratedMemo",
+                () -> ollamaService.tryGenerateUnmatchedMemo(amount, transactionType),
+                OllamaService.BatchItem.unmatchedMemo(amount, transactionType));
+    }
+
+    public boolean timingDifferenceMemo(String naturalKey, String batchNumber, double amount) {
+        return submit(Exception.class, naturalKey, "aiGeneratedMemo",
+                () -> ollamaService.tryGenerateTimingDifferenceMemo(batchNumber, amount),
+                OllamaService.BatchItem.timingDifferenceMemo(batchNumber, amount));
+    }
+
+    /**
+     * Free queue slots, so a sweep can re-submit documents without having them rejected
+     */
+    public int remainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * Snapshot of queue depth and throughput since startup
+     */
+    public ExplanationQueueStats getStats() {
+        synchronized (stats) {
+            ExplanationQueueStats snapshot = new ExplanationQueueStats();
+            snapshot.setWorkers(workers);
+            snapshot.setQueueCapacity(queueCapacity);
+            snapshot.setBatchSize(batchSize);
+            snapshot.setQueueDepth(executor.getQueue().size());
+            snapshot.setActiveWorkers(executor.getActiveCount());
+            snapshot.setSubmitted(stats.getSubmitted());
+            snapshot.setCompleted(stats.getCompleted());
+            snapshot.setFailed(stats.getFailed());
+            snapshot.setRejected(stats.getRejected());
+            snapshot.setAlreadyWaiting(stats.getAlreadyWaiting());
+            snapshot.setFallbacks(stats.getFallbacks());
+            snapshot.setBatches(stats.getBatches());
+            snapshot.setBatchedItems(stats.getBatchedItems());
+            snapshot.setLastNanos(stats.getLastNanos());
+            snapshot.setTotalNanos(stats.getTotalNanos());
+            double minutes = (System.nanoTime() - startedAt) / 60e9;
+            snapshot.setCompletedPerMinute(minutes > 0 ? stats.getCompleted() / minutes : 0.0);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Queue a document's generation; false if it was already waiting or the queue is full
+     */
+    private boolean submit(Class<?> type, String naturalKey, String field, Supplier<Optional<String>> generator,
+                           OllamaService.BatchItem batchItem) {
+        Task task = new Task(type, naturalKey, field, generator, batchItem);
+        if (!waiting.add(task.key())) {
+            synchronized (stats) {
+                stats.setAlreadyWaiting(stats.getAlreadyWaiting() + 1);
+            }
+            return false;
+        }
+        synchronized (stats) {
+            stats.setSubmitted(stats.getSubmitted() + 1);
+        }
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            waiting.remove(task.key());
+            synchronized (stats) {
+                stats.setRejected(stats.getRejected() + 1);
+            }
+            log.warn("Explanation queue is full, marking {} {} as {}", type.getSimpleName(), naturalKey, FAILED);
+            markFailed(type, naturalKey);
+            return false;
+        }
+    }
+
+    void generate(Task task) {
+        Class<?> type = task.type;
+        String naturalKey = task.naturalKey;
+        if (ollamaService.isFallingBack()) {
+            storeFallback(task);
+            return;
+        }
+        if (!ollamaService.isAvailable()) {
+            // Breaker open: leave no fallback text behind, mark it for on-demand generation later
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + 1);
+            }
+            markFailed(type, naturalKey);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            // No model text: mark it FAILED rather than store the fallback text as COMPLETED
+            String text = task.generator.get()
+                    .orElseThrow(() -> new IllegalStateException("Ollama returned no text"));
+            patch(type, naturalKey, new Update().set(task.field, text).set("explanationStatus", COMPLETED));
+            long nanos = System.nanoTime() - start;
+            synchronized (stats) {
+                stats.setCompleted(stats.getCompleted() + 1);
+                stats.setLastNanos(nanos);
+                stats.setTotalNanos(stats.getTotalNanos() + nanos);
+            }
+        } catch (RuntimeException e) {
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + 1);
+            }
+            log.error("Could not generate explanation for {} {}: {}", type.getSimpleName(), naturalKey, e.getMessage());
+            markFailed(type, naturalKey);
+        }
+    }
+
+    /**
+     * Run a task together with up to batchSize - 1 tasks still waiting in the queue
+     */
+    private void run(Task first) {
+        List<Runnable> drained = new ArrayList<>();
+        if (batchSize > 1) {
+            executor.getQueue().drainTo(drained, batchSize - 1);
+        }
+        List<Task> batch = new ArrayList<>();
+        batch.add(first);
+        for (Runnable task : drained) {
+            batch.add((Task) task);
+        }
+        try {
+            if (batch.size() == 1) {
+                generate(first);
+            } else {
+                generateBatch(batch);
+            }
+        } finally {
+            batch.forEach(task -> waiting.remove(task.key()));
+        }
+    }
+
+    private void generateBatch(List<Task> batch) {
+        if (ollamaService.isFallingBack()) {
+            batch.forEach(this::storeFallback);
+            return;
+        }
+        if (!ollamaService.isAvailable()) {
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + batch.size());
+            }
+            batch.forEach(task -> markFailed(task.type, task.naturalKey));
+            return;
+        }
+        long start = System.nanoTime();
+        List<Optional<String>> texts;
+        try {
+            List<OllamaService.BatchItem> items = new ArrayList<>();
+            for (Task task : batch) {
+                items.add(task.batchItem);
+            }
+            texts = ollamaService.generateBatch(items);
+        } catch (RuntimeException e) {
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + batch.size());
+            }
+            log.error("Could not generate a batch of {} explanations: {}", batch.size(), e.getMessage());
+            batch.forEach(task -> markFailed(task.type, task.naturalKey));
+            return;
+        }
+        int completed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (texts.get(i).isEmpty()) {
+                markFailed(task.type, task.naturalKey);
+                continue;
+            }
+            try {
+                patch(task.type, task.naturalKey,
+                        new Update().set(task.field, texts.get(i).get()).set("explanationStatus", COMPLETED));
+                completed++;
+            } catch (RuntimeException e) {
+                log.error("Could not store explanation for {} {}: {}", task.type.getSimpleName(), task.naturalKey,
+                        e.getMessage());
+                markFailed(task.type, task.naturalKey);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        synchronized (stats) {
+            stats.setCompleted(stats.getCompleted() + completed);
+            stats.setFailed(stats.getFailed() + batch.size() - completed);
+            stats.setBatches(stats.getBatches() + 1);
+            stats.setBatchedItems(stats.getBatchedItems() + batch.size());
+            stats.setLastNanos(nanos / batch.size());
+            stats.setTotalNanos(stats.getTotalNanos() + nanos);
+        }
+    }
+
+    /**
+     * Canned text for a document while the SLO controller has fallen back, kept apart from
+     * model text so ExplanationSweeper and on-demand generation replace it later
+     */
+    private void storeFallback(Task task) {
+        try {
+            patch(task.type, task.naturalKey, new Update().set(task.field, ollamaService.fallbackText(task.batchItem))
+                    .set("explanationStatus", FALLBACK));
+            synchronized (stats) {
+                stats.setFallbacks(stats.getFallbacks() + 1);
+            }
+        } catch (RuntimeException e) {
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + 1);
+            }
+            log.error("Could not store fallback text for {} {}: {}", task.type.getSimpleName(), task.naturalKey,
+                    e.getMessage());
+            markFailed(task.type, task.naturalKey);
+        }
+    }
+
+    private void markFailed(Class<?> type, String naturalKey) {
+        try {
+            patch(type, naturalKey, new Update().set("explanationStatus", FAILED));
+        } catch (RuntimeException e) {
+            log.error("Could not mark {} {} as {}: {}", type.getSimpleName(), naturalKey, FAILED, e.getMessage());
+        }
+    }
+
+    private void patch(Class<?> type, String naturalKey, Update update) {
+        mongoOperations.updateFirst(Query.query(Criteria.where("naturalKey").is(naturalKey)
+                .and("explanationStatus").in(PENDING, FAILED, FALLBACK)), update, type);
+    }
+
+    /**
+     * One document awaiting its text; generator is the single-call path, batchItem the batched one
+     */
+    private final class Task implements Runnable {
+
+        private final Class<?> type;
+        private final String naturalKey;
+        private final String field;
+        private final Supplier<Optional<String>> generator;
+        private final OllamaService.BatchItem batchItem;
+
+        Task(Class<?> type, String naturalKey, String field, Supplier<Optional<String>> generator,
+             OllamaService.BatchItem batchItem) {
+            this.type = type;
+            this.naturalKey = naturalKey;
+            this.field = field;
+            this.generator = generator;
+            this.batchItem = batchItem;
+        }
+
+        String key() {
+            return type.getSimpleName() + ":" + naturalKey;
+        }
+
+        @Override
+        public void run() {
+            ExplanationQueue.this.run(this);
+        }
+    }
+
+    /**
+     * Explanation queue counters (nanos are per generated text, Ollama plus the patch;
+     * batches counts multi-item Ollama calls and batchedItems the texts they produced;
+     * alreadyWaiting counts submissions dropped because the document was still queued;
+ * fallbacks counts canned texts stored while the SLO controller had fallen back)
+     */
+    @Data
+    public static class ExplanationQueueStats {
+        private int workers;
+        private int queueCapacity;
+        private int batchSize;
+        private int queueDepth;
+        private int activeWorkers;
+        private long submitted;
+        private long completed;
+        private long failed;
+        private long rejected;
+        private long alreadyWaiting;
+        private long fallbacks;
+        private long batches;
+        private long batchedItems;
+        private long lastNanos;
+        private long totalNanos;
+        private double completedPerMinute;
+    }
+}
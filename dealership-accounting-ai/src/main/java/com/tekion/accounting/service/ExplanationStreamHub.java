@@ -0,0 +1,286 @@
+package com.tekion.accounting.service;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shared, bounded fan-out of streamed Ollama text to Server-Sent Events viewers
+ *
+ * Design: One upstream generation per item key; every viewer of that item gets an
+ * SseEmitter on the same generation. Tokens are sent as "token" events as they arrive,
+ * a late viewer first gets the text so far as one token, and the full text ends the
+ * stream as a "done" event
+ * Why: A memo takes up to 10s to generate but its first tokens arrive in well under a
+ *      second, and a second viewer of the same item should not start a second generation
+ *
+ * Bounded by the number of concurrent generations and the viewers per generation; a
+ * viewer over either limit gets a single "error" event ("busy"). A failed generation
+ * ends with an "error" event and onText is not called. The generation runs to the end
+ * even if every viewer leaves, so its text can still be stored. Event data is JSON
+ * ({"text": ...}) so newlines in the text survive SSE framing.
+ */
+@Component
+@Slf4j
+public class ExplanationStreamHub {
+
+    @Value("${app.reconciliation.explanations.stream.max-generations:8}")
+    private int maxGenerations = 8;
+
+    @Value("${app.reconciliation.explanations.stream.max-viewers:32}")
+    private int maxViewers = 32;
+
+    @Value("${app.reconciliation.explanations.stream.timeout-ms:60000}")
+    private long timeoutMillis = 60000;
+
+    // Guarded by this, together with stats
+    private final Map<String, Generation> generations = new HashMap<>();
+    private final ExplanationStreamStats stats = new ExplanationStreamStats();
+
+    /**
+     * Join the generation for a key, starting it if nobody is generating that item yet
+     *
+     * @param start  starts the upstream generation, relaying tokens to the given consumer
+     * @param onText called once with the full text when a generation this call started succeeds
+     */
+    public SseEmitter join(String key, Function<Consumer<String>, CompletableFuture<String>> start,
+                           Consumer<String> onText) {
+        SseEmitter emitter = newEmitter();
+        Generation generation;
+        boolean starting = false;
+        synchronized (this) {
+            generation = generations.get(key);
+            if (generation == null && generations.size() >= maxGenerations) {
+                stats.setRejected(stats.getRejected() + 1);
+                return rejected(emitter, key);
+            }
+            if (generation == null) {
+                generation = new Generation(key);
+                generations.put(key, generation);
+                stats.setStarted(stats.getStarted() + 1);
+                starting = true;
+            } else if (generation.viewerCount() >= maxViewers) {
+                stats.setRejected(stats.getRejected() + 1);
+                return rejected(emitter, key);
+            } else {
+                stats.setShared(stats.getShared() + 1);
+            }
+        }
+
+        Generation joined = generation;
+        emitter.onCompletion(() -> joined.leave(emitter));
+        emitter.onTimeout(() -> joined.leave(emitter));
+        emitter.onError(error -> joined.leave(emitter));
+        joined.add(emitter);
+
+        if (starting) {
+            CompletableFuture<String> upstream;
+            try {
+                upstream = start.apply(joined::token);
+            } catch (RuntimeException e) {
+                upstream = CompletableFuture.failedFuture(e);
+            }
+            upstream.whenComplete((text, error) -> finish(joined, text, error, onText));
+        }
+        return emitter;
+    }
+
+    /**
+     * A stream that only carries already stored text as its "done" event
+     */
+    public SseEmitter done(String text) {
+        SseEmitter emitter = newEmitter();
+        synchronized (this) {
+            stats.setStored(stats.getStored() + 1);
+        }
+        try {
+            emitter.send(event("done", text));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public synchronized ExplanationStreamStats getStats() {
+        ExplanationStreamStats snapshot = new ExplanationStreamStats();
+        snapshot.setMaxGenerations(maxGenerations);
+        snapshot.setMaxViewers(maxViewers);
+        snapshot.setActiveGenerations(generations.size());
+        int viewers = 0;
+        for (Generation generation : generations.values()) {
+            viewers += generation.viewerCount();
+        }
+        snapshot.setActiveViewers(viewers);
+        snapshot.setStarted(stats.getStarted());
+        snapshot.setShared(stats.getShared());
+        snapshot.setRejected(stats.getRejected());
+        snapshot.setStored(stats.getStored());
+        snapshot.setCompleted(stats.getCompleted());
+        snapshot.setFailed(stats.getFailed());
+        snapshot.setFirstTokens(stats.getFirstTokens());
+        snapshot.setFirstTokenNanos(stats.getFirstTokenNanos());
+        snapshot.setAverageFirstTokenMillis(stats.getFirstTokens() > 0
+                ? stats.getFirstTokenNanos() / 1e6 / stats.getFirstTokens() : 0.0);
+        return snapshot;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void finish(Generation generation, String text, Throwable error, Consumer<String> onText) {
+        synchronized (this) {
+            generations.remove(generation.key, generation);
+            if (error == null) {
+                stats.setCompleted(stats.getCompleted() + 1);
+            } else {
+                stats.setFailed(stats.getFailed() + 1);
+            }
+        }
+        if (error != null) {
+            log.warn("Streamed generation for {} failed: {}", generation.key, error.getMessage());
+        }
+        generation.finish(error == null ? text : null);
+        if (error == null) {
+            try {
+                onText.accept(text);
+            } catch (RuntimeException e) {
+                log.error("Could not store streamed text for {}: {}", generation.key, e.getMessage());
+            }
+        }
+    }
+
+    private void firstToken(long nanos) {
+        synchronized (this) {
+            stats.setFirstTokens(stats.getFirstTokens() + 1);
+            stats.setFirstTokenNanos(stats.getFirstTokenNanos() + nanos);
+        }
+    }
+
+    private static SseEmitter rejected(SseEmitter emitter, String key) {
+        log.warn("Explanation stream for {} rejected, fan-out is at capacity", key);
+        try {
+            emitter.send(event("error", "busy"));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private static SseEmitter.SseEventBuilder event(String name, String text) {
+        return SseEmitter.event().name(name).data(Map.of("text", text), MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * One upstream generation and its viewers; sends happen under its lock so every
+     * viewer sees the tokens in order and a joining viewer misses none
+     */
+    private final class Generation {
+
+        private final String key;
+        private final long startedAt = System.nanoTime();
+        private final StringBuilder text = new StringBuilder();
+        private final List<SseEmitter> viewers = new CopyOnWriteArrayList<>();
+        private boolean finished;
+        private String finalText;
+
+        Generation(String key) {
+            this.key = key;
+        }
+
+        synchronized int viewerCount() {
+            return viewers.size();
+        }
+
+        synchronized void add(SseEmitter emitter) {
+            if (finished) {
+                end(emitter);
+                return;
+            }
+            if (text.length() > 0 && !send(emitter, event("token", text.toString()))) {
+                return;
+            }
+            viewers.add(emitter);
+        }
+
+        synchronized void leave(SseEmitter emitter) {
+            viewers.remove(emitter);
+        }
+
+        void token(String token) {
+            boolean first;
+            synchronized (this) {
+                if (finished || token.isEmpty()) {
+                    return;
+                }
+                first = text.length() == 0;
+                text.append(token);
+                viewers.removeIf(viewer -> !send(viewer, event("token", token)));
+            }
+            // Outside the generation lock: the hub lock is always taken first
+            if (first) {
+                firstToken(System.nanoTime() - startedAt);
+            }
+        }
+
+        synchronized void finish(String result) {
+            finished = true;
+            finalText = result;
+            for (SseEmitter viewer : viewers) {
+                end(viewer);
+            }
+            viewers.clear();
+        }
+
+        private void end(SseEmitter emitter) {
+            if (send(emitter, finalText != null ? event("done", finalText) : event("error", "unavailable"))) {
+                emitter.complete();
+            }
+        }
+
+        private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // The viewer went away; the generation carries on for the others
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Fan-out counters; shared counts viewers that joined a running generation
+     */
+    @Data
+    public static class ExplanationStreamStats {
+        private int maxGenerations;
+        private int maxViewers;
+        private int activeGenerations;
+        private int activeViewers;
+        private long started;
+        private long shared;
+        private long rejected;
+        private long stored;
+        private long completed;
+        private long failed;
+        private long firstTokens;
+        private long firstTokenNanos;
+        private double averageFirstTokenMillis;
+    }
+}
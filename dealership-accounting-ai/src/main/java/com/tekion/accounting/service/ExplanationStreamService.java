@@ -0,0 +1,145 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.LineItem;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.model.RepairOrder;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.ExceptionRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import com.tekion.accounting.repository.RepairOrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Live (Server-Sent Events) match explanations, exception memos and dispute replies
+ *
+ * Design: Items that already carry model text get it back as a single "done" event;
+ * everything else is generated through ExplanationStreamHub, keyed by item, and the
+ * finished explanation or memo is stored like the lazy and queued paths store it
+ * Why: The pages waited for the whole generation (up to 10s) before showing anything;
+ *      streamed tokens put the first words on screen in well under a second
+ *
+ * A failed or refused generation stores nothing and ends the stream with an "error"
+ * event; the page keeps the template or memo it already shows. Returns empty if there
+ * is no such item.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExplanationStreamService {
+
+    private final ReconciliationMatchRepository reconciliationMatchRepository;
+    private final ExceptionRepository exceptionRepository;
+    private final RepairOrderRepository repairOrderRepository;
+    private final BankTransactionRepository bankTransactionRepository;
+    private final DepositBatchRepository depositBatchRepository;
+    private final MatchExplanationService matchExplanationService;
+    private final OllamaService ollamaService;
+    private final ExplanationStreamHub hub;
+    private final MongoOperations mongoOperations;
+
+    public Optional<SseEmitter> streamMatchExplanation(String matchId) {
+        Optional<ReconciliationMatch> found = reconciliationMatchRepository.findById(matchId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        ReconciliationMatch match = found.get();
+        if (MatchExplanationService.hasModelText(match)) {
+            return Optional.of(hub.done(match.getAiExplanation()));
+        }
+        return Optional.of(hub.join("match:" + matchId, onToken -> {
+            MatchExplanationService.MatchAmounts amounts = matchExplanationService.amounts(match);
+            return ollamaService.streamMatchExplanation(amounts.getBankAmount(), amounts.getBatchAmount(),
+                    amounts.getBatchLabel(), onToken);
+        }, text -> matchExplanationService.store(matchId, text)));
+    }
+
+    public Optional<SseEmitter> streamExceptionMemo(String exceptionId) {
+        Optional<Exception> found = exceptionRepository.findById(exceptionId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Exception exception = found.get();
+        boolean hasModelText = ExplanationQueue.COMPLETED.equals(exception.getExplanationStatus())
+                || (exception.getExplanationStatus() == null && exception.getAiGeneratedMemo() != null);
+        if (hasModelText) {
+            return Optional.of(hub.done(exception.getAiGeneratedMemo()));
+        }
+        if (!ExceptionMemoAmounts.hasMemoPrompt(exception.getType())) {
+            // Manually created exceptions have no memo prompt; their description is the memo
+            return Optional.of(hub.done(exception.getAiGeneratedMemo() != null
+                    ? exception.getAiGeneratedMemo() : String.valueOf(exception.getDescription())));
+        }
+        return Optional.of(hub.join("exception:" + exceptionId, onToken -> streamMemo(exception, onToken),
+                text -> mongoOperations.updateFirst(Query.query(Criteria.where("id").is(exceptionId)),
+                        new Update().set("aiGeneratedMemo", text)
+                                .set("explanationStatus", ExplanationQueue.COMPLETED),
+                        Exception.class)));
+    }
+
+    /**
+     * Dispute reply for a customer question about a repair order (not stored)
+     */
+    public Optional<SseEmitter> streamDisputeResolution(String roId, String customerQuestion) {
+        Optional<RepairOrder> found = repairOrderRepository.findById(roId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RepairOrder repairOrder = found.get();
+        return Optional.of(hub.join("dispute:" + roId + ":" + customerQuestion.trim(),
+                onToken -> ollamaService.streamDisputeResolution(repairOrderDetails(repairOrder),
+                        customerQuestion, onToken),
+                text -> log.info("Streamed dispute reply for repair order {}", repairOrder.getRoNumber())));
+    }
+
+    /**
+     * Plain-text summary of a repair order for the dispute prompt
+     */
+    static String repairOrderDetails(RepairOrder repairOrder) {
+        StringBuilder details = new StringBuilder();
+        details.append("RO Number: ").append(repairOrder.getRoNumber());
+        if (repairOrder.getCustomer() != null) {
+            details.append("\nCustomer: ").append(repairOrder.getCustomer().getName());
+        }
+        if (repairOrder.getVehicle() != null) {
+            details.append(String.format("\nVehicle: %s %s %s", repairOrder.getVehicle().getYear(),
+                    repairOrder.getVehicle().getMake(), repairOrder.getVehicle().getModel()));
+        }
+        for (LineItem item : repairOrder.getLineItems()) {
+            details.append(String.format("\n- %s: %s, %d x $%s = $%s", item.getType(), item.getDescription(),
+                    item.getQuantity(), item.getRate(), item.getAmount()));
+        }
+        details.append(String.format("\nSubtotal: $%s\nTax: $%s\nTotal: $%s",
+                repairOrder.getSubtotal(), repairOrder.getTax(), repairOrder.getTotal()));
+        return details.toString();
+    }
+
+    private CompletableFuture<String> streamMemo(Exception exception, Consumer<String> onToken) {
+        ExceptionMemoAmounts memo = ExceptionMemoAmounts.of(exception, bankTransactionRepository,
+                depositBatchRepository);
+        switch (memo.getType()) {
+            case ExceptionMemoAmounts.MERCHANT_FEE -> {
+                return ollamaService.streamMerchantFeeMemo(memo.getExpectedAmount(), memo.getActualAmount(),
+                        memo.getAmount(), memo.getFeePercentage(), onToken);
+            }
+            case ExceptionMemoAmounts.TIMING_DIFFERENCE -> {
+                return ollamaService.streamTimingDifferenceMemo(memo.getBatchNumber(), memo.getAmount(), onToken);
+            }
+            default -> {
+                return ollamaService.streamUnmatchedMemo(memo.getAmount(), memo.getTransactionType(), onToken);
+            }
+        }
+    }
+}
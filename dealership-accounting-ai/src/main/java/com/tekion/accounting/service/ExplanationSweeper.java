@@ -0,0 +1,192 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-submits matches and exceptions still waiting for their Ollama text to ExplanationQueue
+ *
+ * Design: At startup, every interval-seconds and on POST .../explanations/sweep, documents
+ * left PENDING, FAILED or FALLBACK are read back from Mongo and queued again by natural key
+ * Why: The queue holds its tasks in memory only, so a restart or deploy lost every waiting
+ *      document, and documents marked FAILED (queue full, breaker open, no model text)
+ *      or given the canned text during an SLO fallback never got model text unless
+ *      someone opened them
+ *
+ * A sweep takes at most as many documents as the queue has free slots, so it never fills
+ * the queue up and marks documents FAILED itself, and is skipped while Ollama is not
+ * being called. Documents already waiting in the queue are not queued twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExplanationSweeper {
+
+    private final ExplanationQueue explanationQueue;
+    private final OllamaService ollamaService;
+    private final MatchExplanationService matchExplanationService;
+    private final BankTransactionRepository bankTransactionRepository;
+    private final DepositBatchRepository depositBatchRepository;
+    private final MongoOperations mongoOperations;
+
+    // 0 = sweep at startup and on demand only
+    @Value("${app.reconciliation.explanations.sweep.interval-seconds:300}")
+    private long intervalSeconds = 300;
+
+    private final SweepStats stats = new SweepStats();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "explanation-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Pick up what the previous instance left waiting (a missing database only logs a warning)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOnStartup() {
+        sweepQuietly();
+    }
+
+    /**
+     * Queue waiting matches first, then waiting exceptions, up to the queue's free slots
+     */
+    public synchronized SweepResult sweep() {
+        SweepResult result = new SweepResult();
+        if (!ollamaService.isAvailable()) {
+            log.info("Ollama unavailable, skipping the explanation sweep");
+            result.setSkipped(true);
+            return result;
+        }
+        int room = explanationQueue.remainingCapacity();
+        if (room > 0) {
+            List<ReconciliationMatch> matches = mongoOperations.find(waiting(room), ReconciliationMatch.class);
+            for (ReconciliationMatch match : matches) {
+                MatchExplanationService.MatchAmounts amounts = matchExplanationService.amounts(match);
+                if (explanationQueue.matchExplanation(match.getNaturalKey(), amounts.getBankAmount(),
+                        amounts.getBatchAmount(), amounts.getBatchLabel())) {
+                    result.setMatches(result.getMatches() + 1);
+                }
+            }
+            room -= matches.size();
+        }
+        if (room > 0) {
+            Query query = waiting(room);
+            query.addCriteria(Criteria.where("type").in(ExceptionMemoAmounts.MERCHANT_FEE,
+                    ExceptionMemoAmounts.UNMATCHED_TRANSACTION, ExceptionMemoAmounts.TIMING_DIFFERENCE));
+            for (Exception exception : mongoOperations.find(query, Exception.class)) {
+                if (resubmit(exception)) {
+                    result.setExceptions(result.getExceptions() + 1);
+                }
+            }
+        }
+        synchronized (stats) {
+            stats.setSweeps(stats.getSweeps() + 1);
+            stats.setMatches(stats.getMatches() + result.getMatches());
+            stats.setExceptions(stats.getExceptions() + result.getExceptions());
+        }
+        if (result.getMatches() + result.getExceptions() > 0) {
+            log.info("Explanation sweep queued {} matches and {} exceptions", result.getMatches(),
+                    result.getExceptions());
+        }
+        return result;
+    }
+
+    public SweepStats getStats() {
+        synchronized (stats) {
+            SweepStats snapshot = new SweepStats();
+            snapshot.setIntervalSeconds(intervalSeconds);
+            snapshot.setSweeps(stats.getSweeps());
+            snapshot.setMatches(stats.getMatches());
+            snapshot.setExceptions(stats.getExceptions());
+            return snapshot;
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Explanation sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean resubmit(Exception exception) {
+        ExceptionMemoAmounts memo = ExceptionMemoAmounts.of(exception, bankTransactionRepository,
+                depositBatchRepository);
+        String naturalKey = exception.getNaturalKey();
+        return switch (memo.getType()) {
+            case ExceptionMemoAmounts.MERCHANT_FEE -> explanationQueue.merchantFeeMemo(naturalKey,
+                    memo.getExpectedAmount(), memo.getActualAmount(), memo.getAmount(), memo.getFeePercentage());
+            case ExceptionMemoAmounts.TIMING_DIFFERENCE -> explanationQueue.timingDifferenceMemo(naturalKey,
+                    memo.getBatchNumber(), memo.getAmount());
+            default -> explanationQueue.unmatchedMemo(naturalKey, memo.getAmount(), memo.getTransactionType());
+        };
+    }
+
+    /**
+     * Documents of a run still without model text; the natural key is how the queue patches them
+     */
+    private static Query waiting(int limit) {
+        return Query.query(Criteria.where("explanationStatus")
+                .in(ExplanationQueue.PENDING, ExplanationQueue.FAILED, ExplanationQueue.FALLBACK)
+                .and("naturalKey").ne(null)).limit(limit);
+    }
+
+    /**
+     * Documents one sweep queued (skipped while Ollama is unavailable)
+     */
+    @Data
+    public static class SweepResult {
+        private boolean skipped;
+        private int matches;
+        private int exceptions;
+    }
+
+    /**
+     * Sweep totals since startup
+     */
+    @Data
+    public static class SweepStats {
+        private long intervalSeconds;
+        private long sweeps;
+        private long matches;
+        private long exceptions;
+    }
+}
@@ -0,0 +1,340 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.matching.CandidateIndex;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.matching.ProposedMatch;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.MatchedPairView;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Event-driven reconciliation: matches a single new credit or deposited batch
+ * against an in-memory candidate index instead of rescanning everything
+ *
+ * Design: All index reads and writes happen on one worker thread
+ * Why: Saves never block on matching, and the index needs no locking
+ *
+ * The index is built lazily from Mongo on the first event after startup and
+ * dropped whenever a full run or a bulk delete makes it stale. Items that already
+ * have a match are never matched again, even when they are saved again (for example
+ * a suggested batch being marked deposited). Events that arrive while a full run is
+ * in progress are dropped, since the run may already have loaded its items; their IDs
+ * are kept and replayed from Mongo against the rebuilt index once the run has finished
+ * (or with the next event, if no completion event comes).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncrementalReconciliationService {
+
+    private final BankTransactionRepository bankTransactionRepository;
+    private final DepositBatchRepository depositBatchRepository;
+    private final ReconciliationMatchRepository reconciliationMatchRepository;
+    private final AIReconciliationService aiReconciliationService;
+    private final MatchingEngine matchingEngine;
+
+    @Value("${app.reconciliation.incremental.enabled:false}")
+    private boolean enabled;
+
+    private static final String DEALERSHIP_ID = "DEALER-001";
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "incremental-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IncrementalStats stats = new IncrementalStats();
+
+    // Only touched from the worker thread; null until first use
+    private CandidateIndex index;
+    private final Set<String> matchedTransactionIds = new HashSet<>();
+    private final Set<String> matchedBatchIds = new HashSet<>();
+    private long indexedRunsFinished;
+    private final Set<String> droppedTransactionIds = new LinkedHashSet<>();
+    private final Set<String> droppedBatchIds = new LinkedHashSet<>();
+
+    /**
+     * A bank transaction was written to Mongo
+     */
+    public void onTransactionSaved(BankTransaction transaction) {
+        if (enabled) {
+            worker.execute(() -> handleTransaction(transaction));
+        }
+    }
+
+    /**
+     * A deposit batch was written to Mongo (created, deposited or reconciled)
+     */
+    public void onBatchSaved(DepositBatch batch) {
+        if (enabled) {
+            worker.execute(() -> handleBatch(batch));
+        }
+    }
+
+    /**
+     * Drop the index; the next event rebuilds it from Mongo
+     */
+    public void invalidate() {
+        worker.execute(() -> index = null);
+    }
+
+    @EventListener
+    public void onReconciliationRunCompleted(ReconciliationRunCompletedEvent event) {
+        worker.execute(this::handleRunCompleted);
+    }
+
+    /**
+     * Snapshot of incremental matching counters
+     */
+    public IncrementalStats getStats() {
+        synchronized (stats) {
+            IncrementalStats snapshot = new IncrementalStats();
+            snapshot.setEnabled(enabled);
+            snapshot.setEventsProcessed(stats.getEventsProcessed());
+            snapshot.setEventsDropped(stats.getEventsDropped());
+            snapshot.setEventsReplayed(stats.getEventsReplayed());
+            snapshot.setMatchesCreated(stats.getMatchesCreated());
+            snapshot.setIndexRebuilds(stats.getIndexRebuilds());
+            snapshot.setPendingCredits(stats.getPendingCredits());
+            snapshot.setOpenBatches(stats.getOpenBatches());
+            snapshot.setLastMatchNanos(stats.getLastMatchNanos());
+            snapshot.setTotalMatchNanos(stats.getTotalMatchNanos());
+            return snapshot;
+        }
+    }
+
+    void handleTransaction(BankTransaction transaction) {
+        droppedTransactionIds.remove(transaction.getId());
+        if (!aiReconciliationService.whenIdle(() -> {
+            replayDropped();
+            matchTransaction(transaction);
+        })) {
+            droppedTransactionIds.add(transaction.getId());
+            recordDropped();
+        }
+    }
+
+    void handleBatch(DepositBatch batch) {
+        droppedBatchIds.remove(batch.getId());
+        if (!aiReconciliationService.whenIdle(() -> {
+            replayDropped();
+            matchBatch(batch);
+        })) {
+            droppedBatchIds.add(batch.getId());
+            recordDropped();
+        }
+    }
+
+    /**
+     * A full run finished: drop the index and replay the events dropped during it
+     * (kept for later if another run has started meanwhile)
+     */
+    void handleRunCompleted() {
+        index = null;
+        aiReconciliationService.whenIdle(this::replayDropped);
+    }
+
+    /**
+     * Match the items whose events were dropped, as they are now in Mongo
+     */
+    private void replayDropped() {
+        if (droppedTransactionIds.isEmpty() && droppedBatchIds.isEmpty()) {
+            return;
+        }
+        List<String> transactionIds = new ArrayList<>(droppedTransactionIds);
+        List<String> batchIds = new ArrayList<>(droppedBatchIds);
+        droppedTransactionIds.clear();
+        droppedBatchIds.clear();
+
+        int replayed = 0;
+        for (BankTransaction transaction : bankTransactionRepository.findAllById(transactionIds)) {
+            matchTransaction(transaction);
+            replayed++;
+        }
+        for (DepositBatch batch : depositBatchRepository.findAllById(batchIds)) {
+            matchBatch(batch);
+            replayed++;
+        }
+        log.info("Replayed {} events dropped during a full run", replayed);
+        synchronized (stats) {
+            stats.setEventsReplayed(stats.getEventsReplayed() + replayed);
+        }
+    }
+
+    private void matchTransaction(BankTransaction transaction) {
+        CandidateIndex candidates = ensureLoaded();
+        candidates.removeCredit(transaction.getId());
+
+        if (!DEALERSHIP_ID.equals(transaction.getDealershipId())
+                || !"CREDIT".equals(transaction.getType())
+                || !"UNMATCHED".equals(transaction.getStatus())
+                || matchedTransactionIds.contains(transaction.getId())) {
+            recordEvent(candidates, 0, false);
+            return;
+        }
+
+        long start = System.nanoTime();
+        ProposedMatch match = candidates.matchCredit(transaction);
+        if (match == null) {
+            candidates.addCredit(transaction);
+        } else {
+            candidates.removeBatch(match.getBatch().getId());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (match != null) {
+            apply(match);
+            log.info("Incremental {} for transaction {} in {} us",
+                    match.getMatchType(), transaction.getTransactionId(), elapsed / 1_000);
+        }
+        recordEvent(candidates, elapsed, match != null);
+    }
+
+    private void matchBatch(DepositBatch batch) {
+        CandidateIndex candidates = ensureLoaded();
+        candidates.removeBatch(batch.getId());
+
+        if (!DEALERSHIP_ID.equals(batch.getDealershipId()) || Boolean.TRUE.equals(batch.getReconciled())
+                || matchedBatchIds.contains(batch.getId())) {
+            recordEvent(candidates, 0, false);
+            return;
+        }
+
+        // Open batches stay candidates (as in a full run); matching is triggered once deposited
+        long start = System.nanoTime();
+        ProposedMatch match = "DEPOSITED".equals(batch.getStatus()) ? candidates.matchBatch(batch) : null;
+        if (match == null) {
+            candidates.addBatch(batch);
+        } else {
+            candidates.removeCredit(match.getTransaction().getId());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (match != null) {
+            apply(match);
+            log.info("Incremental {} for batch {} in {} us",
+                    match.getMatchType(), batch.getBatchNumber(), elapsed / 1_000);
+        }
+        recordEvent(candidates, elapsed, match != null);
+    }
+
+    private void apply(ProposedMatch match) {
+        aiReconciliationService.applyMatch(match, new AIReconciliationService.ReconciliationResult());
+        for (BankTransaction transaction : match.getTransactions()) {
+            matchedTransactionIds.add(transaction.getId());
+        }
+        for (DepositBatch batch : match.getBatches()) {
+            matchedBatchIds.add(batch.getId());
+        }
+    }
+
+    /**
+     * Build the index from Mongo, leaving out anything that already has a match;
+     * also rebuilt when a full run has finished since the last build
+     */
+    private CandidateIndex ensureLoaded() {
+        long runsFinished = aiReconciliationService.getRunsFinished();
+        if (index != null && indexedRunsFinished == runsFinished) {
+            return index;
+        }
+
+        matchedTransactionIds.clear();
+        matchedBatchIds.clear();
+        for (MatchedPairView pair : reconciliationMatchRepository.findPairsByDealershipId(DEALERSHIP_ID)) {
+            if ("REJECTED".equals(pair.getStatus())) {
+                continue;
+            }
+            matchedTransactionIds.add(pair.getBankTransactionId());
+            matchedBatchIds.add(pair.getDepositBatchId());
+            if (pair.getBankTransactionIds() != null) {
+                matchedTransactionIds.addAll(pair.getBankTransactionIds());
+            }
+            if (pair.getDepositBatchIds() != null) {
+                matchedBatchIds.addAll(pair.getDepositBatchIds());
+            }
+        }
+
+        CandidateIndex rebuilt = matchingEngine.newCandidateIndex();
+        for (BankTransaction transaction : bankTransactionRepository
+                .findByDealershipIdAndStatusAndType(DEALERSHIP_ID, "UNMATCHED", "CREDIT")) {
+            if (!matchedTransactionIds.contains(transaction.getId())) {
+                rebuilt.addCredit(transaction);
+            }
+        }
+        for (DepositBatch batch : depositBatchRepository.findByDealershipIdAndReconciled(DEALERSHIP_ID, false)) {
+            if (!matchedBatchIds.contains(batch.getId())) {
+                rebuilt.addBatch(batch);
+            }
+        }
+
+        log.info("Rebuilt incremental reconciliation index: {} pending credits, {} open batches",
+                rebuilt.creditCount(), rebuilt.batchCount());
+
+        synchronized (stats) {
+            stats.setIndexRebuilds(stats.getIndexRebuilds() + 1);
+        }
+        index = rebuilt;
+        indexedRunsFinished = runsFinished;
+        return index;
+    }
+
+    private void recordDropped() {
+        synchronized (stats) {
+            stats.setEventsDropped(stats.getEventsDropped() + 1);
+        }
+    }
+
+    private void recordEvent(CandidateIndex candidates, long matchNanos, boolean matched) {
+        synchronized (stats) {
+            stats.setEventsProcessed(stats.getEventsProcessed() + 1);
+            if (matched) {
+                stats.setMatchesCreated(stats.getMatchesCreated() + 1);
+            }
+            stats.setLastMatchNanos(matchNanos);
+            stats.setTotalMatchNanos(stats.getTotalMatchNanos() + matchNanos);
+            stats.setPendingCredits(candidates.creditCount());
+            stats.setOpenBatches(candidates.batchCount());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Counters for incremental matching (match time excludes persistence and Ollama)
+     */
+    @Data
+    public static class IncrementalStats {
+        private boolean enabled;
+        private long eventsProcessed;
+        private long eventsDropped;  // Arrived while a full run was in progress
+        private long eventsReplayed;  // Dropped items matched once the run had finished
+        private long matchesCreated;
+        private long indexRebuilds;
+        private int pendingCredits;
+        private int openBatches;
+        private long lastMatchNanos;
+        private long totalMatchNanos;
+    }
+}
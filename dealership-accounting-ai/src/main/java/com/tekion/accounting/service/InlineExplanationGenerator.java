@@ -0,0 +1,164 @@
+package com.tekion.accounting.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent generation of the explanations and memos of a reconciliation run
+ *
+ * Design: In inline mode the run hands each memo to this pool as soon as the document
+ * is built and joins the text just before the document's bulk write; the pool has as
+ * many threads as Ollama serves generations at once (ai.ollama.max-concurrent)
+ * Why: One generation after another makes a run take the sum of the model latencies;
+ *      side by side it takes about the slowest one per parallel slot
+ *
+ * The pool size is the only limit on calls in flight, so a run never trips the
+ * OllamaClient bulkhead by itself; further generations wait in the pool's queue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InlineExplanationGenerator {
+
+    private final OllamaService ollamaService;
+
+    // Generations in flight at once; matches what Ollama runs in parallel
+    @Value("${app.reconciliation.explanations.inline.parallelism:${ai.ollama.max-concurrent:4}}")
+    private int parallelism = 4;
+
+    private final InlineExplanationStats stats = new InlineExplanationStats();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "inline-explanation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether Ollama is being called at all; while the breaker is open the run leaves
+     * its documents to ExplanationQueue instead
+     */
+    public boolean isAvailable() {
+        return ollamaService.isAvailable();
+    }
+
+    public CompletableFuture<String> matchExplanation(double bankAmount, double batchAmount, String batchLabel) {
+        return submit(() -> ollamaService.tryGenerateMatchExplanation(bankAmount, batchAmount, batchLabel));
+    }
+
+    public CompletableFuture<String> merchantFeeMemo(double expectedAmount, double actualAmount, double feeAmount,
+                                                     double feePercentage) {
+        return submit(() -> ollamaService.tryGenerateMerchantFeeMemo(expectedAmount, actualAmount, feeAmount,
+                feePercentage));
+    }
+
+    public CompletableFuture<String> unmatchedMemo(double amount, String transactionType) {
+        return submit(() -> ollamaService.tryGenerateUnmatchedMemo(amount, transactionType));
+    }
+
+    public CompletableFuture<String> timingDifferenceMemo(String batchNumber, double amount) {
+        return submit(() -> ollamaService.tryGenerateTimingDifferenceMemo(batchNumber, amount));
+    }
+
+    /**
+     * Wait for a generation; empty when it failed
+     */
+    public Optional<String> await(CompletableFuture<String> text) {
+        long start = System.nanoTime();
+        try {
+            return Optional.ofNullable(text.join());
+        } catch (CompletionException e) {
+            synchronized (stats) {
+                stats.setFailed(stats.getFailed() + 1);
+            }
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Inline explanation failed: {}", cause.getMessage());
+            return Optional.empty();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            synchronized (stats) {
+                stats.setWaitNanos(stats.getWaitNanos() + nanos);
+            }
+        }
+    }
+
+    /**
+     * Run a generation on the pool; the future fails when Ollama gives no model text,
+     * so the run never saves fallback text as COMPLETED
+     */
+    private CompletableFuture<String> submit(Supplier<Optional<String>> generator) {
+        synchronized (stats) {
+            stats.setSubmitted(stats.getSubmitted() + 1);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            String text = generator.get().orElseThrow(() -> new IllegalStateException("Ollama returned no text"));
+            long nanos = System.nanoTime() - start;
+            synchronized (stats) {
+                stats.setCompleted(stats.getCompleted() + 1);
+                stats.setGenerationNanos(stats.getGenerationNanos() + nanos);
+            }
+            return text;
+        }, executor);
+    }
+
+    /**
+     * Snapshot of the pool and totals since startup
+     */
+    public InlineExplanationStats getStats() {
+        synchronized (stats) {
+            InlineExplanationStats snapshot = new InlineExplanationStats();
+            snapshot.setParallelism(parallelism);
+            snapshot.setQueued(executor.getQueue().size());
+            snapshot.setActive(executor.getActiveCount());
+            snapshot.setSubmitted(stats.getSubmitted());
+            snapshot.setCompleted(stats.getCompleted());
+            snapshot.setFailed(stats.getFailed());
+            snapshot.setGenerationNanos(stats.getGenerationNanos());
+            snapshot.setWaitNanos(stats.getWaitNanos());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Inline generation counters (generationNanos sums every call; waitNanos is the time
+     * runs actually spent blocked on them, so the gap is what the fan-out saved)
+     */
+    @Data
+    public static class InlineExplanationStats {
+        private int parallelism;
+        private int queued;
+        private int active;
+        private long submitted;
+        private long completed;
+        private long failed;
+        private long generationNanos;
+        private long waitNanos;
+    }
+}
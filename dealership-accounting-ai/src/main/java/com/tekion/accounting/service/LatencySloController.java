@@ -0,0 +1,250 @@
+package com.tekion.accounting.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency SLO controller for OllamaService text generation
+ *
+ * Design: A rolling window and histogram of the last window generation latencies; once
+ * min-samples have been seen in the current mode and their p95 is over p95-ms, generation
+ * steps down one mode (FULL -> REDUCED -> SMALL_MODEL -> FALLBACK). After hold-seconds in a degraded
+ * mode it steps back up once the p95 is under recover-ratio of the SLO; FALLBACK makes no
+ * calls to measure, so it probes the mode above after fallback-seconds
+ * Why: When Ollama slows down every reconciliation and exception view waited on it;
+ *      shorter or cheaper answers (or the templates, which ExplanationQueue stores as
+ *      FALLBACK and regenerates later) keep them within the SLO
+ *
+ * REDUCED caps the answer (num_predict) and context (num_ctx); SMALL_MODEL is skipped
+ * when no small-model is configured. The histogram restarts at every switch, so each
+ * mode is judged on its own calls. Every switch is logged, counted and kept in
+ * the recent-switches list of getStats().
+ */
+@Component
+@Slf4j
+public class LatencySloController {
+
+    public enum Mode { FULL, REDUCED, SMALL_MODEL, FALLBACK }
+
+    // Upper bounds of the histogram buckets; the last bucket is open-ended
+    private static final long[] BUCKET_MILLIS = {250, 500, 1000, 2000, 4000, 8000, 16000, 32000};
+    private static final int RECENT_SWITCHES = 20;
+
+    @Value("${ai.ollama.slo.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${ai.ollama.slo.p95-ms:10000}")
+    private long p95Millis = 10000;
+
+    @Value("${ai.ollama.slo.window:50}")
+    private int window = 50;
+
+    @Value("${ai.ollama.slo.min-samples:10}")
+    private int minSamples = 10;
+
+    @Value("${ai.ollama.slo.recover-ratio:0.5}")
+    private double recoverRatio = 0.5;
+
+    @Value("${ai.ollama.slo.hold-seconds:60}")
+    private long holdSeconds = 60;
+
+    @Value("${ai.ollama.slo.fallback-seconds:30}")
+    private long fallbackSeconds = 30;
+
+    @Value("${ai.ollama.slo.reduced.num-predict:128}")
+    private int reducedNumPredict = 128;
+
+    @Value("${ai.ollama.slo.reduced.num-ctx:1024}")
+    private int reducedNumCtx = 1024;
+
+    // Empty skips the SMALL_MODEL step
+    @Value("${ai.ollama.slo.small-model:}")
+    private String smallModel = "";
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    // Guarded by this
+    private Mode mode = Mode.FULL;
+    private long modeSince;
+    private final Deque<Long> samples = new ArrayDeque<>();
+    private final long[] buckets = new long[BUCKET_MILLIS.length + 1];
+    private long degradations;
+    private long recoveries;
+    private final Deque<ModeSwitch> recentSwitches = new ArrayDeque<>();
+
+    /**
+     * Mode for the next generation (FALLBACK turns into a probe of the mode above once
+     * fallback-seconds are up)
+     */
+    public synchronized Mode currentMode() {
+        if (!enabled) {
+            return Mode.FULL;
+        }
+        if (mode == Mode.FALLBACK && clock.millis() - modeSince >= fallbackSeconds * 1000) {
+            switchTo(up(mode), "probing after " + fallbackSeconds + " s of fallback text");
+        }
+        return mode;
+    }
+
+    /**
+     * Model to call in the given mode
+     */
+    public String model(Mode generationMode, String configuredModel) {
+        return generationMode == Mode.SMALL_MODEL ? smallModel : configuredModel;
+    }
+
+    /**
+     * Ollama request options for the given mode (empty at FULL)
+     */
+    public Map<String, Object> options(Mode generationMode) {
+        Map<String, Object> options = new LinkedHashMap<>();
+        if (generationMode == Mode.REDUCED) {
+            options.put("num_predict", reducedNumPredict);
+            options.put("num_ctx", reducedNumCtx);
+        }
+        return options;
+    }
+
+    /**
+     * Record one generation's latency, then step down or up if the SLO calls for it;
+     * samples from a mode that has since been left are ignored
+     */
+    public synchronized void record(Mode generationMode, long nanos) {
+        if (!enabled || generationMode != mode) {
+            return;
+        }
+        long millis = nanos / 1_000_000;
+        samples.addLast(millis);
+        buckets[bucket(millis)]++;
+        if (samples.size() > window) {
+            buckets[bucket(samples.removeFirst())]--;
+        }
+        if (samples.size() < minSamples) {
+            return;
+        }
+
+        long p95 = percentileMillis(95);
+        if (p95 > p95Millis && mode != Mode.FALLBACK) {
+            switchTo(down(mode), "p95 " + p95 + " ms over the " + p95Millis + " ms SLO");
+        } else if (mode != Mode.FULL && p95 < p95Millis * recoverRatio
+                && clock.millis() - modeSince >= holdSeconds * 1000) {
+            switchTo(up(mode), "p95 " + p95 + " ms under " + Math.round(p95Millis * recoverRatio) + " ms");
+        }
+    }
+
+    /**
+     * Snapshot of the mode, the histogram and the recent switches
+     */
+    public synchronized SloStats getStats() {
+        SloStats stats = new SloStats();
+        stats.setEnabled(enabled);
+        stats.setMode(enabled ? mode : Mode.FULL);
+        stats.setModeSince(modeSince > 0 ? Instant.ofEpochMilli(modeSince) : null);
+        stats.setP95SloMillis(p95Millis);
+        stats.setSamples(samples.size());
+        stats.setP50Millis(samples.isEmpty() ? 0 : percentileMillis(50));
+        stats.setP95Millis(samples.isEmpty() ? 0 : percentileMillis(95));
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            histogram.put(i < BUCKET_MILLIS.length ? "<=" + BUCKET_MILLIS[i] + "ms"
+                    : ">" + BUCKET_MILLIS[BUCKET_MILLIS.length - 1] + "ms", buckets[i]);
+        }
+        stats.setHistogram(histogram);
+        stats.setDegradations(degradations);
+        stats.setRecoveries(recoveries);
+        stats.setRecentSwitches(new ArrayList<>(recentSwitches));
+        return stats;
+    }
+
+    private void switchTo(Mode next, String reason) {
+        Mode previous = mode;
+        if (next == previous) {
+            return;
+        }
+        boolean degrading = next.ordinal() > previous.ordinal();
+        if (degrading) {
+            degradations++;
+            log.warn("LLM generation mode {} -> {}: {}", previous, next, reason);
+        } else {
+            recoveries++;
+            log.info("LLM generation mode {} -> {}: {}", previous, next, reason);
+        }
+        mode = next;
+        modeSince = clock.millis();
+        samples.clear();
+        Arrays.fill(buckets, 0);
+        recentSwitches.addFirst(new ModeSwitch(previous, next, reason, Instant.ofEpochMilli(modeSince)));
+        if (recentSwitches.size() > RECENT_SWITCHES) {
+            recentSwitches.removeLast();
+        }
+    }
+
+    private Mode down(Mode from) {
+        Mode next = Mode.values()[from.ordinal() + 1];
+        return next == Mode.SMALL_MODEL && smallModel.isBlank() ? Mode.FALLBACK : next;
+    }
+
+    private Mode up(Mode from) {
+        Mode next = Mode.values()[from.ordinal() - 1];
+        return next == Mode.SMALL_MODEL && smallModel.isBlank() ? Mode.REDUCED : next;
+    }
+
+    private long percentileMillis(int percentile) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static int bucket(long millis) {
+        for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+            if (millis <= BUCKET_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_MILLIS.length;
+    }
+
+    /**
+     * One mode change, with the reason and when it happened
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ModeSwitch {
+        private Mode from;
+        private Mode to;
+        private String reason;
+        private Instant at;
+    }
+
+    /**
+     * SLO controller state (percentiles and histogram cover the current mode's window;
+     * the histogram counts samples per latency bucket)
+     */
+    @Data
+    public static class SloStats {
+        private boolean enabled;
+        private Mode mode;
+        private Instant modeSince;
+        private long p95SloMillis;
+        private int samples;
+        private long p50Millis;
+        private long p95Millis;
+        private Map<String, Long> histogram;
+        private long degradations;
+        private long recoveries;
+        private List<ModeSwitch> recentSwitches;
+    }
+}
@@ -0,0 +1,158 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-demand LLM explanations for reconciliation matches (explanations mode "lazy")
+ *
+ * Design: Runs store a deterministic template explanation (status TEMPLATE); the
+ * Ollama text is generated the first time someone opens the match and stored
+ * Why: Most exact matches are confirmed from the list without ever being opened,
+ *      so one LLM call per match at creation time was mostly wasted
+ *
+ * Matches that already have model text are returned as they are. Pending or failed
+ * queued explanations are generated here too; the queue's later patch is then a no-op.
+ * While Ollama's circuit breaker is open the match comes back as stored.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchExplanationService {
+
+    private final ReconciliationMatchRepository reconciliationMatchRepository;
+    private final BankTransactionRepository bankTransactionRepository;
+    private final DepositBatchRepository depositBatchRepository;
+    private final OllamaService ollamaService;
+    private final MongoOperations mongoOperations;
+
+    private final AtomicLong generated = new AtomicLong();
+
+    /**
+     * Deterministic explanation used until (and unless) the match is opened
+     */
+    public static String template(double bankAmount, double batchAmount, String batchLabel) {
+        if (Math.round(bankAmount * 100) == Math.round(batchAmount * 100)) {
+            return String.format("Bank credit of $%.2f equals the $%.2f total of deposit batch %s, "
+                    + "so the deposit cleared in full.", bankAmount, batchAmount, batchLabel);
+        }
+        double difference = batchAmount - bankAmount;
+        return String.format("Bank credit of $%.2f is deposit batch %s ($%.2f) less $%.2f (%.2f%%), "
+                        + "consistent with a card processor's merchant fee.",
+                bankAmount, batchLabel, batchAmount, difference, difference / batchAmount * 100);
+    }
+
+    /**
+     * The match with its LLM explanation, generating and storing it on first use
+     * Returns empty if there is no such match
+     */
+    public Optional<ReconciliationMatch> explain(String matchId) {
+        Optional<ReconciliationMatch> found = reconciliationMatchRepository.findById(matchId);
+        if (found.isEmpty() || hasModelText(found.get())) {
+            return found;
+        }
+        if (!ollamaService.isAvailable()) {
+            // Keep the template rather than storing fallback text as the explanation
+            log.info("Ollama unavailable, match {} keeps its current explanation", matchId);
+            return found;
+        }
+        ReconciliationMatch match = found.get();
+        MatchAmounts amounts = amounts(match);
+
+        Optional<String> text = ollamaService.tryGenerateMatchExplanation(
+                amounts.getBankAmount(), amounts.getBatchAmount(), amounts.getBatchLabel());
+        if (text.isEmpty()) {
+            // Ollama refused or failed the call: the template stays until the next open
+            log.info("No model text for match {}, it keeps its current explanation", matchId);
+            return found;
+        }
+        String explanation = text.get();
+        store(matchId, explanation);
+
+        match.setAiExplanation(explanation);
+        match.setExplanationStatus(ExplanationQueue.COMPLETED);
+        log.info("Generated explanation for match {} on demand", matchId);
+        return Optional.of(match);
+    }
+
+    /**
+     * Explanations generated on demand since startup
+     */
+    public long getGeneratedCount() {
+        return generated.get();
+    }
+
+    /**
+     * Bank and batch totals of a match (one or many on either side) and its batch numbers
+     */
+    MatchAmounts amounts(ReconciliationMatch match) {
+        List<String> transactionIds = !match.getBankTransactionIds().isEmpty()
+                ? match.getBankTransactionIds() : List.of(match.getBankTransactionId());
+        List<String> batchIds = !match.getDepositBatchIds().isEmpty()
+                ? match.getDepositBatchIds() : List.of(match.getDepositBatchId());
+
+        Money bankTotal = Money.ZERO;
+        for (BankTransaction transaction : bankTransactionRepository.findAllById(transactionIds)) {
+            bankTotal = bankTotal.plus(transaction.getAmount());
+        }
+        Map<String, DepositBatch> batches = new HashMap<>();
+        for (DepositBatch batch : depositBatchRepository.findAllById(batchIds)) {
+            batches.put(batch.getId(), batch);
+        }
+        Money batchTotal = Money.ZERO;
+        List<String> batchNumbers = new ArrayList<>();
+        for (String batchId : batchIds) {
+            DepositBatch batch = batches.get(batchId);
+            if (batch != null) {
+                batchTotal = batchTotal.plus(batch.getTotal());
+                batchNumbers.add(batch.getBatchNumber());
+            }
+        }
+        return new MatchAmounts(bankTotal.toDouble(), batchTotal.toDouble(), String.join(" + ", batchNumbers));
+    }
+
+    /**
+     * Store model text as the match's explanation
+     */
+    void store(String matchId, String explanation) {
+        mongoOperations.updateFirst(Query.query(Criteria.where("id").is(matchId)),
+                new Update().set("aiExplanation", explanation).set("explanationStatus", ExplanationQueue.COMPLETED),
+                ReconciliationMatch.class);
+        generated.incrementAndGet();
+    }
+
+    // Matches written before explanation statuses existed carry model text and no status
+    static boolean hasModelText(ReconciliationMatch match) {
+        return ExplanationQueue.COMPLETED.equals(match.getExplanationStatus())
+                || (match.getExplanationStatus() == null && match.getAiExplanation() != null);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class MatchAmounts {
+        private double bankAmount;
+        private double batchAmount;
+        private String batchLabel;
+    }
+}
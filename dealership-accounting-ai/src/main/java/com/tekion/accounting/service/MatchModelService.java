@@ -0,0 +1,209 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.matching.BusinessDayWindow;
+import com.tekion.accounting.matching.FeeBand;
+import com.tekion.accounting.matching.LogisticMatchScorer;
+import com.tekion.accounting.matching.MatchFeatures;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.MatchModel;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.MatchModelRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Offline training of the learned match scorer (ml-based strategy)
+ *
+ * Design: Reviewed 1:1 matches become labelled feature rows (CONFIRMED = positive,
+ * REJECTED = negative); the fitted weights are saved to match_models and installed
+ * in the MatchingEngine
+ * Why: Reviewers' decisions are the only ground truth the rules never see
+ *
+ * Rejections are rare, so each confirmed credit is also paired with the batch of the
+ * next confirmed match as a mismatched negative. The newest saved model is loaded
+ * when the application starts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchModelService {
+
+    private final ReconciliationMatchRepository reconciliationMatchRepository;
+    private final BankTransactionRepository bankTransactionRepository;
+    private final DepositBatchRepository depositBatchRepository;
+    private final MatchModelRepository matchModelRepository;
+    private final MatchingEngine matchingEngine;
+
+    @Value("${ai.ml.epochs:500}")
+    private int epochs = 500;
+
+    @Value("${ai.ml.learning-rate:0.5}")
+    private double learningRate = 0.5;
+
+    @Value("${ai.ml.l2:0.001}")
+    private double l2 = 0.001;
+
+    @Value("${ai.ml.min-examples:20}")
+    private int minExamples = 20;
+
+    private static final String DEALERSHIP_ID = "DEALER-001";
+
+    /**
+     * Install the newest saved model, if any (a missing database only logs a warning)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLatestModel() {
+        try {
+            matchModelRepository.findFirstByDealershipIdOrderByTrainedAtDesc(DEALERSHIP_ID)
+                    .ifPresent(model -> {
+                        matchingEngine.setMatchScorer(toScorer(model));
+                        log.info("Loaded match model trained at {} on {} examples",
+                                model.getTrainedAt(), model.getExamples());
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Could not load match model: {}", e.getMessage());
+        }
+    }
+
+    public Optional<MatchModel> getCurrentModel() {
+        return matchModelRepository.findFirstByDealershipIdOrderByTrainedAtDesc(DEALERSHIP_ID);
+    }
+
+    /**
+     * Train on every reviewed 1:1 match, save the model and start scoring with it
+     *
+     * @throws IllegalStateException if there are fewer than min-examples usable rows
+     */
+    public MatchModel train() {
+        long start = System.nanoTime();
+        List<ReconciliationMatch> reviewed = reconciliationMatchRepository.findByDealershipIdAndStatusIn(
+                DEALERSHIP_ID, List.of("CONFIRMED", "REJECTED"));
+
+        Set<String> transactionIds = new HashSet<>();
+        Set<String> batchIds = new HashSet<>();
+        for (ReconciliationMatch match : reviewed) {
+            if (isOneToOne(match)) {
+                transactionIds.add(match.getBankTransactionId());
+                batchIds.add(match.getDepositBatchId());
+            }
+        }
+        Map<String, BankTransaction> transactions = byId(bankTransactionRepository.findAllById(transactionIds),
+                BankTransaction::getId);
+        Map<String, DepositBatch> batches = byId(depositBatchRepository.findAllById(batchIds), DepositBatch::getId);
+
+        FeeBand band = matchingEngine.getFeeBand();
+        List<double[]> rows = new ArrayList<>();
+        List<Boolean> labels = new ArrayList<>();
+        List<BankTransaction> confirmedTransactions = new ArrayList<>();
+        List<DepositBatch> confirmedBatches = new ArrayList<>();
+
+        for (ReconciliationMatch match : reviewed) {
+            BankTransaction transaction = isOneToOne(match) ? transactions.get(match.getBankTransactionId()) : null;
+            DepositBatch batch = isOneToOne(match) ? batches.get(match.getDepositBatchId()) : null;
+            if (transaction == null || batch == null) {
+                continue;
+            }
+            boolean confirmed = "CONFIRMED".equals(match.getStatus());
+            rows.add(features(transaction, batch, band));
+            labels.add(confirmed);
+            if (confirmed) {
+                confirmedTransactions.add(transaction);
+                confirmedBatches.add(batch);
+            }
+        }
+
+        // Mismatched negatives: each confirmed credit against the next confirmed batch
+        for (int i = 0; i + 1 < confirmedTransactions.size(); i++) {
+            DepositBatch other = confirmedBatches.get(i + 1);
+            if (other.getTotal().getCents() != confirmedBatches.get(i).getTotal().getCents()) {
+                rows.add(features(confirmedTransactions.get(i), other, band));
+                labels.add(false);
+            }
+        }
+
+        int positives = confirmedTransactions.size();
+        if (rows.size() < minExamples || positives == 0 || positives == rows.size()) {
+            throw new IllegalStateException("Not enough reviewed matches to train on: " + rows.size()
+                    + " examples (" + positives + " confirmed), need at least " + minExamples);
+        }
+
+        double[][] x = rows.toArray(new double[0][]);
+        boolean[] y = new boolean[labels.size()];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = labels.get(i);
+        }
+        LogisticMatchScorer scorer = LogisticMatchScorer.train(x, y, epochs, learningRate, l2);
+
+        List<Double> weights = new ArrayList<>();
+        for (double weight : scorer.getWeights()) {
+            weights.add(weight);
+        }
+        MatchModel model = matchModelRepository.save(MatchModel.builder()
+                .dealershipId(DEALERSHIP_ID)
+                .trainedAt(LocalDateTime.now())
+                .featureNames(MatchFeatures.names())
+                .weights(weights)
+                .bias(scorer.getBias())
+                .examples(y.length)
+                .positives(positives)
+                .negatives(y.length - positives)
+                .trainingAccuracy(scorer.accuracy(x, y))
+                .build());
+        matchingEngine.setMatchScorer(scorer);
+
+        log.info("Trained match model on {} examples ({} confirmed) in {} ms, training accuracy {}",
+                y.length, positives, (System.nanoTime() - start) / 1_000_000, model.getTrainingAccuracy());
+        return model;
+    }
+
+    /**
+     * Full feature row for one credit/batch pair
+     */
+    static double[] features(BankTransaction transaction, DepositBatch batch, FeeBand band) {
+        double[] row = new double[MatchFeatures.COUNT];
+        MatchFeatures.tokens(transaction.getDescription(), row);
+        MatchFeatures.pair(transaction.getAmount().getCents(), batch.getTotal().getCents(),
+                BusinessDayWindow.epochDay(transaction.getDate()), BusinessDayWindow.epochDay(batch.getDepositedDate()),
+                MatchFeatures.mentionsBatch(transaction.getDescription(), batch.getBatchNumber()), band, row);
+        return row;
+    }
+
+    static LogisticMatchScorer toScorer(MatchModel model) {
+        double[] weights = new double[model.getWeights().size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = model.getWeights().get(i);
+        }
+        return new LogisticMatchScorer(weights, model.getBias());
+    }
+
+    private static boolean isOneToOne(ReconciliationMatch match) {
+        return match.getBankTransactionId() != null && match.getDepositBatchId() != null
+                && (match.getDepositBatchIds() == null || match.getDepositBatchIds().size() <= 1)
+                && (match.getBankTransactionIds() == null || match.getBankTransactionIds().size() <= 1);
+    }
+
+    private static <T> Map<String, T> byId(Iterable<T> items, Function<T, String> id) {
+        return StreamSupport.stream(items.spliterator(), false)
+                .collect(Collectors.toMap(id, Function.identity(), (first, second) -> first));
+    }
+}
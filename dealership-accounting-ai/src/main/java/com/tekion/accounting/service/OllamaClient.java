@@ -0,0 +1,691 @@
+package com.tekion.accounting.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streaming HTTP client for Ollama's /api/generate with timeouts, a bulkhead, a
+ * circuit breaker and a pool of model servers
+ *
+ * Design: One shared java.net.http.HttpClient (pooled keep-alive connections, HTTP/2
+ * where the server offers it) sends stream:true and consumes the NDJSON reply line by
+ * line, handing each token to the caller as it arrives
+ * Why: Callers can use the text from time-to-first-token, and a connection per call
+ *      plus buffering the full reply added latency to every generation
+ *
+ * Connect timeout and the overall generation deadline (ai.ollama.timeout) come from
+ * config; a semaphore caps in-flight generations at max-concurrent (callers wait up to
+ * bulkhead-wait-ms for a slot); a CircuitBreaker short-circuits calls while the model
+ * keeps failing. Only errors and timeouts count against the breaker, not bulkhead
+ * rejections. Token callbacks run on the HTTP client's threads.
+ *
+ * ai.ollama.urls lists several servers (default: just ai.ollama.url). Each call goes to
+ * the healthy endpoint with the fewest requests outstanding; failing endpoints are
+ * ejected for a while (OllamaEndpoint), and a call that fails before its first token
+ * is retried once on another endpoint. With hedging on, a call that has no first token
+ * after the endpoint's p95 time to first token is also sent to a less busy endpoint;
+ * whichever streams first is kept and the other is cancelled.
+ */
+@Component
+@Slf4j
+public class OllamaClient {
+
+    @Value("${ai.ollama.url}")
+    private String ollamaBaseUrl;
+
+    // Comma-separated pool of servers; empty means ai.ollama.url alone
+    @Value("${ai.ollama.urls:}")
+    private String ollamaUrls = "";
+
+    @Value("${ai.ollama.connect-timeout:2000}")
+    private int connectTimeoutMillis = 2000;
+
+    @Value("${ai.ollama.timeout:30000}")
+    private int readTimeoutMillis = 30000;
+
+    @Value("${ai.ollama.http-version:HTTP_2}")
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+
+    @Value("${ai.ollama.max-concurrent:4}")
+    private int maxConcurrent = 4;
+
+    @Value("${ai.ollama.bulkhead-wait-ms:1000}")
+    private long bulkheadWaitMillis = 1000;
+
+    @Value("${ai.ollama.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold = 5;
+
+    @Value("${ai.ollama.circuit-breaker.open-seconds:30}")
+    private long openSeconds = 30;
+
+    @Value("${ai.ollama.eject-after-failures:3}")
+    private int ejectAfterFailures = 3;
+
+    @Value("${ai.ollama.eject-seconds:30}")
+    private long ejectSeconds = 30;
+
+    @Value("${ai.ollama.hedge.enabled:false}")
+    private boolean hedgeEnabled = false;
+
+    // Hedge once a call has waited this percentile of the endpoint's recent times to first token
+    @Value("${ai.ollama.hedge.percentile:95}")
+    private int hedgePercentile = 95;
+
+    @Value("${ai.ollama.hedge.min-samples:20}")
+    private int hedgeMinSamples = 20;
+
+    @Value("${ai.ollama.hedge.min-delay-ms:50}")
+    private long hedgeMinDelayMillis = 50;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpClient httpClient;
+    private Semaphore bulkhead;
+    private CircuitBreaker breaker;
+    private List<OllamaEndpoint> endpoints;
+    private final AtomicInteger nextEndpoint = new AtomicInteger();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejectedByBreaker = new AtomicLong();
+    private final AtomicLong rejectedByBulkhead = new AtomicLong();
+    private final AtomicLong firstTokens = new AtomicLong();
+    private final AtomicLong firstTokenNanos = new AtomicLong();
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        bulkhead = new Semaphore(maxConcurrent, true);
+        breaker = new CircuitBreaker(failureThreshold, openSeconds * 1000, clock);
+        endpoints = new ArrayList<>();
+        for (String url : parseUrls(ollamaUrls, ollamaBaseUrl)) {
+            endpoints.add(new OllamaEndpoint(url, ejectAfterFailures, ejectSeconds * 1000, clock));
+        }
+        log.info("Ollama endpoints: {} (hedging {})", parseUrls(ollamaUrls, ollamaBaseUrl),
+                hedgeEnabled ? "at p" + hedgePercentile + " time to first token" : "off");
+    }
+
+    /**
+     * Pool URLs from ai.ollama.urls, or the single ai.ollama.url when none are listed
+     */
+    static List<String> parseUrls(String urls, String fallback) {
+        List<String> parsed = new ArrayList<>();
+        if (urls != null) {
+            for (String part : urls.split(",")) {
+                String url = part.trim();
+                if (!url.isEmpty()) {
+                    parsed.add(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+                }
+            }
+        }
+        if (parsed.isEmpty()) {
+            parsed.add(fallback);
+        }
+        return parsed;
+    }
+
+    /**
+     * Full generated text, or empty if the breaker is open, the bulkhead is full or the call failed
+     */
+    public Optional<String> generate(String model, String prompt) {
+        return generate(model, prompt, Map.of());
+    }
+
+    /**
+     * generate with Ollama request options (e.g. num_predict, num_ctx)
+     */
+    public Optional<String> generate(String model, String prompt, Map<String, Object> options) {
+        try {
+            String text = stream(model, prompt, options, token -> { }).join().trim();
+            return text.isEmpty() ? Optional.empty() : Optional.of(text);
+        } catch (CompletionException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stream a generation: each token goes to onToken as it arrives, the future completes
+     * with the full text
+     *
+     * The future fails with OllamaUnavailableException if the breaker or bulkhead refuses
+     * the call, and with the I/O, HTTP or timeout error otherwise.
+     */
+    public CompletableFuture<String> stream(String model, String prompt, Consumer<String> onToken) {
+        return stream(model, prompt, Map.of(), onToken);
+    }
+
+    /**
+     * stream with Ollama request options (empty for the model's defaults)
+     */
+    public CompletableFuture<String> stream(String model, String prompt, Map<String, Object> options,
+                                            Consumer<String> onToken) {
+        calls.incrementAndGet();
+        if (!breaker.tryAcquire()) {
+            rejectedByBreaker.incrementAndGet();
+            log.debug("Ollama circuit breaker is {}, using fallback", breaker.getState());
+            return CompletableFuture.failedFuture(new OllamaUnavailableException("circuit breaker is open"));
+        }
+        if (!acquireSlot()) {
+            // Not the model's fault: give the probe (if this was one) back without a verdict
+            breaker.release();
+            rejectedByBulkhead.incrementAndGet();
+            log.warn("Ollama bulkhead full ({} in flight), using fallback", maxConcurrent);
+            return CompletableFuture.failedFuture(new OllamaUnavailableException("bulkhead is full"));
+        }
+
+        long start = System.nanoTime();
+        Call call = new Call(onToken, start);
+        try {
+            log.info("Calling Ollama API with model: {}", model);
+            call.body = requestBody(model, prompt, options);
+            OllamaEndpoint first = pickEndpoint(null);
+            call.send(first, false);
+            scheduleHedge(call, first);
+        } catch (RuntimeException | JsonProcessingException e) {
+            call.result.completeExceptionally(e);
+        }
+
+        return call.result
+                .orTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((text, error) -> {
+                    totalNanos.addAndGet(System.nanoTime() - start);
+                    bulkhead.release();
+                    if (error == null) {
+                        breaker.onSuccess();
+                        successes.incrementAndGet();
+                        log.info("Ollama generated text: {}", text.substring(0, Math.min(100, text.length())));
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    boolean timedOut = cause instanceof TimeoutException || cause instanceof HttpTimeoutException;
+                    // Requests still running when the deadline passes count against their endpoint
+                    call.cancel(timedOut);
+                    breaker.onFailure();
+                    failures.incrementAndGet();
+                    if (timedOut) {
+                        timeouts.incrementAndGet();
+                    }
+                    log.error("Error calling Ollama API: {}", cause.toString());
+                });
+    }
+
+    /**
+     * Whether a call would currently reach Ollama (breaker not open)
+     */
+    public boolean isAvailable() {
+        return breaker.isCallPermitted();
+    }
+
+    /**
+     * Deadline of one generation (headers plus the streamed reply)
+     */
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * Snapshot of call outcomes, in-flight count, time to first token, breaker
+     * transitions and per-endpoint counters
+     */
+    public OllamaClientStats getStats() {
+        OllamaClientStats stats = new OllamaClientStats();
+        stats.setHttpVersion(httpVersion.name());
+        stats.setConnectTimeoutMillis(connectTimeoutMillis);
+        stats.setReadTimeoutMillis(readTimeoutMillis);
+        stats.setMaxConcurrent(maxConcurrent);
+        stats.setInFlight(maxConcurrent - bulkhead.availablePermits());
+        stats.setCalls(calls.get());
+        stats.setSuccesses(successes.get());
+        stats.setFailures(failures.get());
+        stats.setTimeouts(timeouts.get());
+        stats.setRejectedByBreaker(rejectedByBreaker.get());
+        stats.setRejectedByBulkhead(rejectedByBulkhead.get());
+        stats.setTokens(tokens.get());
+        stats.setFirstTokens(firstTokens.get());
+        stats.setFirstTokenNanos(firstTokenNanos.get());
+        stats.setTotalNanos(totalNanos.get());
+        stats.setHedgeEnabled(hedgeEnabled);
+        stats.setHedges(hedges.get());
+        stats.setHedgeWins(hedgeWins.get());
+        stats.setFailovers(failovers.get());
+        stats.setBreaker(breaker.getStats());
+        List<OllamaEndpoint.EndpointStats> endpointStats = new ArrayList<>();
+        for (OllamaEndpoint endpoint : endpoints) {
+            endpointStats.add(endpoint.getStats());
+        }
+        stats.setEndpoints(endpointStats);
+        return stats;
+    }
+
+    /**
+     * Healthy endpoint with the fewest requests outstanding (ties rotate); when every
+     * endpoint is ejected, the least busy of them all rather than none
+     */
+    private OllamaEndpoint pickEndpoint(OllamaEndpoint exclude) {
+        int offset = Math.floorMod(nextEndpoint.getAndIncrement(), endpoints.size());
+        OllamaEndpoint best = null;
+        OllamaEndpoint bestEjected = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            OllamaEndpoint endpoint = endpoints.get((offset + i) % endpoints.size());
+            if (endpoint == exclude) {
+                continue;
+            }
+            if (endpoint.isHealthy()) {
+                if (best == null || endpoint.getOutstanding() < best.getOutstanding()) {
+                    best = endpoint;
+                }
+            } else if (bestEjected == null || endpoint.getOutstanding() < bestEjected.getOutstanding()) {
+                bestEjected = endpoint;
+            }
+        }
+        if (best != null || exclude != null) {
+            return best;
+        }
+        return bestEjected;
+    }
+
+    private void scheduleHedge(Call call, OllamaEndpoint first) {
+        if (!hedgeEnabled || endpoints.size() < 2) {
+            return;
+        }
+        long thresholdNanos = first.firstTokenPercentileNanos(hedgePercentile, hedgeMinSamples);
+        if (thresholdNanos < 0) {
+            return;
+        }
+        long delayMillis = Math.max(hedgeMinDelayMillis, TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> call.hedge(first));
+    }
+
+    private String requestBody(String model, String prompt, Map<String, Object> options)
+            throws JsonProcessingException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", model);
+        request.put("prompt", prompt);
+        request.put("stream", true);
+        if (!options.isEmpty()) {
+            request.put("options", options);
+        }
+        return objectMapper.writeValueAsString(request);
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * One caller's generation: the request sent to one endpoint, plus a hedged or
+     * failover copy on another; only the attempt that streams first reaches the caller
+     */
+    private final class Call {
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final Consumer<String> onToken;
+        private final long start;
+        private String body;
+
+        // Guarded by this
+        private final List<Attempt> attempts = new ArrayList<>();
+        private Attempt winner;
+
+        private Call(Consumer<String> onToken, long start) {
+            this.onToken = onToken;
+            this.start = start;
+        }
+
+        private void send(OllamaEndpoint endpoint, boolean hedge) {
+            Attempt attempt = new Attempt(this, endpoint, hedge);
+            synchronized (this) {
+                if (result.isDone()) {
+                    return;
+                }
+                attempts.add(attempt);
+            }
+            attempt.send(body);
+        }
+
+        /**
+         * Past the hedge threshold without a token: send a copy to a less busy endpoint
+         */
+        private void hedge(OllamaEndpoint first) {
+            synchronized (this) {
+                if (result.isDone() || winner != null || attempts.size() > 1) {
+                    return;
+                }
+            }
+            OllamaEndpoint second = pickEndpoint(first);
+            if (second == null || second.getOutstanding() >= first.getOutstanding()) {
+                return;
+            }
+            hedges.incrementAndGet();
+            log.debug("No first token from {} yet, hedging on {}", first.getUrl(), second.getUrl());
+            send(second, true);
+        }
+
+        /**
+         * Whether this attempt's tokens go to the caller; the first attempt to ask wins
+         * and the others are cancelled
+         */
+        private boolean claim(Attempt attempt) {
+            List<Attempt> losers = new ArrayList<>();
+            synchronized (this) {
+                if (winner != null) {
+                    return winner == attempt;
+                }
+                winner = attempt;
+                for (Attempt other : attempts) {
+                    if (other != attempt) {
+                        losers.add(other);
+                    }
+                }
+            }
+            firstTokens.incrementAndGet();
+            firstTokenNanos.addAndGet(System.nanoTime() - start);
+            if (attempt.hedge) {
+                hedgeWins.incrementAndGet();
+                attempt.endpoint.hedgeWon();
+            }
+            losers.forEach(loser -> loser.abandon(false));
+            return true;
+        }
+
+        private void succeeded(Attempt attempt, String text) {
+            List<Attempt> others = new ArrayList<>();
+            synchronized (this) {
+                if (winner == null) {
+                    // A reply without tokens
+                    winner = attempt;
+                }
+                if (winner != attempt) {
+                    return;
+                }
+                for (Attempt other : attempts) {
+                    if (other != attempt) {
+                        others.add(other);
+                    }
+                }
+            }
+            others.forEach(other -> other.abandon(false));
+            result.complete(text);
+        }
+
+        /**
+         * The winner failing fails the call; before any token, the call fails over once
+         * to another endpoint, or fails when nothing else is running
+         */
+        private void failed(Attempt attempt, Throwable error) {
+            boolean failover;
+            synchronized (this) {
+                if (winner == attempt) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                if (winner != null || attempts.stream().anyMatch(Attempt::isActive)) {
+                    return;
+                }
+                failover = attempts.size() == 1 && !result.isDone();
+            }
+            OllamaEndpoint other = failover ? pickEndpoint(attempt.endpoint) : null;
+            if (other == null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            failovers.incrementAndGet();
+            log.warn("Ollama endpoint {} failed ({}), retrying on {}", attempt.endpoint.getUrl(), error.toString(),
+                    other.getUrl());
+            send(other, false);
+        }
+
+        private void cancel(boolean countAsFailure) {
+            List<Attempt> running;
+            synchronized (this) {
+                running = new ArrayList<>(attempts);
+            }
+            running.forEach(attempt -> attempt.abandon(countAsFailure));
+        }
+    }
+
+    /**
+     * One HTTP request of a call, to one endpoint
+     */
+    private final class Attempt {
+
+        private final Call call;
+        private final OllamaEndpoint endpoint;
+        private final boolean hedge;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+        private final NdjsonSubscriber subscriber = new NdjsonSubscriber(this::token);
+        private final long started = System.nanoTime();
+        private boolean sawToken;
+
+        private Attempt(Call call, OllamaEndpoint endpoint, boolean hedge) {
+            this.call = call;
+            this.endpoint = endpoint;
+            this.hedge = hedge;
+        }
+
+        private boolean isActive() {
+            return active.get();
+        }
+
+        private void send(String body) {
+            endpoint.begin(hedge);
+            subscriber.result.whenComplete(this::finished);
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.getUrl() + "/api/generate"))
+                        .timeout(Duration.ofMillis(readTimeoutMillis))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                httpClient.sendAsync(request, responseInfo -> responseInfo.statusCode() == 200
+                                ? HttpResponse.BodySubscribers.fromLineSubscriber(subscriber)
+                                : HttpResponse.BodySubscribers.replacing(null))
+                        .whenComplete((response, error) -> {
+                            if (error != null) {
+                                subscriber.fail(error);
+                            } else if (response.statusCode() != 200) {
+                                subscriber.fail(new IOException("Ollama returned HTTP " + response.statusCode()));
+                            }
+                        });
+            } catch (RuntimeException e) {
+                subscriber.fail(e);
+            }
+        }
+
+        private void token(String token) {
+            if (!sawToken) {
+                sawToken = true;
+                endpoint.firstToken(System.nanoTime() - started);
+            }
+            if (!call.claim(this)) {
+                abandon(false);
+                return;
+            }
+            tokens.incrementAndGet();
+            call.onToken.accept(token);
+        }
+
+        private void finished(String text, Throwable error) {
+            if (!active.compareAndSet(true, false)) {
+                // Already cancelled or counted
+                return;
+            }
+            if (error == null) {
+                endpoint.onSuccess(System.nanoTime() - started);
+                call.succeeded(this, text);
+            } else {
+                endpoint.onFailure();
+                call.failed(this, error);
+            }
+        }
+
+        /**
+         * Stop the request; a lost race is no verdict on the endpoint, a missed deadline is
+         */
+        private void abandon(boolean countAsFailure) {
+            if (!active.compareAndSet(true, false)) {
+                return;
+            }
+            subscriber.cancel();
+            if (countAsFailure) {
+                endpoint.onFailure();
+            } else {
+                endpoint.onCancel();
+            }
+        }
+    }
+
+    /**
+     * Reads Ollama's NDJSON reply: {"response": "<token>", "done": false} per line,
+     * then a final line with "done": true (or {"error": "..."})
+     */
+    private final class NdjsonSubscriber implements Flow.Subscriber<String> {
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final StringBuilder text = new StringBuilder();
+        private final Consumer<String> onToken;
+        private volatile Flow.Subscription subscription;
+        private boolean sawDone;
+
+        private NdjsonSubscriber(Consumer<String> onToken) {
+            this.onToken = onToken;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (result.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (result.isDone() || sawDone || line.isBlank()) {
+                return;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (node.hasNonNull("error")) {
+                    fail(new IOException("Ollama error: " + node.get("error").asText()));
+                    return;
+                }
+                String token = node.path("response").asText("");
+                if (!token.isEmpty()) {
+                    text.append(token);
+                    onToken.accept(token);
+                }
+                // Completed in onComplete, once the body has ended and the connection is back in the pool
+                sawDone = node.path("done").asBoolean(false);
+            } catch (JsonProcessingException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public void onComplete() {
+            if (sawDone) {
+                result.complete(text.toString());
+            } else if (!result.isDone()) {
+                fail(new IOException("Ollama stream ended before done"));
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                cancel();
+            }
+        }
+
+        private void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * Ollama call counters (firstTokenNanos sums time to first token over firstTokens calls;
+     * hedges are second copies sent, hedgeWins those that answered first, failovers
+     * retries on another endpoint after a failure)
+     */
+    @Data
+    public static class OllamaClientStats {
+        private String httpVersion;
+        private int connectTimeoutMillis;
+        private int readTimeoutMillis;
+        private int maxConcurrent;
+        private int inFlight;
+        private long calls;
+        private long successes;
+        private long failures;
+        private long timeouts;
+        private long rejectedByBreaker;
+        private long rejectedByBulkhead;
+        private long tokens;
+        private long firstTokens;
+        private long firstTokenNanos;
+        private long totalNanos;
+        private boolean hedgeEnabled;
+        private long hedges;
+        private long hedgeWins;
+        private long failovers;
+        private CircuitBreaker.BreakerStats breaker;
+        private List<OllamaEndpoint.EndpointStats> endpoints;
+    }
+}
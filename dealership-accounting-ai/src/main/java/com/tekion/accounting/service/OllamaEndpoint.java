@@ -0,0 +1,181 @@
+package com.tekion.accounting.service;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.util.Arrays;
+
+/**
+ * One Ollama server in OllamaClient's pool: requests outstanding, passive health and
+ * recent times to first token
+ *
+ * Design: eject-after-failures consecutive failed or timed-out calls take the endpoint
+ * out of rotation for eject-seconds, after which it gets traffic again; the last
+ * SAMPLES times to first token give the percentile after which a call is hedged
+ * Why: With several model servers one slow or dead box should cost a few calls, not
+ *      a share of every run
+ *
+ * All methods are synchronized; the state is tiny and updated once or twice per call.
+ */
+@Slf4j
+public final class OllamaEndpoint {
+
+    private static final int SAMPLES = 128;
+
+    private final String url;
+    private final int ejectAfterFailures;
+    private final long ejectMillis;
+    private final Clock clock;
+
+    private int outstanding;
+    private int consecutiveFailures;
+    private long ejectedUntil;
+
+    private final long[] firstTokenSamples = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+
+    private long calls;
+    private long successes;
+    private long failures;
+    private long cancelled;
+    private long hedges;
+    private long hedgeWins;
+    private long ejections;
+    private long totalNanos;
+
+    public OllamaEndpoint(String url, int ejectAfterFailures, long ejectMillis, Clock clock) {
+        if (ejectAfterFailures < 1 || ejectMillis < 0) {
+            throw new IllegalArgumentException("Ollama endpoint needs eject-after-failures >= 1 and eject time >= 0, got "
+                    + ejectAfterFailures + " and " + ejectMillis);
+        }
+        this.url = url;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectMillis = ejectMillis;
+        this.clock = clock;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized int getOutstanding() {
+        return outstanding;
+    }
+
+    /**
+     * Whether the endpoint is in rotation (not ejected, or its ejection is over)
+     */
+    public synchronized boolean isHealthy() {
+        return clock.millis() >= ejectedUntil;
+    }
+
+    /**
+     * A request was sent here (hedge = a second copy of a slow call)
+     */
+    public synchronized void begin(boolean hedge) {
+        outstanding++;
+        calls++;
+        if (hedge) {
+            hedges++;
+        }
+    }
+
+    public synchronized void firstToken(long nanos) {
+        firstTokenSamples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+    }
+
+    /**
+     * A hedged copy sent here answered first
+     */
+    public synchronized void hedgeWon() {
+        hedgeWins++;
+    }
+
+    public synchronized void onSuccess(long nanos) {
+        outstanding--;
+        successes++;
+        totalNanos += nanos;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        outstanding--;
+        failures++;
+        consecutiveFailures++;
+        if (consecutiveFailures >= ejectAfterFailures && clock.millis() >= ejectedUntil) {
+            ejectedUntil = clock.millis() + ejectMillis;
+            ejections++;
+            consecutiveFailures = 0;
+            log.warn("Ejecting Ollama endpoint {} for {} ms after {} consecutive failures", url, ejectMillis,
+                    ejectAfterFailures);
+        }
+    }
+
+    /**
+     * The request was dropped without a verdict (another endpoint answered first)
+     */
+    public synchronized void onCancel() {
+        outstanding--;
+        cancelled++;
+    }
+
+    /**
+     * Time to first token at the given percentile of recent calls, or -1 with fewer
+     * than minSamples of them
+     */
+    public synchronized long firstTokenPercentileNanos(int percentile, int minSamples) {
+        if (sampleCount == 0 || sampleCount < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(firstTokenSamples, sampleCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    public synchronized EndpointStats getStats() {
+        EndpointStats stats = new EndpointStats();
+        stats.setUrl(url);
+        stats.setHealthy(clock.millis() >= ejectedUntil);
+        stats.setOutstanding(outstanding);
+        stats.setCalls(calls);
+        stats.setSuccesses(successes);
+        stats.setFailures(failures);
+        stats.setCancelled(cancelled);
+        stats.setHedges(hedges);
+        stats.setHedgeWins(hedgeWins);
+        stats.setEjections(ejections);
+        stats.setTotalNanos(totalNanos);
+        stats.setFirstTokenSamples(sampleCount);
+        long p50 = sampleCount > 0 ? firstTokenPercentileNanos(50, 1) : 0;
+        long p95 = sampleCount > 0 ? firstTokenPercentileNanos(95, 1) : 0;
+        stats.setFirstTokenP50Millis(p50 / 1_000_000.0);
+        stats.setFirstTokenP95Millis(p95 / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * Per-endpoint counters (first-token percentiles are over the last SAMPLES calls)
+     */
+    @Data
+    public static class EndpointStats {
+        private String url;
+        private boolean healthy;
+        private int outstanding;
+        private long calls;
+        private long successes;
+        private long failures;
+        private long cancelled;
+        private long hedges;
+        private long hedgeWins;
+        private long ejections;
+        private long totalNanos;
+        private int firstTokenSamples;
+        private double firstTokenP50Millis;
+        private double firstTokenP95Millis;
+    }
+}
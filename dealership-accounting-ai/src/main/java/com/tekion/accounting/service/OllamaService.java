@@ -1,13 +1,21 @@
 package com.tekion.accounting.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Service for integrating with Ollama (Llama) for AI text generation
@@ -17,73 +25,119 @@ import java.util.Map;
 @Slf4j
 public class OllamaService {
 
-    @Value("${ai.ollama.url}")
-    private String ollamaBaseUrl;
-
     @Value("${ai.ollama.model}")
     private String ollamaModel;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Shared opening of the memo prompts, stated once per batch
+    private static final String BATCH_PREAMBLE = "You are an accounting AI assistant. ";
+    
+    private final PromptCache promptCache;
+    private final OllamaClient ollamaClient;
+    private final LatencySloController sloController;
+    private final ObjectMapper objectMapper = new ObjectMapper();
     
     /**
      * Generate explanation for why a bank transaction matches a deposit batch
+     * Model text only: empty when Ollama refuses or fails the call (see fallbackText)
+     */
+    public Optional<String> tryGenerateMatchExplanation(double bankAmount, double batchAmount, String batchNumber) {
+        return tryGenerateText(matchExplanationPrompt(bankAmount, batchAmount, batchNumber));
+    }
+    
+    /**
+     * Stream the match explanation token by token; the future completes with the full text
+     * 
+     * A cached explanation arrives as a single token. If Ollama refuses or fails the call
+     * the future fails; there is no fallback text, the caller keeps what it already shows.
      */
-    public String generateMatchExplanation(double bankAmount, double batchAmount, String batchNumber) {
-        String prompt = String.format(
+    public CompletableFuture<String> streamMatchExplanation(double bankAmount, double batchAmount,
+                                                            String batchNumber, Consumer<String> onToken) {
+        return streamText(matchExplanationPrompt(bankAmount, batchAmount, batchNumber), onToken);
+    }
+    
+    private static String matchExplanationPrompt(double bankAmount, double batchAmount, String batchNumber) {
+        return String.format(
             "You are an accounting AI assistant. Explain in 2-3 sentences why bank transaction of $%.2f " +
             "matches deposit batch %s with amount $%.2f. Be professional and concise.",
             bankAmount, batchNumber, batchAmount
         );
-        
-        return generateText(prompt);
     }
     
     /**
      * Generate memo for merchant fee exception
      */
-    public String generateMerchantFeeMemo(double expectedAmount, double actualAmount, double feeAmount, double feePercentage) {
-        String prompt = String.format(
+    public Optional<String> tryGenerateMerchantFeeMemo(double expectedAmount, double actualAmount, double feeAmount,
+                                                       double feePercentage) {
+        return tryGenerateText(merchantFeePrompt(expectedAmount, actualAmount, feeAmount, feePercentage));
+    }
+    
+    public CompletableFuture<String> streamMerchantFeeMemo(double expectedAmount, double actualAmount,
+                                                           double feeAmount, double feePercentage,
+                                                           Consumer<String> onToken) {
+        return streamText(merchantFeePrompt(expectedAmount, actualAmount, feeAmount, feePercentage), onToken);
+    }
+    
+    private static String merchantFeePrompt(double expectedAmount, double actualAmount, double feeAmount,
+                                            double feePercentage) {
+        return String.format(
             "You are an accounting AI assistant. Write a professional accounting memo (2-3 sentences) explaining " +
             "a merchant fee discrepancy. Expected deposit: $%.2f, Actual bank credit: $%.2f, " +
             "Merchant fee: $%.2f (%.2f%%). Suggest the journal entry to record this.",
             expectedAmount, actualAmount, feeAmount, feePercentage
         );
-        
-        return generateText(prompt);
     }
     
     /**
      * Generate memo for timing difference exception
      */
-    public String generateTimingDifferenceMemo(String batchNumber, double amount) {
-        String prompt = String.format(
+    public Optional<String> tryGenerateTimingDifferenceMemo(String batchNumber, double amount) {
+        return tryGenerateText(timingDifferencePrompt(batchNumber, amount));
+    }
+    
+    public CompletableFuture<String> streamTimingDifferenceMemo(String batchNumber, double amount,
+                                                                Consumer<String> onToken) {
+        return streamText(timingDifferencePrompt(batchNumber, amount), onToken);
+    }
+    
+    private static String timingDifferencePrompt(String batchNumber, double amount) {
+        return String.format(
             "You are an accounting AI assistant. Write a professional accounting memo (2-3 sentences) explaining " +
             "a timing difference for deposit batch %s ($%.2f) that hasn't appeared in the bank feed yet. " +
             "Suggest how to handle this in month-end close.",
             batchNumber, amount
         );
-        
-        return generateText(prompt);
     }
     
     /**
      * Generate memo for unmatched bank transaction
      */
-    public String generateUnmatchedMemo(double amount, String transactionType) {
-        String prompt = String.format(
+    public Optional<String> tryGenerateUnmatchedMemo(double amount, String transactionType) {
+        return tryGenerateText(unmatchedPrompt(amount, transactionType));
+    }
+
+    public CompletableFuture<String> streamUnmatchedMemo(double amount, String transactionType,
+                                                         Consumer<String> onToken) {
+        return streamText(unmatchedPrompt(amount, transactionType), onToken);
+    }
+
+    private static String unmatchedPrompt(double amount, String transactionType) {
+        return String.format(
             "You are an accounting AI assistant. Write a professional accounting memo (2-3 sentences) explaining " +
             "an unmatched bank %s of $%.2f. Suggest possible causes and how to investigate.",
             transactionType.toLowerCase(), Math.abs(amount)
         );
-
-        return generateText(prompt);
     }
 
     /**
-     * Generate dispute resolution response for customer billing questions
+     * Stream a dispute resolution response for customer billing questions
      */
-    public String generateDisputeResolution(String roDetails, String customerQuestion) {
-        String prompt = String.format(
+    public CompletableFuture<String> streamDisputeResolution(String roDetails, String customerQuestion,
+                                                             Consumer<String> onToken) {
+        return streamText(disputeResolutionPrompt(roDetails, customerQuestion), onToken);
+    }
+
+    private static String disputeResolutionPrompt(String roDetails, String customerQuestion) {
+        return String.format(
             "You are a professional, empathetic dealership customer service AI assistant. " +
             "A customer has a question about their repair bill.\n\n" +
             "Repair Order Details:\n%s\n\n" +
@@ -96,44 +150,247 @@ public class OllamaService {
             "Response:",
             roDetails, customerQuestion
         );
-
-        return generateText(prompt);
     }
     
     /**
-     * Core method to generate text using Ollama API
+     * Generate several memos in one Ollama round trip; answers come back in request order,
+     * empty for an item that got no model text
+     * 
+     * Design: The items' tasks are numbered under one shared preamble and the model is
+     * asked for a JSON array with one string per task
+     * Why: Every /api/generate call pays prompt processing on the same instruction
+     *      preamble, so K memos per call cut bulk runs' round trips about K times
+     * 
+     * Items are looked up and stored in PromptCache one by one under their own prompts,
+     * so a batched memo is a cache hit for a later single call. When the call fails or
+     * the answer is not an array of exactly one non-blank string per item, the missing
+     * items are generated one by one (without the fallback text). The SLO controller's
+     * model applies, but batch calls are not sampled against the SLO.
      */
-    private String generateText(String prompt) {
+    public List<Optional<String>> generateBatch(List<BatchItem> items) {
+        List<Optional<String>> answers = new ArrayList<>();
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Optional<String> cached = promptCache.get(ollamaModel, items.get(i).prompt);
+            answers.add(cached);
+            if (cached.isEmpty()) {
+                misses.add(i);
+            }
+        }
+        
+        // A capped answer would cut the JSON array short, so REDUCED batches run uncapped
+        LatencySloController.Mode mode = sloController.currentMode();
+        if (misses.size() > 1 && mode != LatencySloController.Mode.FALLBACK) {
+            List<String> tasks = new ArrayList<>();
+            for (int i : misses) {
+                tasks.add(items.get(i).prompt);
+            }
+            Optional<List<String>> batched = ollamaClient.generate(sloController.model(mode, ollamaModel),
+                            batchPrompt(tasks), Map.of())
+                    .flatMap(text -> parseBatch(text, tasks.size()));
+            if (batched.isPresent()) {
+                for (int k = 0; k < misses.size(); k++) {
+                    int i = misses.get(k);
+                    String answer = batched.get().get(k);
+                    answers.set(i, Optional.of(answer));
+                    if (mode == LatencySloController.Mode.FULL) {
+                        promptCache.put(ollamaModel, items.get(i).prompt, answer);
+                    }
+                }
+                misses.clear();
+            } else {
+                log.warn("Batch of {} prompts was not answered as a JSON array, generating one by one", tasks.size());
+            }
+        }
+        for (int i : misses) {
+            answers.set(i, tryGenerateText(items.get(i).prompt));
+        }
+        return answers;
+    }
+    
+    static String batchPrompt(List<String> prompts) {
+        StringBuilder prompt = new StringBuilder(String.format(
+            "%sComplete each of the following %d numbered tasks. Answer with only a JSON array of %d strings, " +
+            "where element i is the answer to task i, in order, and no other text.\n",
+            BATCH_PREAMBLE, prompts.size(), prompts.size()));
+        for (int i = 0; i < prompts.size(); i++) {
+            String task = prompts.get(i);
+            if (task.startsWith(BATCH_PREAMBLE)) {
+                task = task.substring(BATCH_PREAMBLE.length());
+            }
+            prompt.append('\n').append(i + 1).append(". ").append(task);
+        }
+        return prompt.toString();
+    }
+    
+    /**
+     * The JSON array in a batch answer, if it holds exactly the expected number of non-blank strings
+     */
+    Optional<List<String>> parseBatch(String text, int expected) {
+        int start = text.indexOf('[');
+        int end = text.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            return Optional.empty();
+        }
         try {
-            log.info("Calling Ollama API with model: {}", ollamaModel);
-            
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", ollamaModel);
-            request.put("prompt", prompt);
-            request.put("stream", false);
-            
-            String url = ollamaBaseUrl + "/api/generate";
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restTemplate.postForObject(url, request, Map.class);
-            
-            if (response != null && response.containsKey("response")) {
-                String generatedText = (String) response.get("response");
-                log.info("Ollama generated text: {}", generatedText.substring(0, Math.min(100, generatedText.length())));
-                return generatedText.trim();
+            List<String> answers = objectMapper.readValue(text.substring(start, end + 1),
+                    new TypeReference<List<String>>() { });
+            if (answers.size() != expected) {
+                return Optional.empty();
+            }
+            List<String> trimmed = new ArrayList<>();
+            for (String answer : answers) {
+                if (answer == null || answer.isBlank()) {
+                    return Optional.empty();
+                }
+                trimmed.add(answer.trim());
             }
-            
-            log.warn("Ollama response missing 'response' field");
-            return getFallbackText(prompt);
-            
-        } catch (Exception e) {
-            log.error("Error calling Ollama API: {}", e.getMessage());
-            return getFallbackText(prompt);
+            return Optional.of(trimmed);
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
         }
     }
     
     /**
-     * Fallback text when Ollama is unavailable
+     * One memo or explanation prompt for generateBatch
+     */
+    public static final class BatchItem {
+        
+        private final String prompt;
+        
+        private BatchItem(String prompt) {
+            this.prompt = prompt;
+        }
+        
+        public static BatchItem matchExplanation(double bankAmount, double batchAmount, String batchNumber) {
+            return new BatchItem(matchExplanationPrompt(bankAmount, batchAmount, batchNumber));
+        }
+        
+        public static BatchItem merchantFeeMemo(double expectedAmount, double actualAmount, double feeAmount,
+                                                double feePercentage) {
+            return new BatchItem(merchantFeePrompt(expectedAmount, actualAmount, feeAmount, feePercentage));
+        }
+        
+        public static BatchItem unmatchedMemo(double amount, String transactionType) {
+            return new BatchItem(unmatchedPrompt(amount, transactionType));
+        }
+        
+        public static BatchItem timingDifferenceMemo(String batchNumber, double amount) {
+            return new BatchItem(timingDifferencePrompt(batchNumber, amount));
+        }
+    }
+    
+    /**
+     * Model text for a prompt, or empty when OllamaClient refuses or fails the call
+     * Answers from PromptCache when the same prompt was generated before
+     * 
+     * The LatencySloController picks how: the configured model, shorter answers, a
+     * smaller model or no call at all (empty). Only full answers are cached.
+     * 
+     * Only calls Ollama actually got are timed against the SLO. A failed or timed-out
+     * call counts as a sample at the read timeout, so fast failures never look like a
+     * recovery; a call the open breaker would refuse is not made and not sampled.
+     */
+    private Optional<String> tryGenerateText(String prompt) {
+        Optional<String> cached = promptCache.get(ollamaModel, prompt);
+        if (cached.isPresent()) {
+            log.debug("Prompt cache hit for model {}", ollamaModel);
+            return cached;
+        }
+        
+        LatencySloController.Mode mode = sloController.currentMode();
+        if (mode == LatencySloController.Mode.FALLBACK || !ollamaClient.isAvailable()) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        Optional<String> generated = ollamaClient.generate(sloController.model(mode, ollamaModel), prompt,
+                sloController.options(mode));
+        recordSample(mode, start, generated.isPresent());
+        if (generated.isPresent() && mode == LatencySloController.Mode.FULL) {
+            promptCache.put(ollamaModel, prompt, generated.get());
+        }
+        return generated;
+    }
+    
+    /**
+     * Streaming counterpart of tryGenerateText; fails with no text, so callers can tell
+     * model text from canned text
+     * 
+     * Governed by the LatencySloController like tryGenerateText: its mode picks the model
+     * and options, a FALLBACK mode fails the stream without a call, and every stream
+     * Ollama got is sampled (a refused one is not).
+     */
+    private CompletableFuture<String> streamText(String prompt, Consumer<String> onToken) {
+        Optional<String> cached = promptCache.get(ollamaModel, prompt);
+        if (cached.isPresent()) {
+            onToken.accept(cached.get());
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        
+        LatencySloController.Mode mode = sloController.currentMode();
+        if (mode == LatencySloController.Mode.FALLBACK) {
+            return CompletableFuture.failedFuture(new OllamaUnavailableException("latency SLO fallback"));
+        }
+        long start = System.nanoTime();
+        return ollamaClient.stream(sloController.model(mode, ollamaModel), prompt, sloController.options(mode),
+                        onToken)
+                .thenApply(text -> text != null ? text.trim() : "")
+                .whenComplete((text, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (!(cause instanceof OllamaUnavailableException)) {
+                        recordSample(mode, start, text != null && !text.isEmpty());
+                    }
+                })
+                .thenApply(text -> {
+                    if (text.isEmpty()) {
+                        throw new IllegalStateException("Ollama returned no text");
+                    }
+                    if (mode == LatencySloController.Mode.FULL) {
+                        promptCache.put(ollamaModel, prompt, text);
+                    }
+                    return text;
+                });
+    }
+    
+    /**
+     * Time one generation Ollama got against the SLO; one that returned no text counts
+     * at the read timeout, never below it
+     */
+    private void recordSample(LatencySloController.Mode mode, long start, boolean gotText) {
+        long nanos = System.nanoTime() - start;
+        if (!gotText) {
+            nanos = Math.max(nanos, TimeUnit.MILLISECONDS.toNanos(ollamaClient.getReadTimeoutMillis()));
+        }
+        sloController.record(mode, nanos);
+    }
+    
+    /**
+     * Whether the SLO controller has fallen back to the canned text (ExplanationQueue then
+     * stores fallbackText, marked so it is regenerated later)
+     */
+    public boolean isFallingBack() {
+        return sloController.currentMode() == LatencySloController.Mode.FALLBACK;
+    }
+    
+    /**
+     * The deterministic canned text for a memo or explanation prompt
+     */
+    public String fallbackText(BatchItem item) {
+        return getFallbackText(item.prompt);
+    }
+    
+    /**
+     * Whether Ollama is currently being called (false while the circuit breaker is open
+     * or the SLO controller has fallen back to the canned text)
+     */
+    public boolean isAvailable() {
+        return ollamaClient.isAvailable() && sloController.currentMode() != LatencySloController.Mode.FALLBACK;
+    }
+    
+    /**
+     * Fallback text when Ollama is unavailable (memos and explanations only; a dispute
+     * reply is streamed or not sent)
      */
     private String getFallbackText(String prompt) {
         if (prompt.contains("matches deposit batch")) {
@@ -142,8 +399,6 @@ public class OllamaService {
             return "A merchant fee has been deducted from the deposit. Debit: Merchant Fee Expense, Credit: Cash to reconcile the difference.";
         } else if (prompt.contains("timing difference")) {
             return "This deposit is in transit and will appear in the next bank statement. Monitor for clearance within 2-3 business days.";
-        } else if (prompt.contains("customer service") || prompt.contains("Customer Question")) {
-            return "Thank you for your question. I'd be happy to help clarify your bill. Please contact our service manager for a detailed explanation of the charges. We're committed to ensuring you understand every aspect of your service.";
         } else {
             return "This transaction requires manual review to determine the appropriate accounting treatment.";
         }
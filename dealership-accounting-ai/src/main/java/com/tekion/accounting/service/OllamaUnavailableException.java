@@ -0,0 +1,13 @@
+package com.tekion.accounting.service;
+
+/**
+ * Thrown when an Ollama call is refused locally (circuit breaker open or bulkhead full)
+ *
+ * The call never reached the model, so callers use their fallback text.
+ */
+public class OllamaUnavailableException extends RuntimeException {
+
+    public OllamaUnavailableException(String reason) {
+        super("Ollama call refused: " + reason);
+    }
+}
@@ -0,0 +1,220 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.PromptCacheEntry;
+import com.tekion.accounting.repository.PromptCacheRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of generated Ollama text, keyed by model and normalized prompt hash
+ *
+ * Design: An access-ordered LinkedHashMap (LRU) capped at max-entries, each entry with
+ * an expiry time; optionally backed by the prompt_cache collection so it survives restarts
+ * Why: Memo prompts are fully determined by a few amounts, so re-runs and repeated
+ *      amounts asked the model the same question again at seconds per call
+ *
+ * Prompts are normalized by collapsing whitespace before hashing. Only real model
+ * output is cached, never the fallback text. Mongo errors are logged and treated as
+ * misses, so the second tier can never fail a generation.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PromptCache {
+
+    private final PromptCacheRepository promptCacheRepository;
+
+    @Value("${ai.ollama.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ai.ollama.cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${ai.ollama.cache.ttl-minutes:1440}")
+    private long ttlMinutes = 1440;
+
+    @Value("${ai.ollama.cache.mongo.enabled:false}")
+    private boolean mongoEnabled = false;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    // Guarded by itself, as are the stats
+    private final LinkedHashMap<String, CachedText> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final PromptCacheStats stats = new PromptCacheStats();
+
+    /**
+     * Cached text for a prompt, from memory or (if enabled) Mongo
+     */
+    public Optional<String> get(String model, String prompt) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        String key = key(model, prompt);
+        long now = clock.millis();
+        synchronized (entries) {
+            CachedText cached = entries.get(key);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    stats.setHits(stats.getHits() + 1);
+                    stats.setHitNanos(stats.getHitNanos() + System.nanoTime() - start);
+                    return Optional.of(cached.text);
+                }
+                entries.remove(key);
+                stats.setExpired(stats.getExpired() + 1);
+            }
+        }
+
+        if (mongoEnabled) {
+            try {
+                Optional<PromptCacheEntry> stored = promptCacheRepository.findById(key);
+                if (stored.isPresent() && toMillis(stored.get().getExpiresAt()) > now) {
+                    PromptCacheEntry entry = stored.get();
+                    synchronized (entries) {
+                        putLocal(key, entry.getText(), toMillis(entry.getExpiresAt()));
+                        stats.setMongoHits(stats.getMongoHits() + 1);
+                    }
+                    return Optional.of(entry.getText());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Prompt cache lookup in Mongo failed: {}", e.getMessage());
+            }
+        }
+
+        synchronized (entries) {
+            stats.setMisses(stats.getMisses() + 1);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Remember generated text for ttl-minutes
+     */
+    public void put(String model, String prompt, String text) {
+        if (!enabled || text == null) {
+            return;
+        }
+        String key = key(model, prompt);
+        long expiresAt = clock.millis() + ttlMinutes * 60_000;
+        synchronized (entries) {
+            putLocal(key, text, expiresAt);
+        }
+
+        if (mongoEnabled) {
+            try {
+                promptCacheRepository.save(PromptCacheEntry.builder()
+                        .id(key)
+                        .model(model)
+                        .text(text)
+                        .createdAt(LocalDateTime.now(clock))
+                        .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), clock.getZone()))
+                        .build());
+            } catch (RuntimeException e) {
+                log.warn("Prompt cache write to Mongo failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Snapshot of hit/miss counters and the current size
+     */
+    public PromptCacheStats getStats() {
+        synchronized (entries) {
+            PromptCacheStats snapshot = new PromptCacheStats();
+            snapshot.setEnabled(enabled);
+            snapshot.setMongoEnabled(mongoEnabled);
+            snapshot.setSize(entries.size());
+            snapshot.setMaxEntries(maxEntries);
+            snapshot.setTtlMinutes(ttlMinutes);
+            snapshot.setHits(stats.getHits());
+            snapshot.setMongoHits(stats.getMongoHits());
+            snapshot.setMisses(stats.getMisses());
+            snapshot.setEvictions(stats.getEvictions());
+            snapshot.setExpired(stats.getExpired());
+            snapshot.setHitNanos(stats.getHitNanos());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Cache key: model plus the SHA-256 of the normalized prompt
+     */
+    static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalize(prompt).getBytes(StandardCharsets.UTF_8));
+            return model + ":" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Trim and collapse runs of whitespace to a single space
+     */
+    static String normalize(String prompt) {
+        return prompt.strip().replaceAll("\\s+", " ");
+    }
+
+    private void putLocal(String key, String text, long expiresAt) {
+        entries.put(key, new CachedText(text, expiresAt));
+        Iterator<Map.Entry<String, CachedText>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            stats.setEvictions(stats.getEvictions() + 1);
+        }
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private static final class CachedText {
+        private final String text;
+        private final long expiresAt;
+
+        private CachedText(String text, long expiresAt) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Prompt cache counters (hitNanos is the total time spent answering memory hits)
+     */
+    @Data
+    public static class PromptCacheStats {
+        private boolean enabled;
+        private boolean mongoEnabled;
+        private int size;
+        private int maxEntries;
+        private long ttlMinutes;
+        private long hits;
+        private long mongoHits;
+        private long misses;
+        private long evictions;
+        private long expired;
+        private long hitNanos;
+
+        public double getHitRate() {
+            long lookups = hits + mongoHits + misses;
+            return lookups == 0 ? 0.0 : (double) (hits + mongoHits) / lookups;
+        }
+    }
+}
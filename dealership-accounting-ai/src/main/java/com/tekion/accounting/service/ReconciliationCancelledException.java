@@ -0,0 +1,13 @@
+package com.tekion.accounting.service;
+
+/**
+ * Thrown from a progress checkpoint to stop a run that was cancelled
+ *
+ * Work saved before the checkpoint is kept; a later run picks up the rest.
+ */
+public class ReconciliationCancelledException extends RuntimeException {
+
+    public ReconciliationCancelledException(String runId) {
+        super("Reconciliation run " + runId + " was cancelled");
+    }
+}
@@ -0,0 +1,41 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds Mongo writes of bank transactions and deposit batches into incremental reconciliation
+ *
+ * Why: Catches every save path (bank feed seeding, markBatchAsDeposited, confirmations)
+ * without each service having to remember to notify the index
+ */
+@Component
+@RequiredArgsConstructor
+public class ReconciliationIndexListener extends AbstractMongoEventListener<Object> {
+
+    private final IncrementalReconciliationService incrementalReconciliationService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof BankTransaction transaction) {
+            incrementalReconciliationService.onTransactionSaved(transaction);
+        } else if (source instanceof DepositBatch batch) {
+            incrementalReconciliationService.onBatchSaved(batch);
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        // Deletes only carry the query, not the documents, so start over
+        Class<?> type = event.getType();
+        if (BankTransaction.class.equals(type) || DepositBatch.class.equals(type)) {
+            incrementalReconciliationService.invalidate();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.ReconciliationRun;
+import com.tekion.accounting.repository.ReconciliationRunRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background reconciliation jobs
+ *
+ * Design: A job is a reconciliation_runs document (QUEUED -> RUNNING -> COMPLETED /
+ * FAILED / CANCELLED) executed on a small bounded pool
+ * Why: Full runs make several Ollama calls per item and outlive HTTP timeouts; with
+ *      the state in Mongo any node can report progress or cancel a job
+ *
+ * Progress is flushed at most once per progress-interval, and the same checkpoint
+ * picks up a cancel requested from another node. A cancel on the running node is
+ * seen at the very next checkpoint.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationJobService {
+
+    private final AIReconciliationService aiReconciliationService;
+    private final ReconciliationRunRepository reconciliationRunRepository;
+
+    @Value("${app.reconciliation.jobs.max-concurrent:1}")
+    private int maxConcurrent = 1;
+
+    @Value("${app.reconciliation.jobs.queue-capacity:10}")
+    private int queueCapacity = 10;
+
+    @Value("${app.reconciliation.jobs.progress-interval-ms:1000}")
+    private long progressIntervalMillis = 1000;
+
+    private static final String DEALERSHIP_ID = "DEALER-001";
+
+    // Cancel flags for jobs queued or running on this node
+    private final Map<String, AtomicBoolean> localCancelFlags = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "reconciliation-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue a reconciliation job and return its ledger entry straight away
+     * The entry comes back FAILED if the job queue is full
+     */
+    public ReconciliationRun submit() {
+        ReconciliationRun job = reconciliationRunRepository.save(ReconciliationRun.builder()
+                .dealershipId(DEALERSHIP_ID)
+                .status("QUEUED")
+                .queuedAt(LocalDateTime.now())
+                .build());
+
+        localCancelFlags.put(job.getId(), new AtomicBoolean());
+        try {
+            executor.execute(() -> runJob(job.getId()));
+        } catch (RejectedExecutionException e) {
+            localCancelFlags.remove(job.getId());
+            log.warn("Reconciliation job queue is full, rejecting job {}", job.getId());
+            job.setStatus("FAILED");
+            job.setErrorMessage("Job queue is full, try again later");
+            job.setCompletedAt(LocalDateTime.now());
+            return reconciliationRunRepository.save(job);
+        }
+
+        log.info("Queued reconciliation job {}", job.getId());
+        return job;
+    }
+
+    public Optional<ReconciliationRun> getJob(String jobId) {
+        return reconciliationRunRepository.findById(jobId);
+    }
+
+    /**
+     * Cancel a job: a queued job never starts, a running one stops at its next checkpoint
+     * Returns empty if there is no such job
+     */
+    public Optional<ReconciliationRun> cancel(String jobId) {
+        AtomicBoolean localFlag = localCancelFlags.get(jobId);
+        if (localFlag != null) {
+            localFlag.set(true);
+        }
+        if (reconciliationRunRepository.cancelIfQueued(jobId, LocalDateTime.now()) == 0) {
+            reconciliationRunRepository.requestCancel(jobId);
+        }
+        log.info("Cancel requested for reconciliation job {}", jobId);
+        return reconciliationRunRepository.findById(jobId);
+    }
+
+    void runJob(String jobId) {
+        try {
+            if (reconciliationRunRepository.markRunningIfQueued(jobId, LocalDateTime.now()) == 0) {
+                log.info("Reconciliation job {} was cancelled before it started", jobId);
+                return;
+            }
+            Optional<ReconciliationRun> job = reconciliationRunRepository.findById(jobId);
+            if (job.isEmpty()) {
+                return;
+            }
+            aiReconciliationService.runAIReconciliation(job.get(), new JobProgress(jobId));
+        } catch (RuntimeException e) {
+            // Already recorded as FAILED in the ledger
+            log.error("Reconciliation job {} failed", jobId, e);
+        } finally {
+            localCancelFlags.remove(jobId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Throttled progress writer and cancel check for one job
+     */
+    private class JobProgress implements ReconciliationProgress {
+
+        private final String jobId;
+        private final AtomicBoolean localFlag;
+        private long lastFlushNanos;
+        private boolean flushed;
+
+        JobProgress(String jobId) {
+            this.jobId = jobId;
+            this.localFlag = localCancelFlags.getOrDefault(jobId, new AtomicBoolean());
+        }
+
+        @Override
+        public void checkpoint(ReconciliationRun run, AIReconciliationService.ReconciliationResult result) {
+            if (localFlag.get()) {
+                throw new ReconciliationCancelledException(jobId);
+            }
+
+            long now = System.nanoTime();
+            if (flushed && now - lastFlushNanos < TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis)) {
+                return;
+            }
+            flushed = true;
+            lastFlushNanos = now;
+
+            reconciliationRunRepository.updateProgress(jobId, run.getTransactionsScanned(),
+                    run.getBatchesScanned(), result.getItemsProcessed(),
+                    result.getMatchesCreated(), result.getExceptionsCreated());
+            result.incrementRoundTrips(1);
+
+            // Cancels from other nodes only reach us through Mongo
+            boolean cancelRequested = reconciliationRunRepository.existsByIdAndCancelRequestedTrue(jobId);
+            result.incrementRoundTrips(1);
+            if (cancelRequested) {
+                throw new ReconciliationCancelledException(jobId);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.ReconciliationRun;
+
+/**
+ * Progress hook for a reconciliation run
+ *
+ * Called after loading and after each credit or batch is handled. Implementations
+ * throttle their own writes, and stop the run by throwing ReconciliationCancelledException.
+ */
+public interface ReconciliationProgress {
+
+    ReconciliationProgress NONE = (run, result) -> { };
+
+    void checkpoint(ReconciliationRun run, AIReconciliationService.ReconciliationResult result);
+}
@@ -0,0 +1,15 @@
+package com.tekion.accounting.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published after a full AI reconciliation run has written its matches and exceptions
+ */
+@Data
+@AllArgsConstructor
+public class ReconciliationRunCompletedEvent {
+    private String dealershipId;
+    private int matchesCreated;
+    private int exceptionsCreated;
+}
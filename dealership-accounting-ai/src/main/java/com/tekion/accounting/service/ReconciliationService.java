@@ -46,17 +46,23 @@ public class ReconciliationService {
             throw new RuntimeException("Deposit batch already reconciled: " + batch.getBatchNumber());
         }
         
-        // Create reconciliation match
-        ReconciliationMatch match = ReconciliationMatch.builder()
-            .dealershipId(DEALERSHIP_ID)
-            .bankTransactionId(bankTransactionId)
-            .depositBatchId(depositBatchId)
-            .aiSuggested(aiSuggested)
-            .aiConfidence(aiConfidence)
-            .aiReasons(aiReasons != null ? aiReasons : new ArrayList<>())
-            .userConfirmed(true)
-            .matchedBy("DEMO-USER")
-            .build();
+        // Confirm the AI suggestion for this pair if there is one, else create the match
+        String naturalKey = ReconciliationMatch.naturalKey(bankTransactionId, depositBatchId);
+        ReconciliationMatch match = reconciliationMatchRepository.findByNaturalKey(naturalKey)
+            .orElseGet(() -> ReconciliationMatch.builder()
+                .dealershipId(DEALERSHIP_ID)
+                .bankTransactionId(bankTransactionId)
+                .depositBatchId(depositBatchId)
+                .naturalKey(naturalKey)
+                .aiSuggested(aiSuggested)
+                .aiConfidence(aiConfidence)
+                .build());
+        if (aiReasons != null) {
+            match.setAiReasons(aiReasons);
+        }
+        match.setUserConfirmed(true);
+        match.setStatus("CONFIRMED");
+        match.setMatchedBy("DEMO-USER");
         
         ReconciliationMatch saved = reconciliationMatchRepository.save(match);
         
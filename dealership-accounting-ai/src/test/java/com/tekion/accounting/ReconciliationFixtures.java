@@ -0,0 +1,44 @@
+package com.tekion.accounting;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+
+/**
+ * Bank credits and deposit batches shared by the matching and reconciliation tests
+ */
+public final class ReconciliationFixtures {
+
+    public static final String DEALERSHIP_ID = "DEALER-001";
+
+    private ReconciliationFixtures() {
+    }
+
+    /**
+     * Unmatched card-processor credit; its bank reference is the id in upper case
+     */
+    public static BankTransaction transaction(String id, double amount) {
+        return BankTransaction.builder()
+                .id(id)
+                .dealershipId(DEALERSHIP_ID)
+                .transactionId(id.toUpperCase())
+                .description("MERCHANT DEPOSIT")
+                .amount(Money.of(amount))
+                .type("CREDIT")
+                .status("UNMATCHED")
+                .build();
+    }
+
+    /**
+     * Unreconciled deposit batch numbered after its id in upper case
+     */
+    public static DepositBatch batch(String id, double total) {
+        return DepositBatch.builder()
+                .id(id)
+                .dealershipId(DEALERSHIP_ID)
+                .batchNumber(id.toUpperCase())
+                .total(Money.of(total))
+                .reconciled(false)
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tekion.accounting.config;
+
+import com.tekion.accounting.model.Money;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoConfigTest {
+
+    @Test
+    void testMoneyConverters_WriteDecimal128AndReadLegacyNumbers() {
+        // Act
+        Decimal128 stored = MongoConfig.MoneyToDecimal128Converter.INSTANCE.convert(Money.of(485.50));
+
+        // Assert: written as exact dollars, read back from new and pre-Money documents alike
+        assertEquals(new Decimal128(new BigDecimal("485.50")), stored);
+        assertEquals(Money.of(485.50), MongoConfig.Decimal128ToMoneyConverter.INSTANCE.convert(stored));
+        assertEquals(Money.of(485.50), MongoConfig.DoubleToMoneyConverter.INSTANCE.convert(485.5));
+        assertEquals(Money.of(54.00), MongoConfig.IntegerToMoneyConverter.INSTANCE.convert(54));
+        assertEquals(Money.of(54.00), MongoConfig.LongToMoneyConverter.INSTANCE.convert(54L));
+    }
+}
@@ -2,6 +2,7 @@ package com.tekion.accounting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.service.BankTransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,7 +42,7 @@ class BankTransactionControllerTest {
                 .transactionId("BANK-TXN-001")
                 .date(LocalDate.now())
                 .description("Test Deposit")
-                .amount(100.0)
+                .amount(Money.of(100.0))
                 .type("CREDIT")
                 .status("UNMATCHED")
                 .build();
@@ -2,6 +2,7 @@ package com.tekion.accounting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.service.DepositBatchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -40,7 +41,7 @@ class DepositBatchControllerTest {
                 .id("batch-123")
                 .batchNumber("BATCH-001")
                 .receiptIds(Arrays.asList("receipt-1", "receipt-2"))
-                .total(216.0)
+                .total(Money.of(216.0))
                 .status("OPEN")
                 .reconciled(false)
                 .build();
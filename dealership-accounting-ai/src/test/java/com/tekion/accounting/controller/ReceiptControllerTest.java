@@ -1,6 +1,7 @@
 package com.tekion.accounting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.Receipt;
 import com.tekion.accounting.service.ReceiptService;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,7 +41,7 @@ class ReceiptControllerTest {
                 .receiptNumber("RCT-001")
                 .roId("ro-123")
                 .roNumber("RO-001")
-                .amount(108.0)
+                .amount(Money.of(108.0))
                 .status("UNBATCHED")
                 .build();
     }
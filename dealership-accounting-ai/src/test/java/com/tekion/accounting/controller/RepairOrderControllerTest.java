@@ -2,8 +2,10 @@ package com.tekion.accounting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tekion.accounting.model.Customer;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.RepairOrder;
 import com.tekion.accounting.model.Vehicle;
+import com.tekion.accounting.service.ExplanationStreamService;
 import com.tekion.accounting.service.RepairOrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +36,9 @@ class RepairOrderControllerTest {
     @MockBean
     private RepairOrderService repairOrderService;
 
+    @MockBean
+    private ExplanationStreamService explanationStreamService;
+
     private RepairOrder testRepairOrder;
 
     @BeforeEach
@@ -56,9 +61,9 @@ class RepairOrderControllerTest {
                 .customer(customer)
                 .vehicle(vehicle)
                 .status("OPEN")
-                .subtotal(100.0)
-                .tax(8.0)
-                .total(108.0)
+                .subtotal(Money.of(100.0))
+                .tax(Money.of(8.0))
+                .total(Money.of(108.0))
                 .build();
     }
 
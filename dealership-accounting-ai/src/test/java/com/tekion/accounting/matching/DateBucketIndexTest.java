@@ -0,0 +1,93 @@
+package com.tekion.accounting.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateBucketIndexTest {
+
+    private static final FeeBand BAND = new FeeBand(1.5, 3.5);
+    private static final BusinessDayWindow WINDOW = new BusinessDayWindow(2, 2.0);
+
+    // Friday 2024-03-01 and the days around it
+    private static final long THU = day(2024, 2, 29);
+    private static final long FRI = day(2024, 3, 1);
+    private static final long SAT = day(2024, 3, 2);
+    private static final long MON = day(2024, 3, 4);
+    private static final long TUE = day(2024, 3, 5);
+    private static final long WED = day(2024, 3, 6);
+
+    @Test
+    void testBusinessDayWindow_SkipsWeekends() {
+        assertEquals(1, WINDOW.distance(FRI, MON));
+        assertEquals(1, WINDOW.distance(MON, FRI));
+        assertEquals(0, WINDOW.distance(FRI, SAT));
+        assertEquals(3, WINDOW.distance(THU, TUE));
+        assertEquals(2, WINDOW.distance(BusinessDayWindow.UNDATED, MON));
+        assertEquals(96.0, WINDOW.confidence(100.0, 2));
+        assertThrows(IllegalArgumentException.class, () -> new BusinessDayWindow(-1, 2.0));
+    }
+
+    @Test
+    void testExactCandidates_OnlyDaysInsideWindowNearestFirst() {
+        // Arrange: same total on Thursday, Monday, Wednesday and a month later
+        long[] cents = {5400, 5400, 5400, 5400, 10800};
+        long[] days = {THU, WED, MON, MON + 30, MON};
+        DateBucketIndex index = new DateBucketIndex(cents, days, BAND, WINDOW);
+        int[] positions = new int[4];
+        int[] distances = new int[4];
+
+        // Act: credit on Friday, window +/- 2 business days
+        int found = index.exactCandidates(5400, FRI, 0, 4, positions, distances);
+
+        // Assert: Monday (1 day) then Thursday (1 day) by list position, then Wednesday (3) is out
+        assertEquals(2, found);
+        assertArrayEquals(new int[]{0, 2}, new int[]{positions[0], positions[1]});
+        assertEquals(1, distances[0]);
+        assertEquals(4, index.dayCount());
+    }
+
+    @Test
+    void testExactCandidates_RotatesSameDistanceByRank() {
+        // Arrange
+        long[] cents = {5400, 5400, 5400};
+        long[] days = {MON, MON, TUE};
+        DateBucketIndex index = new DateBucketIndex(cents, days, BAND, WINDOW);
+        int[] positions = new int[3];
+        int[] distances = new int[3];
+
+        // Act
+        int found = index.exactCandidates(5400, MON, 1, 3, positions, distances);
+
+        // Assert: the two same-day batches come first, rotated by one, then Tuesday's
+        assertEquals(3, found);
+        assertArrayEquals(new int[]{1, 0, 2}, positions);
+        assertArrayEquals(new int[]{0, 0, 1}, distances);
+    }
+
+    @Test
+    void testFeeCandidates_UndatedBatchesScoreAtWindowEdge() {
+        // Arrange: 485.50 credit; 500.00 sits on the band centre, 495.00 is nearer in date
+        long[] cents = {50000, 49500, 50000};
+        long[] days = {BusinessDayWindow.UNDATED, MON, WED + 7};
+        DateBucketIndex index = new DateBucketIndex(cents, days, BAND, WINDOW);
+        int[] positions = new int[3];
+        int[] distances = new int[3];
+
+        // Act
+        int found = index.feeCandidates(48550, MON, 3, positions, distances);
+
+        // Assert: same-day candidate first, the undated one at distance 2, next week's is out
+        assertEquals(2, found);
+        assertEquals(1, positions[0]);
+        assertEquals(0, distances[0]);
+        assertEquals(0, positions[1]);
+        assertEquals(2, distances[1]);
+    }
+
+    private static long day(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}
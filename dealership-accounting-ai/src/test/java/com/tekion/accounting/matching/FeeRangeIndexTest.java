@@ -0,0 +1,89 @@
+package com.tekion.accounting.matching;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeRangeIndexTest {
+
+    private static final FeeBand BAND = new FeeBand(1.5, 3.5);
+
+    @Test
+    void testBestCandidate_PicksFeeClosestToBandCentre() {
+        // Arrange: 485.50 is 1.9% below 494.90, 2.9% below 500.00, 3.4% below 502.60
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{50_260, 49_490, 50_000}, BAND);
+
+        // Act
+        int position = index.bestCandidate(48_550);
+
+        // Assert: 2.9% is nearer the 2.5% centre than 1.9% or 3.4%
+        assertEquals(2, position);
+    }
+
+    @Test
+    void testBestCandidate_TiesGoToEarliestPosition() {
+        // Arrange
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{5_400, 50_000, 50_000}, BAND);
+
+        // Act & Assert
+        assertEquals(1, index.bestCandidate(48_550));
+    }
+
+    @Test
+    void testBestCandidate_RespectsBand() {
+        // Arrange: 1.5% and 3.4% below 100.00 qualify, 1.0% and 4.0% do not
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{10_000}, BAND);
+
+        // Act & Assert
+        assertEquals(0, index.bestCandidate(9_850));
+        assertEquals(0, index.bestCandidate(9_660));
+        assertEquals(-1, index.bestCandidate(9_900));
+        assertEquals(-1, index.bestCandidate(9_600));
+    }
+
+    @Test
+    void testBestCandidate_BandEdgesAreExact() {
+        // Arrange: exactly 3.50% and 1.50% (floating point puts 96.50 vs 100.00 at 3.5000000000000004%)
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{10_000}, BAND);
+
+        // Act & Assert
+        assertEquals(0, index.bestCandidate(9_650));
+        assertEquals(0, index.bestCandidate(9_850));
+        assertEquals(-1, index.bestCandidate(9_649));
+        assertEquals(-1, index.bestCandidate(9_851));
+    }
+
+    @Test
+    void testBestCandidate_NoCandidates() {
+        // Arrange
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{5_400, 10_800, 0}, BAND);
+
+        // Act & Assert
+        assertEquals(-1, index.bestCandidate(25_000));
+        assertEquals(-1, index.bestCandidate(-2_500));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testSlots_BoundContiguousRun() {
+        // Arrange
+        FeeRangeIndex index = new FeeRangeIndex(new long[]{11_000, 10_000, 10_200, 10_300, 9_000}, BAND);
+
+        // Act
+        int lower = index.lowerSlot(9_850);
+        int upper = index.upperSlot(9_850);
+
+        // Assert: 100.00 (1.5%) and 102.00 (3.43%) qualify, 103.00 (4.4%) does not
+        assertEquals(2, upper - lower);
+        assertEquals(10_000, index.totalAt(lower));
+        assertEquals(10_200, index.totalAt(upper - 1));
+        assertEquals(1, index.positionAt(lower));
+    }
+
+    @Test
+    void testFeeBand_RejectsInvertedOrOutOfRangeBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new FeeBand(3.5, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new FeeBand(-1.0, 3.5));
+        assertThrows(IllegalArgumentException.class, () -> new FeeBand(1.5, 100.0));
+    }
+}
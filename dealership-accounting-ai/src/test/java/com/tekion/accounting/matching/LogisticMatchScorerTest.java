@@ -0,0 +1,103 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.tekion.accounting.ReconciliationFixtures.batch;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogisticMatchScorerTest {
+
+    private static final FeeBand BAND = new FeeBand(1.5, 3.5);
+
+    @Test
+    void testTrain_SeparatesConfirmedFromRejected() {
+        // Arrange: confirmed pairs are exact or mention the batch, rejected ones are neither
+        double[][] rows = new double[40][];
+        boolean[] labels = new boolean[40];
+        for (int r = 0; r < rows.length; r++) {
+            boolean confirmed = r % 4 != 0;
+            long credit = 10_000 + 137L * r;
+            long total = confirmed && r % 2 == 0 ? credit : credit + 25_000;
+            rows[r] = new double[MatchFeatures.COUNT];
+            MatchFeatures.tokens("DEPOSIT " + r, rows[r]);
+            MatchFeatures.pair(credit, total, BusinessDayWindow.UNDATED, BusinessDayWindow.UNDATED,
+                    confirmed && r % 2 == 1, BAND, rows[r]);
+            labels[r] = confirmed;
+        }
+
+        // Act
+        LogisticMatchScorer scorer = LogisticMatchScorer.train(rows, labels, 500, 0.5, 0.001);
+
+        // Assert
+        assertEquals(1.0, scorer.accuracy(rows, labels));
+        assertTrue(scorer.getWeights()[MatchFeatures.EXACT] > 0);
+        assertTrue(scorer.getWeights()[MatchFeatures.MENTIONS_BATCH] > 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> LogisticMatchScorer.train(rows, new boolean[40], 10, 0.5, 0.0));
+    }
+
+    @Test
+    void testFeatures_TokensAndBatchReference() {
+        // Arrange
+        double[] upper = new double[MatchFeatures.COUNT];
+        double[] lower = new double[MatchFeatures.COUNT];
+
+        // Act
+        MatchFeatures.tokens("VISA SETTLEMENT 0412", upper);
+        MatchFeatures.tokens("visa settlement-0412", lower);
+
+        // Assert: case and punctuation do not change the buckets; pair slots are untouched
+        assertArrayEquals(upper, lower);
+        assertTrue(Arrays.stream(upper).sum() >= 1.0);
+        assertEquals(0.0, upper[MatchFeatures.EXACT]);
+        assertTrue(MatchFeatures.mentionsBatch("ACH DEP batch-007 MERCH", "BATCH-007"));
+        assertFalse(MatchFeatures.mentionsBatch("ACH DEP", "BATCH-007"));
+        assertEquals(MatchFeatures.COUNT, MatchFeatures.names().size());
+    }
+
+    @Test
+    void testPlan_MlStagePrefersBatchTheModelTrusts() {
+        // Arrange: a model that only trusts pairs whose description names the batch
+        double[] weights = new double[MatchFeatures.COUNT];
+        weights[MatchFeatures.MENTIONS_BATCH] = 6.0;
+        MatchingEngine matchingEngine = new MatchingEngine(1.5, 3.5);
+        matchingEngine.setMatchScorer(new LogisticMatchScorer(weights, -3.0));
+        BankTransaction credit = BankTransaction.builder()
+                .id("txn-1").description("MERCHANT DEP BATCH-2").amount(Money.of(54.0)).build();
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 54.0), batch("batch-2", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(Collections.singletonList(credit), batches, AssignmentMode.ONE_TO_ONE,
+                matchingEngine.getFeeBand(), List.of("ml-based"));
+
+        // Assert: the rules would take batch-1; the other pair falls below the threshold
+        assertEquals(1, plan.getMatches().size());
+        assertEquals("batch-2", plan.getMatches().get(0).getBatch().getId());
+        assertEquals(ProposedMatch.EXACT_MATCH, plan.getMatches().get(0).getMatchType());
+        assertEquals(95.3, plan.getMatches().get(0).getConfidence());
+        assertEquals(2, plan.getStages().get(0).getBatchCandidates());
+    }
+
+    @Test
+    void testPlan_MlStageWithoutModelProposesNothing() {
+        // Arrange
+        MatchingEngine matchingEngine = new MatchingEngine(1.5, 3.5);
+        BankTransaction credit = BankTransaction.builder().id("txn-1").amount(Money.of(54.0)).build();
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(Collections.singletonList(credit),
+                Collections.singletonList(batch("batch-1", 54.0)), AssignmentMode.ONE_TO_ONE,
+                matchingEngine.getFeeBand(), List.of("ml-based"));
+
+        // Assert
+        assertTrue(plan.getMatches().isEmpty());
+        assertEquals(1, plan.getUnmatchedTransactions().size());
+    }
+}
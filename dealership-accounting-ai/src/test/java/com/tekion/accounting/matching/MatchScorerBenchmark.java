@@ -0,0 +1,75 @@
+package com.tekion.accounting.matching;
+
+import java.util.Random;
+
+/**
+ * Micro-benchmark for ml-based pair scoring (feature extraction plus inference)
+ *
+ * Not picked up by surefire (no *Test suffix). Run after mvn test-compile:
+ *   java -cp target/classes:target/test-classes com.tekion.accounting.matching.MatchScorerBenchmark
+ *
+ * Mirrors the MlMatchStrategy inner loop: tokens once per credit, then eight
+ * candidate pairs each through MatchFeatures.pair and probability, one reused array.
+ */
+public class MatchScorerBenchmark {
+
+    private static final int CREDITS = 250_000;
+    private static final int CANDIDATES_PER_CREDIT = 8;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        double[] weights = new double[MatchFeatures.COUNT];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextGaussian();
+        }
+        LogisticMatchScorer scorer = new LogisticMatchScorer(weights, -1.0);
+        FeeBand band = new FeeBand(1.5, 3.5);
+
+        long[] creditCents = new long[CREDITS];
+        long[] creditDays = new long[CREDITS];
+        String[] descriptions = new String[CREDITS];
+        long[] batchCents = new long[CREDITS * CANDIDATES_PER_CREDIT];
+        long[] batchDays = new long[batchCents.length];
+        String[] batchNumbers = new String[batchCents.length];
+        for (int i = 0; i < CREDITS; i++) {
+            creditCents[i] = 1_000 + random.nextInt(5_000_000);
+            creditDays[i] = 19_700 + random.nextInt(60);
+            descriptions[i] = "MERCHANT DEP BATCH-" + random.nextInt(CREDITS) + " VISA";
+            for (int k = 0; k < CANDIDATES_PER_CREDIT; k++) {
+                int p = i * CANDIDATES_PER_CREDIT + k;
+                batchCents[p] = k < 4 ? creditCents[i] : Math.round(creditCents[i] / 0.97);
+                batchDays[p] = creditDays[i] - random.nextInt(4);
+                batchNumbers[p] = "BATCH-" + random.nextInt(CREDITS);
+            }
+        }
+
+        double[] features = new double[MatchFeatures.COUNT];
+        double best = Double.MAX_VALUE;
+        double checksum = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            double sum = 0;
+            for (int i = 0; i < CREDITS; i++) {
+                MatchFeatures.tokens(descriptions[i], features);
+                double tokenLogit = scorer.tokenLogit(features);
+                for (int k = 0; k < CANDIDATES_PER_CREDIT; k++) {
+                    int p = i * CANDIDATES_PER_CREDIT + k;
+                    MatchFeatures.pair(creditCents[i], batchCents[p], creditDays[i], batchDays[p],
+                            MatchFeatures.mentionsBatch(descriptions[i], batchNumbers[p]), band, features);
+                    sum += scorer.probability(features, tokenLogit);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, seconds);
+            }
+            checksum += sum;
+        }
+
+        long pairs = (long) CREDITS * CANDIDATES_PER_CREDIT;
+        System.out.printf("%d pairs in %.1f ms: %.2f M pairs/sec (checksum %.1f)%n",
+                pairs, best * 1000, pairs / best / 1e6, checksum);
+    }
+}
@@ -0,0 +1,119 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmark for the matching engine at month-end backlog sizes
+ *
+ * Not picked up by surefire (no *Test suffix). Run after mvn test-compile:
+ *   java -cp target/classes:target/test-classes com.tekion.accounting.matching.MatchingEngineBenchmark
+ *
+ * Four in five credits have a batch with the same total; the rest are the batch
+ * total less a 2.9% merchant fee. Batches are shuffled, so the baseline nested
+ * loop scans half the batches on average before it hits.
+ */
+public class MatchingEngineBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int NESTED_LOOP_LIMIT = 10_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        MatchingEngine engine = new MatchingEngine(1.5, 3.5);
+
+        System.out.printf("%-10s %18s %18s %18s%n", "items", "indexed (ms)", "one-to-one (ms)", "nested loop (ms)");
+        for (int size : SIZES) {
+            List<BankTransaction> transactions = new ArrayList<>(size);
+            List<DepositBatch> batches = new ArrayList<>(size);
+            generate(size, transactions, batches);
+
+            double indexedMs = measure(() ->
+                    engine.plan(transactions, batches, AssignmentMode.FIRST_HIT).getMatches().size());
+            double oneToOneMs = measure(() ->
+                    engine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE).getMatches().size());
+            String nestedMs = size <= NESTED_LOOP_LIMIT
+                    ? String.format("%.1f", measureOnce(() -> nestedLoop(transactions, batches)))
+                    : "skipped";
+
+            System.out.printf("%-10d %18.1f %18.1f %18s%n", size, indexedMs, oneToOneMs, nestedMs);
+        }
+    }
+
+    /**
+     * The pre-index exact and merchant-fee loops, kept as the baseline
+     */
+    private static int nestedLoop(List<BankTransaction> transactions, List<DepositBatch> batches) {
+        int matches = 0;
+        for (BankTransaction transaction : transactions) {
+            boolean matched = false;
+            for (DepositBatch batch : batches) {
+                if (Math.abs(transaction.getAmount().toDouble() - batch.getTotal().toDouble()) < 0.01) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                for (DepositBatch batch : batches) {
+                    double total = batch.getTotal().toDouble();
+                    double feePercentage = (total - transaction.getAmount().toDouble()) / total * 100;
+                    if (feePercentage >= 1.5 && feePercentage <= 3.5) {
+                        matched = true;
+                        break;
+                    }
+                }
+            }
+            if (matched) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static void generate(int size, List<BankTransaction> transactions, List<DepositBatch> batches) {
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            // Distinct cent amounts so each exact credit has exactly one partner
+            double total = (10_000 + i * 7L + random.nextInt(7)) / 100.0;
+            double credit = i % 5 == 4 ? Math.round(total * 97.1) / 100.0 : total;
+            transactions.add(BankTransaction.builder()
+                    .id("txn-" + i).amount(Money.of(credit)).type("CREDIT").status("UNMATCHED").build());
+            batches.add(DepositBatch.builder()
+                    .id("batch-" + i).batchNumber("BATCH-" + i).total(Money.of(total)).reconciled(false).build());
+        }
+        Collections.shuffle(batches, random);
+    }
+
+    private static double measure(Workload workload) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            workload.run();
+        }
+        double totalMs = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            totalMs += measureOnce(workload);
+        }
+        return totalMs / MEASURED_ROUNDS;
+    }
+
+    private static double measureOnce(Workload workload) {
+        long start = System.nanoTime();
+        int sink = workload.run();
+        long elapsed = System.nanoTime() - start;
+        if (sink < 0) {
+            throw new IllegalStateException("unreachable");
+        }
+        return elapsed / 1_000_000.0;
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+        int run();
+    }
+}
@@ -0,0 +1,343 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.tekion.accounting.ReconciliationFixtures.batch;
+import static com.tekion.accounting.ReconciliationFixtures.transaction;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchingEngineTest {
+
+    private MatchingEngine matchingEngine;
+
+    @BeforeEach
+    void setUp() {
+        matchingEngine = new MatchingEngine(1.5, 3.5);
+    }
+
+    @Test
+    void testPlan_ExactMatch() {
+        // Arrange
+        List<BankTransaction> transactions = Arrays.asList(transaction("txn-1", 54.0), transaction("txn-2", 108.0));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 108.0), batch("batch-2", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches);
+
+        // Assert
+        assertEquals(2, plan.getMatches().size());
+        assertTrue(plan.getUnmatchedTransactions().isEmpty());
+        assertEquals("batch-2", plan.getMatches().get(0).getBatch().getId());
+        assertEquals("batch-1", plan.getMatches().get(1).getBatch().getId());
+        assertEquals(ProposedMatch.EXACT_MATCH, plan.getMatches().get(0).getMatchType());
+        assertEquals(100.0, plan.getMatches().get(0).getConfidence());
+    }
+
+    @Test
+    void testPlan_ExactMatchPicksFirstBatchWithAmount() {
+        // Arrange
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 54.0));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 20.0), batch("batch-2", 54.0), batch("batch-3", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches);
+
+        // Assert
+        assertEquals("batch-2", plan.getMatches().get(0).getBatch().getId());
+    }
+
+    @Test
+    void testPlan_ExactMatchToleratesFloatingPointNoise() {
+        // Arrange
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 0.1 + 0.2));
+        List<DepositBatch> batches = Collections.singletonList(batch("batch-1", 0.3));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches);
+
+        // Assert
+        assertEquals(1, plan.getMatches().size());
+        assertEquals(ProposedMatch.EXACT_MATCH, plan.getMatches().get(0).getMatchType());
+    }
+
+    @Test
+    void testPlan_MerchantFeeMatch() {
+        // Arrange
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 485.50));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 54.0), batch("batch-2", 500.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches);
+
+        // Assert
+        assertEquals(1, plan.getMatches().size());
+        ProposedMatch match = plan.getMatches().get(0);
+        assertTrue(match.isMerchantFee());
+        assertEquals("batch-2", match.getBatch().getId());
+        assertEquals(Money.of(14.50), match.getFeeAmount());
+        assertEquals(2.9, match.getFeePercentage(), 0.001);
+        assertEquals(95.0, match.getConfidence());
+    }
+
+    @Test
+    void testPlan_UnmatchedTransaction() {
+        // Arrange
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 250.0));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 54.0), batch("batch-2", 500.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches);
+
+        // Assert
+        assertTrue(plan.getMatches().isEmpty());
+        assertEquals(1, plan.getUnmatchedTransactions().size());
+        assertEquals("txn-1", plan.getUnmatchedTransactions().get(0).getId());
+    }
+
+    @Test
+    void testPlan_NoBatches() {
+        // Act
+        MatchPlan plan = matchingEngine.plan(
+                Collections.singletonList(transaction("txn-1", 54.0)), Collections.emptyList());
+
+        // Assert
+        assertTrue(plan.getMatches().isEmpty());
+        assertEquals(1, plan.getUnmatchedTransactions().size());
+    }
+
+    @Test
+    void testPlanOneToOne_DuplicateCreditsDoNotShareBatch() {
+        // Arrange
+        List<BankTransaction> transactions = Arrays.asList(
+                transaction("txn-1", 54.0), transaction("txn-2", 54.0), transaction("txn-3", 54.0));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 54.0), batch("batch-2", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE);
+
+        // Assert
+        assertEquals(2, plan.getMatches().size());
+        assertEquals("batch-1", plan.getMatches().get(0).getBatch().getId());
+        assertEquals("batch-2", plan.getMatches().get(1).getBatch().getId());
+        assertEquals(1, plan.getUnmatchedTransactions().size());
+        assertEquals("txn-3", plan.getUnmatchedTransactions().get(0).getId());
+    }
+
+    @Test
+    void testPlanFirstHit_DuplicateCreditsShareBatch() {
+        // Arrange
+        List<BankTransaction> transactions = Arrays.asList(transaction("txn-1", 54.0), transaction("txn-2", 54.0));
+        List<DepositBatch> batches = Collections.singletonList(batch("batch-1", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.FIRST_HIT);
+
+        // Assert
+        assertEquals(2, plan.getMatches().size());
+        assertEquals("batch-1", plan.getMatches().get(1).getBatch().getId());
+    }
+
+    @Test
+    void testPlanOneToOne_MaximizesTotalConfidence() {
+        // Arrange: first-hit would give batch-1 to txn-1 (exact) and leave txn-2 without a batch;
+        // the optimal assignment moves txn-1 to its fee candidate so both credits are matched
+        List<BankTransaction> transactions = Arrays.asList(transaction("txn-1", 485.50), transaction("txn-2", 485.50));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 485.50), batch("batch-2", 500.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE);
+
+        // Assert
+        assertEquals(2, plan.getMatches().size());
+        assertTrue(plan.getUnmatchedTransactions().isEmpty());
+        assertNotEquals(plan.getMatches().get(0).getBatch().getId(), plan.getMatches().get(1).getBatch().getId());
+    }
+
+    @Test
+    void testPlanOneToOne_LargeComponentUsesEveryBatchOnce() {
+        // Arrange: 300 identical credits and batches form one component too big for the exact solver
+        List<BankTransaction> transactions = new ArrayList<>();
+        List<DepositBatch> batches = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            transactions.add(transaction("txn-" + i, 54.0));
+            batches.add(batch("batch-" + i, 54.0));
+        }
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE);
+
+        // Assert
+        assertEquals(300, plan.getMatches().size());
+        Set<String> batchIds = new HashSet<>();
+        plan.getMatches().forEach(match -> batchIds.add(match.getBatch().getId()));
+        assertEquals(300, batchIds.size());
+    }
+
+    @Test
+    void testPlanOneToOne_DateWindowPrefersNearestBatch() {
+        // Arrange: Monday credit; same total deposited the Friday before and three weeks earlier
+        ReflectionTestUtils.setField(matchingEngine, "dateWindowEnabled", true);
+        LocalDate monday = LocalDate.of(2024, 3, 4);
+        List<BankTransaction> transactions = Collections.singletonList(
+                dated(transaction("txn-1", 500.0), monday));
+        List<DepositBatch> batches = Arrays.asList(
+                dated(batch("batch-old", 500.0), monday.minusDays(21)),
+                dated(batch("batch-fri", 500.0), monday.minusDays(3)));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE);
+
+        // Assert: one business day apart costs the default 2 points
+        assertEquals(1, plan.getMatches().size());
+        assertEquals("batch-fri", plan.getMatches().get(0).getBatch().getId());
+        assertEquals(98.0, plan.getMatches().get(0).getConfidence());
+    }
+
+    @Test
+    void testPlanFirstHit_DateWindowLeavesDistantBatchUnmatched() {
+        // Arrange
+        ReflectionTestUtils.setField(matchingEngine, "dateWindowEnabled", true);
+        LocalDate monday = LocalDate.of(2024, 3, 4);
+        List<BankTransaction> transactions = Arrays.asList(
+                dated(transaction("txn-1", 485.50), monday),
+                transaction("txn-undated", 54.0));
+        List<DepositBatch> batches = Arrays.asList(
+                dated(batch("batch-old", 500.0), monday.minusDays(30)),
+                dated(batch("batch-1", 54.0), monday.minusDays(30)));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.FIRST_HIT);
+
+        // Assert: the undated credit still matches, at the window-edge confidence
+        assertEquals(1, plan.getMatches().size());
+        assertEquals("txn-undated", plan.getMatches().get(0).getTransaction().getId());
+        assertEquals(90.0, plan.getMatches().get(0).getConfidence());
+        assertEquals("txn-1", plan.getUnmatchedTransactions().get(0).getId());
+    }
+
+    @Test
+    void testPlan_PipelineRunsStagesInOrderOnWhatIsLeft() {
+        // Arrange
+        List<BankTransaction> transactions = Arrays.asList(transaction("txn-1", 485.50), transaction("txn-2", 54.0));
+        List<DepositBatch> batches = Arrays.asList(batch("batch-1", 500.0), batch("batch-2", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.ONE_TO_ONE,
+                matchingEngine.getFeeBand(), MatchingEngine.parsePipeline(" exact , merchant-fee, exact"));
+
+        // Assert: the fee stage only sees the credit and batch the exact stage left open
+        assertEquals(2, plan.getMatches().size());
+        assertEquals(ProposedMatch.EXACT_MATCH, plan.getMatches().get(0).getMatchType());
+        assertEquals(ProposedMatch.MERCHANT_FEE_MATCH, plan.getMatches().get(1).getMatchType());
+        assertEquals(2, plan.getStages().size());
+        MatchPlan.Stage feeStage = plan.getStages().get(1);
+        assertEquals("merchant-fee", feeStage.getStrategy());
+        assertEquals(1, feeStage.getCandidates());
+        assertEquals(1, feeStage.getBatchCandidates());
+        assertEquals(1, feeStage.getHits());
+
+        List<StrategyStats> stats = matchingEngine.getStrategyStats();
+        assertEquals("exact", stats.get(0).getStrategy());
+        assertEquals(0.5, stats.get(0).getHitRate());
+    }
+
+    @Test
+    void testPlan_WhatIfPlanLeavesStrategyStatsAlone() {
+        // Arrange
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 54.0));
+        List<DepositBatch> batches = Collections.singletonList(batch("batch-1", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.FIRST_HIT,
+                matchingEngine.getFeeBand(), List.of("exact"), false);
+
+        // Assert: the plan still reports its own stage
+        assertEquals(1, plan.getStages().get(0).getHits());
+        assertTrue(matchingEngine.getStrategyStats().isEmpty());
+    }
+
+    @Test
+    void testPlan_CustomStrategyAndUnknownName() {
+        // Arrange: a registered stage that claims nothing
+        matchingEngine.registerStrategy(new MatchStrategy() {
+            @Override
+            public String name() {
+                return "noop";
+            }
+
+            @Override
+            public List<ProposedMatch> match(MatchContext context) {
+                return Collections.emptyList();
+            }
+        });
+        List<BankTransaction> transactions = Collections.singletonList(transaction("txn-1", 54.0));
+        List<DepositBatch> batches = Collections.singletonList(batch("batch-1", 54.0));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(transactions, batches, AssignmentMode.FIRST_HIT,
+                matchingEngine.getFeeBand(), List.of("noop", "rule-based"));
+
+        // Assert
+        assertEquals(1, plan.getMatches().size());
+        assertEquals(0, plan.getStages().get(0).getHits());
+        assertThrows(IllegalArgumentException.class, () -> matchingEngine.plan(transactions, batches,
+                AssignmentMode.FIRST_HIT, matchingEngine.getFeeBand(), List.of("neural-net")));
+    }
+
+    @Test
+    void testGetPipeline_LegacySubsetSumFlagAppendsStage() {
+        // Arrange
+        ReflectionTestUtils.setField(matchingEngine, "strategy", "exact,merchant-fee");
+        ReflectionTestUtils.setField(matchingEngine, "subsetSumEnabled", true);
+
+        // Act & Assert
+        assertEquals(Arrays.asList("exact", "merchant-fee", "subset-sum"), matchingEngine.getPipeline());
+    }
+
+    @Test
+    void testAssignmentMode_FromConfig() {
+        assertEquals(AssignmentMode.ONE_TO_ONE, AssignmentMode.fromConfig("one-to-one"));
+        assertEquals(AssignmentMode.FIRST_HIT, AssignmentMode.fromConfig(" first-hit "));
+    }
+
+    @Test
+    void testCentsIndex_ChainsPositionsInInsertionOrder() {
+        // Arrange
+        CentsIndex index = new CentsIndex(new long[]{5400, 10800, 5400, 5400});
+
+        // Act & Assert
+        assertEquals(0, index.first(5400));
+        assertEquals(2, index.next(0));
+        assertEquals(3, index.next(2));
+        assertEquals(-1, index.next(3));
+        assertEquals(1, index.first(10800));
+        assertEquals(-1, index.first(25000));
+        assertEquals(3, index.count(5400));
+        assertEquals(2, index.positionAt(5400, 1));
+        assertEquals(0, index.count(25000));
+    }
+
+    private BankTransaction dated(BankTransaction transaction, LocalDate date) {
+        transaction.setDate(date);
+        return transaction;
+    }
+
+    private DepositBatch dated(DepositBatch batch, LocalDate depositedDate) {
+        batch.setDepositedDate(depositedDate.atTime(16, 0));
+        return batch;
+    }
+}
@@ -0,0 +1,180 @@
+package com.tekion.accounting.matching;
+
+import com.tekion.accounting.ReconciliationFixtures;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubsetSumMatcherTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    private SubsetSumMatcher subsetSumMatcher;
+
+    @BeforeEach
+    void setUp() {
+        subsetSumMatcher = new SubsetSumMatcher(3, 3, 64);
+    }
+
+    @Test
+    void testMatch_OneCreditCoversSeveralBatches() {
+        // Arrange
+        List<BankTransaction> credits = Collections.singletonList(transaction("txn-1", 1250.75, DAY));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 400.25, DAY),
+                batch("batch-2", 999.99, DAY),
+                batch("batch-3", 850.50, DAY.minusDays(1)));
+
+        // Act
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+
+        // Assert
+        assertEquals(1, matches.size());
+        ProposedMatch match = matches.get(0);
+        assertEquals(ProposedMatch.MULTI_BATCH_MATCH, match.getMatchType());
+        assertEquals(90.0, match.getConfidence());
+        assertTrue(match.isGroup());
+        assertEquals(Arrays.asList("batch-3", "batch-1"), ids(match.getBatches()));
+    }
+
+    @Test
+    void testMatch_OneBatchSplitAcrossCredits() {
+        // Arrange: three credits sum to the batch, the fourth is a decoy
+        List<BankTransaction> credits = Arrays.asList(
+                transaction("txn-1", 100.00, DAY),
+                transaction("txn-2", 33.33, DAY.plusDays(1)),
+                transaction("txn-3", 66.67, DAY.plusDays(2)),
+                transaction("txn-4", 12.00, DAY));
+        List<DepositBatch> batches = Collections.singletonList(batch("batch-1", 200.00, DAY));
+
+        // Act
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+
+        // Assert
+        assertEquals(1, matches.size());
+        ProposedMatch match = matches.get(0);
+        assertEquals(ProposedMatch.SPLIT_DEPOSIT_MATCH, match.getMatchType());
+        assertEquals(85.0, match.getConfidence());
+        assertEquals(Arrays.asList("txn-1", "txn-3", "txn-2"),
+                match.getTransactions().stream().map(BankTransaction::getId).toList());
+    }
+
+    @Test
+    void testMatch_RespectsDateWindow() {
+        // Arrange: the amounts add up but batch-2 was deposited a week later
+        List<BankTransaction> credits = Collections.singletonList(transaction("txn-1", 300.0, DAY));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 100.0, DAY),
+                batch("batch-2", 200.0, DAY.plusDays(7)));
+
+        // Act
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+
+        // Assert
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    void testMatch_RespectsMaxSubsetSize() {
+        // Arrange: needs four batches, only three allowed
+        List<BankTransaction> credits = Collections.singletonList(transaction("txn-1", 400.0, DAY));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 100.0, DAY), batch("batch-2", 100.0, DAY),
+                batch("batch-3", 100.0, DAY), batch("batch-4", 100.0, DAY));
+
+        // Act
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+
+        // Assert
+        assertTrue(matches.isEmpty());
+        assertEquals(1, new SubsetSumMatcher(4, 3, 64).match(credits, batches).size());
+    }
+
+    @Test
+    void testMatch_EachBatchUsedOnce() {
+        // Arrange: both credits could use batch-1 + batch-2
+        List<BankTransaction> credits = Arrays.asList(
+                transaction("txn-1", 150.0, DAY), transaction("txn-2", 150.0, DAY));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 100.0, DAY), batch("batch-2", 50.0, DAY));
+
+        // Act
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+
+        // Assert
+        assertEquals(1, matches.size());
+        assertEquals("txn-1", matches.get(0).getTransaction().getId());
+    }
+
+    @Test
+    void testMatch_LargeCandidateSetWithoutSolution() {
+        // Arrange: no three of the 64 small batches come close to the credit
+        List<BankTransaction> credits = Collections.singletonList(transaction("txn-1", 5000.00, DAY));
+        List<DepositBatch> batches = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            batches.add(batch("batch-" + i, 10.01 + i * 0.02, DAY));
+        }
+
+        // Act
+        long start = System.nanoTime();
+        List<ProposedMatch> matches = subsetSumMatcher.match(credits, batches);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert: reach pruning rejects the target without enumerating subsets
+        assertTrue(matches.isEmpty());
+        assertTrue(elapsedMillis < 1_000, "search took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testPlan_SubsetSumRunsOnLeftoversWhenEnabled() {
+        // Arrange: txn-1 matches batch-1 exactly; txn-2 is batch-2 + batch-3
+        MatchingEngine matchingEngine = new MatchingEngine(1.5, 3.5);
+        ReflectionTestUtils.setField(matchingEngine, "subsetSumEnabled", true);
+        List<BankTransaction> credits = Arrays.asList(
+                transaction("txn-1", 60.0, DAY), transaction("txn-2", 140.0, DAY));
+        List<DepositBatch> batches = Arrays.asList(
+                batch("batch-1", 60.0, DAY), batch("batch-2", 40.0, DAY), batch("batch-3", 100.0, DAY));
+
+        // Act
+        MatchPlan plan = matchingEngine.plan(credits, batches, AssignmentMode.ONE_TO_ONE);
+
+        // Assert
+        assertEquals(2, plan.getMatches().size());
+        assertTrue(plan.getUnmatchedTransactions().isEmpty());
+        assertEquals(ProposedMatch.MULTI_BATCH_MATCH, plan.getMatches().get(1).getMatchType());
+        assertEquals(Arrays.asList("batch-3", "batch-2"), ids(plan.getMatches().get(1).getBatches()));
+    }
+
+    @Test
+    void testConfidenceFor_DropsWithGroupSize() {
+        assertEquals(90.0, SubsetSumMatcher.confidenceFor(2));
+        assertEquals(85.0, SubsetSumMatcher.confidenceFor(3));
+        assertEquals(70.0, SubsetSumMatcher.confidenceFor(10));
+    }
+
+    private List<String> ids(List<DepositBatch> batches) {
+        return batches.stream().map(DepositBatch::getId).toList();
+    }
+
+    private BankTransaction transaction(String id, double amount, LocalDate date) {
+        BankTransaction transaction = ReconciliationFixtures.transaction(id, amount);
+        transaction.setDate(date);
+        return transaction;
+    }
+
+    private DepositBatch batch(String id, double total, LocalDate depositedDate) {
+        DepositBatch batch = ReconciliationFixtures.batch(id, total);
+        batch.setDepositedDate(depositedDate.atStartOfDay());
+        return batch;
+    }
+}
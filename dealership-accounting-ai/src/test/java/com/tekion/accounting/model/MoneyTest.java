@@ -0,0 +1,72 @@
+package com.tekion.accounting.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testOf_RoundsToCents() {
+        assertEquals(30, Money.of(0.1 + 0.2).getCents());
+        assertEquals(Money.of(0.3), Money.of(0.1).plus(Money.of(0.2)));
+        assertEquals(-2_500, Money.of(-25.0).getCents());
+        assertEquals(1_235, Money.of(new BigDecimal("12.345")).getCents());
+    }
+
+    @Test
+    void testArithmetic() {
+        // Arrange
+        Money total = Money.of(500.00);
+        Money credit = Money.of(485.50);
+
+        // Act & Assert
+        assertEquals(Money.of(14.50), total.minus(credit));
+        assertEquals(Money.of(1_500.00), total.times(3));
+        assertEquals(Money.of(41.25), total.multiply(0.0825));
+        assertEquals(Money.of(25.00), Money.of(-25.00).abs());
+        assertTrue(credit.compareTo(total) < 0);
+        assertEquals("485.50", credit.toString());
+    }
+
+    @Test
+    void testJson_RoundTripsAsPlainNumber() throws java.lang.Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper();
+        Receipt receipt = Receipt.builder().amount(Money.of(108.00)).build();
+
+        // Act
+        String json = objectMapper.writeValueAsString(receipt);
+        Receipt parsed = objectMapper.readValue("{\"amount\": 54.1}", Receipt.class);
+
+        // Assert
+        assertTrue(json.contains("\"amount\":108.00"), json);
+        assertEquals(Money.of(54.10), parsed.getAmount());
+    }
+
+    @Test
+    void testValidation_MinAppliesToMoney() {
+        // Arrange
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        LineItem valid = LineItem.builder().type("PART").description("Filter").quantity(1)
+                .rate(Money.of(12.00)).build();
+        LineItem negative = LineItem.builder().type("PART").description("Filter").quantity(1)
+                .rate(Money.of(-0.01)).build();
+
+        // Act
+        Set<ConstraintViolation<LineItem>> validViolations = validator.validate(valid);
+        Set<ConstraintViolation<LineItem>> negativeViolations = validator.validate(negative);
+
+        // Assert
+        assertTrue(validViolations.isEmpty());
+        assertEquals(1, negativeViolations.size());
+        assertEquals("Rate must be positive", negativeViolations.iterator().next().getMessage());
+    }
+}
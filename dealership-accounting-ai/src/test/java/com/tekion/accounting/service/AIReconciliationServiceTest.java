@@ -0,0 +1,560 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.matching.FeeBand;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.matching.ProposedMatch;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.model.ReconciliationRun;
+import com.tekion.accounting.repository.BankTransactionIdView;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchIdView;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.ExceptionRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import com.tekion.accounting.repository.ReconciliationRunRepository;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static com.tekion.accounting.ReconciliationFixtures.batch;
+import static com.tekion.accounting.ReconciliationFixtures.transaction;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AIReconciliationServiceTest {
+
+    @Mock
+    private BankTransactionRepository bankTransactionRepository;
+
+    @Mock
+    private DepositBatchRepository depositBatchRepository;
+
+    @Mock
+    private ReconciliationMatchRepository reconciliationMatchRepository;
+
+    @Mock
+    private ExplanationQueue explanationQueue;
+
+    @Mock
+    private ExceptionService exceptionService;
+
+    @Mock
+    private InlineExplanationGenerator inlineGenerator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    @Mock
+    private ExceptionRepository exceptionRepository;
+
+    @Mock
+    private BulkOperations matchBulk;
+
+    @Mock
+    private BulkOperations exceptionBulk;
+
+    private AIReconciliationService aiReconciliationService;
+
+    private List<BankTransaction> transactions;
+    private List<DepositBatch> batches;
+
+    @BeforeEach
+    void setUp() {
+        aiReconciliationService = new AIReconciliationService(
+                bankTransactionRepository,
+                depositBatchRepository,
+                reconciliationMatchRepository,
+                explanationQueue,
+                exceptionService,
+                new MatchingEngine(1.5, 3.5),
+                eventPublisher,
+                reconciliationRunRepository,
+                new BulkReconciliationWriter(mongoOperations, exceptionRepository),
+                inlineGenerator
+        );
+        lenient().when(reconciliationRunRepository.save(any(ReconciliationRun.class))).then(returnsFirstArg());
+        lenient().when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ReconciliationMatch.class))
+                .thenReturn(matchBulk);
+        lenient().when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Exception.class))
+                .thenReturn(exceptionBulk);
+        ExceptionService builder = new ExceptionService(exceptionRepository);
+        lenient().when(exceptionService.buildException(anyString(), anyString(), any(), any(), any(), any(), anyString()))
+                .thenAnswer(invocation -> builder.buildException(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4),
+                        invocation.getArgument(5), invocation.getArgument(6)));
+
+        transactions = Arrays.asList(
+                transaction("txn-1", 54.0),
+                transaction("txn-2", 485.50),
+                transaction("txn-3", 250.0));
+
+        batches = Arrays.asList(
+                batch("batch-1", 54.0),
+                batch("batch-2", 500.0),
+                batch("batch-3", 75.0),
+                batch("batch-4", 80.0));
+    }
+
+    @Test
+    void testRunAIReconciliation_CreatesMatchesAndExceptions() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        when(reconciliationMatchRepository.findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(batchIdView("batch-4")));
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
+
+        // Assert: exact + merchant fee match; fee, unmatched and one timing exception
+        assertEquals(2, result.getMatchesCreated());
+        assertEquals(3, result.getExceptionsCreated());
+        assertEquals(2, insertedMatches().size());
+        assertEquals(3, insertedExceptions().size());
+        verify(exceptionService).buildException(eq("MERCHANT_FEE"), anyString(), eq(Money.of(14.50)),
+                eq("txn-2"), eq("batch-2"), any(), anyString());
+        verify(exceptionService).buildException(eq("UNMATCHED_TRANSACTION"), anyString(), eq(Money.of(250.0)),
+                eq("txn-3"), isNull(), any(), anyString());
+        verify(exceptionService).buildException(eq("TIMING_DIFFERENCE"), anyString(), eq(Money.of(75.0)),
+                isNull(), eq("batch-3"), any(), anyString());
+        verify(eventPublisher).publishEvent(any(ReconciliationRunCompletedEvent.class));
+
+        // Assert: saved as pending, explanations queued only once the documents exist
+        assertTrue(insertedMatches().stream()
+                .allMatch(match -> ExplanationQueue.PENDING.equals(match.getExplanationStatus())));
+        assertTrue(insertedExceptions().stream().allMatch(exception -> exception.getAiGeneratedMemo() == null));
+        InOrder inOrder = inOrder(matchBulk, exceptionBulk, explanationQueue);
+        inOrder.verify(matchBulk).execute();
+        inOrder.verify(exceptionBulk).execute();
+        inOrder.verify(explanationQueue).matchExplanation("txn-1|batch-1", 54.0, 54.0, "BATCH-1");
+        verify(explanationQueue).merchantFeeMemo(eq("MERCHANT_FEE:txn-2"), eq(500.0), eq(485.5), eq(14.5), anyDouble());
+        verify(explanationQueue).unmatchedMemo("UNMATCHED_TRANSACTION:txn-3", 250.0, "CREDIT");
+        verify(explanationQueue).timingDifferenceMemo("TIMING_DIFFERENCE:batch-3", "BATCH-3", 75.0);
+    }
+
+    @Test
+    void testRunAIReconciliation_InlineModeSavesGeneratedTextWithTheDocuments() {
+        // Arrange: every generation is started during the run; the unmatched memo fails
+        ReflectionTestUtils.setField(aiReconciliationService, "explanationMode", "inline");
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        when(reconciliationMatchRepository.findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(batchIdView("batch-4")));
+        when(inlineGenerator.isAvailable()).thenReturn(true);
+        when(inlineGenerator.matchExplanation(anyDouble(), anyDouble(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture("Amounts agree."));
+        when(inlineGenerator.merchantFeeMemo(anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture("Fee withheld by the processor."));
+        when(inlineGenerator.unmatchedMemo(anyDouble(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("timed out")));
+        when(inlineGenerator.timingDifferenceMemo(anyString(), anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture("Deposit in transit."));
+        when(inlineGenerator.await(any())).thenAnswer(invocation -> {
+            CompletableFuture<String> text = invocation.getArgument(0);
+            return text.isCompletedExceptionally() ? Optional.empty() : Optional.of(text.join());
+        });
+
+        // Act
+        aiReconciliationService.runAIReconciliation();
+
+        // Assert: generated text is written with the documents, no queue round trip
+        assertTrue(insertedMatches().stream()
+                .allMatch(match -> ExplanationQueue.COMPLETED.equals(match.getExplanationStatus())
+                        && match.getAiExplanation() != null));
+        for (Exception exception : insertedExceptions()) {
+            if ("UNMATCHED_TRANSACTION".equals(exception.getType())) {
+                assertEquals(ExplanationQueue.PENDING, exception.getExplanationStatus());
+                assertNull(exception.getAiGeneratedMemo());
+            } else {
+                assertEquals(ExplanationQueue.COMPLETED, exception.getExplanationStatus());
+                assertNotNull(exception.getAiGeneratedMemo());
+            }
+        }
+        // The failed memo goes to the queue once its document exists
+        InOrder inOrder = inOrder(exceptionBulk, explanationQueue);
+        inOrder.verify(exceptionBulk).execute();
+        inOrder.verify(explanationQueue).unmatchedMemo("UNMATCHED_TRANSACTION:txn-3", 250.0, "CREDIT");
+        verifyNoMoreInteractions(explanationQueue);
+    }
+
+    @Test
+    void testRunAIReconciliation_LooksUpExistingWorkInOneQueryEach() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        when(reconciliationMatchRepository.findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
+
+        // Assert: matched items and existing exceptions are each looked up in a single query
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(reconciliationMatchRepository, times(1)).findByDepositBatchIdInOrDepositBatchIdsIn(ids.capture(), anyCollection());
+        assertEquals(Arrays.asList("batch-1", "batch-2", "batch-3", "batch-4"), List.copyOf(ids.getValue()));
+        verify(reconciliationMatchRepository, times(1))
+                .findByBankTransactionIdInOrBankTransactionIdsIn(anyCollection(), anyCollection());
+        verify(exceptionService, times(1)).findExistingNaturalKeys(anyCollection());
+        verify(reconciliationMatchRepository, never()).findByDepositBatchId(anyString());
+
+        // 2 ledger saves + 2 loads + 3 lookups + 1 exception number reservation + 2 bulk inserts
+        assertEquals(10, result.getMongoRoundTrips());
+        verify(exceptionRepository, times(1)).reserveExceptionNumbers(anyInt());
+        verify(reconciliationMatchRepository, never()).save(any(ReconciliationMatch.class));
+    }
+
+    @Test
+    void testRunAIReconciliation_RerunSkipsExistingWork() {
+        // Arrange: txn-1 <-> batch-1 matched earlier; txn-3 and batch-4 already have exceptions
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        when(reconciliationMatchRepository.findByBankTransactionIdInOrBankTransactionIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(transactionIdView("txn-1")));
+        when(reconciliationMatchRepository.findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(batchIdView("batch-1")));
+        when(exceptionService.findExistingNaturalKeys(anyCollection()))
+                .thenReturn(Set.of("UNMATCHED_TRANSACTION:txn-3", "TIMING_DIFFERENCE:batch-4"));
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
+
+        // Assert: only the merchant fee match and the batch-3 timing difference are new
+        assertEquals(1, result.getMatchesCreated());
+        assertEquals(2, result.getExceptionsCreated());
+        assertEquals(2, result.getItemsSkipped());
+        assertEquals(2, result.getExceptionsSkipped());
+        verify(exceptionService, never()).buildException(eq("UNMATCHED_TRANSACTION"), anyString(), any(),
+                anyString(), any(), any(), anyString());
+
+        ArgumentCaptor<ReconciliationRun> run = ArgumentCaptor.forClass(ReconciliationRun.class);
+        verify(reconciliationRunRepository, times(2)).save(run.capture());
+        assertEquals("COMPLETED", run.getValue().getStatus());
+        assertEquals(3, run.getValue().getTransactionsScanned());
+        assertEquals(2, run.getValue().getItemsSkipped());
+        assertEquals(2, run.getValue().getExceptionsSkipped());
+        assertNotNull(run.getValue().getCompletedAt());
+    }
+
+    @Test
+    void testRunAIReconciliation_RejectedMatchReleasesItsItems() {
+        // Arrange: a reviewer rejected txn-1 <-> batch-1
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        when(reconciliationMatchRepository.findByBankTransactionIdInOrBankTransactionIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(transactionIdView("txn-1", "batch-1", "REJECTED")));
+        when(reconciliationMatchRepository.findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection()))
+                .thenReturn(Collections.singletonList(batchIdView("batch-1", "REJECTED")));
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
+
+        // Assert: the pair is not proposed again; both items are reported as exceptions, not skipped
+        assertEquals(0, result.getItemsSkipped());
+        assertEquals(1, result.getMatchesCreated());
+        assertEquals(List.of("txn-2|batch-2"), insertedMatches().stream().map(ReconciliationMatch::getNaturalKey).toList());
+        verify(exceptionService).buildException(eq("UNMATCHED_TRANSACTION"), anyString(), any(), eq("txn-1"), any(),
+                any(), anyString());
+        verify(exceptionService).buildException(eq("TIMING_DIFFERENCE"), anyString(), any(), any(), eq("batch-1"),
+                any(), anyString());
+    }
+
+    @Test
+    void testRunAIReconciliation_FailedRunIsRecorded() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenThrow(new IllegalStateException("Mongo unavailable"));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> aiReconciliationService.runAIReconciliation());
+
+        // Assert
+        ArgumentCaptor<ReconciliationRun> run = ArgumentCaptor.forClass(ReconciliationRun.class);
+        verify(reconciliationRunRepository, times(2)).save(run.capture());
+        assertEquals("FAILED", run.getValue().getStatus());
+        assertEquals("Mongo unavailable", run.getValue().getErrorMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testRunAIReconciliation_CancelledJobKeepsSavedWork() {
+        // Arrange: cancel once the first match has been saved
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+        ReconciliationRun job = ReconciliationRun.builder().id("job-1").status("RUNNING").build();
+        ReconciliationProgress cancelAfterFirstMatch = (run, progress) -> {
+            if (progress.getMatchesCreated() > 0) {
+                throw new ReconciliationCancelledException(run.getId());
+            }
+        };
+
+        // Act
+        AIReconciliationService.ReconciliationResult result =
+                aiReconciliationService.runAIReconciliation(job, cancelAfterFirstMatch);
+
+        // Assert
+        assertEquals("job-1", result.getRunId());
+        assertEquals(1, result.getMatchesCreated());
+        assertEquals(2, result.getItemsProcessed());
+        assertEquals("CANCELLED", job.getStatus());
+        assertEquals(2, job.getItemsProcessed());
+        verify(reconciliationRunRepository, times(1)).save(job);
+        assertEquals(1, insertedMatches().size());
+        verify(exceptionService, never()).buildException(anyString(), anyString(), any(), any(), any(), any(), anyString());
+        verify(eventPublisher).publishEvent(any(ReconciliationRunCompletedEvent.class));
+    }
+
+    @Test
+    void testRunAIReconciliation_NothingToReconcile() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.emptyList());
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = aiReconciliationService.runAIReconciliation();
+
+        // Assert
+        assertEquals(0, result.getMatchesCreated());
+        assertEquals(0, result.getExceptionsCreated());
+        assertEquals(4, result.getMongoRoundTrips());
+        verify(reconciliationMatchRepository, never()).findByDepositBatchIdInOrDepositBatchIdsIn(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void testSimulate_ProposesWithoutWriting() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+
+        // Act
+        AIReconciliationService.SimulationResult simulation = aiReconciliationService.simulate(null, null, null, true);
+
+        // Assert: same plan as a real run, but no Ollama, ledger or writes
+        assertEquals(2, simulation.getMatchesProposed());
+        assertEquals(4, simulation.getExceptionsProposed());
+        assertEquals(1, simulation.getMatchesByType().get(ProposedMatch.MERCHANT_FEE_MATCH));
+        assertEquals(2, simulation.getExceptionsByType().get("TIMING_DIFFERENCE"));
+        AIReconciliationService.SimulatedMatch feeMatch = simulation.getMatches().get(1);
+        assertEquals(Money.of(14.50), feeMatch.getFeeAmount());
+        assertEquals(Collections.singletonList("batch-2"), feeMatch.getDepositBatchIds());
+        assertEquals(5, simulation.getMongoRoundTrips());
+        assertTrue(simulation.getTotalNanos() >= simulation.getMatchingNanos());
+        verifyNoInteractions(explanationQueue, reconciliationRunRepository, mongoOperations, eventPublisher);
+        verify(reconciliationMatchRepository, never()).save(any(ReconciliationMatch.class));
+    }
+
+    @Test
+    void testSimulate_PipelineOverride() {
+        // Arrange
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+
+        // Act: exact matches only
+        AIReconciliationService.SimulationResult simulation =
+                aiReconciliationService.simulate(null, null, List.of("exact"), false);
+
+        // Assert
+        assertEquals(1, simulation.getMatchesProposed());
+        assertNull(simulation.getMatchesByType().get(ProposedMatch.MERCHANT_FEE_MATCH));
+        assertEquals(List.of("exact"), simulation.getPipeline());
+        assertEquals(1, simulation.getStrategies().size());
+        assertEquals(1, simulation.getStrategies().get(0).getHits());
+    }
+
+    @Test
+    void testSimulate_FeeBandOverride() {
+        // Arrange: the 2.9% fee on batch-2 falls outside a 1.5-2.5% band
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(transactions);
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+
+        // Act
+        AIReconciliationService.SimulationResult simulation =
+                aiReconciliationService.simulate(null, new FeeBand(1.5, 2.5), null, false);
+
+        // Assert
+        assertEquals(2.5, simulation.getMaxFeePercentage());
+        assertEquals(1, simulation.getMatchesProposed());
+        assertNull(simulation.getMatchesByType().get(ProposedMatch.MERCHANT_FEE_MATCH));
+        assertEquals(2, simulation.getExceptionsByType().get("UNMATCHED_TRANSACTION"));
+        assertTrue(simulation.getMatches().isEmpty());
+        assertTrue(simulation.getExceptions().isEmpty());
+    }
+
+    @Test
+    void testApplyMatch_GroupMatchStoresAllMembers() {
+        // Arrange
+        ProposedMatch proposed = ProposedMatch.multiBatch(
+                transaction("txn-1", 155.0), Arrays.asList(batches.get(2), batches.get(3)), 90.0);
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = new AIReconciliationService.ReconciliationResult();
+        aiReconciliationService.applyMatch(proposed, result);
+
+        // Assert
+        List<ReconciliationMatch> inserted = insertedMatches();
+        assertEquals(1, inserted.size());
+        ReconciliationMatch saved = inserted.get(0);
+        assertEquals("batch-3", saved.getDepositBatchId());
+        assertEquals(Arrays.asList("batch-3", "batch-4"), saved.getDepositBatchIds());
+        assertEquals(Collections.singletonList("txn-1"), saved.getBankTransactionIds());
+        assertEquals(ProposedMatch.MULTI_BATCH_MATCH, saved.getMatchType());
+        assertEquals("txn-1|batch-3+batch-4", saved.getNaturalKey());
+        assertEquals(ExplanationQueue.PENDING, saved.getExplanationStatus());
+        assertNull(saved.getAiExplanation());
+        verify(explanationQueue).matchExplanation("txn-1|batch-3+batch-4", 155.0, 155.0, "BATCH-3 + BATCH-4");
+        verifyNoInteractions(exceptionService);
+        assertEquals(1, result.getMatchesCreated());
+    }
+
+    @Test
+    void testApplyMatch_LazyModeStoresTemplateWithoutQueueing() {
+        // Arrange
+        ReflectionTestUtils.setField(aiReconciliationService, "explanationMode", "lazy");
+        ProposedMatch proposed = ProposedMatch.exact(transactions.get(0), batches.get(0));
+
+        // Act
+        aiReconciliationService.applyMatch(proposed, new AIReconciliationService.ReconciliationResult());
+
+        // Assert
+        ReconciliationMatch saved = insertedMatches().get(0);
+        assertEquals(ExplanationQueue.TEMPLATE, saved.getExplanationStatus());
+        assertEquals(MatchExplanationService.template(54.0, 54.0, "BATCH-1"), saved.getAiExplanation());
+        verifyNoInteractions(explanationQueue);
+    }
+
+    @Test
+    void testApplyMatch_DuplicatesFromConcurrentRunAreSkipped() {
+        // Arrange: a concurrent run saved the same match and fee exception first
+        ProposedMatch proposed = ProposedMatch.merchantFee(
+                transactions.get(1), batches.get(1), Money.of(14.50), 2.9);
+        BulkOperationException duplicateMatch = duplicateKeyError();
+        BulkOperationException duplicateException = duplicateKeyError();
+        when(matchBulk.execute()).thenThrow(duplicateMatch);
+        when(exceptionBulk.execute()).thenThrow(duplicateException);
+
+        // Act
+        AIReconciliationService.ReconciliationResult result = new AIReconciliationService.ReconciliationResult();
+        aiReconciliationService.applyMatch(proposed, result);
+
+        // Assert
+        assertEquals(0, result.getMatchesCreated());
+        assertEquals(1, result.getItemsSkipped());
+        assertEquals(0, result.getExceptionsCreated());
+        assertEquals(1, result.getExceptionsSkipped());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReconciliationMatch> insertedMatches() {
+        ArgumentCaptor<List<ReconciliationMatch>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(matchBulk, atLeastOnce()).insert(inserted.capture());
+        return inserted.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Exception> insertedExceptions() {
+        ArgumentCaptor<List<Exception>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(exceptionBulk, atLeastOnce()).insert(inserted.capture());
+        return inserted.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private BulkOperationException duplicateKeyError() {
+        BulkOperationException error = mock(BulkOperationException.class);
+        when(error.getErrors()).thenReturn(Collections.singletonList(
+                new BulkWriteError(11000, "E11000 duplicate key error index: natural_key dup key", new BsonDocument(), 0)));
+        return error;
+    }
+
+    private BankTransactionIdView transactionIdView(String transactionId) {
+        return transactionIdView(transactionId, "batch-1", "SUGGESTED");
+    }
+
+    private BankTransactionIdView transactionIdView(String transactionId, String batchId, String status) {
+        return new BankTransactionIdView() {
+            @Override
+            public String getBankTransactionId() {
+                return transactionId;
+            }
+
+            @Override
+            public List<String> getBankTransactionIds() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getNaturalKey() {
+                return ReconciliationMatch.naturalKey(transactionId, batchId);
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+        };
+    }
+
+    private DepositBatchIdView batchIdView(String batchId) {
+        return batchIdView(batchId, "SUGGESTED");
+    }
+
+    private DepositBatchIdView batchIdView(String batchId, String status) {
+        return new DepositBatchIdView() {
+            @Override
+            public String getDepositBatchId() {
+                return batchId;
+            }
+
+            @Override
+            public List<String> getDepositBatchIds() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+        };
+    }
+}
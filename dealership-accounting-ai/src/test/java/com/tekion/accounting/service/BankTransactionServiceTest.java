@@ -1,6 +1,7 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.repository.BankTransactionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -36,7 +37,7 @@ class BankTransactionServiceTest {
                 .transactionId("BANK-TXN-001")
                 .date(LocalDate.now())
                 .description("Test Deposit")
-                .amount(100.0)
+                .amount(Money.of(100.0))
                 .build();
     }
 
@@ -0,0 +1,162 @@
+package com.tekion.accounting.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.ExceptionRepository;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkReconciliationWriterTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    @Mock
+    private ExceptionRepository exceptionRepository;
+
+    @Mock
+    private BulkOperations matchBulk;
+
+    @Mock
+    private BulkOperations exceptionBulk;
+
+    private BulkReconciliationWriter bulkWriter;
+
+    @BeforeEach
+    void setUp() {
+        bulkWriter = new BulkReconciliationWriter(mongoOperations, exceptionRepository);
+        ReflectionTestUtils.setField(bulkWriter, "batchSize", 3);
+        lenient().when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ReconciliationMatch.class))
+                .thenReturn(matchBulk);
+        lenient().when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Exception.class))
+                .thenReturn(exceptionBulk);
+    }
+
+    @Test
+    void testBuffer_FlushesEveryBatchSizeDocuments() {
+        // Arrange
+        BulkReconciliationWriter.Buffer buffer = bulkWriter.open();
+
+        // Act: seven matches with a batch size of three
+        for (int i = 0; i < 7; i++) {
+            buffer.addMatch(match("txn-" + i));
+        }
+        verify(matchBulk, times(2)).insert(anyList());
+        buffer.flush();
+
+        // Assert
+        verify(matchBulk, times(3)).execute();
+        assertEquals(7, buffer.getMatchesWritten());
+        assertEquals(3, buffer.getRoundTrips());
+        BulkReconciliationWriter.BulkWriteStats stats = bulkWriter.getStats();
+        assertEquals(3, stats.getFlushes());
+        assertEquals(7, stats.getMatchesWritten());
+        assertEquals(3, stats.getLargestFlush());
+        verifyNoInteractions(exceptionBulk);
+    }
+
+    @Test
+    void testBuffer_NumbersExceptionsFromOneReservationPerFlush() {
+        // Arrange
+        when(exceptionRepository.reserveExceptionNumbers(2)).thenReturn(42L);
+        BulkReconciliationWriter.Buffer buffer = bulkWriter.open();
+
+        // Act
+        buffer.addException(exception("txn-1"));
+        buffer.addException(exception("txn-2"));
+        buffer.flush();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Exception>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(exceptionBulk).insert(inserted.capture());
+        assertEquals(Arrays.asList("EXC-042", "EXC-043"),
+                inserted.getValue().stream().map(Exception::getExceptionNumber).toList());
+        verify(exceptionRepository, times(1)).reserveExceptionNumbers(anyInt());
+        verify(exceptionRepository, never()).count();
+        assertEquals(2, buffer.getRoundTrips());
+    }
+
+    @Test
+    void testBuffer_CountsDuplicateKeysAndKeepsGoing() {
+        // Arrange: one of the two matches already exists
+        BulkOperationException error = mock(BulkOperationException.class);
+        when(error.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key error collection: "
+                + "dealership_db.reconciliation_matches index: natural_key dup key: { natural_key: \"txn-2|batch-1\" }",
+                new BsonDocument(), 1)));
+        when(matchBulk.execute()).thenThrow(error);
+        BulkReconciliationWriter.Buffer buffer = bulkWriter.open();
+
+        // Act
+        buffer.addMatch(match("txn-1"));
+        buffer.addMatch(match("txn-2"));
+        buffer.flush();
+
+        // Assert
+        assertEquals(1, buffer.getMatchesWritten());
+        assertEquals(1, buffer.getDuplicateMatches());
+        assertEquals(1, bulkWriter.getStats().getDuplicatesSkipped());
+    }
+
+    @Test
+    void testBuffer_RethrowsOtherWriteErrors() {
+        // Arrange
+        BulkOperationException error = mock(BulkOperationException.class);
+        when(error.getErrors()).thenReturn(List.of(new BulkWriteError(121, "validation failed", new BsonDocument(), 0)));
+        when(matchBulk.execute()).thenThrow(error);
+        BulkReconciliationWriter.Buffer buffer = bulkWriter.open();
+        buffer.addMatch(match("txn-1"));
+
+        // Act & Assert
+        assertThrows(BulkOperationException.class, buffer::flush);
+    }
+
+    @Test
+    void testBuffer_RethrowsDuplicateExceptionNumbers() {
+        // Arrange: the exception is new, only its number is taken
+        when(exceptionRepository.reserveExceptionNumbers(1)).thenReturn(7L);
+        BulkOperationException error = mock(BulkOperationException.class);
+        when(error.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key error collection: "
+                + "dealership_db.exceptions index: exception_number dup key: { exception_number: \"EXC-007\" }",
+                new BsonDocument(), 0)));
+        when(exceptionBulk.execute()).thenThrow(error);
+        BulkReconciliationWriter.Buffer buffer = bulkWriter.open();
+        buffer.addException(exception("txn-1"));
+
+        // Act & Assert
+        assertThrows(BulkOperationException.class, buffer::flush);
+        assertEquals(0, buffer.getDuplicateExceptions());
+    }
+
+    private ReconciliationMatch match(String transactionId) {
+        return ReconciliationMatch.builder()
+                .bankTransactionId(transactionId)
+                .naturalKey(transactionId + "|batch-1")
+                .build();
+    }
+
+    private Exception exception(String transactionId) {
+        return new ExceptionService(exceptionRepository).buildException("UNMATCHED_TRANSACTION", "Unmatched",
+                Money.of(10.0), transactionId, null, "memo", "1200 - Undeposited Funds");
+    }
+}
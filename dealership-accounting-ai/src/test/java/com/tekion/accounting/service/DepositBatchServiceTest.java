@@ -1,6 +1,7 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.Receipt;
 import com.tekion.accounting.repository.DepositBatchRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,14 +41,14 @@ class DepositBatchServiceTest {
         testReceipt1 = Receipt.builder()
                 .id("receipt-1")
                 .receiptNumber("RCT-001")
-                .amount(54.0)
+                .amount(Money.of(54.0))
                 .status("UNBATCHED")
                 .build();
 
         testReceipt2 = Receipt.builder()
                 .id("receipt-2")
                 .receiptNumber("RCT-002")
-                .amount(108.0)
+                .amount(Money.of(108.0))
                 .status("UNBATCHED")
                 .build();
 
@@ -55,7 +56,7 @@ class DepositBatchServiceTest {
                 .id("batch-123")
                 .batchNumber("BATCH-001")
                 .receiptIds(Arrays.asList("receipt-1", "receipt-2"))
-                .total(162.0)
+                .total(Money.of(162.0))
                 .status("OPEN")
                 .reconciled(false)
                 .build();
@@ -81,7 +82,7 @@ class DepositBatchServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("BATCH-001", result.getBatchNumber());
-        assertEquals(162.0, result.getTotal());
+        assertEquals(Money.of(162.0), result.getTotal());
         assertEquals("OPEN", result.getStatus());
         assertFalse(result.getReconciled());
 
@@ -1,6 +1,7 @@
 package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.repository.ExceptionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.util.Arrays;
 import java.util.List;
@@ -35,14 +37,14 @@ class ExceptionServiceTest {
         testException.setExceptionNumber("EXC-001");
         testException.setType("UNMATCHED");
         testException.setDescription("Test exception");
-        testException.setAmount(50.0);
+        testException.setAmount(Money.of(50.0));
         testException.setStatus("OPEN");
     }
 
     @Test
     void testCreateException_Success() {
         // Arrange
-        when(exceptionRepository.count()).thenReturn(0L);
+        when(exceptionRepository.reserveExceptionNumbers(1)).thenReturn(1L);
         when(exceptionRepository.save(any(Exception.class))).thenAnswer(invocation -> {
             Exception exc = invocation.getArgument(0);
             exc.setId("exc-123");
@@ -53,7 +55,7 @@ class ExceptionServiceTest {
         Exception result = exceptionService.createException(
                 "UNMATCHED",
                 "Test exception",
-                50.0,
+                Money.of(50.0),
                 "txn-123",
                 "batch-123",
                 "AI generated memo",
@@ -65,14 +67,29 @@ class ExceptionServiceTest {
         assertEquals("EXC-001", result.getExceptionNumber());
         assertEquals("UNMATCHED", result.getType());
         assertEquals("Test exception", result.getDescription());
-        assertEquals(50.0, result.getAmount());
+        assertEquals(Money.of(50.0), result.getAmount());
         assertEquals("OPEN", result.getStatus());
         assertEquals("DEALER-001", result.getDealershipId());
 
-        verify(exceptionRepository, times(1)).count();
+        verify(exceptionRepository, times(1)).reserveExceptionNumbers(1);
         verify(exceptionRepository, times(1)).save(any(Exception.class));
     }
 
+    @Test
+    void testCreateException_DuplicateReturnsExisting() {
+        // Arrange: an earlier run already raised this exception
+        when(exceptionRepository.reserveExceptionNumbers(1)).thenReturn(2L);
+        when(exceptionRepository.save(any(Exception.class))).thenThrow(new DuplicateKeyException("natural_key"));
+        when(exceptionRepository.findByNaturalKey("UNMATCHED:txn-123")).thenReturn(Optional.of(testException));
+
+        // Act
+        Exception result = exceptionService.createException(
+                "UNMATCHED", "Test exception", Money.of(50.0), "txn-123", null, "memo", "GL-1000");
+
+        // Assert
+        assertSame(testException, result);
+    }
+
     @Test
     void testGetOpenExceptions() {
         // Arrange
@@ -0,0 +1,246 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.ReconciliationMatch;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExplanationQueueTest {
+
+    @Mock
+    private OllamaService ollamaService;
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private ExplanationQueue explanationQueue;
+
+    @BeforeEach
+    void setUp() {
+        explanationQueue = new ExplanationQueue(ollamaService, mongoOperations);
+        ReflectionTestUtils.setField(explanationQueue, "workers", 1);
+        ReflectionTestUtils.setField(explanationQueue, "queueCapacity", 1);
+        explanationQueue.start();
+        lenient().when(ollamaService.isAvailable()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        explanationQueue.shutdown();
+    }
+
+    @Test
+    void testMatchExplanation_PatchesPendingMatchByNaturalKey() {
+        // Arrange
+        when(ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1")).thenReturn(Optional.of("Amounts agree."));
+
+        // Act
+        explanationQueue.matchExplanation("txn-1|batch-1", 54.0, 54.0, "BATCH-1");
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, timeout(2000)).updateFirst(query.capture(), update.capture(),
+                eq(ReconciliationMatch.class));
+        assertEquals("txn-1|batch-1", query.getValue().getQueryObject().get("naturalKey"));
+        // Documents still waiting for model text, including those a sweep re-queued
+        Document status = (Document) query.getValue().getQueryObject().get("explanationStatus");
+        assertEquals(List.of(ExplanationQueue.PENDING, ExplanationQueue.FAILED, ExplanationQueue.FALLBACK),
+                status.get("$in"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("Amounts agree.", set.get("aiExplanation"));
+        assertEquals(ExplanationQueue.COMPLETED, set.get("explanationStatus"));
+        assertEquals(1, explanationQueue.getStats().getSubmitted());
+    }
+
+    @Test
+    void testSubmit_FullQueueMarksDocumentFailed() throws InterruptedException {
+        // Arrange: the only worker is busy and the one queue slot is taken
+        CountDownLatch release = new CountDownLatch(1);
+        when(ollamaService.tryGenerateUnmatchedMemo(10.0, "CREDIT")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of("memo");
+        });
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT");
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-2", 10.0, "CREDIT");
+        waitForQueueDepth(1);
+
+        // Act
+        explanationQueue.timingDifferenceMemo("TIMING_DIFFERENCE:batch-1", "BATCH-1", 75.0);
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), update.capture(), eq(Exception.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(ExplanationQueue.FAILED, set.get("explanationStatus"));
+        assertNull(set.get("aiGeneratedMemo"));
+        verify(ollamaService, never()).tryGenerateTimingDifferenceMemo(anyString(), anyDouble());
+
+        ExplanationQueue.ExplanationQueueStats stats = explanationQueue.getStats();
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(1, stats.getRejected());
+        assertEquals(1, stats.getQueueDepth());
+        release.countDown();
+        verify(mongoOperations, timeout(2000).times(3)).updateFirst(any(Query.class), any(Update.class),
+                eq(Exception.class));
+    }
+
+    @Test
+    void testSubmit_DocumentAlreadyWaitingIsNotQueuedTwice() throws InterruptedException {
+        // Arrange: txn-1 is on the only worker, txn-2 waits in the queue
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ollamaService.tryGenerateUnmatchedMemo(10.0, "CREDIT")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of("memo");
+        });
+        assertTrue(explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        assertTrue(explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-2", 10.0, "CREDIT"));
+
+        // Act: a sweep finds both still PENDING
+        boolean onWorker = explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT");
+        boolean queued = explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-2", 10.0, "CREDIT");
+
+        // Assert: neither is queued again nor rejected (and so not marked FAILED)
+        assertFalse(onWorker);
+        assertFalse(queued);
+        ExplanationQueue.ExplanationQueueStats stats = explanationQueue.getStats();
+        assertEquals(2, stats.getSubmitted());
+        assertEquals(2, stats.getAlreadyWaiting());
+        assertEquals(0, stats.getRejected());
+        release.countDown();
+        verify(mongoOperations, timeout(2000).times(2)).updateFirst(any(Query.class), any(Update.class),
+                eq(Exception.class));
+        // Once generated, the document can be queued again
+        assertTrue(explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT"));
+    }
+
+    @Test
+    void testGenerate_BreakerOpenMarksFailedWithoutCallingOllama() {
+        // Arrange
+        when(ollamaService.isAvailable()).thenReturn(false);
+
+        // Act
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT");
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Exception.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(ExplanationQueue.FAILED, set.get("explanationStatus"));
+        verify(ollamaService, never()).tryGenerateUnmatchedMemo(anyDouble(), anyString());
+    }
+
+    @Test
+    void testGenerate_SloFallbackStoresCannedTextUnderItsOwnStatus() {
+        // Arrange
+        when(ollamaService.isFallingBack()).thenReturn(true);
+        when(ollamaService.fallbackText(any(OllamaService.BatchItem.class))).thenReturn("Deposit in transit.");
+
+        // Act
+        explanationQueue.timingDifferenceMemo("TIMING_DIFFERENCE:batch-1", "BATCH-1", 75.0);
+
+        // Assert: not COMPLETED, so a sweep or an open replaces it with model text later
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Exception.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("Deposit in transit.", set.get("aiGeneratedMemo"));
+        assertEquals(ExplanationQueue.FALLBACK, set.get("explanationStatus"));
+        verify(ollamaService, never()).tryGenerateTimingDifferenceMemo(anyString(), anyDouble());
+        assertEquals(1, explanationQueue.getStats().getFallbacks());
+        assertEquals(0, explanationQueue.getStats().getCompleted());
+    }
+
+    @Test
+    void testGenerate_NoModelTextMarksFailedInsteadOfStoringFallback() {
+        // Arrange: Ollama refused or failed the call
+        when(ollamaService.tryGenerateUnmatchedMemo(10.0, "CREDIT")).thenReturn(Optional.empty());
+
+        // Act
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT");
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Exception.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(ExplanationQueue.FAILED, set.get("explanationStatus"));
+        assertNull(set.get("aiGeneratedMemo"));
+        assertEquals(0, explanationQueue.getStats().getCompleted());
+    }
+
+    @Test
+    void testBatchSize_WaitingDocumentsShareOneOllamaCall() throws InterruptedException {
+        // Arrange: hold the only worker on the first document while two more queue up
+        ReflectionTestUtils.setField(explanationQueue, "batchSize", 8);
+        ReflectionTestUtils.setField(explanationQueue, "queueCapacity", 10);
+        explanationQueue.shutdown();
+        explanationQueue.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ollamaService.tryGenerateUnmatchedMemo(10.0, "CREDIT")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of("memo");
+        });
+        when(ollamaService.generateBatch(anyList())).thenReturn(List.of(Optional.of("memo 2"), Optional.empty()));
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-1", 10.0, "CREDIT");
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        explanationQueue.unmatchedMemo("UNMATCHED_TRANSACTION:txn-2", 20.0, "CREDIT");
+        explanationQueue.timingDifferenceMemo("TIMING_DIFFERENCE:batch-1", "BATCH-1", 75.0);
+        waitForQueueDepth(2);
+
+        // Act
+        release.countDown();
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, timeout(2000).times(3)).updateFirst(any(Query.class), update.capture(),
+                eq(Exception.class));
+        verify(ollamaService, times(1)).generateBatch(anyList());
+        verify(ollamaService, never()).tryGenerateTimingDifferenceMemo(anyString(), anyDouble());
+        Document set = (Document) update.getAllValues().get(1).getUpdateObject().get("$set");
+        assertEquals("memo 2", set.get("aiGeneratedMemo"));
+        // The item the batch got no text for is not stored as COMPLETED
+        set = (Document) update.getAllValues().get(2).getUpdateObject().get("$set");
+        assertEquals(ExplanationQueue.FAILED, set.get("explanationStatus"));
+        assertNull(set.get("aiGeneratedMemo"));
+
+        ExplanationQueue.ExplanationQueueStats stats = explanationQueue.getStats();
+        assertEquals(2, stats.getCompleted());
+        assertEquals(1, stats.getFailed());
+        assertEquals(1, stats.getBatches());
+        assertEquals(2, stats.getBatchedItems());
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        for (int i = 0; i < 200 && explanationQueue.getStats().getQueueDepth() != depth; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.tekion.accounting.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExplanationStreamHubTest {
+
+    private ExplanationStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new ExplanationStreamHub() {
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    void viewersOfTheSameItemShareOneGeneration() {
+        // Arrange
+        AtomicInteger starts = new AtomicInteger();
+        List<Consumer<String>> relays = new ArrayList<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        List<String> stored = new ArrayList<>();
+
+        // Act
+        RecordingEmitter first = (RecordingEmitter) hub.join("match:1", onToken -> {
+            starts.incrementAndGet();
+            relays.add(onToken);
+            return upstream;
+        }, stored::add);
+        relays.get(0).accept("Bank credit ");
+        relays.get(0).accept("equals ");
+        RecordingEmitter second = (RecordingEmitter) hub.join("match:1", onToken -> {
+            starts.incrementAndGet();
+            return new CompletableFuture<>();
+        }, stored::add);
+        relays.get(0).accept("the batch.");
+        upstream.complete("Bank credit equals the batch.");
+
+        // Assert
+        assertEquals(1, starts.get());
+        assertEquals(List.of("token:Bank credit ", "token:equals ", "token:the batch.",
+                "done:Bank credit equals the batch."), first.events);
+        // The late viewer gets the text so far as one token, then the rest live
+        assertEquals(List.of("token:Bank credit equals ", "token:the batch.",
+                "done:Bank credit equals the batch."), second.events);
+        assertEquals(List.of("Bank credit equals the batch."), stored);
+
+        ExplanationStreamHub.ExplanationStreamStats stats = hub.getStats();
+        assertEquals(1, stats.getStarted());
+        assertEquals(1, stats.getShared());
+        assertEquals(1, stats.getCompleted());
+        assertEquals(1, stats.getFirstTokens());
+        assertEquals(0, stats.getActiveGenerations());
+    }
+
+    @Test
+    void rejectsNewItemsBeyondMaxGenerations() {
+        // Arrange
+        ReflectionTestUtils.setField(hub, "maxGenerations", 1);
+        hub.join("match:1", onToken -> new CompletableFuture<>(), text -> { });
+
+        // Act
+        RecordingEmitter rejected = (RecordingEmitter) hub.join("match:2",
+                onToken -> fail("Should not start a generation"), text -> { });
+
+        // Assert
+        assertEquals(List.of("error:busy"), rejected.events);
+        assertEquals(1, hub.getStats().getRejected());
+        assertEquals(1, hub.getStats().getActiveGenerations());
+    }
+
+    @Test
+    void failedGenerationEndsWithErrorAndStoresNothing() {
+        // Arrange
+        List<String> stored = new ArrayList<>();
+        OllamaUnavailableException refused = new OllamaUnavailableException("circuit breaker open");
+
+        // Act
+        RecordingEmitter viewer = (RecordingEmitter) hub.join("exception:1",
+                onToken -> CompletableFuture.failedFuture(refused), stored::add);
+
+        // Assert
+        assertEquals(List.of("error:unavailable"), viewer.events);
+        assertTrue(stored.isEmpty());
+        assertEquals(1, hub.getStats().getFailed());
+    }
+
+    @Test
+    void storedTextIsSentAsSingleDoneEvent() {
+        // Act
+        RecordingEmitter emitter = (RecordingEmitter) hub.done("Stored memo");
+
+        // Assert
+        assertEquals(List.of("done:Stored memo"), emitter.events);
+        assertEquals(1, hub.getStats().getStored());
+        assertEquals(0, hub.getStats().getStarted());
+    }
+
+    /**
+     * Records each event as "name:text" instead of writing to a response
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) {
+            String name = null;
+            String text = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof Map<?, ?> data) {
+                    text = String.valueOf(data.get("text"));
+                } else if (String.valueOf(part.getData()).startsWith("event:")) {
+                    String header = String.valueOf(part.getData());
+                    name = header.substring("event:".length(), header.indexOf('\n'));
+                }
+            }
+            events.add(name + ":" + text);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExplanationSweeperTest {
+
+    @Mock
+    private ExplanationQueue explanationQueue;
+
+    @Mock
+    private OllamaService ollamaService;
+
+    @Mock
+    private MatchExplanationService matchExplanationService;
+
+    @Mock
+    private BankTransactionRepository bankTransactionRepository;
+
+    @Mock
+    private DepositBatchRepository depositBatchRepository;
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private ExplanationSweeper explanationSweeper;
+
+    @BeforeEach
+    void setUp() {
+        explanationSweeper = new ExplanationSweeper(
+                explanationQueue,
+                ollamaService,
+                matchExplanationService,
+                bankTransactionRepository,
+                depositBatchRepository,
+                mongoOperations
+        );
+        lenient().when(ollamaService.isAvailable()).thenReturn(true);
+    }
+
+    @Test
+    void testSweep_RequeuesWaitingMatchesAndExceptionsByNaturalKey() {
+        // Arrange: a match left PENDING by a restart and an exception marked FAILED
+        ReconciliationMatch match = ReconciliationMatch.builder()
+                .id("match-1")
+                .naturalKey("txn-1|batch-1")
+                .explanationStatus(ExplanationQueue.PENDING)
+                .build();
+        Exception exception = Exception.builder()
+                .type("TIMING_DIFFERENCE")
+                .naturalKey("TIMING_DIFFERENCE:batch-2")
+                .depositBatchId("batch-2")
+                .amount(Money.of(75.0))
+                .explanationStatus(ExplanationQueue.FAILED)
+                .build();
+        when(explanationQueue.remainingCapacity()).thenReturn(10);
+        when(mongoOperations.find(any(Query.class), eq(ReconciliationMatch.class))).thenReturn(List.of(match));
+        when(mongoOperations.find(any(Query.class), eq(Exception.class))).thenReturn(List.of(exception));
+        when(matchExplanationService.amounts(match))
+                .thenReturn(new MatchExplanationService.MatchAmounts(54.0, 54.0, "BATCH-1"));
+        when(depositBatchRepository.findById("batch-2")).thenReturn(Optional.of(
+                DepositBatch.builder().id("batch-2").batchNumber("BATCH-2").total(Money.of(75.0)).build()));
+        when(explanationQueue.matchExplanation("txn-1|batch-1", 54.0, 54.0, "BATCH-1")).thenReturn(true);
+        when(explanationQueue.timingDifferenceMemo("TIMING_DIFFERENCE:batch-2", "BATCH-2", 75.0)).thenReturn(true);
+
+        // Act
+        ExplanationSweeper.SweepResult result = explanationSweeper.sweep();
+
+        // Assert
+        assertFalse(result.isSkipped());
+        assertEquals(1, result.getMatches());
+        assertEquals(1, result.getExceptions());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(ReconciliationMatch.class));
+        assertTrue(query.getValue().getQueryObject().toJson().contains(ExplanationQueue.FAILED));
+        assertEquals(1, explanationSweeper.getStats().getSweeps());
+    }
+
+    @Test
+    void testSweep_TakesNoMoreThanTheQueueHasRoomFor() {
+        // Arrange
+        ReconciliationMatch match = ReconciliationMatch.builder()
+                .id("match-1")
+                .naturalKey("txn-1|batch-1")
+                .explanationStatus(ExplanationQueue.PENDING)
+                .build();
+        when(explanationQueue.remainingCapacity()).thenReturn(1);
+        when(mongoOperations.find(any(Query.class), eq(ReconciliationMatch.class))).thenReturn(List.of(match));
+        when(matchExplanationService.amounts(match))
+                .thenReturn(new MatchExplanationService.MatchAmounts(54.0, 54.0, "BATCH-1"));
+
+        // Act
+        explanationSweeper.sweep();
+
+        // Assert: the one free slot went to the match, exceptions wait for the next sweep
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(ReconciliationMatch.class));
+        assertEquals(1, query.getValue().getLimit());
+        verify(mongoOperations, never()).find(any(Query.class), eq(Exception.class));
+    }
+
+    @Test
+    void testSweep_SkippedWhileOllamaUnavailable() {
+        // Arrange
+        when(ollamaService.isAvailable()).thenReturn(false);
+
+        // Act
+        ExplanationSweeper.SweepResult result = explanationSweeper.sweep();
+
+        // Assert: re-queued documents would only be marked FAILED again
+        assertTrue(result.isSkipped());
+        verifyNoInteractions(mongoOperations, explanationQueue);
+    }
+}
@@ -0,0 +1,242 @@
+package com.tekion.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for Ollama's /api/generate, for tests and benchmarks
+ *
+ * Design: A JDK HttpServer on a free loopback port answering like Ollama does, as NDJSON
+ * token lines ("stream": true) or one JSON object ("stream": false); time to first
+ * token is drawn from a log-normal distribution, then tokens follow at a fixed rate
+ * Why: Without Ollama every call gets fallback text, and a real model is too slow and
+ *      too random to measure reconciliation runs against
+ *
+ * Replies are deterministic filler text of tokensPerReply words; a prompt asking for a
+ * "JSON array of N strings" (OllamaService.generateBatch) gets such an array. parallelism
+ * caps requests served at once like OLLAMA_NUM_PARALLEL (0 = unlimited); further
+ * requests wait, as they would on one GPU. errorRate answers that share with HTTP 500.
+ * An options.num_predict in the request caps the reply's tokens.
+ */
+public class FakeOllamaServer implements AutoCloseable {
+
+    private static final Pattern BATCH_SIZE = Pattern.compile("JSON array of (\\d+) strings");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+
+    private volatile Settings settings;
+    private volatile Semaphore slots;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public FakeOllamaServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.slots = settings.getParallelism() > 0 ? new Semaphore(settings.getParallelism(), true) : null;
+        this.random = new Random(settings.getSeed());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", this::handle);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-ollama");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Base URL to configure as ai.ollama.url
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Replace the latency, error and token settings for the following requests
+     */
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+        this.slots = settings.getParallelism() > 0 ? new Semaphore(settings.getParallelism(), true) : null;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        Settings currentSettings = settings;
+        Semaphore held = slots;
+        try {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            if (held != null) {
+                held.acquire();
+            }
+            try {
+                respond(exchange, request, currentSettings);
+            } finally {
+                if (held != null) {
+                    held.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client went away (timeout or cancelled stream)
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, JsonNode request, Settings current) throws IOException,
+            InterruptedException {
+        sleep(firstTokenMillis(current));
+        if (nextDouble() < current.getErrorRate()) {
+            errors.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+
+        // num_predict caps the reply, as it does in Ollama
+        int words = current.getTokensPerReply();
+        if (request.path("options").has("num_predict")) {
+            words = Math.min(words, request.path("options").path("num_predict").asInt(words));
+        }
+        List<String> tokens = replyTokens(request.path("prompt").asText(""), words);
+        long tokenMillis = current.getTokensPerSecond() > 0 ? Math.round(1000.0 / current.getTokensPerSecond()) : 0;
+        boolean stream = request.path("stream").asBoolean(true);
+        exchange.getResponseHeaders().add("Content-Type", stream ? "application/x-ndjson" : "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        if (stream) {
+            for (String token : tokens) {
+                writeLine(body, Map.of("model", request.path("model").asText(), "response", token, "done", false));
+                sleep(tokenMillis);
+            }
+            writeLine(body, Map.of("model", request.path("model").asText(), "response", "", "done", true));
+        } else {
+            sleep(tokenMillis * tokens.size());
+            writeLine(body, Map.of("model", request.path("model").asText(), "response", String.join("", tokens),
+                    "done", true));
+        }
+    }
+
+    /**
+     * Filler words, or a JSON array of filler memos when the prompt asks for one
+     */
+    private List<String> replyTokens(String prompt, int words) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        Matcher batch = BATCH_SIZE.matcher(prompt);
+        if (!batch.find()) {
+            for (int i = 0; i < words; i++) {
+                tokens.add((i == 0 ? "Memo" : " word" + i) + (i == words - 1 ? "." : ""));
+            }
+            return tokens;
+        }
+        int items = Integer.parseInt(batch.group(1));
+        List<String> memos = new ArrayList<>();
+        for (int item = 1; item <= items; item++) {
+            memos.add("Memo " + item + " of " + items + ".");
+        }
+        // About tokensPerReply tokens per memo, so a batch takes as long as its memos would one by one
+        String array = objectMapper.writeValueAsString(memos);
+        int step = Math.max(1, array.length() / (words * items));
+        for (int start = 0; start < array.length(); start += step) {
+            tokens.add(array.substring(start, Math.min(array.length(), start + step)));
+        }
+        return tokens;
+    }
+
+    private long firstTokenMillis(Settings current) {
+        double gaussian;
+        synchronized (random) {
+            gaussian = random.nextGaussian();
+        }
+        return Math.round(current.getFirstTokenMedianMillis() * Math.exp(current.getFirstTokenSigma() * gaussian));
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private void writeLine(OutputStream body, Map<String, Object> line) throws IOException {
+        body.write((objectMapper.writeValueAsString(line) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    }
+
+    /**
+     * Latency, throughput and failure profile of the stand-in
+     */
+    @Data
+    @Builder
+    public static class Settings {
+        // Time to first token: median, and log-normal spread (0 = always the median)
+        @Builder.Default
+        private long firstTokenMedianMillis = 50;
+        @Builder.Default
+        private double firstTokenSigma = 0.0;
+        @Builder.Default
+        private double tokensPerSecond = 200;
+        @Builder.Default
+        private int tokensPerReply = 20;
+        @Builder.Default
+        private double errorRate = 0.0;
+        @Builder.Default
+        private int parallelism = 0;
+        @Builder.Default
+        private long seed = 42;
+    }
+}
@@ -0,0 +1,111 @@
+package com.tekion.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tekion.accounting.repository.PromptCacheRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FakeOllamaServerTest {
+
+    private FakeOllamaServer server;
+    private OllamaClient ollamaClient;
+
+    @BeforeEach
+    void setUp() throws java.lang.Exception {
+        server = new FakeOllamaServer(FakeOllamaServer.Settings.builder()
+                .firstTokenMedianMillis(5)
+                .tokensPerSecond(1000)
+                .tokensPerReply(6)
+                .build());
+        ollamaClient = new OllamaClient();
+        ReflectionTestUtils.setField(ollamaClient, "ollamaBaseUrl", server.getUrl());
+        ReflectionTestUtils.setField(ollamaClient, "httpVersion", HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(ollamaClient, "readTimeoutMillis", 2000);
+        ollamaClient.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testStreaming_TokensArriveAsNdjsonLines() throws java.lang.Exception {
+        // Arrange
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // Act
+        String text = ollamaClient.stream("llama3.2", "Explain the match.", tokens::add).get(2, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(6, tokens.size());
+        assertEquals("Memo word1 word2 word3 word4 word5.", text);
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    void testNonStreaming_OneJsonReply() throws java.lang.Exception {
+        // Arrange
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.getUrl() + "/api/generate"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"model\":\"llama3.2\",\"prompt\":\"Explain.\",\"stream\":false}"))
+                .build();
+
+        // Act
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        JsonNode reply = new ObjectMapper().readTree(response.body());
+        assertEquals(200, response.statusCode());
+        assertEquals("Memo word1 word2 word3 word4 word5.", reply.get("response").asText());
+        assertTrue(reply.get("done").asBoolean());
+    }
+
+    @Test
+    void testErrorRate_FailedCallsReachTheClientAsFailures() {
+        // Arrange
+        server.setSettings(FakeOllamaServer.Settings.builder().firstTokenMedianMillis(0).errorRate(1.0).build());
+
+        // Act
+        Optional<String> text = ollamaClient.generate("llama3.2", "Explain the match.");
+
+        // Assert
+        assertTrue(text.isEmpty());
+        assertEquals(1, server.getErrors());
+        assertEquals(1, ollamaClient.getStats().getFailures());
+    }
+
+    @Test
+    void testBatchPrompt_AnsweredWithJsonArrayThatGenerateBatchParses() {
+        // Arrange
+        OllamaService ollamaService = new OllamaService(new PromptCache(mock(PromptCacheRepository.class)),
+                ollamaClient, new LatencySloController());
+        ReflectionTestUtils.setField(ollamaService, "ollamaModel", "llama3.2");
+
+        // Act
+        List<Optional<String>> memos = ollamaService.generateBatch(List.of(
+                OllamaService.BatchItem.unmatchedMemo(10.0, "CREDIT"),
+                OllamaService.BatchItem.timingDifferenceMemo("BATCH-1", 75.0),
+                OllamaService.BatchItem.matchExplanation(54.0, 54.0, "BATCH-2")));
+
+        // Assert
+        assertEquals(List.of(Optional.of("Memo 1 of 3."), Optional.of("Memo 2 of 3."), Optional.of("Memo 3 of 3.")),
+                memos);
+        assertEquals(1, server.getRequests());
+    }
+}
@@ -0,0 +1,269 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.ReconciliationFixtures;
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.matching.ProposedMatch;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.MatchedPairView;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.tekion.accounting.ReconciliationFixtures.transaction;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IncrementalReconciliationServiceTest {
+
+    @Mock
+    private BankTransactionRepository bankTransactionRepository;
+
+    @Mock
+    private DepositBatchRepository depositBatchRepository;
+
+    @Mock
+    private ReconciliationMatchRepository reconciliationMatchRepository;
+
+    @Mock
+    private AIReconciliationService aiReconciliationService;
+
+    private IncrementalReconciliationService incrementalReconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        incrementalReconciliationService = new IncrementalReconciliationService(
+                bankTransactionRepository,
+                depositBatchRepository,
+                reconciliationMatchRepository,
+                aiReconciliationService,
+                new MatchingEngine(1.5, 3.5)
+        );
+        // No full run in progress unless a test says otherwise
+        lenient().when(aiReconciliationService.whenIdle(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+    }
+
+    @Test
+    void testHandleBatch_DepositedBatchMatchesPendingCredit() {
+        // Arrange: index is built lazily from Mongo on the first event
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001")).thenReturn(Collections.emptyList());
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.singletonList(transaction("txn-1", 485.50)));
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        incrementalReconciliationService.handleBatch(batch("batch-1", 500.0, "DEPOSITED"));
+
+        // Assert
+        ArgumentCaptor<ProposedMatch> match = ArgumentCaptor.forClass(ProposedMatch.class);
+        verify(aiReconciliationService).applyMatch(match.capture(), any());
+        assertEquals("txn-1", match.getValue().getTransaction().getId());
+        assertEquals("batch-1", match.getValue().getBatch().getId());
+        assertTrue(match.getValue().isMerchantFee());
+
+        IncrementalReconciliationService.IncrementalStats stats = incrementalReconciliationService.getStats();
+        assertEquals(1, stats.getEventsProcessed());
+        assertEquals(1, stats.getMatchesCreated());
+        assertEquals(1, stats.getIndexRebuilds());
+        assertEquals(0, stats.getPendingCredits());
+    }
+
+    @Test
+    void testHandleTransaction_NewCreditMatchesOpenBatchOnce() {
+        // Arrange
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001")).thenReturn(Collections.emptyList());
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.emptyList());
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.singletonList(batch("batch-1", 54.0, "DEPOSITED")));
+
+        // Act: second credit with the same amount must not reuse the batch
+        incrementalReconciliationService.handleTransaction(transaction("txn-1", 54.0));
+        incrementalReconciliationService.handleTransaction(transaction("txn-2", 54.0));
+
+        // Assert
+        verify(aiReconciliationService, times(1)).applyMatch(any(), any());
+        IncrementalReconciliationService.IncrementalStats stats = incrementalReconciliationService.getStats();
+        assertEquals(2, stats.getEventsProcessed());
+        assertEquals(1, stats.getPendingCredits());
+        assertEquals(0, stats.getOpenBatches());
+        verify(bankTransactionRepository, times(1))
+                .findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT");
+    }
+
+    @Test
+    void testHandleTransaction_SkipsItemsAlreadyMatched() {
+        // Arrange: batch-1 already has a suggested match from an earlier run
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001"))
+                .thenReturn(Collections.singletonList(pair("txn-0", "batch-1")));
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.emptyList());
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Arrays.asList(batch("batch-1", 54.0, "DEPOSITED")));
+
+        // Act
+        incrementalReconciliationService.handleTransaction(transaction("txn-1", 54.0));
+
+        // Assert
+        verify(aiReconciliationService, never()).applyMatch(any(), any());
+        assertEquals(1, incrementalReconciliationService.getStats().getPendingCredits());
+    }
+
+    @Test
+    void testHandleBatch_DepositingASuggestedBatchDoesNotMatchItAgain() {
+        // Arrange: a full run suggested txn-0 for the open batch-1; txn-2 is another pending credit
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001"))
+                .thenReturn(Collections.singletonList(pair("txn-0", "batch-1")));
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Arrays.asList(transaction("txn-0", 500.0), transaction("txn-2", 485.50)));
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.emptyList());
+
+        // Act: markBatchAsDeposited saves the batch, then the suggested credit is saved again
+        incrementalReconciliationService.handleBatch(batch("batch-1", 500.0, "DEPOSITED"));
+        incrementalReconciliationService.handleTransaction(transaction("txn-0", 500.0));
+
+        // Assert
+        verify(aiReconciliationService, never()).applyMatch(any(), any());
+        IncrementalReconciliationService.IncrementalStats stats = incrementalReconciliationService.getStats();
+        assertEquals(2, stats.getEventsProcessed());
+        assertEquals(1, stats.getPendingCredits());
+        assertEquals(0, stats.getOpenBatches());
+    }
+
+    @Test
+    void testHandleTransaction_DroppedWhileAFullRunIsInProgressThenIndexRebuilt() {
+        // Arrange
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001")).thenReturn(Collections.emptyList());
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.emptyList());
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.emptyList());
+        incrementalReconciliationService.handleTransaction(transaction("txn-1", 54.0));
+        doReturn(false).when(aiReconciliationService).whenIdle(any());
+
+        // Act: one event during the run, one after it finished
+        incrementalReconciliationService.handleTransaction(transaction("txn-2", 54.0));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        }).when(aiReconciliationService).whenIdle(any());
+        when(aiReconciliationService.getRunsFinished()).thenReturn(1L);
+        incrementalReconciliationService.handleTransaction(transaction("txn-3", 54.0));
+
+        // Assert
+        IncrementalReconciliationService.IncrementalStats stats = incrementalReconciliationService.getStats();
+        assertEquals(1, stats.getEventsDropped());
+        assertEquals(2, stats.getEventsProcessed());
+        assertEquals(2, stats.getIndexRebuilds());
+        verify(aiReconciliationService, never()).applyMatch(any(), any());
+    }
+
+    @Test
+    void testHandleRunCompleted_ReplaysEventsDroppedDuringTheRun() {
+        // Arrange: batch-1 is deposited after the run loaded its items, so the run left it open
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001")).thenReturn(Collections.emptyList());
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.singletonList(transaction("txn-1", 485.50)));
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.singletonList(batch("batch-1", 500.0, "DEPOSITED")));
+        when(depositBatchRepository.findAllById(List.of("batch-1")))
+                .thenReturn(List.of(batch("batch-1", 500.0, "DEPOSITED")));
+        doReturn(false).when(aiReconciliationService).whenIdle(any());
+        incrementalReconciliationService.handleBatch(batch("batch-1", 500.0, "DEPOSITED"));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        }).when(aiReconciliationService).whenIdle(any());
+        when(aiReconciliationService.getRunsFinished()).thenReturn(1L);
+
+        // Act
+        incrementalReconciliationService.handleRunCompleted();
+        incrementalReconciliationService.handleRunCompleted();
+
+        // Assert: matched once, against the index rebuilt after the run
+        ArgumentCaptor<ProposedMatch> match = ArgumentCaptor.forClass(ProposedMatch.class);
+        verify(aiReconciliationService, times(1)).applyMatch(match.capture(), any());
+        assertEquals("txn-1", match.getValue().getTransaction().getId());
+        assertEquals("batch-1", match.getValue().getBatch().getId());
+        IncrementalReconciliationService.IncrementalStats stats = incrementalReconciliationService.getStats();
+        assertEquals(1, stats.getEventsDropped());
+        assertEquals(1, stats.getEventsReplayed());
+        assertEquals(1, stats.getMatchesCreated());
+        assertEquals(0, stats.getOpenBatches());
+    }
+
+    @Test
+    void testHandleTransaction_IgnoresDebitsAndMatchedTransactions() {
+        // Arrange
+        when(reconciliationMatchRepository.findPairsByDealershipId("DEALER-001")).thenReturn(Collections.emptyList());
+        when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                .thenReturn(Collections.emptyList());
+        when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false))
+                .thenReturn(Collections.singletonList(batch("batch-1", 25.0, "DEPOSITED")));
+
+        BankTransaction debit = transaction("txn-1", -25.0);
+        debit.setType("DEBIT");
+        BankTransaction matched = transaction("txn-2", 25.0);
+        matched.setStatus("MATCHED");
+
+        // Act
+        incrementalReconciliationService.handleTransaction(debit);
+        incrementalReconciliationService.handleTransaction(matched);
+
+        // Assert
+        verify(aiReconciliationService, never()).applyMatch(any(), any());
+        assertEquals(0, incrementalReconciliationService.getStats().getPendingCredits());
+    }
+
+    private DepositBatch batch(String id, double total, String status) {
+        DepositBatch batch = ReconciliationFixtures.batch(id, total);
+        batch.setStatus(status);
+        return batch;
+    }
+
+    private MatchedPairView pair(String transactionId, String batchId) {
+        return new MatchedPairView() {
+            @Override
+            public String getBankTransactionId() {
+                return transactionId;
+            }
+
+            @Override
+            public String getDepositBatchId() {
+                return batchId;
+            }
+
+            @Override
+            public List<String> getBankTransactionIds() {
+                return null;
+            }
+
+            @Override
+            public List<String> getDepositBatchIds() {
+                return null;
+            }
+
+            @Override
+            public String getStatus() {
+                return "SUGGESTED";
+            }
+        };
+    }
+}
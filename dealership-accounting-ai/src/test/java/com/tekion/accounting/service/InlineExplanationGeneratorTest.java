@@ -0,0 +1,101 @@
+package com.tekion.accounting.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InlineExplanationGeneratorTest {
+
+    @Mock
+    private OllamaService ollamaService;
+
+    private InlineExplanationGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new InlineExplanationGenerator(ollamaService);
+        ReflectionTestUtils.setField(generator, "parallelism", 3);
+        generator.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    @Test
+    void testGenerations_RunSideBySideUpToParallelism() {
+        // Arrange: each generation only returns once all three are in flight
+        CountDownLatch inFlight = new CountDownLatch(3);
+        when(ollamaService.tryGenerateUnmatchedMemo(anyDouble(), anyString())).thenAnswer(invocation -> {
+            inFlight.countDown();
+            if (!inFlight.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("generations ran one after another");
+            }
+            return Optional.of("Unmatched " + invocation.getArgument(1) + " memo.");
+        });
+
+        // Act
+        List<CompletableFuture<String>> texts = List.of(
+                generator.unmatchedMemo(10.0, "CREDIT"),
+                generator.unmatchedMemo(20.0, "CREDIT"),
+                generator.unmatchedMemo(30.0, "CREDIT"));
+
+        // Assert
+        for (CompletableFuture<String> text : texts) {
+            assertEquals(Optional.of("Unmatched CREDIT memo."), generator.await(text));
+        }
+        InlineExplanationGenerator.InlineExplanationStats stats = generator.getStats();
+        assertEquals(3, stats.getParallelism());
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(3, stats.getCompleted());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    void testAwait_FailedGenerationIsEmpty() {
+        // Arrange
+        when(ollamaService.tryGenerateTimingDifferenceMemo(anyString(), anyDouble()))
+                .thenThrow(new IllegalStateException("Ollama returned no text"));
+
+        // Act
+        Optional<String> text = generator.await(generator.timingDifferenceMemo("BATCH-1", 75.0));
+
+        // Assert
+        assertTrue(text.isEmpty());
+        assertEquals(1, generator.getStats().getFailed());
+        assertEquals(0, generator.getStats().getCompleted());
+    }
+
+    @Test
+    void testAwait_NoModelTextIsEmptyRatherThanFallback() {
+        // Arrange: Ollama refused or failed the call
+        when(ollamaService.tryGenerateMerchantFeeMemo(anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(Optional.empty());
+
+        // Act
+        Optional<String> text = generator.await(generator.merchantFeeMemo(100.0, 98.5, 1.5, 1.5));
+
+        // Assert: the run then leaves the document to ExplanationQueue
+        assertTrue(text.isEmpty());
+        assertEquals(1, generator.getStats().getFailed());
+        assertEquals(0, generator.getStats().getCompleted());
+    }
+}
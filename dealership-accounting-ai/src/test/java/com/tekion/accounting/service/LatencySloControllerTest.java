@@ -0,0 +1,125 @@
+package com.tekion.accounting.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencySloControllerTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    private LatencySloController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new LatencySloController();
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "p95Millis", 1000L);
+        ReflectionTestUtils.setField(controller, "minSamples", 5);
+        ReflectionTestUtils.setField(controller, "holdSeconds", 60L);
+        ReflectionTestUtils.setField(controller, "fallbackSeconds", 30L);
+        at(NOW);
+    }
+
+    @Test
+    void testRecord_SlowGenerationsStepDownOneModeAtATime() {
+        // Arrange
+        ReflectionTestUtils.setField(controller, "smallModel", "llama3.2:1b");
+
+        // Act: four slow calls are not enough to judge, the fifth is
+        record(LatencySloController.Mode.FULL, 4, 3000);
+        LatencySloController.Mode beforeJudging = controller.currentMode();
+        record(LatencySloController.Mode.FULL, 1, 3000);
+        LatencySloController.Mode reduced = controller.currentMode();
+        record(LatencySloController.Mode.REDUCED, 5, 3000);
+
+        // Assert
+        assertEquals(LatencySloController.Mode.FULL, beforeJudging);
+        assertEquals(LatencySloController.Mode.REDUCED, reduced);
+        assertEquals(LatencySloController.Mode.SMALL_MODEL, controller.currentMode());
+        assertEquals(Map.of("num_predict", 128, "num_ctx", 1024), controller.options(LatencySloController.Mode.REDUCED));
+        assertEquals("llama3.2:1b", controller.model(LatencySloController.Mode.SMALL_MODEL, "llama3.2"));
+        assertEquals("llama3.2", controller.model(LatencySloController.Mode.REDUCED, "llama3.2"));
+
+        LatencySloController.SloStats stats = controller.getStats();
+        assertEquals(2, stats.getDegradations());
+        List<LatencySloController.ModeSwitch> switches = stats.getRecentSwitches();
+        assertEquals(LatencySloController.Mode.REDUCED, switches.get(0).getFrom());
+        assertEquals(LatencySloController.Mode.SMALL_MODEL, switches.get(0).getTo());
+        assertTrue(switches.get(0).getReason().contains("p95 3000 ms"));
+        // The histogram restarts with each mode
+        assertEquals(0, stats.getSamples());
+    }
+
+    @Test
+    void testCurrentMode_FallbackProbesTheModeAboveAfterFallbackSeconds() {
+        // Arrange: no small model, so REDUCED steps straight down to FALLBACK
+        record(LatencySloController.Mode.FULL, 5, 3000);
+        record(LatencySloController.Mode.REDUCED, 5, 3000);
+        LatencySloController.Mode fallback = controller.currentMode();
+
+        // Act
+        at(NOW.plusSeconds(29));
+        LatencySloController.Mode stillFallback = controller.currentMode();
+        at(NOW.plusSeconds(30));
+        LatencySloController.Mode probe = controller.currentMode();
+
+        // Assert
+        assertEquals(LatencySloController.Mode.FALLBACK, fallback);
+        assertEquals(LatencySloController.Mode.FALLBACK, stillFallback);
+        assertEquals(LatencySloController.Mode.REDUCED, probe);
+        assertEquals(1, controller.getStats().getRecoveries());
+    }
+
+    @Test
+    void testRecord_RecoversOnlyAfterHoldAndUnderRecoverRatio() {
+        // Arrange
+        record(LatencySloController.Mode.FULL, 5, 3000);
+
+        // Act: fast, but within the hold time; then fast after it; stale FULL samples are ignored
+        record(LatencySloController.Mode.REDUCED, 5, 200);
+        LatencySloController.Mode held = controller.currentMode();
+        at(NOW.plusSeconds(60));
+        record(LatencySloController.Mode.FULL, 5, 100);
+        LatencySloController.Mode ignored = controller.currentMode();
+        record(LatencySloController.Mode.REDUCED, 1, 200);
+
+        // Assert
+        assertEquals(LatencySloController.Mode.REDUCED, held);
+        assertEquals(LatencySloController.Mode.REDUCED, ignored);
+        assertEquals(LatencySloController.Mode.FULL, controller.currentMode());
+        assertEquals(1, controller.getStats().getRecoveries());
+    }
+
+    @Test
+    void testDisabled_AlwaysFull() {
+        // Arrange
+        ReflectionTestUtils.setField(controller, "enabled", false);
+
+        // Act
+        record(LatencySloController.Mode.FULL, 10, 30000);
+
+        // Assert
+        assertEquals(LatencySloController.Mode.FULL, controller.currentMode());
+        assertTrue(controller.options(LatencySloController.Mode.FULL).isEmpty());
+        assertEquals(0, controller.getStats().getDegradations());
+    }
+
+    private void record(LatencySloController.Mode mode, int times, long millis) {
+        for (int i = 0; i < times; i++) {
+            controller.record(mode, millis * 1_000_000);
+        }
+    }
+
+    private void at(Instant instant) {
+        ReflectionTestUtils.setField(controller, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
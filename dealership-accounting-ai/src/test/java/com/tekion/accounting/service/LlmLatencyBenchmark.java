@@ -0,0 +1,214 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Exception;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.model.ReconciliationRun;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.ExceptionRepository;
+import com.tekion.accounting.repository.PromptCacheRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import com.tekion.accounting.repository.ReconciliationRunRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reconciliation run time against a stand-in Ollama at different model latencies
+ *
+ * Not picked up by surefire (no *Test suffix). Needs the test classpath:
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *       com.tekion.accounting.service.LlmLatencyBenchmark [credits] [runs]
+ *
+ * Runs the real AIReconciliationService, ExplanationQueue, OllamaService and
+ * OllamaClient against FakeOllamaServer (four parallel slots, like one GPU box), with
+ * Mongo mocked out. A run is timed until its last explanation or memo is patched in
+ * (queued mode, per batch size) or written with its document (inline mode). The
+ * prompt cache is off so every run pays the model. Prints p50/p95/max per model
+ * latency, concurrency (workers or inline parallelism = ai.ollama.max-concurrent)
+ * and explanation mode.
+ */
+public class LlmLatencyBenchmark {
+
+    private static final long[] FIRST_TOKEN_MEDIANS_MS = {50, 250, 1000};
+    private static final int[] CONCURRENCY = {1, 4, 8};
+    private static final int[] BATCH_SIZES = {1, 8};
+    private static final String QUEUED = "queued";
+    private static final String INLINE = "inline";
+    private static final int SERVER_PARALLELISM = 4;
+
+    public static void main(String[] args) throws java.lang.Exception {
+        int credits = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.printf("%d credits per run (exact, merchant fee, unmatched) plus timing differences, %d runs%n",
+                credits, runs);
+        System.out.printf("%-14s %-12s %-8s %10s %10s %10s %10s%n",
+                "first token", "concurrency", "mode", "p50 (ms)", "p95 (ms)", "max (ms)", "calls/run");
+        try (FakeOllamaServer server = new FakeOllamaServer(FakeOllamaServer.Settings.builder().build())) {
+            for (long median : FIRST_TOKEN_MEDIANS_MS) {
+                server.setSettings(FakeOllamaServer.Settings.builder()
+                        .firstTokenMedianMillis(median)
+                        .firstTokenSigma(0.3)
+                        .tokensPerSecond(100)
+                        .tokensPerReply(20)
+                        .parallelism(SERVER_PARALLELISM)
+                        .build());
+                for (int concurrency : CONCURRENCY) {
+                    for (int batchSize : BATCH_SIZES) {
+                        report(server, median, concurrency, QUEUED + "/" + batchSize,
+                                () -> measure(server.getUrl(), credits, runs, concurrency, QUEUED, batchSize), runs);
+                    }
+                    report(server, median, concurrency, INLINE,
+                            () -> measure(server.getUrl(), credits, runs, concurrency, INLINE, 1), runs);
+                }
+            }
+        }
+    }
+
+    private static void report(FakeOllamaServer server, long median, int concurrency, String mode,
+                               Supplier<long[]> measurement, int runs) {
+        long requestsBefore = server.getRequests();
+        long[] millis = measurement.get();
+        Arrays.sort(millis);
+        System.out.printf("%-14s %-12d %-8s %10d %10d %10d %10.1f%n", median + " ms", concurrency, mode,
+                percentile(millis, 50), percentile(millis, 95), millis[millis.length - 1],
+                (double) (server.getRequests() - requestsBefore) / runs);
+    }
+
+    private static long[] measure(String url, int credits, int runs, int concurrency, String mode, int batchSize) {
+        OllamaClient ollamaClient = new OllamaClient();
+        ReflectionTestUtils.setField(ollamaClient, "ollamaBaseUrl", url);
+        ReflectionTestUtils.setField(ollamaClient, "httpVersion", HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(ollamaClient, "maxConcurrent", concurrency);
+        ReflectionTestUtils.setField(ollamaClient, "bulkheadWaitMillis", 60_000L);
+        ReflectionTestUtils.setField(ollamaClient, "readTimeoutMillis", 60_000);
+        ollamaClient.start();
+
+        PromptCache promptCache = new PromptCache(mock(PromptCacheRepository.class));
+        ReflectionTestUtils.setField(promptCache, "enabled", false);
+        OllamaService ollamaService = new OllamaService(promptCache, ollamaClient, new LatencySloController());
+        ReflectionTestUtils.setField(ollamaService, "ollamaModel", "llama3.2");
+
+        MongoOperations mongoOperations = mock(MongoOperations.class);
+        when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ReconciliationMatch.class))
+                .thenReturn(mock(BulkOperations.class));
+        when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Exception.class))
+                .thenReturn(mock(BulkOperations.class));
+        ExplanationQueue explanationQueue = new ExplanationQueue(ollamaService, mongoOperations);
+        ReflectionTestUtils.setField(explanationQueue, "workers", concurrency);
+        ReflectionTestUtils.setField(explanationQueue, "batchSize", batchSize);
+        explanationQueue.start();
+        InlineExplanationGenerator inlineGenerator = new InlineExplanationGenerator(ollamaService);
+        ReflectionTestUtils.setField(inlineGenerator, "parallelism", concurrency);
+        inlineGenerator.start();
+
+        BankTransactionRepository bankTransactionRepository = mock(BankTransactionRepository.class);
+        DepositBatchRepository depositBatchRepository = mock(DepositBatchRepository.class);
+        ReconciliationRunRepository reconciliationRunRepository = mock(ReconciliationRunRepository.class);
+        ExceptionRepository exceptionRepository = mock(ExceptionRepository.class);
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).then(returnsFirstArg());
+        AIReconciliationService service = new AIReconciliationService(
+                bankTransactionRepository,
+                depositBatchRepository,
+                mock(ReconciliationMatchRepository.class),
+                explanationQueue,
+                new ExceptionService(exceptionRepository),
+                new MatchingEngine(1.5, 3.5),
+                mock(ApplicationEventPublisher.class),
+                reconciliationRunRepository,
+                new BulkReconciliationWriter(mongoOperations, exceptionRepository),
+                inlineGenerator);
+        ReflectionTestUtils.setField(service, "explanationMode", mode);
+
+        long[] millis = new long[runs];
+        try {
+            for (int run = 0; run < runs; run++) {
+                List<BankTransaction> transactions = new ArrayList<>();
+                List<DepositBatch> batches = new ArrayList<>();
+                generate(run, credits, transactions, batches);
+                when(bankTransactionRepository.findByDealershipIdAndStatusAndType("DEALER-001", "UNMATCHED", "CREDIT"))
+                        .thenReturn(transactions);
+                when(depositBatchRepository.findByDealershipIdAndReconciled("DEALER-001", false)).thenReturn(batches);
+
+                long submittedBefore = explanationQueue.getStats().getSubmitted();
+                long doneBefore = done(explanationQueue);
+                long start = System.nanoTime();
+                service.runAIReconciliation();
+                long expected = explanationQueue.getStats().getSubmitted() - submittedBefore;
+                while (done(explanationQueue) - doneBefore < expected) {
+                    Thread.sleep(2);
+                }
+                millis[run] = (System.nanoTime() - start) / 1_000_000;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            explanationQueue.shutdown();
+            inlineGenerator.shutdown();
+        }
+        return millis;
+    }
+
+    /**
+     * Three in five credits match exactly, one carries a 2.9% fee, one has no batch;
+     * every fifth credit also leaves a batch behind as a timing difference
+     */
+    private static void generate(int run, int credits, List<BankTransaction> transactions,
+                                 List<DepositBatch> batches) {
+        for (int i = 0; i < credits; i++) {
+            // Distinct amounts per run and item, so no two prompts are the same
+            long cents = 10_000 + run * 100_000L + i * 137L;
+            String id = run + "-" + i;
+            switch (i % 5) {
+                case 0, 1, 2 -> {
+                    transactions.add(transaction("txn-" + id, Money.ofCents(cents)));
+                    batches.add(batch("batch-" + id, Money.ofCents(cents)));
+                }
+                case 3 -> {
+                    transactions.add(transaction("txn-" + id, Money.ofCents(cents).multiply(0.971)));
+                    batches.add(batch("batch-" + id, Money.ofCents(cents)));
+                }
+                default -> {
+                    transactions.add(transaction("txn-" + id, Money.ofCents(cents + 7)));
+                    batches.add(batch("batch-" + id + "-transit", Money.ofCents(cents * 3 + 11)));
+                }
+            }
+        }
+    }
+
+    private static long done(ExplanationQueue explanationQueue) {
+        ExplanationQueue.ExplanationQueueStats stats = explanationQueue.getStats();
+        return stats.getCompleted() + stats.getFailed() + stats.getRejected();
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static BankTransaction transaction(String id, Money amount) {
+        return BankTransaction.builder().id(id).amount(amount).type("CREDIT").status("UNMATCHED").build();
+    }
+
+    private static DepositBatch batch(String id, Money total) {
+        return DepositBatch.builder().id(id).batchNumber(id.toUpperCase()).total(total).reconciled(false).build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatchExplanationServiceTest {
+
+    @Mock
+    private ReconciliationMatchRepository reconciliationMatchRepository;
+
+    @Mock
+    private BankTransactionRepository bankTransactionRepository;
+
+    @Mock
+    private DepositBatchRepository depositBatchRepository;
+
+    @Mock
+    private OllamaService ollamaService;
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private MatchExplanationService matchExplanationService;
+
+    @BeforeEach
+    void setUp() {
+        matchExplanationService = new MatchExplanationService(
+                reconciliationMatchRepository,
+                bankTransactionRepository,
+                depositBatchRepository,
+                ollamaService,
+                mongoOperations
+        );
+    }
+
+    @Test
+    void testExplain_GeneratesAndStoresOnFirstOpen() {
+        // Arrange: a two-batch match written with the template text
+        ReconciliationMatch match = ReconciliationMatch.builder()
+                .id("match-1")
+                .bankTransactionId("txn-1")
+                .depositBatchId("batch-2")
+                .bankTransactionIds(List.of("txn-1"))
+                .depositBatchIds(List.of("batch-2", "batch-1"))
+                .aiExplanation(MatchExplanationService.template(155.0, 155.0, "BATCH-2 + BATCH-1"))
+                .explanationStatus(ExplanationQueue.TEMPLATE)
+                .build();
+        when(reconciliationMatchRepository.findById("match-1")).thenReturn(Optional.of(match));
+        when(bankTransactionRepository.findAllById(List.of("txn-1"))).thenReturn(List.of(
+                BankTransaction.builder().id("txn-1").amount(Money.of(155.0)).build()));
+        when(depositBatchRepository.findAllById(List.of("batch-2", "batch-1"))).thenReturn(Arrays.asList(
+                DepositBatch.builder().id("batch-1").batchNumber("BATCH-1").total(Money.of(75.0)).build(),
+                DepositBatch.builder().id("batch-2").batchNumber("BATCH-2").total(Money.of(80.0)).build()));
+        when(ollamaService.isAvailable()).thenReturn(true);
+        when(ollamaService.tryGenerateMatchExplanation(155.0, 155.0, "BATCH-2 + BATCH-1"))
+                .thenReturn(Optional.of("LLM text"));
+
+        // Act
+        Optional<ReconciliationMatch> explained = matchExplanationService.explain("match-1");
+
+        // Assert
+        assertEquals("LLM text", explained.get().getAiExplanation());
+        assertEquals(ExplanationQueue.COMPLETED, explained.get().getExplanationStatus());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), update.capture(), eq(ReconciliationMatch.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("LLM text", set.get("aiExplanation"));
+        assertEquals(1, matchExplanationService.getGeneratedCount());
+    }
+
+    @Test
+    void testExplain_NoModelTextKeepsTheTemplate() {
+        // Arrange: Ollama is up but the call itself fails
+        String template = MatchExplanationService.template(54.0, 54.0, "BATCH-1");
+        ReconciliationMatch match = ReconciliationMatch.builder()
+                .id("match-1")
+                .bankTransactionId("txn-1")
+                .depositBatchId("batch-1")
+                .aiExplanation(template)
+                .explanationStatus(ExplanationQueue.TEMPLATE)
+                .build();
+        when(reconciliationMatchRepository.findById("match-1")).thenReturn(Optional.of(match));
+        when(bankTransactionRepository.findAllById(List.of("txn-1"))).thenReturn(List.of(
+                BankTransaction.builder().id("txn-1").amount(Money.of(54.0)).build()));
+        when(depositBatchRepository.findAllById(List.of("batch-1"))).thenReturn(List.of(
+                DepositBatch.builder().id("batch-1").batchNumber("BATCH-1").total(Money.of(54.0)).build()));
+        when(ollamaService.isAvailable()).thenReturn(true);
+        when(ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1")).thenReturn(Optional.empty());
+
+        // Act
+        Optional<ReconciliationMatch> explained = matchExplanationService.explain("match-1");
+
+        // Assert: nothing is stored, so the next open tries again
+        assertEquals(template, explained.get().getAiExplanation());
+        assertEquals(ExplanationQueue.TEMPLATE, explained.get().getExplanationStatus());
+        verifyNoInteractions(mongoOperations);
+        assertEquals(0, matchExplanationService.getGeneratedCount());
+    }
+
+    @Test
+    void testExplain_StoredModelTextIsReturnedWithoutCallingOllama() {
+        // Arrange
+        ReconciliationMatch match = ReconciliationMatch.builder()
+                .id("match-1")
+                .aiExplanation("LLM text")
+                .explanationStatus(ExplanationQueue.COMPLETED)
+                .build();
+        when(reconciliationMatchRepository.findById("match-1")).thenReturn(Optional.of(match));
+        when(reconciliationMatchRepository.findById("missing")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertEquals("LLM text", matchExplanationService.explain("match-1").get().getAiExplanation());
+        assertTrue(matchExplanationService.explain("missing").isEmpty());
+        verifyNoInteractions(ollamaService, mongoOperations);
+    }
+
+    @Test
+    void testTemplate_ExactAndMerchantFee() {
+        assertEquals("Bank credit of $54.00 equals the $54.00 total of deposit batch BATCH-1, "
+                + "so the deposit cleared in full.", MatchExplanationService.template(54.0, 54.0, "BATCH-1"));
+        assertEquals("Bank credit of $485.50 is deposit batch BATCH-2 ($500.00) less $14.50 (2.90%), "
+                        + "consistent with a card processor's merchant fee.",
+                MatchExplanationService.template(485.50, 500.0, "BATCH-2"));
+    }
+}
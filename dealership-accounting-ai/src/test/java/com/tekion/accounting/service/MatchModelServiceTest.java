@@ -0,0 +1,137 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.matching.MatchingEngine;
+import com.tekion.accounting.model.BankTransaction;
+import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.MatchModel;
+import com.tekion.accounting.model.ReconciliationMatch;
+import com.tekion.accounting.repository.BankTransactionRepository;
+import com.tekion.accounting.repository.DepositBatchRepository;
+import com.tekion.accounting.repository.MatchModelRepository;
+import com.tekion.accounting.repository.ReconciliationMatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.tekion.accounting.ReconciliationFixtures.batch;
+import static com.tekion.accounting.ReconciliationFixtures.transaction;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatchModelServiceTest {
+
+    @Mock
+    private ReconciliationMatchRepository reconciliationMatchRepository;
+
+    @Mock
+    private BankTransactionRepository bankTransactionRepository;
+
+    @Mock
+    private DepositBatchRepository depositBatchRepository;
+
+    @Mock
+    private MatchModelRepository matchModelRepository;
+
+    private MatchingEngine matchingEngine;
+
+    private MatchModelService matchModelService;
+
+    @BeforeEach
+    void setUp() {
+        matchingEngine = new MatchingEngine(1.5, 3.5);
+        matchModelService = new MatchModelService(
+                reconciliationMatchRepository,
+                bankTransactionRepository,
+                depositBatchRepository,
+                matchModelRepository,
+                matchingEngine
+        );
+    }
+
+    @Test
+    void testTrain_SavesAndInstallsModel() {
+        // Arrange: twelve confirmed exact matches and two rejected fee-band guesses
+        List<ReconciliationMatch> matches = new ArrayList<>();
+        List<BankTransaction> transactions = new ArrayList<>();
+        List<DepositBatch> batches = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            boolean confirmed = i < 12;
+            double total = 100.0 + 25 * i;
+            transactions.add(transaction("txn-" + i, confirmed ? total : total * 0.97));
+            batches.add(batch("batch-" + i, total));
+            matches.add(match("txn-" + i, "batch-" + i, confirmed ? "CONFIRMED" : "REJECTED"));
+        }
+        when(reconciliationMatchRepository.findByDealershipIdAndStatusIn(eq("DEALER-001"), anyCollection()))
+                .thenReturn(matches);
+        when(bankTransactionRepository.findAllById(anyIterable())).thenReturn(transactions);
+        when(depositBatchRepository.findAllById(anyIterable())).thenReturn(batches);
+        when(matchModelRepository.save(any(MatchModel.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        MatchModel model = matchModelService.train();
+
+        // Assert: 12 confirmed, 2 rejected and 11 mismatched negatives
+        assertEquals(25, model.getExamples());
+        assertEquals(12, model.getPositives());
+        assertEquals(13, model.getNegatives());
+        assertEquals(model.getFeatureNames().size(), model.getWeights().size());
+        assertTrue(model.getTrainingAccuracy() >= 0.9);
+        assertNotNull(matchingEngine.getMatchScorer());
+        assertEquals(model.getBias(), matchingEngine.getMatchScorer().getBias());
+    }
+
+    @Test
+    void testTrain_NotEnoughReviewedMatches() {
+        // Arrange
+        List<ReconciliationMatch> matches = List.of(match("txn-1", "batch-1", "CONFIRMED"));
+        when(reconciliationMatchRepository.findByDealershipIdAndStatusIn(eq("DEALER-001"), anyCollection()))
+                .thenReturn(matches);
+        when(bankTransactionRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(transaction("txn-1", 54.0)));
+        when(depositBatchRepository.findAllById(anyIterable())).thenReturn(List.of(batch("batch-1", 54.0)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> matchModelService.train());
+        verify(matchModelRepository, never()).save(any());
+        assertNull(matchingEngine.getMatchScorer());
+    }
+
+    @Test
+    void testLoadLatestModel_InstallsSavedWeights() {
+        // Arrange
+        List<Double> weights = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            weights.add(i == 0 ? 4.0 : 0.0);
+        }
+        MatchModel saved = MatchModel.builder().dealershipId("DEALER-001").weights(weights).bias(-2.0).build();
+        when(matchModelRepository.findFirstByDealershipIdOrderByTrainedAtDesc("DEALER-001"))
+                .thenReturn(Optional.of(saved));
+
+        // Act
+        matchModelService.loadLatestModel();
+
+        // Assert
+        assertEquals(4.0, matchingEngine.getMatchScorer().getWeights()[0]);
+        assertEquals(-2.0, matchingEngine.getMatchScorer().getBias());
+    }
+
+    private ReconciliationMatch match(String transactionId, String batchId, String status) {
+        return ReconciliationMatch.builder()
+                .dealershipId("DEALER-001")
+                .bankTransactionId(transactionId)
+                .depositBatchId(batchId)
+                .status(status)
+                .build();
+    }
+}
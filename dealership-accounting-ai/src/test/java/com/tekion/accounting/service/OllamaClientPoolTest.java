@@ -0,0 +1,134 @@
+package com.tekion.accounting.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaClientPoolTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    private FakeOllamaServer first;
+    private FakeOllamaServer second;
+    private OllamaClient ollamaClient;
+
+    @BeforeEach
+    void setUp() throws java.lang.Exception {
+        first = new FakeOllamaServer(fast());
+        second = new FakeOllamaServer(fast());
+        ollamaClient = new OllamaClient();
+        ReflectionTestUtils.setField(ollamaClient, "ollamaBaseUrl", "http://unused");
+        ReflectionTestUtils.setField(ollamaClient, "ollamaUrls", first.getUrl() + ", " + second.getUrl() + "/");
+        ReflectionTestUtils.setField(ollamaClient, "httpVersion", HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(ollamaClient, "readTimeoutMillis", 5000);
+        ReflectionTestUtils.setField(ollamaClient, "bulkheadWaitMillis", 0L);
+        ReflectionTestUtils.setField(ollamaClient, "ejectAfterFailures", 1);
+        ReflectionTestUtils.setField(ollamaClient, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void testStream_GoesToTheEndpointWithFewestOutstanding() throws java.lang.Exception {
+        // Arrange
+        FakeOllamaServer.Settings slow = FakeOllamaServer.Settings.builder().firstTokenMedianMillis(200)
+                .tokensPerReply(2).build();
+        first.setSettings(slow);
+        second.setSettings(slow);
+        ollamaClient.start();
+
+        // Act: four calls in flight at once
+        List<CompletableFuture<String>> texts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            texts.add(ollamaClient.stream("llama3.2", "Explain " + i, token -> { }));
+        }
+        for (CompletableFuture<String> text : texts) {
+            text.get(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        assertEquals(2, first.getRequests());
+        assertEquals(2, second.getRequests());
+        List<OllamaEndpoint.EndpointStats> endpoints = ollamaClient.getStats().getEndpoints();
+        assertEquals(first.getUrl(), endpoints.get(0).getUrl());
+        assertEquals(second.getUrl(), endpoints.get(1).getUrl());
+        assertEquals(2, endpoints.get(0).getSuccesses());
+        assertEquals(0, endpoints.get(0).getOutstanding());
+    }
+
+    @Test
+    void testGenerate_FailingEndpointIsEjectedAndItsCallFailsOver() {
+        // Arrange
+        first.setSettings(FakeOllamaServer.Settings.builder().firstTokenMedianMillis(0).errorRate(1.0).build());
+        ollamaClient.start();
+
+        // Act
+        List<Optional<String>> texts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            texts.add(ollamaClient.generate("llama3.2", "Explain " + i));
+        }
+
+        // Assert: one request reached the broken server, every call still got model text
+        assertTrue(texts.stream().allMatch(Optional::isPresent));
+        assertEquals(1, first.getRequests());
+        assertEquals(6, second.getRequests());
+        OllamaClient.OllamaClientStats stats = ollamaClient.getStats();
+        assertEquals(1, stats.getFailovers());
+        assertEquals(6, stats.getSuccesses());
+        assertEquals(0, stats.getFailures());
+        OllamaEndpoint.EndpointStats broken = stats.getEndpoints().get(0);
+        assertFalse(broken.isHealthy());
+        assertEquals(1, broken.getEjections());
+        assertEquals(1, broken.getFailures());
+    }
+
+    @Test
+    void testStream_SlowEndpointIsHedgedAndTheLoserCancelled() throws java.lang.Exception {
+        // Arrange: a few quick calls give both endpoints a first-token history
+        ReflectionTestUtils.setField(ollamaClient, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(ollamaClient, "hedgeMinSamples", 1);
+        ReflectionTestUtils.setField(ollamaClient, "hedgeMinDelayMillis", 200L);
+        ollamaClient.start();
+        for (int i = 0; i < 4; i++) {
+            ollamaClient.generate("llama3.2", "Warm up " + i);
+        }
+        first.setSettings(FakeOllamaServer.Settings.builder().firstTokenMedianMillis(3000).build());
+
+        // Act: the four warm-up picks bring the rotation back to the first (now slow) endpoint
+        long start = System.nanoTime();
+        Optional<String> text = ollamaClient.generate("llama3.2", "Explain 1");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertTrue(text.isPresent());
+        assertTrue(millis < 2000, "hedged call should not wait for the slow endpoint, took " + millis + " ms");
+        OllamaClient.OllamaClientStats stats = ollamaClient.getStats();
+        assertEquals(1, stats.getHedges());
+        assertEquals(1, stats.getHedgeWins());
+        assertEquals(1, stats.getEndpoints().get(0).getCancelled());
+        assertEquals(1, stats.getEndpoints().get(1).getHedgeWins());
+        assertEquals(0, stats.getFailures());
+    }
+
+    private static FakeOllamaServer.Settings fast() {
+        return FakeOllamaServer.Settings.builder().firstTokenMedianMillis(5).tokensPerSecond(1000)
+                .tokensPerReply(4).build();
+    }
+}
@@ -0,0 +1,216 @@
+package com.tekion.accounting.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaClientTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    private HttpServer server;
+    private volatile Responder responder;
+    private final AtomicInteger requests = new AtomicInteger();
+    private OllamaClient ollamaClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                responder.respond(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+
+        ollamaClient = new OllamaClient();
+        ReflectionTestUtils.setField(ollamaClient, "ollamaBaseUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(ollamaClient, "httpVersion", java.net.http.HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(ollamaClient, "readTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(ollamaClient, "failureThreshold", 2);
+        ReflectionTestUtils.setField(ollamaClient, "openSeconds", 30L);
+        ReflectionTestUtils.setField(ollamaClient, "bulkheadWaitMillis", 0L);
+        ReflectionTestUtils.setField(ollamaClient, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+        ollamaClient.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testStream_DeliversTokensBeforeTheReplyEnds() throws java.lang.Exception {
+        // Arrange: the last line is held back until the first tokens have been seen
+        CountDownLatch firstTokensSeen = new CountDownLatch(2);
+        responder = exchange -> {
+            OutputStream body = startNdjson(exchange, 200);
+            writeLine(body, "{\"response\":\"Amounts\",\"done\":false}");
+            writeLine(body, "{\"response\":\" agree.\",\"done\":false}");
+            firstTokensSeen.await(2, TimeUnit.SECONDS);
+            writeLine(body, "{\"response\":\"\",\"done\":true}");
+        };
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // Act
+        CompletableFuture<String> text = ollamaClient.stream("llama3.2", "prompt", token -> {
+            tokens.add(token);
+            firstTokensSeen.countDown();
+        });
+
+        // Assert
+        assertEquals("Amounts agree.", text.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of("Amounts", " agree."), tokens);
+        OllamaClient.OllamaClientStats stats = ollamaClient.getStats();
+        assertEquals(1, stats.getSuccesses());
+        assertEquals(2, stats.getTokens());
+        assertEquals(1, stats.getFirstTokens());
+        assertTrue(stats.getFirstTokenNanos() > 0);
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testGenerate_ReusesPooledConnection() {
+        // Arrange: note the client port of each request
+        List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+        responder = exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            OutputStream body = startNdjson(exchange, 200);
+            writeLine(body, "{\"response\":\"  ok \",\"done\":true}");
+        };
+
+        // Act
+        Optional<String> first = ollamaClient.generate("llama3.2", "one");
+        Optional<String> second = ollamaClient.generate("llama3.2", "two");
+
+        // Assert: both calls went over the same kept-alive connection
+        assertEquals(Optional.of("ok"), first);
+        assertEquals(Optional.of("ok"), second);
+        assertEquals(2, clientPorts.size());
+        assertEquals(clientPorts.get(0), clientPorts.get(1));
+    }
+
+    @Test
+    void testGenerate_BreakerOpensThenHalfOpenProbeCloses() {
+        // Arrange: two failures open the breaker
+        responder = exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+        };
+        assertTrue(ollamaClient.generate("llama3.2", "prompt").isEmpty());
+        assertTrue(ollamaClient.generate("llama3.2", "prompt").isEmpty());
+
+        // Act: while open, calls fail fast without reaching Ollama
+        CompletableFuture<String> whileOpen = ollamaClient.stream("llama3.2", "prompt", token -> { });
+
+        // Assert
+        CompletionException refused = assertThrows(CompletionException.class, whileOpen::join);
+        assertInstanceOf(OllamaUnavailableException.class, refused.getCause());
+        assertFalse(ollamaClient.isAvailable());
+        assertEquals(2, requests.get());
+        OllamaClient.OllamaClientStats stats = ollamaClient.getStats();
+        assertEquals(CircuitBreaker.State.OPEN, stats.getBreaker().getState());
+        assertEquals(1, stats.getRejectedByBreaker());
+        assertEquals(2, stats.getFailures());
+
+        // Act: after the open time one probe goes through and closes the breaker
+        responder = exchange -> {
+            OutputStream body = startNdjson(exchange, 200);
+            writeLine(body, "{\"response\":\"ok\",\"done\":true}");
+        };
+        CircuitBreaker breaker = (CircuitBreaker) ReflectionTestUtils.getField(ollamaClient, "breaker");
+        ReflectionTestUtils.setField(breaker, "clock", Clock.fixed(NOW.plus(Duration.ofSeconds(31)), ZoneOffset.UTC));
+
+        // Assert
+        assertTrue(ollamaClient.isAvailable());
+        assertEquals(Optional.of("ok"), ollamaClient.generate("llama3.2", "prompt"));
+        CircuitBreaker.BreakerStats breakerStats = ollamaClient.getStats().getBreaker();
+        assertEquals(CircuitBreaker.State.CLOSED, breakerStats.getState());
+        assertEquals(1, breakerStats.getOpened());
+        assertEquals(1, breakerStats.getHalfOpened());
+        assertEquals(1, breakerStats.getClosed());
+    }
+
+    @Test
+    void testStream_StalledReplyTimesOut() {
+        // Arrange: one token, then nothing
+        ReflectionTestUtils.setField(ollamaClient, "readTimeoutMillis", 300);
+        CountDownLatch release = new CountDownLatch(1);
+        responder = exchange -> {
+            OutputStream body = startNdjson(exchange, 200);
+            writeLine(body, "{\"response\":\"Amounts\",\"done\":false}");
+            release.await(5, TimeUnit.SECONDS);
+        };
+
+        // Act
+        Optional<String> text = ollamaClient.generate("llama3.2", "prompt");
+        release.countDown();
+
+        // Assert
+        assertTrue(text.isEmpty());
+        assertEquals(1, ollamaClient.getStats().getTimeouts());
+        assertEquals(0, ollamaClient.getStats().getInFlight());
+    }
+
+    @Test
+    void testGenerate_FullBulkheadFallsBackWithoutTrippingBreaker() {
+        // Arrange: every slot is taken
+        Semaphore bulkhead = (Semaphore) ReflectionTestUtils.getField(ollamaClient, "bulkhead");
+        bulkhead.acquireUninterruptibly(4);
+
+        // Act
+        Optional<String> text = ollamaClient.generate("llama3.2", "prompt");
+
+        // Assert
+        assertTrue(text.isEmpty());
+        OllamaClient.OllamaClientStats stats = ollamaClient.getStats();
+        assertEquals(1, stats.getRejectedByBulkhead());
+        assertEquals(4, stats.getInFlight());
+        assertEquals(CircuitBreaker.State.CLOSED, stats.getBreaker().getState());
+        assertEquals(0, requests.get());
+    }
+
+    private static OutputStream startNdjson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(status, 0);
+        return exchange.getResponseBody();
+    }
+
+    private static void writeLine(OutputStream body, String line) throws IOException {
+        body.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private interface Responder {
+        void respond(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,227 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.repository.PromptCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OllamaServiceTest {
+
+    @Mock
+    private PromptCacheRepository promptCacheRepository;
+
+    @Mock
+    private OllamaClient ollamaClient;
+
+    private LatencySloController sloController;
+
+    private OllamaService ollamaService;
+
+    @BeforeEach
+    void setUp() {
+        sloController = new LatencySloController();
+        ollamaService = new OllamaService(new PromptCache(promptCacheRepository), ollamaClient, sloController);
+        ReflectionTestUtils.setField(ollamaService, "ollamaModel", "llama3.2");
+        lenient().when(ollamaClient.isAvailable()).thenReturn(true);
+    }
+
+    @Test
+    void testGenerateBatch_OneCallForAllItemsAndEachAnswerCached() {
+        // Arrange
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap())).thenReturn(Optional.of(
+                "Here you go:\n[\"Amounts agree.\", \"Fee of $1.50 withheld.\", \"Deposit in transit.\"]"));
+        List<OllamaService.BatchItem> items = List.of(
+                OllamaService.BatchItem.matchExplanation(54.0, 54.0, "BATCH-1"),
+                OllamaService.BatchItem.merchantFeeMemo(100.0, 98.5, 1.5, 1.5),
+                OllamaService.BatchItem.timingDifferenceMemo("BATCH-2", 75.0));
+
+        // Act
+        List<Optional<String>> memos = ollamaService.generateBatch(items);
+        Optional<String> cached = ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1");
+
+        // Assert
+        assertEquals(List.of(Optional.of("Amounts agree."), Optional.of("Fee of $1.50 withheld."),
+                Optional.of("Deposit in transit.")), memos);
+        assertEquals(Optional.of("Amounts agree."), cached);
+        ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
+        verify(ollamaClient, times(1)).generate(eq("llama3.2"), prompt.capture(), anyMap());
+        assertTrue(prompt.getValue().contains("JSON array of 3 strings"));
+        assertTrue(prompt.getValue().contains("\n3. Write a professional accounting memo"));
+        // The shared preamble is stated once
+        assertEquals(prompt.getValue().indexOf("You are an accounting AI assistant."),
+                prompt.getValue().lastIndexOf("You are an accounting AI assistant."));
+    }
+
+    @Test
+    void testGenerateBatch_UnparsableAnswerFallsBackToOneCallPerItem() {
+        // Arrange
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap()))
+                .thenReturn(Optional.of("[\"Only one answer\"]"))
+                .thenReturn(Optional.of("Unmatched credit memo."))
+                .thenReturn(Optional.empty());
+        List<OllamaService.BatchItem> items = List.of(
+                OllamaService.BatchItem.unmatchedMemo(10.0, "CREDIT"),
+                OllamaService.BatchItem.timingDifferenceMemo("BATCH-2", 75.0));
+
+        // Act
+        List<Optional<String>> memos = ollamaService.generateBatch(items);
+
+        // Assert
+        verify(ollamaClient, times(3)).generate(eq("llama3.2"), anyString(), anyMap());
+        assertEquals(Optional.of("Unmatched credit memo."), memos.get(0));
+        assertEquals(Optional.empty(), memos.get(1), "Refused item gets no fallback text");
+    }
+
+    @Test
+    void testGenerateBatch_CachedItemsAreNotSentAgain() {
+        // Arrange
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap())).thenReturn(Optional.of("Amounts agree."));
+        ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1");
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap())).thenReturn(Optional.of("Unmatched credit memo."));
+
+        // Act
+        List<Optional<String>> memos = ollamaService.generateBatch(List.of(
+                OllamaService.BatchItem.matchExplanation(54.0, 54.0, "BATCH-1"),
+                OllamaService.BatchItem.unmatchedMemo(10.0, "CREDIT")));
+
+        // Assert: one miss left, so it goes out as a plain single prompt
+        assertEquals(List.of(Optional.of("Amounts agree."), Optional.of("Unmatched credit memo.")), memos);
+        ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
+        verify(ollamaClient, times(2)).generate(eq("llama3.2"), prompt.capture(), anyMap());
+        assertFalse(prompt.getValue().contains("JSON array"));
+    }
+
+    @Test
+    void testGenerateText_ReducedModeCapsTheAnswerAndIsNotCached() {
+        // Arrange
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.REDUCED);
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap())).thenReturn(Optional.of("Amounts agree."));
+
+        // Act
+        Optional<String> first = ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1");
+        Optional<String> second = ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1");
+
+        // Assert: the shortened answer is not kept for FULL-mode readers
+        assertEquals(Optional.of("Amounts agree."), first);
+        assertEquals(Optional.of("Amounts agree."), second);
+        verify(ollamaClient, times(2)).generate(eq("llama3.2"), anyString(), eq(Map.of("num_predict", 128, "num_ctx", 1024)));
+    }
+
+    @Test
+    void testGenerateText_FallbackModeUsesTemplatesWithoutCallingOllama() {
+        // Arrange
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.FALLBACK);
+        ReflectionTestUtils.setField(sloController, "modeSince", System.currentTimeMillis());
+        when(ollamaClient.isAvailable()).thenReturn(true);
+
+        // Act
+        Optional<String> memo = ollamaService.tryGenerateTimingDifferenceMemo("BATCH-2", 75.0);
+        String template = ollamaService.fallbackText(OllamaService.BatchItem.timingDifferenceMemo("BATCH-2", 75.0));
+
+        // Assert: no model text; ExplanationQueue stores the template instead
+        assertTrue(memo.isEmpty());
+        assertTrue(ollamaService.isFallingBack());
+        assertTrue(template.contains("in transit"));
+        assertFalse(ollamaService.isAvailable());
+        verify(ollamaClient, never()).generate(anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    void testGenerateText_BreakerOpenIsNotSampledAsARecovery() {
+        // Arrange: degraded long enough ago that five fast samples would step back up
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "minSamples", 5);
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.REDUCED);
+        ReflectionTestUtils.setField(sloController, "modeSince", 0L);
+        when(ollamaClient.isAvailable()).thenReturn(false);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ollamaService.tryGenerateMatchExplanation(54.0, 54.0, "BATCH-1").isEmpty());
+        }
+
+        // Assert
+        assertEquals(LatencySloController.Mode.REDUCED, sloController.currentMode());
+        assertEquals(0, sloController.getStats().getRecoveries());
+        assertEquals(0, sloController.getStats().getSamples());
+        verify(ollamaClient, never()).generate(anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    void testGenerateText_FailedCallsCountAtTheReadTimeout() {
+        // Arrange: calls that fail at once
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "minSamples", 5);
+        when(ollamaClient.getReadTimeoutMillis()).thenReturn(30000);
+        when(ollamaClient.generate(eq("llama3.2"), anyString(), anyMap())).thenReturn(Optional.empty());
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            ollamaService.tryGenerateUnmatchedMemo(10.0, "CREDIT");
+        }
+
+        // Assert: over the 10 s SLO, not a near-zero latency
+        assertEquals(LatencySloController.Mode.REDUCED, sloController.currentMode());
+        assertEquals(1, sloController.getStats().getDegradations());
+        assertTrue(sloController.getStats().getRecentSwitches().get(0).getReason().contains("p95 30000 ms"));
+    }
+
+    @Test
+    void testStreamText_FollowsTheSloModeAndIsSampled() {
+        // Arrange
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.REDUCED);
+        when(ollamaClient.stream(eq("llama3.2"), anyString(), anyMap(), any()))
+                .thenReturn(CompletableFuture.completedFuture(" Deposit in transit. "));
+
+        // Act
+        String memo = ollamaService.streamTimingDifferenceMemo("BATCH-2", 75.0, token -> { }).join();
+        ollamaService.streamTimingDifferenceMemo("BATCH-2", 75.0, token -> { }).join();
+
+        // Assert: capped like tryGenerateText, timed, and not cached for FULL-mode readers
+        assertEquals("Deposit in transit.", memo);
+        verify(ollamaClient, times(2)).stream(eq("llama3.2"), anyString(),
+                eq(Map.of("num_predict", 128, "num_ctx", 1024)), any());
+        assertEquals(2, sloController.getStats().getSamples());
+    }
+
+    @Test
+    void testStreamText_FallbackFailsWithoutCallingAndRefusalsAreNotSampled() {
+        // Arrange
+        ReflectionTestUtils.setField(sloController, "enabled", true);
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.FALLBACK);
+        ReflectionTestUtils.setField(sloController, "modeSince", System.currentTimeMillis());
+
+        // Act
+        CompletableFuture<String> duringFallback = ollamaService.streamUnmatchedMemo(10.0, "CREDIT", token -> { });
+        ReflectionTestUtils.setField(sloController, "mode", LatencySloController.Mode.FULL);
+        when(ollamaClient.stream(eq("llama3.2"), anyString(), anyMap(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new OllamaUnavailableException("circuit breaker is open")));
+        CompletableFuture<String> refused = ollamaService.streamUnmatchedMemo(10.0, "CREDIT", token -> { });
+
+        // Assert
+        assertTrue(duringFallback.isCompletedExceptionally());
+        assertTrue(refused.isCompletedExceptionally());
+        verify(ollamaClient, times(1)).stream(anyString(), anyString(), anyMap(), any());
+        assertEquals(0, sloController.getStats().getSamples());
+    }
+}
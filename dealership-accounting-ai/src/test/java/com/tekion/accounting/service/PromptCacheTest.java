@@ -0,0 +1,123 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.PromptCacheEntry;
+import com.tekion.accounting.repository.PromptCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PromptCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    @Mock
+    private PromptCacheRepository promptCacheRepository;
+
+    private PromptCache promptCache;
+
+    @BeforeEach
+    void setUp() {
+        promptCache = new PromptCache(promptCacheRepository);
+        ReflectionTestUtils.setField(promptCache, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void testGet_HitAfterPutIgnoresWhitespaceAndModelMatters() {
+        // Arrange
+        promptCache.put("llama3.2", "Explain  batch BATCH-1\n($54.00)", "Amounts agree.");
+
+        // Act
+        Optional<String> hit = promptCache.get("llama3.2", " Explain batch BATCH-1 ($54.00) ");
+        Optional<String> otherModel = promptCache.get("mistral", "Explain batch BATCH-1 ($54.00)");
+
+        // Assert
+        assertEquals(Optional.of("Amounts agree."), hit);
+        assertTrue(otherModel.isEmpty());
+        PromptCache.PromptCacheStats stats = promptCache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+        verifyNoInteractions(promptCacheRepository);
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedAndExpiresAfterTtl() {
+        // Arrange
+        ReflectionTestUtils.setField(promptCache, "maxEntries", 2);
+        ReflectionTestUtils.setField(promptCache, "ttlMinutes", 60L);
+        promptCache.put("m", "a", "A");
+        promptCache.put("m", "b", "B");
+        promptCache.get("m", "a");
+
+        // Act: "b" is the least recently used when "c" arrives
+        promptCache.put("m", "c", "C");
+
+        // Assert
+        assertTrue(promptCache.get("m", "b").isEmpty());
+        assertEquals(Optional.of("A"), promptCache.get("m", "a"));
+        assertEquals(1, promptCache.getStats().getEvictions());
+
+        ReflectionTestUtils.setField(promptCache, "clock",
+                Clock.fixed(NOW.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+        assertTrue(promptCache.get("m", "c").isEmpty());
+        assertEquals(1, promptCache.getStats().getExpired());
+        assertEquals(1, promptCache.getStats().getSize());
+    }
+
+    @Test
+    void testGet_MongoTierSurvivesRestart() {
+        // Arrange: the entry was written by an earlier instance
+        ReflectionTestUtils.setField(promptCache, "mongoEnabled", true);
+        promptCache.put("llama3.2", "timing memo BATCH-7", "In transit.");
+        ArgumentCaptor<PromptCacheEntry> saved = ArgumentCaptor.forClass(PromptCacheEntry.class);
+        verify(promptCacheRepository).save(saved.capture());
+
+        PromptCache restarted = new PromptCache(promptCacheRepository);
+        ReflectionTestUtils.setField(restarted, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+        ReflectionTestUtils.setField(restarted, "mongoEnabled", true);
+        when(promptCacheRepository.findById(saved.getValue().getId())).thenReturn(Optional.of(saved.getValue()));
+
+        // Act
+        Optional<String> first = restarted.get("llama3.2", "timing memo BATCH-7");
+        Optional<String> second = restarted.get("llama3.2", "timing memo BATCH-7");
+
+        // Assert: the second lookup is served from memory
+        assertEquals(Optional.of("In transit."), first);
+        assertEquals(Optional.of("In transit."), second);
+        assertTrue(saved.getValue().getId().startsWith("llama3.2:"));
+        assertEquals(1, restarted.getStats().getMongoHits());
+        assertEquals(1, restarted.getStats().getHits());
+        verify(promptCacheRepository, times(1)).findById(anyString());
+    }
+
+    @Test
+    void testGet_MongoFailureIsAMiss() {
+        // Arrange
+        ReflectionTestUtils.setField(promptCache, "mongoEnabled", true);
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("down");
+        when(promptCacheRepository.findById(anyString())).thenThrow(down);
+        when(promptCacheRepository.save(any(PromptCacheEntry.class))).thenThrow(down);
+
+        // Act & Assert
+        assertTrue(promptCache.get("m", "prompt").isEmpty());
+        assertDoesNotThrow(() -> promptCache.put("m", "prompt", "text"));
+        assertEquals(Optional.of("text"), promptCache.get("m", "prompt"));
+    }
+}
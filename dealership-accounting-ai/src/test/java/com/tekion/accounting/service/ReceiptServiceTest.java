@@ -1,5 +1,6 @@
 package com.tekion.accounting.service;
 
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.Receipt;
 import com.tekion.accounting.model.RepairOrder;
 import com.tekion.accounting.repository.ReceiptRepository;
@@ -41,7 +42,7 @@ class ReceiptServiceTest {
                 .id("ro-123")
                 .roNumber("RO-001")
                 .status("CLOSED")
-                .total(108.0)
+                .total(Money.of(108.0))
                 .build();
 
         testReceipt = Receipt.builder()
@@ -49,7 +50,7 @@ class ReceiptServiceTest {
                 .receiptNumber("RCT-001")
                 .roId("ro-123")
                 .roNumber("RO-001")
-                .amount(108.0)
+                .amount(Money.of(108.0))
                 .status("UNBATCHED")
                 .build();
     }
@@ -73,7 +74,7 @@ class ReceiptServiceTest {
         assertNotNull(result);
         assertEquals("RCT-001", result.getReceiptNumber());
         assertEquals("ro-123", result.getRoId());
-        assertEquals(108.0, result.getAmount());
+        assertEquals(Money.of(108.0), result.getAmount());
         assertEquals("UNBATCHED", result.getStatus());
 
         verify(repairOrderRepository, times(1)).findById("ro-123");
@@ -0,0 +1,168 @@
+package com.tekion.accounting.service;
+
+import com.tekion.accounting.model.ReconciliationRun;
+import com.tekion.accounting.repository.ReconciliationRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationJobServiceTest {
+
+    @Mock
+    private AIReconciliationService aiReconciliationService;
+
+    @Mock
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    private ReconciliationJobService reconciliationJobService;
+
+    private ReconciliationRun job;
+
+    @BeforeEach
+    void setUp() {
+        reconciliationJobService = new ReconciliationJobService(aiReconciliationService, reconciliationRunRepository);
+        ReflectionTestUtils.setField(reconciliationJobService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(reconciliationJobService, "progressIntervalMillis", 60_000L);
+        reconciliationJobService.start();
+
+        job = ReconciliationRun.builder()
+                .id("job-1")
+                .status("RUNNING")
+                .transactionsScanned(3)
+                .batchesScanned(4)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationJobService.shutdown();
+    }
+
+    @Test
+    void testSubmit_QueuesJobAndRunsItInBackground() {
+        // Arrange
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenAnswer(invocation -> {
+            ReconciliationRun run = invocation.getArgument(0);
+            run.setId("job-1");
+            return run;
+        });
+        when(reconciliationRunRepository.markRunningIfQueued(eq("job-1"), any())).thenReturn(1L);
+        when(reconciliationRunRepository.findById("job-1")).thenReturn(Optional.of(job));
+
+        // Act
+        ReconciliationRun queued = reconciliationJobService.submit();
+
+        // Assert
+        assertEquals("job-1", queued.getId());
+        assertEquals("QUEUED", queued.getStatus());
+        assertNotNull(queued.getQueuedAt());
+        verify(aiReconciliationService, timeout(1_000)).runAIReconciliation(same(job), any(ReconciliationProgress.class));
+    }
+
+    @Test
+    void testSubmit_RejectsWhenQueueIsFull() throws InterruptedException {
+        // Arrange: the first job blocks the only worker, the second fills the queue
+        CountDownLatch release = new CountDownLatch(1);
+        int[] nextId = {0};
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenAnswer(invocation -> {
+            ReconciliationRun run = invocation.getArgument(0);
+            if (run.getId() == null) {
+                run.setId("job-" + (++nextId[0]));
+            }
+            return run;
+        });
+        when(reconciliationRunRepository.markRunningIfQueued(anyString(), any())).thenReturn(1L);
+        when(reconciliationRunRepository.findById(anyString())).thenReturn(Optional.of(job));
+        CountDownLatch started = new CountDownLatch(1);
+        when(aiReconciliationService.runAIReconciliation(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new AIReconciliationService.ReconciliationResult();
+        });
+
+        // Act
+        reconciliationJobService.submit();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        ReconciliationRun second = reconciliationJobService.submit();
+        ReconciliationRun third = reconciliationJobService.submit();
+        release.countDown();
+
+        // Assert
+        assertEquals("QUEUED", second.getStatus());
+        assertEquals("FAILED", third.getStatus());
+        assertNotNull(third.getErrorMessage());
+    }
+
+    @Test
+    void testCancel_QueuedJobIsCancelledInPlace() {
+        // Arrange
+        when(reconciliationRunRepository.cancelIfQueued(eq("job-1"), any())).thenReturn(1L);
+        when(reconciliationRunRepository.findById("job-1")).thenReturn(Optional.of(job));
+
+        // Act
+        Optional<ReconciliationRun> result = reconciliationJobService.cancel("job-1");
+
+        // Assert
+        assertTrue(result.isPresent());
+        verify(reconciliationRunRepository, never()).requestCancel(anyString());
+    }
+
+    @Test
+    void testCancel_RunningJobGetsCancelRequest() {
+        // Arrange
+        when(reconciliationRunRepository.cancelIfQueued(eq("job-1"), any())).thenReturn(0L);
+        when(reconciliationRunRepository.findById("job-1")).thenReturn(Optional.empty());
+
+        // Act
+        Optional<ReconciliationRun> result = reconciliationJobService.cancel("job-1");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(reconciliationRunRepository).requestCancel("job-1");
+    }
+
+    @Test
+    void testRunJob_SkipsJobCancelledWhileQueued() {
+        // Arrange
+        when(reconciliationRunRepository.markRunningIfQueued(eq("job-1"), any())).thenReturn(0L);
+
+        // Act
+        reconciliationJobService.runJob("job-1");
+
+        // Assert
+        verifyNoInteractions(aiReconciliationService);
+    }
+
+    @Test
+    void testProgress_FlushesThrottledAndStopsOnRemoteCancel() {
+        // Arrange
+        when(reconciliationRunRepository.markRunningIfQueued(eq("job-1"), any())).thenReturn(1L);
+        when(reconciliationRunRepository.findById("job-1")).thenReturn(Optional.of(job));
+        reconciliationJobService.runJob("job-1");
+        ArgumentCaptor<ReconciliationProgress> progress = ArgumentCaptor.forClass(ReconciliationProgress.class);
+        verify(aiReconciliationService).runAIReconciliation(same(job), progress.capture());
+
+        AIReconciliationService.ReconciliationResult result = new AIReconciliationService.ReconciliationResult();
+        result.incrementItemsProcessed(2);
+        when(reconciliationRunRepository.existsByIdAndCancelRequestedTrue("job-1")).thenReturn(true);
+
+        // Act & Assert: the first checkpoint flushes and sees the cancel, the next is throttled
+        assertThrows(ReconciliationCancelledException.class, () -> progress.getValue().checkpoint(job, result));
+        assertDoesNotThrow(() -> progress.getValue().checkpoint(job, result));
+        verify(reconciliationRunRepository, times(1)).updateProgress("job-1", 3, 4, 2, 0, 0);
+    }
+}
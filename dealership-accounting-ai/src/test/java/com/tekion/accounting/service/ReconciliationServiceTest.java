@@ -2,6 +2,7 @@ package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.BankTransaction;
 import com.tekion.accounting.model.DepositBatch;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.ReconciliationMatch;
 import com.tekion.accounting.repository.ReconciliationMatchRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,14 +44,14 @@ class ReconciliationServiceTest {
         testBankTransaction = BankTransaction.builder()
                 .id("txn-123")
                 .transactionId("BANK-TXN-001")
-                .amount(100.0)
+                .amount(Money.of(100.0))
                 .status("UNMATCHED")
                 .build();
 
         testDepositBatch = DepositBatch.builder()
                 .id("batch-123")
                 .batchNumber("BATCH-001")
-                .total(100.0)
+                .total(Money.of(100.0))
                 .reconciled(false)
                 .build();
 
@@ -97,6 +98,30 @@ class ReconciliationServiceTest {
         verify(depositBatchService, times(1)).markBatchAsReconciled("batch-123");
     }
 
+    @Test
+    void testConfirmMatch_UpgradesExistingSuggestion() {
+        // Arrange: a reconciliation run already suggested this pair
+        ReconciliationMatch suggestion = ReconciliationMatch.builder()
+                .id("match-456")
+                .bankTransactionId("txn-123")
+                .depositBatchId("batch-123")
+                .naturalKey("txn-123|batch-123")
+                .status("SUGGESTED")
+                .build();
+        when(bankTransactionService.getBankTransactionById("txn-123")).thenReturn(testBankTransaction);
+        when(depositBatchService.getDepositBatchById("batch-123")).thenReturn(testDepositBatch);
+        when(reconciliationMatchRepository.findByNaturalKey("txn-123|batch-123")).thenReturn(Optional.of(suggestion));
+        when(reconciliationMatchRepository.save(any(ReconciliationMatch.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        ReconciliationMatch result = reconciliationService.confirmMatch("txn-123", "batch-123", true, 95, null);
+
+        // Assert: the suggestion is updated in place rather than duplicated
+        assertEquals("match-456", result.getId());
+        assertEquals("CONFIRMED", result.getStatus());
+        assertTrue(result.getUserConfirmed());
+    }
+
     @Test
     void testConfirmMatch_BankTransactionAlreadyMatched() {
         // Arrange
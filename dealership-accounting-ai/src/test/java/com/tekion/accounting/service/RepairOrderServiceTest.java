@@ -2,6 +2,7 @@ package com.tekion.accounting.service;
 
 import com.tekion.accounting.model.Customer;
 import com.tekion.accounting.model.LineItem;
+import com.tekion.accounting.model.Money;
 import com.tekion.accounting.model.RepairOrder;
 import com.tekion.accounting.model.Vehicle;
 import com.tekion.accounting.repository.RepairOrderRepository;
@@ -58,8 +59,8 @@ class RepairOrderServiceTest {
         LineItem lineItem = LineItem.builder()
                 .description("Oil Change")
                 .quantity(1)
-                .rate(50.0)
-                .amount(50.0)
+                .rate(Money.of(50.0))
+                .amount(Money.of(50.0))
                 .build();
 
         // Create test repair order